@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+/**
+ * Determines which class loader is used to load classes named by {@code Class} option values.
+ *
+ * @see Option#classLoader()
+ */
+public enum ClassLoaderPolicy {
+    /**
+     * Use context class loader of the thread converting the value (usually, the thread loading options), falling back
+     * to {@link #OPTIONS} if the thread has no context class loader.
+     */
+    CONTEXT,
+
+    /**
+     * Use the class loader which loaded the options interface declaring the option.
+     */
+    OPTIONS,
+
+    /**
+     * Use the system class loader.
+     */
+    SYSTEM
+}
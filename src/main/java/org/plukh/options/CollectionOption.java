@@ -52,4 +52,40 @@ public @interface CollectionOption {
     Class elementClass() default String.class;
 
     Class<? extends Collection> backingClass() default AbstractCollection.class;
+
+    /**
+     * Optionally, specify capacity of a bounded collection. Only bounded options collections (like the ones backing
+     * {@code BlockingQueue} and {@code BlockingDeque} options) accept this attribute; specifying it for any other
+     * collection results in an error when the options proxy is created. Zero stands for the collection's default
+     * capacity.
+     */
+    int capacity() default 0;
+
+    /**
+     * Set this to <code>true</code> to persist modifications of a queue option to a journal: every element added to or
+     * removed from the queue appends a short record to a journal file next to the options file, instead of the whole
+     * queue being written to the options file on every save. The journal is replayed when options are loaded, and
+     * compacted in the background afterwards. Only {@code Queue} options can be journaled; setting this for
+     * any other collection results in an error when the options proxy is created.
+     * <p/>
+     * Journals are maintained by persistence providers which store options in files, like
+     * {@link org.plukh.options.impl.persistence.PropertiesPersistenceProvider}.
+     */
+    boolean journaled() default false;
+
+    /**
+     * Optionally, specify the number of elements in a page to make a large {@code List} option paged. Paged options
+     * keep their values as encoded pages, only decoding the pages which are accessed and keeping at most
+     * {@link #residentPages()} decoded pages in memory; the list can't be modified directly. Persistence providers
+     * which support it (like {@link org.plukh.options.impl.persistence.PropertiesPersistenceProvider}) store such
+     * options page by page. Only {@code List} options can be paged; setting this for any other collection results in
+     * an error when the options proxy is created. Zero stands for a regular, non-paged option.
+     */
+    int pageSize() default 0;
+
+    /**
+     * Optionally, specify the maximum number of decoded pages of a paged option kept in memory (see
+     * {@link #pageSize()}). Zero stands for the default number of pages.
+     */
+    int residentPages() default 0;
 }
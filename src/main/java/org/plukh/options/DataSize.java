@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+import java.util.Locale;
+
+/**
+ * An immutable amount of data in bytes, used as a value class for options holding buffer sizes, limits and similar values.
+ * The size is parsed from its string form once, when the option is loaded; {@link #toBytes()} simply returns a
+ * primitive {@code long}, so it's cheap enough to be called on hot paths.
+ * <p/>
+ * String form consists of a non-negative integer amount followed by an optional unit suffix. Both decimal (SI) units -
+ * {@code KB}, {@code MB}, {@code GB}, {@code TB}, {@code PB}, {@code EB} - and binary (IEC) units - {@code KiB},
+ * {@code MiB}, {@code GiB}, {@code TiB}, {@code PiB}, {@code EiB} - are supported, so {@code 1KB} is 1000 bytes, while
+ * {@code 1KiB} is 1024 bytes. Suffixes are case-insensitive, and whitespace between the amount and the suffix is allowed.
+ * Amounts without a suffix (or with {@code B} suffix) are treated as bytes.
+ * <p/>
+ * {@link #toString()} returns a canonical form, using the unit which expresses the size exactly with the smallest amount
+ * (for example, {@code 512MB} or {@code 2GiB}).
+ */
+public final class DataSize implements Comparable<DataSize> {
+    private static final String[] PREFIXES = {"K", "M", "G", "T", "P", "E"};
+
+    public static final DataSize ZERO = new DataSize(0);
+
+    private final long bytes;
+
+    private DataSize(long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns a data size of the specified number of bytes.
+     *
+     * @throws IllegalArgumentException if {@code bytes} is negative.
+     */
+    public static DataSize ofBytes(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Data size can't be negative: " + bytes);
+        return bytes == 0 ? ZERO : new DataSize(bytes);
+    }
+
+    /**
+     * Parses a string representation of a data size (see class description for format details).
+     *
+     * @param s string to parse.
+     * @return parsed data size.
+     * @throws ParseException if the string can't be parsed.
+     */
+    public static DataSize parse(CharSequence s) throws ParseException {
+        final int length = s.length();
+        int start = 0;
+        int end = length;
+        while (start < end && Character.isWhitespace(s.charAt(start))) ++start;
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) --end;
+
+        //Parse the amount
+        int p = start;
+        long amount = 0;
+        while (p < end && s.charAt(p) >= '0' && s.charAt(p) <= '9') {
+            amount = amount * 10 + (s.charAt(p) - '0');
+            if (amount < 0 || p - start > 18) throw new ParseException("Data size amount is too large: " + s);
+            ++p;
+        }
+        if (p == start) throw new ParseException("Error parsing data size: " + s);
+
+        //Skip whitespace, then parse the unit
+        while (p < end && Character.isWhitespace(s.charAt(p))) ++p;
+        final long bytesPerUnit = p == end ? 1 : parseUnit(s, p, end);
+
+        try {
+            return ofBytes(Math.multiplyExact(amount, bytesPerUnit));
+        } catch (ArithmeticException e) {
+            throw new ParseException("Data size is too large: " + s, e);
+        }
+    }
+
+    private static long parseUnit(CharSequence s, int start, int end) {
+        final String unit = s.subSequence(start, end).toString().toUpperCase(Locale.ROOT);
+        if (unit.equals("B")) return 1;
+
+        for (int i = 0; i < PREFIXES.length; ++i) {
+            if (unit.length() == 2 && unit.startsWith(PREFIXES[i]) && unit.charAt(1) == 'B') {
+                return pow(1000, i + 1);
+            }
+            if (unit.length() == 3 && unit.startsWith(PREFIXES[i]) && unit.charAt(1) == 'I' && unit.charAt(2) == 'B') {
+                return 1L << (10 * (i + 1));
+            }
+        }
+
+        throw new ParseException("Unknown data size unit \"" + s.subSequence(start, end) + "\" in data size: " + s);
+    }
+
+    private static long pow(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; ++i) result *= base;
+        return result;
+    }
+
+    public long toBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int compareTo(DataSize o) {
+        return Long.compare(bytes, o.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof DataSize && bytes == ((DataSize) o).bytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        if (bytes == 0) return "0B";
+
+        //Find the largest decimal and binary units expressing the size exactly
+        long decimalAmount = bytes;
+        int decimalUnit = 0;
+        while (decimalUnit < PREFIXES.length && decimalAmount % 1000 == 0) {
+            decimalAmount /= 1000;
+            ++decimalUnit;
+        }
+
+        long binaryAmount = bytes;
+        int binaryUnit = 0;
+        while (binaryUnit < PREFIXES.length && binaryAmount % 1024 == 0) {
+            binaryAmount >>= 10;
+            ++binaryUnit;
+        }
+
+        if (binaryAmount <= decimalAmount) {
+            return binaryUnit == 0 ? bytes + "B" : binaryAmount + PREFIXES[binaryUnit - 1] + "iB";
+        }
+        return decimalAmount + PREFIXES[decimalUnit - 1] + "B";
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable set of IPv4 and IPv6 address ranges in CIDR notation, used as a value class for options holding
+ * trusted proxies, block lists and similar values. Ranges are parsed once, when the option is loaded, into a compressed
+ * binary radix tree per address family; matching an address walks a single path of the tree, so it takes at most one
+ * step per address bit and doesn't allocate any objects.
+ * <p/>
+ * String form is a comma-separated list of ranges, like {@code 10.0.0.0/8, 192.168.1.1, 2001:db8::/32}. Addresses
+ * without a prefix length stand for single hosts ({@code /32} for IPv4 addresses, {@code /128} for IPv6 ones). Bits of
+ * a range's address beyond its prefix length must be zero. IPv6 addresses can use {@code ::} compression and can end
+ * with an embedded IPv4 address; zone indices aren't supported. IPv4 addresses are only matched against IPv4 ranges,
+ * and IPv6 addresses against IPv6 ones; note that {@link InetAddress} represents IPv4-mapped IPv6 addresses as IPv4
+ * addresses.
+ * <p/>
+ * {@link #toString()} returns the ranges as they were specified, separated by {@code ", "}.
+ */
+public final class IpRangeSet {
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    public static final IpRangeSet EMPTY = new IpRangeSet(Collections.<String>emptyList(), null, null);
+
+    private final List<String> ranges;
+    private final Node ipv4;
+    private final Node ipv6;
+
+    private IpRangeSet(List<String> ranges, Node ipv4, Node ipv6) {
+        this.ranges = ranges;
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    /**
+     * Parses a string representation of a set of ranges (see class description for format details).
+     *
+     * @param s string to parse.
+     * @return parsed set of ranges; {@link #EMPTY} if the string contains no ranges.
+     * @throws ParseException if the string can't be parsed.
+     */
+    public static IpRangeSet parse(CharSequence s) throws ParseException {
+        final List<String> ranges = new ArrayList<>();
+        Node ipv4 = null;
+        Node ipv6 = null;
+
+        final long[] address = new long[2];
+        for (String token : s.toString().split(",")) {
+            final String range = token.trim();
+            if (range.isEmpty()) continue;
+
+            final int slash = range.indexOf('/');
+            final String host = slash < 0 ? range : range.substring(0, slash);
+            final boolean v6 = host.indexOf(':') >= 0;
+            if (!(v6 ? parseIPv6(host, address) : parseIPv4(host, address)))
+                throw new ParseException("Error parsing address " + host + " in IP range: " + range);
+
+            final int bits = v6 ? IPV6_BITS : IPV4_BITS;
+            final int length = slash < 0 ? bits : parsePrefixLength(range.substring(slash + 1), bits, range);
+            if ((address[0] & ~highMask(length)) != 0 || (address[1] & ~lowMask(length)) != 0)
+                throw new ParseException("Address of IP range " + range + " has bits set beyond its prefix length");
+
+            if (v6) ipv6 = insert(ipv6, address[0], address[1], length);
+            else ipv4 = insert(ipv4, address[0], address[1], length);
+            ranges.add(range);
+        }
+
+        return ranges.isEmpty() ? EMPTY : new IpRangeSet(Collections.unmodifiableList(ranges), ipv4, ipv6);
+    }
+
+    private static int parsePrefixLength(String s, int bits, String range) throws ParseException {
+        int length = 0;
+        if (s.isEmpty() || s.length() > 3) throw new ParseException("Invalid prefix length in IP range: " + range);
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c < '0' || c > '9') throw new ParseException("Invalid prefix length in IP range: " + range);
+            length = length * 10 + (c - '0');
+        }
+        if (length > bits) throw new ParseException("Prefix length is too large in IP range: " + range);
+        return length;
+    }
+
+    private static boolean parseIPv4(String s, long[] address) {
+        final long ipv4 = parseIPv4(s, 0, s.length());
+        if (ipv4 < 0) return false;
+        address[0] = ipv4 << 32;
+        address[1] = 0;
+        return true;
+    }
+
+    /**
+     * Parses a dotted IPv4 address.
+     *
+     * @return the address as an unsigned 32-bit value; -1 if it can't be parsed.
+     */
+    private static long parseIPv4(String s, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int p = start;
+        while (p <= end) {
+            int octet = 0;
+            final int octetStart = p;
+            while (p < end && s.charAt(p) >= '0' && s.charAt(p) <= '9') octet = octet * 10 + (s.charAt(p++) - '0');
+            if (p == octetStart || p - octetStart > 3 || octet > 255 || ++octets > 4) return -1;
+            result = result << 8 | octet;
+
+            if (p == end) break;
+            if (s.charAt(p++) != '.') return -1;
+        }
+        return octets == 4 ? result : -1;
+    }
+
+    private static boolean parseIPv6(String s, long[] address) {
+        final int[] groups = new int[8];
+        final int compressed = s.indexOf("::");
+        if (compressed >= 0 && s.indexOf("::", compressed + 1) >= 0) return false;
+
+        final int head;
+        if (compressed < 0) {
+            head = parseGroups(s, groups, 0, true);
+            if (head != 8) return false;
+        } else {
+            head = parseGroups(s.substring(0, compressed), groups, 0, false);
+            if (head < 0) return false;
+
+            final int[] tailGroups = new int[8];
+            final int tail = parseGroups(s.substring(compressed + 2), tailGroups, 0, true);
+            //Compression stands for at least one group
+            if (tail < 0 || head + tail > 7) return false;
+            System.arraycopy(tailGroups, 0, groups, 8 - tail, tail);
+        }
+
+        address[0] = address[1] = 0;
+        for (int i = 0; i < 8; ++i) address[i / 4] |= (long) groups[i] << (16 * (3 - i % 4));
+        return true;
+    }
+
+    /**
+     * Parses colon-separated hexadecimal groups, optionally ending with an embedded IPv4 address (counted as two groups).
+     *
+     * @return the number of groups parsed; -1 if the string can't be parsed.
+     */
+    private static int parseGroups(String s, int[] groups, int offset, boolean allowIPv4) {
+        if (s.isEmpty()) return 0;
+
+        int count = 0;
+        int p = 0;
+        final int end = s.length();
+        while (true) {
+            final int colon = s.indexOf(':', p);
+            final int groupEnd = colon < 0 ? end : colon;
+            if (groupEnd == end && allowIPv4 && s.indexOf('.', p) >= 0) {
+                if (offset + count + 2 > groups.length) return -1;
+                final long ipv4 = parseIPv4(s, p, end);
+                if (ipv4 < 0) return -1;
+                groups[offset + count++] = (int) (ipv4 >>> 16);
+                groups[offset + count++] = (int) (ipv4 & 0xFFFF);
+                return count;
+            }
+
+            if (groupEnd == p || groupEnd - p > 4 || offset + count == groups.length) return -1;
+            int group = 0;
+            for (int i = p; i < groupEnd; ++i) {
+                final int digit = Character.digit(s.charAt(i), 16);
+                if (digit < 0) return -1;
+                group = group << 4 | digit;
+            }
+            groups[offset + count++] = group;
+
+            if (groupEnd == end) return count;
+            p = groupEnd + 1;
+        }
+    }
+
+    private static Node insert(Node node, long high, long low, int length) {
+        if (node == null) return new Node(high, low, length, true);
+
+        final int common = Math.min(commonPrefixLength(node.high, node.low, high, low), Math.min(node.length, length));
+        if (common == node.length) {
+            if (length == node.length) {
+                node.terminal = true;
+            } else if (bit(high, low, node.length) == 0) {
+                node.zero = insert(node.zero, high, low, length);
+            } else {
+                node.one = insert(node.one, high, low, length);
+            }
+            return node;
+        }
+
+        //Split the node at the first differing bit (or at the end of the new range)
+        final Node split = new Node(high & highMask(common), low & lowMask(common), common, common == length);
+        if (bit(node.high, node.low, common) == 0) split.zero = node;
+        else split.one = node;
+        if (common < length) {
+            final Node leaf = new Node(high, low, length, true);
+            if (bit(high, low, common) == 0) split.zero = leaf;
+            else split.one = leaf;
+        }
+        return split;
+    }
+
+    /**
+     * Returns the length of the longest prefix in this set matching an address.
+     *
+     * @param address address in network byte order: 4 bytes for IPv4 addresses, 16 bytes for IPv6 ones.
+     * @return prefix length of the longest range containing the address, or -1 if no range contains it.
+     * @throws IllegalArgumentException if the address is neither 4 nor 16 bytes long.
+     */
+    public int longestMatch(byte[] address) {
+        if (address.length == 4) return longestMatchIPv4(readInt(address, 0));
+        if (address.length != 16) throw new IllegalArgumentException("Invalid IP address length: " + address.length);
+
+        return longestMatch(ipv6, IPV6_BITS, (long) readInt(address, 0) << 32 | readInt(address, 4) & 0xFFFFFFFFL,
+                (long) readInt(address, 8) << 32 | readInt(address, 12) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the length of the longest prefix in this set matching an IPv4 address.
+     *
+     * @param address IPv4 address, most significant byte first.
+     * @return prefix length of the longest range containing the address, or -1 if no range contains it.
+     */
+    public int longestMatchIPv4(int address) {
+        return longestMatch(ipv4, IPV4_BITS, (address & 0xFFFFFFFFL) << 32, 0);
+    }
+
+    private static int longestMatch(Node node, int bits, long high, long low) {
+        int longest = -1;
+        while (node != null && commonPrefixLength(node.high, node.low, high, low) >= node.length) {
+            if (node.terminal) longest = node.length;
+            if (node.length == bits) break;
+            node = bit(high, low, node.length) == 0 ? node.zero : node.one;
+        }
+        return longest;
+    }
+
+    public boolean contains(byte[] address) {
+        return longestMatch(address) >= 0;
+    }
+
+    public boolean containsIPv4(int address) {
+        return longestMatchIPv4(address) >= 0;
+    }
+
+    public boolean contains(InetAddress address) {
+        return longestMatch(address.getAddress()) >= 0;
+    }
+
+    /**
+     * Returns ranges of this set, as they were specified.
+     */
+    public List<String> getRanges() {
+        return ranges;
+    }
+
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 24 | (b[offset + 1] & 0xFF) << 16 | (b[offset + 2] & 0xFF) << 8 | b[offset + 3] & 0xFF;
+    }
+
+    private static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        final long high = high1 ^ high2;
+        if (high != 0) return Long.numberOfLeadingZeros(high);
+        return 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    private static int bit(long high, long low, int index) {
+        return (int) (index < 64 ? high >>> (63 - index) : low >>> (127 - index)) & 1;
+    }
+
+    private static long highMask(int length) {
+        return length == 0 ? 0 : length >= 64 ? -1L : -1L << (64 - length);
+    }
+
+    private static long lowMask(int length) {
+        return length <= 64 ? 0 : -1L << (128 - length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof IpRangeSet && ranges.equals(((IpRangeSet) o).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return ranges.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (String range : ranges) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(range);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Node of a radix tree: a prefix of {@code length} bits, left-aligned in two longs. Nodes are only modified while
+     * the tree is being built.
+     */
+    private static final class Node {
+        private final long high;
+        private final long low;
+        private final int length;
+        private boolean terminal;
+        private Node zero;
+        private Node one;
+
+        private Node(long high, long low, int length, boolean terminal) {
+            this.high = high;
+            this.low = low;
+            this.length = length;
+            this.terminal = terminal;
+        }
+    }
+}
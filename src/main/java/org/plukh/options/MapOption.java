@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate getters returning {@code java.util.Map} with this annotation to mark them as map option accessors. Map
+ * options are read-only: the map returned by the getter can't be modified, and is replaced as a whole when options are
+ * loaded or reset. Keys and values can be of any class supported for scalar options.
+ * <p/>
+ * <strong>Example:</strong>
+ * <pre>
+ * ...
+ * <b>&#064;MapOption</b>(valueClass = Integer.class, defaultValue = "api.example.com=500:cdn.example.com=2000")
+ * Map&lt;String, Integer&gt; getTimeouts();
+ * ...
+ * </pre>
+ * See {@link org.plukh.options.impl.options.MapOption} for the string format of map values.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MapOption {
+    /**
+     * Optionally, specify an unique key which will unambigously identify this particular map option when saving/loading
+     * options from a backing store. If no key is specified, or if its value is null or empty, name of the property
+     * referenced by the getter method will be used instead.
+     * <p/>
+     * Only the following characters can be used for option keys: lower and upper English letters, digits, dot ("."),
+     * underscore ("_") and minus sign ("-").
+     */
+    String key() default "";
+
+    /**
+     * Optionally, specify a default string value for this map option.
+     */
+    String defaultValue() default "";
+
+    /**
+     * Set this to <code>true</code> to make an option transient. Transient options aren't saved or loaded to/from the
+     * backing store.
+     */
+    boolean transientOption() default false;
+
+    Class keyClass() default String.class;
+
+    Class valueClass() default String.class;
+}
@@ -85,4 +85,27 @@ public @interface Option {
      * store (transientOption takes precedence).
      */
     boolean transientOption() default false;
+
+    /**
+     * Optionally, specify a custom format pattern for the option's string representation. Only option classes which
+     * support custom formats accept this attribute (for example, date and time options accept
+     * {@link java.time.format.DateTimeFormatter} patterns, and {@link PatternSet} options accept {@code regex} or
+     * {@code glob} pattern syntax); specifying a format for any other option class results in
+     * an error when the options proxy is created.
+     */
+    String format() default "";
+
+    /**
+     * Set this to <code>true</code> to match enum constant names ignoring case when converting the option's string
+     * value. Only enum options accept this attribute; setting it for any other option class results in an error when
+     * the options proxy is created.
+     */
+    boolean ignoreCase() default false;
+
+    /**
+     * Optionally, specify the class loader to be used for loading classes named by the option's value. Only
+     * {@code Class} options accept a policy other than the default one; specifying it for any other option class
+     * results in an error when the options proxy is created.
+     */
+    ClassLoaderPolicy classLoader() default ClassLoaderPolicy.CONTEXT;
 }
@@ -23,11 +23,28 @@ package org.plukh.options;
  * <p/>
  * <b>Data types supported for options: </b><br />
  * <ul>
- *     <li>{@code int} and {@code Integer}</li>
+ *     <li>{@code int} and {@code Integer}, as well as other primitive number types and their wrappers</li>
+ *     <li>{@code java.math.BigInteger} and {@code BigDecimal}</li>
+ *     <li>{@code java.util.concurrent.atomic.AtomicInteger}, {@code AtomicLong} and {@code LongAdder} (counters,
+ *     which are updated in place rather than replaced when loading)</li>
  *     <li>{@code boolean} and {@code Boolean}</li>
  *     <li>{@code String}</li>
  *     <li>{@code java.util.Date}</li>
- *     <li>{@code java.util.Collection}</li>
+ *     <li>{@code java.time.Instant}, {@code LocalDate}, {@code LocalDateTime}, {@code ZonedDateTime} and
+ *     {@code Duration}</li>
+ *     <li>{@link TimeSpan} and {@link DataSize}</li>
+ *     <li>{@link IpRangeSet} (sets of IPv4 and IPv6 CIDR ranges, parsed into radix trees when the option's string
+ *     value changes)</li>
+ *     <li>enums</li>
+ *     <li>{@code java.util.regex.Pattern}, {@code java.text.MessageFormat}, {@code Class}, {@code java.net.URI},
+ *     {@code java.nio.charset.Charset} and {@code java.util.Locale} (compiled once when the option's string value
+ *     changes)</li>
+ *     <li>{@link PatternSet} (lists of regular expressions or glob patterns, compiled into a single matcher)</li>
+ *     <li>{@code int[]}, {@code long[]} and {@code double[]}</li>
+ *     <li>{@code java.util.Collection}; lists and sets of {@code Integer} and {@code Long} elements are stored
+ *     in primitive arrays, without boxing</li>
+ *     <li>{@code java.util.Map}, declared with {@link MapOption @MapOption} (read-only, replaced as a whole when
+ *     options are loaded)</li>
  * </ul>
  * For collections, implementation will maintain the order in which elements were iterated by Collection's iterator when saving
  * option values to the backing store.
@@ -104,6 +121,22 @@ public interface Options {
 
     boolean load(boolean suppressConversionErrors) throws OptionsException;
 
+    /**
+     * Loads option values from a backing store like {@link #load(boolean)} does, unless neither the store nor any of
+     * the options have changed since options were last loaded or saved, in which case options are left as they are.
+     * Use this method for periodic reloads: checking a file-based store usually takes reading the file's attributes
+     * only. Persistence providers which can't tell whether the store has changed always load options.
+     *
+     * @param suppressConversionErrors see {@link #load(boolean)}.
+     *
+     * @return {@code true} if options were loaded (or reset to defaults, if the store is gone), {@code false} if
+     * nothing has changed and options weren't loaded.
+     *
+     * @throws ConversionException see {@link #load(boolean)}.
+     * @throws OptionsException see {@link #load(boolean)}.
+     */
+    boolean reload(boolean suppressConversionErrors) throws OptionsException;
+
     /**
      * Saves option values to a backing store. The store to be used is determined by {@link PersistenceProvider} configured
      * for this set of options.
@@ -17,6 +17,8 @@
 package org.plukh.options;
 
 import org.plukh.options.impl.OptionsProxyHandler;
+import org.plukh.options.impl.collections.OptionsMap;
+import org.plukh.options.impl.collections.OptionsPagedList;
 import org.plukh.options.impl.options.*;
 import org.plukh.options.impl.persistence.TransientPersistenceProvider;
 
@@ -106,11 +108,14 @@ public class OptionsFactory {
             if (m.matches()) {
                 Option optionAnnotation = method.getAnnotation(Option.class);
                 CollectionOption collectionAnnotation = method.getAnnotation(CollectionOption.class);
+                MapOption mapAnnotation = method.getAnnotation(MapOption.class);
 
-                if (optionAnnotation != null && collectionAnnotation != null)
-                    throw new OptionsException("Only one of @Option/@CollectionOption annotations can be used for method " + method);
+                int annotations = (optionAnnotation != null ? 1 : 0) + (collectionAnnotation != null ? 1 : 0) +
+                        (mapAnnotation != null ? 1 : 0);
+                if (annotations > 1)
+                    throw new OptionsException("Only one of @Option/@CollectionOption/@MapOption annotations can be used for method " + method);
 
-                if (optionAnnotation != null || collectionAnnotation != null) {
+                if (annotations == 1) {
                     validateMethodName(method, m.group(GROUP_NAME), m.group(GROUP_PREFIX));
                     getters.add(method);
                 }
@@ -156,8 +161,9 @@ public class OptionsFactory {
                 setter = null;
             }
 
-            //See if the method is annotated as read-only or is annotated as collection option
-            if (getter.getAnnotation(Option.class) != null && getter.getAnnotation(Option.class).readOnly() || getter.getAnnotation(CollectionOption.class) != null) { //Collection options are read-only always
+            //See if the method is annotated as read-only or is annotated as collection or map option
+            if (getter.getAnnotation(Option.class) != null && getter.getAnnotation(Option.class).readOnly() ||
+                    getter.getAnnotation(CollectionOption.class) != null || getter.getAnnotation(MapOption.class) != null) { //Collection and map options are read-only always
                 if (setter != null) {
                     throw new OptionsException("Read-only getter " + getter + " has a matching setter in " + getter.getDeclaringClass().getName());
                 }
@@ -233,14 +239,37 @@ public class OptionsFactory {
     private static AbstractOption instantiateOption(Method getter) throws UnsupportedOptionClassException, IllegalAccessException, InstantiationException {
         if (getter.getAnnotation(Option.class) != null) {
             return instantiateScalarOption(getter);
+        } else if (getter.getAnnotation(MapOption.class) != null) {
+            return instantiateMapOption(getter);
         } else {
             return instantiateCollectionOption(getter);
         }
     }
 
+    private static AbstractOption instantiateMapOption(Method getter) throws UnsupportedOptionClassException {
+        MapOption mapAnnotation = getter.getAnnotation(MapOption.class);
+
+        if (!Map.class.isAssignableFrom(getter.getReturnType()) || !getter.getReturnType().isAssignableFrom(OptionsMap.class)) {
+            throw new UnsupportedOptionClassException("Map option for method " + getter + " must return " +
+                    Map.class.getName() + ", not " + getter.getReturnType().getName());
+        }
+
+        try {
+            return new org.plukh.options.impl.options.MapOption(mapAnnotation.keyClass(), mapAnnotation.valueClass());
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedOptionClassException("Unsupported key or value class for method " + getter + ": " +
+                    e.getMessage());
+        }
+    }
+
     private static AbstractOption instantiateCollectionOption(Method getter) throws UnsupportedOptionClassException {
         CollectionOption collectionAnnotation = getter.getAnnotation(CollectionOption.class);
 
+        //Paged options are always backed by paged lists
+        if (collectionAnnotation.pageSize() != 0 || collectionAnnotation.residentPages() != 0) {
+            return instantiatePagedCollectionOption(getter);
+        }
+
         //See if user had specified a backing collection class
         if (collectionAnnotation.backingClass().equals(AbstractCollection.class)) {
             return CollectionOptionFactory.getCollectionOption(collectionAnnotation.elementClass(), getter.getReturnType());
@@ -257,6 +286,22 @@ public class OptionsFactory {
         return CollectionOptionFactory.getCollectionOption(collectionAnnotation.elementClass(), getter.getReturnType(), collectionAnnotation.backingClass());
     }
 
+    private static AbstractOption instantiatePagedCollectionOption(Method getter) throws UnsupportedOptionClassException {
+        CollectionOption collectionAnnotation = getter.getAnnotation(CollectionOption.class);
+
+        if (!List.class.isAssignableFrom(getter.getReturnType()) || !getter.getReturnType().isAssignableFrom(OptionsPagedList.class) ||
+                !collectionAnnotation.backingClass().equals(AbstractCollection.class)) {
+            throw new UnsupportedOptionClassException("Paged collection option for method " + getter + " must return " +
+                    List.class.getName() + " and can't specify a backing class");
+        }
+
+        try {
+            return new org.plukh.options.impl.options.CollectionOption(collectionAnnotation.elementClass(), OptionsPagedList.class);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedOptionClassException("Unsupported element class for method " + getter + ": " + e.getMessage());
+        }
+    }
+
     private static AbstractOption instantiateScalarOption(Method getter) throws UnsupportedOptionClassException,
             InstantiationException, IllegalAccessException {
         return OptionFactory.getOptionForClass(getter.getReturnType());
@@ -277,6 +322,56 @@ public class OptionsFactory {
     private static void setCollectionOptionFromAnnotation(Method getter, org.plukh.options.impl.options.CollectionOption option) throws OptionsException {
         CollectionOption annotation = getter.getAnnotation(CollectionOption.class);
 
+        option.setKey(annotation.key().isEmpty() ? getPropertyName(getter, true) : annotation.key());
+        //Capacity and paging must be set before the collection is populated
+        setCollectionOptionCapacityFromAnnotation(getter, option);
+        setCollectionOptionPagingFromAnnotation(getter, option);
+        if (!annotation.defaultValue().isEmpty()) option.setDefaultValue(annotation.defaultValue());
+        option.setTransient(annotation.transientOption());
+        option.setReadOnly(true);
+        setCollectionOptionJournaledFromAnnotation(getter, option);
+    }
+
+    private static void setCollectionOptionJournaledFromAnnotation(Method getter, org.plukh.options.impl.options.CollectionOption option) throws OptionsException {
+        CollectionOption annotation = getter.getAnnotation(CollectionOption.class);
+        if (!annotation.journaled()) return;
+
+        try {
+            option.setJournaled(true);
+        } catch (IllegalArgumentException e) {
+            throw new OptionsException("Collection option for method " + getter + " can't be journaled", e);
+        }
+    }
+
+    private static void setCollectionOptionPagingFromAnnotation(Method getter, org.plukh.options.impl.options.CollectionOption option) throws OptionsException {
+        CollectionOption annotation = getter.getAnnotation(CollectionOption.class);
+        if (!option.isPaged()) return;
+
+        try {
+            option.setPaging(annotation.pageSize() == 0 ? OptionsPagedList.DEFAULT_PAGE_SIZE : annotation.pageSize(),
+                    annotation.residentPages() == 0 ? OptionsPagedList.DEFAULT_RESIDENT_PAGES : annotation.residentPages());
+        } catch (IllegalArgumentException e) {
+            throw new OptionsException("Invalid paging parameters for method " + getter, e);
+        }
+    }
+
+    private static void setCollectionOptionCapacityFromAnnotation(Method getter, org.plukh.options.impl.options.CollectionOption option) throws OptionsException {
+        CollectionOption annotation = getter.getAnnotation(CollectionOption.class);
+        if (annotation.capacity() == 0) return;
+
+        if (!option.isBounded()) {
+            throw new OptionsException("Collection option for method " + getter + " is not bounded, can't set its capacity");
+        }
+        try {
+            option.setCapacity(annotation.capacity());
+        } catch (IllegalArgumentException e) {
+            throw new OptionsException("Invalid capacity " + annotation.capacity() + " for method " + getter, e);
+        }
+    }
+
+    private static void setMapOptionFromAnnotation(Method getter, AbstractOption option) throws OptionsException {
+        MapOption annotation = getter.getAnnotation(MapOption.class);
+
         option.setKey(annotation.key().isEmpty() ? getPropertyName(getter, true) : annotation.key());
         if (!annotation.defaultValue().isEmpty()) option.setDefaultValue(annotation.defaultValue());
         option.setTransient(annotation.transientOption());
@@ -287,6 +382,10 @@ public class OptionsFactory {
         Option annotation = getter.getAnnotation(Option.class);
 
         option.setKey(annotation.key().isEmpty() ? getPropertyName(getter, true) : annotation.key());
+        //Format must be set before any conversions take place
+        setOptionFormatFromAnnotation(getter, option);
+        setOptionIgnoreCaseFromAnnotation(getter, option);
+        setOptionClassLoaderFromAnnotation(getter, option);
         //Ignore default value for non-convertible options
         if (!(option instanceof NonConvertibleOption) && (!annotation.defaultValue().isEmpty())) {
             option.setDefaultValue(annotation.defaultValue());
@@ -295,9 +394,48 @@ public class OptionsFactory {
         option.setReadOnly(annotation.readOnly());
     }
 
+    private static void setOptionFormatFromAnnotation(Method getter, AbstractOption option) throws OptionsException {
+        Option annotation = getter.getAnnotation(Option.class);
+        if (annotation.format().isEmpty()) return;
+
+        if (!(option instanceof FormattedOption)) {
+            throw new OptionsException("Option class " + option.getClass().getSimpleName() + " for method " + getter +
+                    " doesn't support custom formats");
+        }
+        try {
+            ((FormattedOption) option).setFormat(annotation.format());
+        } catch (IllegalArgumentException e) {
+            throw new OptionsException("Invalid format \"" + annotation.format() + "\" for method " + getter, e);
+        }
+    }
+
+    private static void setOptionIgnoreCaseFromAnnotation(Method getter, AbstractOption option) throws OptionsException {
+        Option annotation = getter.getAnnotation(Option.class);
+        if (!annotation.ignoreCase()) return;
+
+        if (!(option instanceof EnumOption)) {
+            throw new OptionsException("Option class " + option.getClass().getSimpleName() + " for method " + getter +
+                    " doesn't support case-insensitive matching");
+        }
+        ((EnumOption) option).setIgnoreCase(true);
+    }
+
+    private static void setOptionClassLoaderFromAnnotation(Method getter, AbstractOption option) throws OptionsException {
+        Option annotation = getter.getAnnotation(Option.class);
+
+        if (option instanceof ClassOption) {
+            ((ClassOption) option).setClassLoaderPolicy(annotation.classLoader(), getter.getDeclaringClass().getClassLoader());
+        } else if (annotation.classLoader() != ClassLoaderPolicy.CONTEXT) {
+            throw new OptionsException("Option class " + option.getClass().getSimpleName() + " for method " + getter +
+                    " doesn't support class loader policies");
+        }
+    }
+
     private static void setOptionFromAnnotation(Method getter, AbstractOption option) throws OptionsException {
         if (getter.getAnnotation(Option.class) != null) {
             setScalarOptionFromAnnotation(getter, option);
+        } else if (getter.getAnnotation(MapOption.class) != null) {
+            setMapOptionFromAnnotation(getter, option);
         } else {
             setCollectionOptionFromAnnotation(getter, (org.plukh.options.impl.options.CollectionOption) option);
         }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * An immutable, ordered set of regular expressions or glob patterns, used as a value class for options holding lists of
+ * URL routes, file names and similar values to match input against. All patterns are compiled once, when the option
+ * is loaded, into a single regular expression - an alternation with a capturing group per pattern - so matching input
+ * against the whole set is a single pass of one matcher, rather than a loop over separately compiled patterns.
+ * {@link #match(CharSequence)} reports which of the patterns matched.
+ * <p/>
+ * Patterns must match the whole input. Since patterns are combined into a single expression, they can't refer to
+ * capturing groups by number (like {@code \1}), and named groups must be unique across the whole set.
+ * <p/>
+ * Glob patterns (see {@link Syntax#GLOB}) are translated into regular expressions for path-like input, using
+ * {@code /} as the separator.
+ */
+public final class PatternSet {
+    /**
+     * Syntax of patterns in a set.
+     */
+    public enum Syntax {
+        /**
+         * {@link Pattern Regular expressions}.
+         */
+        REGEX,
+        /**
+         * Glob patterns: {@code *} matches any number of characters except {@code /}, {@code **} matches any number
+         * of any characters, {@code ?} matches a single character except {@code /}, {@code [...]} matches a single
+         * character from a set ({@code [!...]} - not from a set), {@code {a,b}} matches any of the comma-separated
+         * subpatterns, and {@code \} escapes the next character.
+         */
+        GLOB
+    }
+
+    public static final PatternSet EMPTY = new PatternSet(Collections.<String>emptyList(), Syntax.REGEX, null, new int[0]);
+
+    private final List<String> patterns;
+    private final Syntax syntax;
+    private final Pattern combined;
+    //Capturing group of the combined pattern for each pattern
+    private final int[] groups;
+    private final ThreadLocal<Matcher> matchers;
+
+    private PatternSet(List<String> patterns, Syntax syntax, Pattern combined, int[] groups) {
+        this.patterns = patterns;
+        this.syntax = syntax;
+        this.combined = combined;
+        this.groups = groups;
+        matchers = combined == null ? null : ThreadLocal.withInitial(() -> combined.matcher(""));
+    }
+
+    /**
+     * Compiles a set of patterns.
+     *
+     * @param patterns patterns, in order of their priority.
+     * @param syntax syntax of the patterns.
+     * @return compiled set; {@link #EMPTY} if there are no patterns and syntax is {@link Syntax#REGEX}.
+     * @throws PatternSyntaxException if any of the patterns, or the combined expression, can't be compiled.
+     */
+    public static PatternSet compile(List<String> patterns, Syntax syntax) throws PatternSyntaxException {
+        if (patterns.isEmpty()) return syntax == Syntax.REGEX ? EMPTY :
+                new PatternSet(Collections.<String>emptyList(), syntax, null, new int[0]);
+
+        final StringBuilder sb = new StringBuilder();
+        final int[] groups = new int[patterns.size()];
+        int group = 1;
+        for (int i = 0; i < patterns.size(); ++i) {
+            final String regex = syntax == Syntax.GLOB ? globToRegex(patterns.get(i)) : patterns.get(i);
+
+            //Compile each pattern separately first, to report errors against the pattern and count its groups
+            final int patternGroups = Pattern.compile(regex).matcher("").groupCount();
+
+            if (i > 0) sb.append('|');
+            sb.append('(').append(regex).append(')');
+            groups[i] = group;
+            group += patternGroups + 1;
+        }
+
+        return new PatternSet(Collections.unmodifiableList(new ArrayList<>(patterns)), syntax, Pattern.compile(sb.toString()),
+                groups);
+    }
+
+    /**
+     * Translates a glob pattern into a regular expression (see {@link Syntax#GLOB}).
+     *
+     * @throws PatternSyntaxException if the glob pattern is malformed.
+     */
+    static String globToRegex(String glob) throws PatternSyntaxException {
+        final StringBuilder sb = new StringBuilder();
+        int braces = 0;
+        for (int i = 0; i < glob.length(); ++i) {
+            final char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        sb.append(".*");
+                        ++i;
+                    } else {
+                        sb.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    sb.append("[^/]");
+                    break;
+                case '[': {
+                    final int end = glob.indexOf(']', i + 2);
+                    if (end < 0) throw new PatternSyntaxException("Unclosed character class", glob, i);
+                    sb.append('[');
+                    int p = i + 1;
+                    if (glob.charAt(p) == '!') {
+                        sb.append('^');
+                        ++p;
+                    }
+                    for (; p < end; ++p) {
+                        final char cc = glob.charAt(p);
+                        if (cc == '[' || cc == '&' || cc == '\\' || (cc == '^' && p == i + 1)) sb.append('\\');
+                        sb.append(cc);
+                    }
+                    sb.append(']');
+                    i = end;
+                    break;
+                }
+                case '{':
+                    sb.append("(?:");
+                    ++braces;
+                    break;
+                case '}':
+                    if (braces == 0) throw new PatternSyntaxException("Unmatched closing brace", glob, i);
+                    sb.append(')');
+                    --braces;
+                    break;
+                case ',':
+                    sb.append(braces > 0 ? "|" : ",");
+                    break;
+                case '\\':
+                    if (++i == glob.length()) throw new PatternSyntaxException("Dangling escape", glob, i - 1);
+                    appendLiteral(glob.charAt(i), sb);
+                    break;
+                default:
+                    appendLiteral(c, sb);
+            }
+        }
+        if (braces > 0) throw new PatternSyntaxException("Unclosed brace", glob, glob.length());
+        return sb.toString();
+    }
+
+    private static void appendLiteral(char c, StringBuilder sb) {
+        if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) sb.append('\\');
+        sb.append(c);
+    }
+
+    /**
+     * Matches input against all patterns of the set at once.
+     *
+     * @param input input to match.
+     * @return index of the first pattern (in the order they were specified) matching the whole input, or -1 if none
+     * of the patterns match it.
+     */
+    public int match(CharSequence input) {
+        if (combined == null) return -1;
+
+        final Matcher matcher = matchers.get().reset(input);
+        try {
+            if (!matcher.matches()) return -1;
+            for (int i = 0; i < groups.length; ++i) {
+                if (matcher.start(groups[i]) >= 0) return i;
+            }
+            return -1;
+        } finally {
+            //Don't keep references to the input
+            matcher.reset("");
+        }
+    }
+
+    public boolean matches(CharSequence input) {
+        return match(input) >= 0;
+    }
+
+    /**
+     * Returns patterns of this set, as they were specified.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public Syntax getSyntax() {
+        return syntax;
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PatternSet)) return false;
+        final PatternSet other = (PatternSet) o;
+        return syntax == other.syntax && patterns.equals(other.patterns);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * syntax.hashCode() + patterns.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return syntax.name().toLowerCase(Locale.ROOT) + patterns;
+    }
+}
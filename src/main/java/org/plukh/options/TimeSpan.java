@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable span of time with nanosecond precision, used as a value class for options holding timeouts, intervals
+ * and similar values. The span is parsed from its string form once, when the option is loaded; accessors such as
+ * {@link #toNanos()} or {@link #toMillis()} simply return a primitive {@code long}, so they are cheap enough to be called
+ * on hot paths.
+ * <p/>
+ * String form consists of an integer amount followed by an optional unit suffix: {@code d} (days), {@code h} (hours),
+ * {@code m} or {@code min} (minutes), {@code s} (seconds), {@code ms} (milliseconds), {@code us} (microseconds)
+ * or {@code ns} (nanoseconds), for example {@code 30s} or {@code 250ms}. Suffixes are case-insensitive, and whitespace
+ * between the amount and the suffix is allowed. Amounts without a suffix are treated as milliseconds.
+ * <p/>
+ * {@link #toString()} returns a canonical form, using the largest unit in which the span can be expressed exactly.
+ */
+public final class TimeSpan implements Comparable<TimeSpan> {
+    /** Unit suffixes used in canonical form, from the largest unit to the smallest. */
+    private static final String[] SUFFIXES = {"d", "h", "m", "s", "ms", "us", "ns"};
+    private static final long[] NANOS_PER_UNIT = {
+            TimeUnit.DAYS.toNanos(1), TimeUnit.HOURS.toNanos(1), TimeUnit.MINUTES.toNanos(1), TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MICROSECONDS.toNanos(1), 1
+    };
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public static final TimeSpan ZERO = new TimeSpan(0);
+
+    private final long nanos;
+
+    private TimeSpan(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns a time span of the specified number of nanoseconds.
+     */
+    public static TimeSpan ofNanos(long nanos) {
+        return nanos == 0 ? ZERO : new TimeSpan(nanos);
+    }
+
+    /**
+     * Returns a time span of the specified amount of time units.
+     *
+     * @throws ArithmeticException if the span overflows a {@code long} number of nanoseconds.
+     */
+    public static TimeSpan of(long amount, TimeUnit unit) {
+        final long nanos = unit.toNanos(amount);
+        if (nanos == Long.MAX_VALUE || nanos == Long.MIN_VALUE)
+            throw new ArithmeticException("Time span overflow: " + amount + " " + unit);
+        return ofNanos(nanos);
+    }
+
+    /**
+     * Parses a string representation of a time span (see class description for format details).
+     *
+     * @param s string to parse.
+     * @return parsed time span.
+     * @throws ParseException if the string can't be parsed.
+     */
+    public static TimeSpan parse(CharSequence s) throws ParseException {
+        final int length = s.length();
+        int start = 0;
+        int end = length;
+        while (start < end && Character.isWhitespace(s.charAt(start))) ++start;
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) --end;
+
+        //Parse the amount
+        int p = start;
+        final boolean negative = p < end && s.charAt(p) == '-';
+        if (negative) ++p;
+        final int digitsStart = p;
+        long amount = 0;
+        while (p < end && s.charAt(p) >= '0' && s.charAt(p) <= '9') {
+            amount = amount * 10 + (s.charAt(p) - '0');
+            if (amount < 0 || p - digitsStart > 18) throw new ParseException("Time span amount is too large: " + s);
+            ++p;
+        }
+        if (p == digitsStart) throw new ParseException("Error parsing time span: " + s);
+
+        //Skip whitespace, then parse the unit
+        while (p < end && Character.isWhitespace(s.charAt(p))) ++p;
+        final long nanosPerUnit = p == end ? NANOS_PER_MILLI : parseUnit(s, p, end);
+
+        try {
+            final long nanos = Math.multiplyExact(amount, nanosPerUnit);
+            return ofNanos(negative ? -nanos : nanos);
+        } catch (ArithmeticException e) {
+            throw new ParseException("Time span is too large: " + s, e);
+        }
+    }
+
+    private static long parseUnit(CharSequence s, int start, int end) {
+        final String unit = s.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+        switch (unit) {
+            case "d": return NANOS_PER_UNIT[0];
+            case "h": return NANOS_PER_UNIT[1];
+            case "m":
+            case "min": return NANOS_PER_UNIT[2];
+            case "s": return NANOS_PER_UNIT[3];
+            case "ms": return NANOS_PER_UNIT[4];
+            case "us": return NANOS_PER_UNIT[5];
+            case "ns": return NANOS_PER_UNIT[6];
+            default: throw new ParseException("Unknown time unit \"" + unit + "\" in time span: " + s);
+        }
+    }
+
+    public long toNanos() {
+        return nanos;
+    }
+
+    public long toMicros() {
+        return nanos / NANOS_PER_UNIT[5];
+    }
+
+    public long toMillis() {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    public long toSeconds() {
+        return nanos / NANOS_PER_UNIT[3];
+    }
+
+    public Duration toDuration() {
+        return Duration.ofNanos(nanos);
+    }
+
+    @Override
+    public int compareTo(TimeSpan o) {
+        return Long.compare(nanos, o.nanos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof TimeSpan && nanos == ((TimeSpan) o).nanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(nanos);
+    }
+
+    @Override
+    public String toString() {
+        if (nanos == 0) return "0s";
+        for (int i = 0; i < NANOS_PER_UNIT.length; ++i) {
+            if (nanos % NANOS_PER_UNIT[i] == 0) return (nanos / NANOS_PER_UNIT[i]) + SUFFIXES[i];
+        }
+        //Unreachable, the last unit is 1ns
+        return nanos + "ns";
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * String converters for arbitrary-precision numbers. Values small enough to fit into a {@code long} (which is what
+ * most configuration values are) are parsed without going through the general-purpose {@link BigInteger} and
+ * {@link BigDecimal} string constructors.
+ */
+public final class NumberParsers {
+    //Any string of up to 18 decimal digits fits into a long
+    private static final int MAX_LONG_SAFE_DIGITS = 18;
+
+    private NumberParsers() {
+    }
+
+    /**
+     * Parses a {@link BigInteger} value. Accepts the same syntax as {@link BigInteger#BigInteger(String)}.
+     * @param s string to parse.
+     * @return parsed value.
+     * @throws NumberFormatException if the string is not a valid integer.
+     */
+    public static BigInteger parseBigInteger(String s) {
+        final int length = s.length();
+        final int digits = length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+') ? length - 1 : length;
+        if (digits <= MAX_LONG_SAFE_DIGITS) return BigInteger.valueOf(Long.parseLong(s));
+        return new BigInteger(s);
+    }
+
+    /**
+     * Parses a {@link BigDecimal} value. Accepts the same syntax as {@link BigDecimal#BigDecimal(String)}; the scale of
+     * the returned value is the same as well.
+     * @param s string to parse.
+     * @return parsed value.
+     * @throws NumberFormatException if the string is not a valid decimal number.
+     */
+    public static BigDecimal parseBigDecimal(String s) {
+        final int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            ++i;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+
+        for (; i < length; ++i) {
+            final char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_LONG_SAFE_DIGITS) return new BigDecimal(s);
+                unscaled = unscaled * 10 + (c - '0');
+                if (dot) ++scale;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                //Exponents, non-ASCII digits and malformed input go through the general-purpose parser
+                return new BigDecimal(s);
+            }
+        }
+
+        if (digits == 0) throw new NumberFormatException("No digits in a decimal number: " + s);
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * Parses a decimal {@code long} value from a part of a character sequence, without creating any intermediate
+     * objects. Whitespace around the number is ignored.
+     * @param s sequence containing the number.
+     * @param from index of the first character of the number (inclusive).
+     * @param to index of the last character of the number (exclusive).
+     * @return parsed value.
+     * @throws NumberFormatException if the characters don't form a valid {@code long} value.
+     */
+    public static long parseLong(CharSequence s, int from, int to) {
+        while (from < to && Character.isWhitespace(s.charAt(from))) ++from;
+        while (to > from && Character.isWhitespace(s.charAt(to - 1))) --to;
+        if (from == to) throw new NumberFormatException("Empty number");
+
+        int i = from;
+        boolean negative = false;
+        final char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == to) throw numberFormatException(s, from, to);
+        }
+
+        //Accumulate negatively to be able to represent Long.MIN_VALUE
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < to; ++i) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) throw numberFormatException(s, from, to);
+            result *= 10;
+            if (result < limit + digit) throw numberFormatException(s, from, to);
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a decimal {@code int} value from a part of a character sequence, without creating any intermediate
+     * objects. Whitespace around the number is ignored.
+     * @see #parseLong(CharSequence, int, int)
+     */
+    public static int parseInt(CharSequence s, int from, int to) {
+        final long value = parseLong(s, from, to);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw numberFormatException(s, from, to);
+        return (int) value;
+    }
+
+    private static NumberFormatException numberFormatException(CharSequence s, int from, int to) {
+        return new NumberFormatException("For input string: \"" + s.subSequence(from, to) + "\"");
+    }
+}
@@ -18,6 +18,7 @@ package org.plukh.options.impl;
 
 import org.plukh.options.*;
 import org.plukh.options.impl.options.AbstractOption;
+import org.plukh.options.impl.persistence.IncrementalPersistenceProvider;
 import org.plukh.options.impl.persistence.PersistenceOptions;
 import org.plukh.options.impl.persistence.StreamPersistenceProvider;
 
@@ -27,7 +28,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 public class OptionsProxyHandler implements InvocationHandler, Options, PersistenceOptions {
@@ -35,12 +38,17 @@ public class OptionsProxyHandler implements InvocationHandler, Options, Persiste
     private Map<Method, AbstractOption> getters;
     private Map<Method, AbstractOption> setters;
     private PersistenceProvider persistenceProvider;
+    //Positions of options in the order they're passed to the persistence provider
+    private Map<AbstractOption, Integer> positions;
+    //Positions of options changed by setters since they were last loaded or saved
+    private final BitSet changed = new BitSet();
 
     public OptionsProxyHandler(Map<Method, AbstractOption> getters, Map<Method, AbstractOption> setters, PersistenceProvider persistenceProvider) throws NoSuchMethodException {
         this.getters = getters;
         this.setters = setters;
         this.methodsMapping = createMethodsMapping();
         this.persistenceProvider = persistenceProvider;
+        this.positions = createPositions();
     }
 
     @Override
@@ -69,12 +77,20 @@ public class OptionsProxyHandler implements InvocationHandler, Options, Persiste
 
     private synchronized void setValue(AbstractOption option, Object value) {
         option.setValue(value);
+        changed.set(positions.get(option));
+    }
+
+    private Map<AbstractOption, Integer> createPositions() {
+        final Map<AbstractOption, Integer> positions = new IdentityHashMap<>();
+        for (AbstractOption option : getters.values()) positions.put(option, positions.size());
+        return positions;
     }
 
     private Map<Method, Method> createMethodsMapping() throws NoSuchMethodException {
         Map<Method, Method> methods = new HashMap<>();
 
         methods.put(Options.class.getMethod("load", boolean.class), getClass().getMethod("load", boolean.class));
+        methods.put(Options.class.getMethod("reload", boolean.class), getClass().getMethod("reload", boolean.class));
         methods.put(Options.class.getMethod("save", boolean.class), getClass().getMethod("save", boolean.class));
         methods.put(Options.class.getMethod("resetToDefault"), getClass().getMethod("resetToDefault"));
         methods.put(Options.class.getMethod("configurePersistenceProvider", PersistenceConfig.class),
@@ -91,12 +107,29 @@ public class OptionsProxyHandler implements InvocationHandler, Options, Persiste
 
     @Override
     public synchronized boolean load(boolean suppressConversionErrors) throws OptionsException {
-        return persistenceProvider.load(getters.values(), suppressConversionErrors);
+        final boolean loaded = persistenceProvider.load(getters.values(), suppressConversionErrors);
+        changed.clear();
+        return loaded;
+    }
+
+    @Override
+    public synchronized boolean reload(boolean suppressConversionErrors) throws OptionsException {
+        if (persistenceProvider instanceof IncrementalPersistenceProvider &&
+                ((IncrementalPersistenceProvider) persistenceProvider).isUpToDate(getters.values(), changed)) {
+            return false;
+        }
+        load(suppressConversionErrors);
+        return true;
     }
 
     @Override
     public synchronized void save(boolean nonDefaultOnly) throws OptionsException {
-        persistenceProvider.save(getters.values(), nonDefaultOnly);
+        if (persistenceProvider instanceof IncrementalPersistenceProvider) {
+            ((IncrementalPersistenceProvider) persistenceProvider).save(getters.values(), changed, nonDefaultOnly);
+        } else {
+            persistenceProvider.save(getters.values(), nonDefaultOnly);
+        }
+        changed.clear();
     }
 
     @Override
@@ -104,6 +137,7 @@ public class OptionsProxyHandler implements InvocationHandler, Options, Persiste
         for (AbstractOption option : getters.values()) {
             option.resetToDefaultValue();
         }
+        changed.set(0, positions.size());
     }
 
     public synchronized PersistenceProvider getPersistenceProvider() {
@@ -1,5 +1,7 @@
 package org.plukh.options.impl;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -24,6 +26,8 @@ public class PrimitivesUtils {
         CLASS_TO_CONVERTER.put(Float.TYPE, Float::parseFloat);
         CLASS_TO_CONVERTER.put(Double.class, Double::parseDouble);
         CLASS_TO_CONVERTER.put(Double.TYPE, Double::parseDouble);
+        CLASS_TO_CONVERTER.put(BigInteger.class, NumberParsers::parseBigInteger);
+        CLASS_TO_CONVERTER.put(BigDecimal.class, NumberParsers::parseBigDecimal);
 
         PRIMITIVES_TO_WRAPPERS.put(Boolean.TYPE, Boolean.class);
         PRIMITIVES_TO_WRAPPERS.put(Byte.TYPE, Byte.class);
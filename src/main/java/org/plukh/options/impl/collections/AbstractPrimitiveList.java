@@ -0,0 +1,263 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.ParseException;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Base class of lists of primitive integer values, stored in a growable array of the subclass' element type (so
+ * {@code int} elements take four bytes each). The base class implements the list, parsing and encoding on elements
+ * widened to {@code long}; subclasses own the array and provide storage hooks, boxing and parsing of elements, and
+ * primitive accessors for their users.
+ */
+abstract class AbstractPrimitiveList extends AbstractList implements RandomAccess, CollectionBackedOption,
+        EncodedCollection, ObservableCollection {
+    private final Class elementClass;
+    private int size;
+    private Runnable modificationListener;
+
+    AbstractPrimitiveList(Class elementClass, Class supportedClass) {
+        if (elementClass != supportedClass) throw new CollectionInitializationException(getClass().getSimpleName() +
+                " only supports " + supportedClass.getSimpleName() + " elements, can't be used for " +
+                elementClass.getName());
+        this.elementClass = supportedClass;
+    }
+
+    /**
+     * Returns an element stored in the array, without checking the index.
+     */
+    abstract long elementAt(int index);
+
+    /**
+     * Stores an element in the array. The element is always in range of the element class.
+     */
+    abstract void storeElement(int index, long element);
+
+    /**
+     * Returns the length of the array.
+     */
+    abstract int capacity();
+
+    /**
+     * Replaces the array with a copy of the given length.
+     */
+    abstract void resize(int capacity);
+
+    /**
+     * Moves elements within the array, like {@link System#arraycopy(Object, int, Object, int, int)}.
+     */
+    abstract void moveElements(int from, int to, int count);
+
+    /**
+     * Replaces the array with a copy of the first elements of another list of the same class.
+     */
+    abstract void copyStorage(AbstractPrimitiveList other, int count);
+
+    /**
+     * Boxes an element into an instance of the element class.
+     */
+    abstract Object box(long element);
+
+    /**
+     * Parses an element from a part of a string.
+     *
+     * @throws NumberFormatException if the element can't be parsed, or is out of range of the element class.
+     */
+    abstract long parseElement(String s, int start, int end) throws NumberFormatException;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        return box(getElement(index));
+    }
+
+    long getElement(int index) {
+        checkIndex(index);
+        return elementAt(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        return box(setElement(index, unbox(element)));
+    }
+
+    long setElement(int index, long element) {
+        checkIndex(index);
+        final long old = elementAt(index);
+        storeElement(index, element);
+        modified();
+        return old;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        addElement(index, unbox(element));
+    }
+
+    void addElement(long element) {
+        ensureCapacity(size + 1);
+        storeElement(size++, element);
+        ++modCount;
+        modified();
+    }
+
+    void addElement(int index, long element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        ensureCapacity(size + 1);
+        moveElements(index, index + 1, size - index);
+        storeElement(index, element);
+        ++size;
+        ++modCount;
+        modified();
+    }
+
+    @Override
+    public Object remove(int index) {
+        return box(removeElementAt(index));
+    }
+
+    long removeElementAt(int index) {
+        checkIndex(index);
+        final long old = elementAt(index);
+        moveElements(index + 1, index, size - index - 1);
+        --size;
+        ++modCount;
+        modified();
+        return old;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return elementClass.isInstance(o) ? indexOfElement(((Number) o).longValue()) : -1;
+    }
+
+    int indexOfElement(long element) {
+        for (int i = 0; i < size; ++i) {
+            if (elementAt(i) == element) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        ++modCount;
+        modified();
+    }
+
+    @Override
+    public Collection getBackingCollection() {
+        return this;
+    }
+
+    @Override
+    public Class getCollectionClass() {
+        return List.class;
+    }
+
+    @Override
+    public void decode(String s) throws ParseException {
+        clear();
+        final int length = s.length();
+        if (length == 0) return;
+
+        ensureCapacity(countElements(s));
+        int start = 0;
+        for (int i = 0; i <= length; ++i) {
+            if (i == length || s.charAt(i) == ':') {
+                try {
+                    storeElement(size++, parseElement(s, start, i));
+                } catch (NumberFormatException e) {
+                    clear();
+                    throw new ParseException(format("Error converting string: {0} to {1} value",
+                            s.substring(start, i), elementClass.getSimpleName()), e);
+                }
+                start = i + 1;
+            }
+        }
+        modified();
+    }
+
+    @Override
+    public void encode(StringBuilder out) {
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) out.append(':');
+            out.append(elementAt(i));
+        }
+    }
+
+    @Override
+    public void copyContents(EncodedCollection other) {
+        if (other.getClass() != getClass()) throw new IllegalArgumentException("Can't copy contents of " +
+                other.getClass().getName() + " to " + getClass().getName());
+        final AbstractPrimitiveList list = (AbstractPrimitiveList) other;
+        copyStorage(list, list.size);
+        size = list.size;
+        ++modCount;
+        modified();
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    private void modified() {
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
+
+    static int countElements(String s) {
+        int count = 1;
+        for (int i = s.indexOf(':'); i >= 0; i = s.indexOf(':', i + 1)) ++count;
+        return count;
+    }
+
+    void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        final int current = capacity();
+        if (capacity <= current) return;
+        resize(Math.max(capacity, Math.max(current + (current >> 1), 10)));
+    }
+
+    private long unbox(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+        return ((Number) o).longValue();
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.ParseException;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Base class of copy-on-write sets of primitive integer values, optimized for sets which are read often and modified
+ * rarely (allowlists and the like). Contents are kept in an immutable snapshot: an open-addressing hash table with
+ * linear probing, held in an array of the subclass' element type (see {@link Table}). {@link #contains(Object)} is
+ * a lock-free lookup in the current snapshot; modifications are serialized, build a new table off to the side and
+ * publish it atomically, so readers never see a partially updated set. Iterators traverse the snapshot current at
+ * the time of their creation and never throw {@link java.util.ConcurrentModificationException}.
+ * <p/>
+ * The base class implements the set, parsing and encoding on elements widened to {@code long}; subclasses provide
+ * tables, boxing and parsing of elements, and primitive accessors for their users. Iteration order is unspecified.
+ * Each modification copies the whole table, so bulk changes should be made with bulk methods
+ * ({@link #addAll(Collection)}, {@link #removeAll(Collection)}, {@link #retainAll(Collection)},
+ * {@link #replaceContents(Collection)}), which publish a single snapshot.
+ */
+abstract class AbstractPrimitiveSet extends AbstractSet implements CollectionBackedOption, EncodedCollection,
+        CopyOnWriteCollection, ObservableCollection {
+    private static final int MIN_CAPACITY = 16;
+
+    private final Class elementClass;
+    private final Object lock = new Object();
+    private final Snapshot empty;
+    private volatile Snapshot snapshot;
+    private volatile Runnable modificationListener;
+
+    AbstractPrimitiveSet(Class elementClass, Class supportedClass) {
+        if (elementClass != supportedClass) throw new CollectionInitializationException(getClass().getSimpleName() +
+                " only supports " + supportedClass.getSimpleName() + " elements, can't be used for " +
+                elementClass.getName());
+        this.elementClass = supportedClass;
+        empty = new Builder(0).build();
+        snapshot = empty;
+    }
+
+    /**
+     * Creates an empty table of the given capacity.
+     */
+    abstract Table newTable(int capacity);
+
+    /**
+     * Boxes an element into an instance of the element class.
+     */
+    abstract Object box(long element);
+
+    /**
+     * Parses an element from a part of a string.
+     *
+     * @throws NumberFormatException if the element can't be parsed, or is out of range of the element class.
+     */
+    abstract long parseElement(String s, int start, int end) throws NumberFormatException;
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return elementClass.isInstance(o) && containsElement(((Number) o).longValue());
+    }
+
+    boolean containsElement(long key) {
+        return snapshot.contains(key);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        return addElement(unbox(o));
+    }
+
+    boolean addElement(long key) {
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            if (current.contains(key)) return false;
+
+            final Builder builder = new Builder(current);
+            builder.add(key);
+            publish(builder.build());
+            return true;
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection c) {
+        final long[] added = unboxAll(c);
+        synchronized (lock) {
+            final Builder builder = new Builder(snapshot);
+            boolean changed = false;
+            for (long key : added) changed |= builder.add(key);
+            if (changed) publish(builder.build());
+            return changed;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return elementClass.isInstance(o) && removeElement(((Number) o).longValue());
+    }
+
+    boolean removeElement(long key) {
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            if (!current.contains(key)) return false;
+
+            final Builder builder = new Builder(current);
+            builder.remove(key);
+            publish(builder.build());
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection c) {
+        return retain(c, false);
+    }
+
+    @Override
+    public boolean retainAll(Collection c) {
+        return retain(c, true);
+    }
+
+    private boolean retain(Collection c, boolean retainContained) {
+        Objects.requireNonNull(c);
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            final Builder builder = new Builder(current.size());
+            for (SnapshotIterator i = new SnapshotIterator(current); i.hasNext(); ) {
+                final long key = i.nextKey();
+                if (c.contains(box(key)) == retainContained) builder.add(key);
+            }
+
+            if (builder.size() == current.size()) return false;
+            publish(builder.build());
+            return true;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            publish(empty);
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection elements) {
+        final long[] replacement = unboxAll(elements);
+        final Builder builder = new Builder(replacement.length);
+        for (long key : replacement) builder.add(key);
+
+        final Snapshot updated = builder.build();
+        synchronized (lock) {
+            publish(updated);
+        }
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new SnapshotIterator(snapshot);
+    }
+
+    /**
+     * Returns a copy of the set's contents as an array of the element type, in unspecified order.
+     */
+    Object copyElements() {
+        final Snapshot current = snapshot;
+        return current.keys.toArray(current.size(), current.containsZero);
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    /**
+     * Replaces the set's contents with an updated snapshot. Must be called with the lock held.
+     */
+    private void publish(Snapshot updated) {
+        snapshot = updated;
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
+
+    @Override
+    public Collection getBackingCollection() {
+        return this;
+    }
+
+    @Override
+    public Class getCollectionClass() {
+        return Set.class;
+    }
+
+    @Override
+    public void decode(String s) throws ParseException {
+        final int length = s.length();
+        //Size the table for the expected number of elements up front, so it's never rehashed while loading
+        final Builder builder = new Builder(length == 0 ? 0 : AbstractPrimitiveList.countElements(s));
+
+        int start = 0;
+        for (int i = 0; length > 0 && i <= length; ++i) {
+            if (i == length || s.charAt(i) == ':') {
+                try {
+                    builder.add(parseElement(s, start, i));
+                } catch (NumberFormatException e) {
+                    clear();
+                    throw new ParseException(format("Error converting string: {0} to {1} value",
+                            s.substring(start, i), elementClass.getSimpleName()), e);
+                }
+                start = i + 1;
+            }
+        }
+
+        final Snapshot updated = builder.build();
+        synchronized (lock) {
+            publish(updated);
+        }
+    }
+
+    @Override
+    public void encode(StringBuilder out) {
+        boolean first = true;
+        for (SnapshotIterator i = new SnapshotIterator(snapshot); i.hasNext(); ) {
+            if (!first) out.append(':');
+            out.append(i.nextKey());
+            first = false;
+        }
+    }
+
+    @Override
+    public void copyContents(EncodedCollection other) {
+        if (other.getClass() != getClass()) throw new IllegalArgumentException("Can't copy contents of " +
+                other.getClass().getName() + " to " + getClass().getName());
+        //Snapshots are immutable, so they can be shared
+        final Snapshot copied = ((AbstractPrimitiveSet) other).snapshot;
+        synchronized (lock) {
+            publish(copied);
+        }
+    }
+
+    private long unbox(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+        return ((Number) o).longValue();
+    }
+
+    private long[] unboxAll(Collection c) {
+        final Object[] elements = c.toArray();
+        final long[] keys = new long[elements.length];
+        for (int i = 0; i < elements.length; ++i) keys[i] = unbox(elements[i]);
+        return keys;
+    }
+
+    private static int slot(long key, int mask) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Immutable contents of the set. Free slots of the table hold zero; whether zero itself is a member is tracked
+     * separately.
+     */
+    private static final class Snapshot {
+        private final Table keys;
+        private final int mask;
+        private final boolean containsZero;
+        private final int used;
+
+        private Snapshot(Table keys, boolean containsZero, int used) {
+            this.keys = keys;
+            this.mask = keys.length() - 1;
+            this.containsZero = containsZero;
+            this.used = used;
+        }
+
+        private int size() {
+            return containsZero ? used + 1 : used;
+        }
+
+        private boolean contains(long key) {
+            if (key == 0) return containsZero;
+
+            final Table keys = this.keys;
+            for (int pos = slot(key, mask); ; pos = (pos + 1) & mask) {
+                final long current = keys.get(pos);
+                if (current == 0) return false;
+                if (current == key) return true;
+            }
+        }
+    }
+
+    /**
+     * Builds a new table, which becomes immutable once a snapshot is built from it.
+     */
+    private final class Builder {
+        private Table keys;
+        private int mask;
+        private int maxFill;
+        private boolean containsZero;
+        private int used;
+
+        /**
+         * Creates an empty builder, sized for the expected number of elements.
+         */
+        private Builder(int expected) {
+            int capacity = MIN_CAPACITY;
+            while (capacity - (capacity >> 2) <= expected) capacity <<= 1;
+            allocate(capacity);
+        }
+
+        /**
+         * Creates a builder starting with a copy of a snapshot's contents.
+         */
+        private Builder(Snapshot snapshot) {
+            keys = snapshot.keys.copy();
+            mask = snapshot.mask;
+            maxFill = keys.length() - (keys.length() >> 2);
+            containsZero = snapshot.containsZero;
+            used = snapshot.used;
+        }
+
+        private int size() {
+            return containsZero ? used + 1 : used;
+        }
+
+        private boolean add(long key) {
+            if (key == 0) {
+                if (containsZero) return false;
+                containsZero = true;
+                return true;
+            }
+
+            int pos = slot(key, mask);
+            for (long current; (current = keys.get(pos)) != 0; pos = (pos + 1) & mask) {
+                if (current == key) return false;
+            }
+
+            keys.set(pos, key);
+            if (++used >= maxFill) rehash(keys.length() * 2);
+            return true;
+        }
+
+        private boolean remove(long key) {
+            if (key == 0) {
+                if (!containsZero) return false;
+                containsZero = false;
+                return true;
+            }
+
+            for (int pos = slot(key, mask); ; pos = (pos + 1) & mask) {
+                final long current = keys.get(pos);
+                if (current == 0) return false;
+                if (current == key) {
+                    shiftKeys(pos);
+                    --used;
+                    return true;
+                }
+            }
+        }
+
+        private Snapshot build() {
+            return new Snapshot(keys, containsZero, used);
+        }
+
+        private void allocate(int capacity) {
+            keys = newTable(capacity);
+            mask = capacity - 1;
+            maxFill = capacity - (capacity >> 2);
+        }
+
+        private void rehash(int capacity) {
+            final Table old = keys;
+            allocate(capacity);
+            for (int i = 0; i < old.length(); ++i) {
+                final long key = old.get(i);
+                if (key == 0) continue;
+                int pos = slot(key, mask);
+                while (keys.get(pos) != 0) pos = (pos + 1) & mask;
+                keys.set(pos, key);
+            }
+        }
+
+        /**
+         * Closes the gap left by removing a key from a slot, moving subsequent keys of the same probe sequence back.
+         */
+        private void shiftKeys(int pos) {
+            for (; ; ) {
+                final int last = pos;
+                pos = (pos + 1) & mask;
+                long current;
+                for (; ; pos = (pos + 1) & mask) {
+                    if ((current = keys.get(pos)) == 0) {
+                        keys.set(last, 0);
+                        return;
+                    }
+                    final int slot = slot(current, mask);
+                    if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) break;
+                }
+                keys.set(last, current);
+            }
+        }
+    }
+
+    private class SnapshotIterator implements Iterator {
+        private final Snapshot snapshot;
+        private int pos = -1;
+        private boolean mustReturnZero;
+        private int remaining;
+        private long lastKey;
+        private boolean canRemove;
+
+        private SnapshotIterator(Snapshot snapshot) {
+            this.snapshot = snapshot;
+            mustReturnZero = snapshot.containsZero;
+            remaining = snapshot.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Object next() {
+            return box(nextKey());
+        }
+
+        private long nextKey() {
+            if (remaining <= 0) throw new NoSuchElementException();
+            --remaining;
+            canRemove = true;
+
+            if (mustReturnZero) {
+                mustReturnZero = false;
+                return lastKey = 0;
+            }
+            while (snapshot.keys.get(++pos) == 0) {
+                //Skip free slots
+            }
+            return lastKey = snapshot.keys.get(pos);
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) throw new IllegalStateException();
+            removeElement(lastKey);
+            canRemove = false;
+        }
+    }
+
+    /**
+     * Hash table of a set: an array of keys of the set's element type, with zero marking free slots.
+     */
+    abstract static class Table {
+        abstract int length();
+
+        abstract long get(int pos);
+
+        abstract void set(int pos, long key);
+
+        abstract Table copy();
+
+        /**
+         * Returns keys of the table as an array of the element type, preceded by zero if it's a member as well.
+         */
+        abstract Object toArray(int size, boolean containsZero);
+    }
+}
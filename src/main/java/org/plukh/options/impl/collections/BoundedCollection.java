@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+/**
+ * Implemented by options collections with a fixed capacity, allocated up front.
+ */
+public interface BoundedCollection {
+    /**
+     * Sets capacity of the collection, reallocating its storage. Should be called before the collection is published
+     * to other threads.
+     *
+     * @param capacity maximum number of elements the collection can hold.
+     * @throws IllegalArgumentException if capacity is less than 1.
+     * @throws IllegalStateException if the collection isn't empty.
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * Returns capacity of the collection.
+     */
+    int getCapacity();
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.Collection;
+
+/**
+ * Implemented by options collections which never modify their contents in place: every modification publishes
+ * a new immutable snapshot of the contents atomically, so readers don't need any locking and never see a partially
+ * updated collection.
+ * <p/>
+ * Collection options backed by such collections are loaded with a single {@link #replaceContents(Collection)} call
+ * rather than element by element.
+ */
+public interface CopyOnWriteCollection {
+    /**
+     * Atomically replaces the whole contents of the collection.
+     *
+     * @param elements new elements of the collection.
+     * @throws IllegalArgumentException if any of the elements is of a wrong class.
+     * @throws NullPointerException if any of the elements is {@code null}.
+     */
+    void replaceContents(Collection elements);
+}
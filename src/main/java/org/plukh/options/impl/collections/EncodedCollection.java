@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.ParseException;
+
+/**
+ * Implemented by options collections which convert their contents to and from string representation themselves,
+ * rather than having every element converted by an element option. This allows collections of primitive values to be
+ * loaded and saved without boxing their elements.
+ * <p/>
+ * Encoded string must follow the format used for all collection options (see
+ * {@link org.plukh.options.impl.options.CollectionOption}).
+ */
+public interface EncodedCollection {
+    /**
+     * Replaces contents of the collection with elements decoded from a string. If the string can't be decoded,
+     * the collection is left empty.
+     *
+     * @param s string to decode; an empty string stands for an empty collection.
+     * @throws ParseException if any of the elements can't be decoded.
+     */
+    void decode(String s) throws ParseException;
+
+    /**
+     * Appends string representation of the collection's contents to a string builder.
+     *
+     * @param out string builder to append to.
+     */
+    void encode(StringBuilder out);
+
+    /**
+     * Replaces contents of the collection with a copy of contents of another collection of the same class, without
+     * converting elements.
+     *
+     * @param other collection to copy contents of.
+     * @throws IllegalArgumentException if the other collection is of a different class.
+     */
+    void copyContents(EncodedCollection other);
+}
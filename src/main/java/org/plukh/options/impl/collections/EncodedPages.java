@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable contents of a {@link PagedCollection} in encoded form: elements split into pages of a fixed size (the last
+ * page can be shorter), each page encoded separately.
+ */
+public final class EncodedPages {
+    private final int size;
+    private final int pageSize;
+    private final List<String> pages;
+
+    /**
+     * Creates encoded contents.
+     *
+     * @param size total number of elements.
+     * @param pageSize number of elements in each page but the last one.
+     * @param pages encoded pages.
+     * @throws IllegalArgumentException if page size is less than 1, or the number of pages doesn't match the number of
+     * elements.
+     */
+    public EncodedPages(int size, int pageSize, List<String> pages) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        if (size < 0 || pages.size() != (size + pageSize - 1) / pageSize)
+            throw new IllegalArgumentException(pages.size() + " pages can't hold " + size + " elements in pages of " +
+                    pageSize);
+
+        this.size = size;
+        this.pageSize = pageSize;
+        this.pages = Collections.unmodifiableList(new ArrayList<>(pages));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public String getPage(int page) {
+        return pages.get(page);
+    }
+
+    /**
+     * Returns the number of elements in a page.
+     */
+    public int getPageLength(int page) {
+        return Math.min(pageSize, size - page * pageSize);
+    }
+
+    public List<String> getPages() {
+        return pages;
+    }
+}
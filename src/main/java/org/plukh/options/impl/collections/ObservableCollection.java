@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.plukh.options.impl.collections;
+
+/**
+ * Implemented by options collections which report every modification of their contents to a listener, so options
+ * backed by them can tell whether they have changed without comparing their contents. Collections whose backing
+ * collections can be modified directly can't implement it.
+ */
+public interface ObservableCollection {
+    /**
+     * Sets a listener to be run after every modification of the collection's contents, replacing the current one.
+     * The listener may be run while the collection is locked, so it should only take note of the modification.
+     *
+     * @param listener the listener, or {@code null} to stop reporting modifications.
+     */
+    void setModificationListener(Runnable listener);
+}
@@ -14,19 +14,468 @@
  * limitations under the License.
  */
 
+
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
+import java.util.*;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded blocking deque backed by an array-based ring buffer. Since elements can be added and removed at both ends,
+ * positions can't be claimed with a single CAS like in {@link OptionsBlockingQueue}; instead, every operation holds
+ * a spin lock for the few instructions it takes to update the ring. Locks are used only to park threads blocked in
+ * {@link #putFirst(Object)}, {@link #takeLast()} and other blocking methods, and only while such threads exist.
+ * <p/>
+ * Iterators (and therefore saving the option) traverse a snapshot of the deque's contents, copied under the spin lock.
+ * <p/>
+ * Capacity is set with the {@code capacity} attribute of the {@link org.plukh.options.CollectionOption} annotation;
+ * {@link #DEFAULT_CAPACITY} is used if none is specified.
+ */
+public class OptionsBlockingDeque extends AbstractQueue implements BlockingDeque, CollectionBackedOption, BoundedCollection {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final Class elementClass;
+    private final RingBufferWaiters waiters = new RingBufferWaiters();
+    private final AtomicBoolean locked = new AtomicBoolean();
+
+    //Guarded by the spin lock
+    private Object[] elements;
+    private int head;
+    private int count;
+
+    public OptionsBlockingDeque(Class elementClass) {
+        this.elementClass = elementClass;
+        elements = new Object[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity should be positive, got " + capacity);
+        lock();
+        try {
+            if (count > 0) throw new IllegalStateException("Can't change capacity of a non-empty deque");
+            elements = new Object[capacity];
+            head = 0;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        lock();
+        try {
+            return elements.length;
+        } finally {
+            unlock();
+        }
+    }
+
+    private void lock() {
+        int spins = 0;
+        while (!locked.compareAndSet(false, true)) {
+            if (++spins == SPINS_BEFORE_YIELD) {
+                spins = 0;
+                Thread.yield();
+            }
+        }
+    }
+
+    private void unlock() {
+        locked.set(false);
+    }
+
+    private int index(int offset) {
+        final int index = head + offset;
+        return index < elements.length ? index : index - elements.length;
+    }
+
+    @Override
+    public boolean offerFirst(Object o) {
+        checkElement(o);
+        lock();
+        try {
+            if (count == elements.length) return false;
+            head = head == 0 ? elements.length - 1 : head - 1;
+            elements[head] = o;
+            ++count;
+        } finally {
+            unlock();
+        }
+        waiters.signalConsumers();
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(Object o) {
+        checkElement(o);
+        lock();
+        try {
+            if (count == elements.length) return false;
+            elements[index(count)] = o;
+            ++count;
+        } finally {
+            unlock();
+        }
+        waiters.signalConsumers();
+        return true;
+    }
+
+    @Override
+    public Object pollFirst() {
+        final Object o;
+        lock();
+        try {
+            if (count == 0) return null;
+            o = elements[head];
+            elements[head] = null;
+            head = index(1);
+            --count;
+        } finally {
+            unlock();
+        }
+        waiters.signalProducers();
+        return o;
+    }
+
+    @Override
+    public Object pollLast() {
+        final Object o;
+        lock();
+        try {
+            if (count == 0) return null;
+            final int index = index(count - 1);
+            o = elements[index];
+            elements[index] = null;
+            --count;
+        } finally {
+            unlock();
+        }
+        waiters.signalProducers();
+        return o;
+    }
+
+    @Override
+    public Object peekFirst() {
+        lock();
+        try {
+            return count == 0 ? null : elements[head];
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Object peekLast() {
+        lock();
+        try {
+            return count == 0 ? null : elements[index(count - 1)];
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void addFirst(Object o) {
+        if (!offerFirst(o)) throw new IllegalStateException("Deque full");
+    }
+
+    @Override
+    public void addLast(Object o) {
+        if (!offerLast(o)) throw new IllegalStateException("Deque full");
+    }
+
+    @Override
+    public Object removeFirst() {
+        final Object o = pollFirst();
+        if (o == null) throw new NoSuchElementException();
+        return o;
+    }
+
+    @Override
+    public Object removeLast() {
+        final Object o = pollLast();
+        if (o == null) throw new NoSuchElementException();
+        return o;
+    }
+
+    @Override
+    public Object getFirst() {
+        final Object o = peekFirst();
+        if (o == null) throw new NoSuchElementException();
+        return o;
+    }
+
+    @Override
+    public Object getLast() {
+        final Object o = peekLast();
+        if (o == null) throw new NoSuchElementException();
+        return o;
+    }
+
+    @Override
+    public void putFirst(Object o) throws InterruptedException {
+        checkElement(o);
+        waiters.awaitProducer(() -> offerFirst(o), -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void putLast(Object o) throws InterruptedException {
+        checkElement(o);
+        waiters.awaitProducer(() -> offerLast(o), -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean offerFirst(Object o, long timeout, TimeUnit unit) throws InterruptedException {
+        checkElement(o);
+        return waiters.awaitProducer(() -> offerFirst(o), Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public boolean offerLast(Object o, long timeout, TimeUnit unit) throws InterruptedException {
+        checkElement(o);
+        return waiters.awaitProducer(() -> offerLast(o), Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public Object takeFirst() throws InterruptedException {
+        return waiters.awaitConsumer(this::pollFirst, -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Object takeLast() throws InterruptedException {
+        return waiters.awaitConsumer(this::pollLast, -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Object pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        return waiters.awaitConsumer(this::pollFirst, Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public Object pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+        return waiters.awaitConsumer(this::pollLast, Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return removeOccurrence(o, true);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return removeOccurrence(o, false);
+    }
+
+    private boolean removeOccurrence(Object o, boolean first) {
+        if (o == null) return false;
+
+        boolean removed = false;
+        lock();
+        try {
+            for (int i = 0; i < count && !removed; ++i) {
+                final int offset = first ? i : count - 1 - i;
+                if (o.equals(elements[index(offset)])) {
+                    //Close the gap by shifting the elements which follow it
+                    for (int j = offset; j < count - 1; ++j) elements[index(j)] = elements[index(j + 1)];
+                    elements[index(count - 1)] = null;
+                    --count;
+                    removed = true;
+                }
+            }
+        } finally {
+            unlock();
+        }
+
+        if (removed) waiters.signalProducers();
+        return removed;
+    }
+
+    //BlockingQueue methods operate on the tail (insertion) and on the head (removal)
+
+    @Override
+    public boolean offer(Object o) {
+        return offerLast(o);
+    }
+
+    @Override
+    public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException {
+        return offerLast(o, timeout, unit);
+    }
+
+    @Override
+    public void put(Object o) throws InterruptedException {
+        putLast(o);
+    }
+
+    @Override
+    public void push(Object o) {
+        addFirst(o);
+    }
+
+    @Override
+    public Object pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public Object poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return pollFirst(timeout, unit);
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+        return takeFirst();
+    }
+
+    @Override
+    public Object peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public int size() {
+        lock();
+        try {
+            return count;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock();
+        try {
+            return elements.length - count;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) throw new IllegalArgumentException("Can't drain a deque to itself");
+
+        int drained = 0;
+        Object o;
+        while (drained < maxElements && (o = pollFirst()) != null) {
+            c.add(o);
+            ++drained;
+        }
+        return drained;
+    }
+
+    @Override
+    public void clear() {
+        lock();
+        try {
+            Arrays.fill(elements, null);
+            head = 0;
+            count = 0;
+        } finally {
+            unlock();
+        }
+        waiters.signalProducers();
+    }
+
+    /**
+     * Returns elements of the deque, from first to last.
+     */
+    @Override
+    public Object[] toArray() {
+        lock();
+        try {
+            final Object[] snapshot = new Object[count];
+            final int firstPart = Math.min(count, elements.length - head);
+            System.arraycopy(elements, head, snapshot, 0, firstPart);
+            System.arraycopy(elements, 0, snapshot, firstPart, count - firstPart);
+            return snapshot;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the deque's contents. Removing an element through the iterator removes its
+     * first occurrence from the deque.
+     */
+    @Override
+    public Iterator iterator() {
+        return new SnapshotIterator(toArray(), false);
+    }
+
+    @Override
+    public Iterator descendingIterator() {
+        return new SnapshotIterator(toArray(), true);
+    }
 
-public class OptionsBlockingDeque implements CollectionBackedOption {
     @Override
     public Collection getBackingCollection() {
-        return null;
+        return this;
     }
 
     @Override
     public Class getCollectionClass() {
         return BlockingDeque.class;
     }
+
+    private void checkElement(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+    }
+
+    private class SnapshotIterator implements Iterator {
+        private final Object[] snapshot;
+        private final boolean descending;
+        private int next;
+        private Object last;
+
+        private SnapshotIterator(Object[] snapshot, boolean descending) {
+            this.snapshot = snapshot;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < snapshot.length;
+        }
+
+        @Override
+        public Object next() {
+            if (next >= snapshot.length) throw new NoSuchElementException();
+            last = snapshot[descending ? snapshot.length - 1 - next : next];
+            ++next;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            removeFirstOccurrence(last);
+            last = null;
+        }
+    }
 }
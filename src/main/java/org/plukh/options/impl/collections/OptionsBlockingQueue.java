@@ -14,19 +14,250 @@
  * limitations under the License.
  */
 
+
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
+import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded blocking queue backed by an array-based ring buffer. Every slot of the ring carries a sequence number which
+ * tells producers and consumers whether the slot is free or holds a published element, so {@link #offer(Object)} and
+ * {@link #poll()} are lock-free: a single producer and a single consumer never contend at all, and multiple producers
+ * (or consumers) only race for the next position with a CAS. Locks are used only to park threads blocked in
+ * {@link #put(Object)}, {@link #take()} and their timed variants, and only while such threads exist.
+ * <p/>
+ * Iterators (and therefore saving the option) traverse a snapshot of the queue's contents taken without stopping
+ * producers or consumers; elements consumed while the snapshot is taken are skipped. Since elements can only leave
+ * the queue from its head, {@link #remove(Object)} and iterators' {@code remove()} aren't supported.
+ * <p/>
+ * Capacity is set with the {@code capacity} attribute of the {@link org.plukh.options.CollectionOption} annotation;
+ * {@link #DEFAULT_CAPACITY} is used if none is specified.
+ */
+public class OptionsBlockingQueue extends AbstractQueue implements BlockingQueue, CollectionBackedOption, BoundedCollection {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Class elementClass;
+    private final RingBufferWaiters waiters = new RingBufferWaiters();
+    //Positions of the next element to be consumed and of the next slot to be filled; never wrap around
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    //Only reassigned by setCapacity() on an empty queue, before it's published to other threads
+    private int capacity;
+    private int mask;
+    private Object[] elements;
+    private AtomicLongArray sequences;
+
+    public OptionsBlockingQueue(Class elementClass) {
+        this.elementClass = elementClass;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity should be positive, got " + capacity);
+        if (!isEmpty()) throw new IllegalStateException("Can't change capacity of a non-empty queue");
+        allocate(capacity);
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        //Ring size is rounded up to a power of two, so positions can be mapped to slots with a mask
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        final AtomicLongArray sequences = new AtomicLongArray(size);
+        final long base = tail.get();
+        //A free slot's sequence equals the position of the element to be stored in it
+        for (int i = 0; i < size; ++i) sequences.set((int) (base + i) & (size - 1), base + i);
+
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = sequences;
+    }
+
+    @Override
+    public boolean offer(Object o) {
+        checkElement(o);
+
+        long position = tail.get();
+        for (;;) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                //Capacity may be smaller than the ring size
+                if (position - head.get() >= capacity) return false;
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = o;
+                    //Publishes the element to consumers
+                    sequences.set(index, position + 1);
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                //The slot still holds an element from the previous lap: the queue is full
+                return false;
+            } else {
+                //Another producer has taken this position
+                position = tail.get();
+            }
+        }
+
+        waiters.signalConsumers();
+        return true;
+    }
+
+    @Override
+    public Object poll() {
+        long position = head.get();
+        for (;;) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final Object o = elements[index];
+                    elements[index] = null;
+                    //Frees the slot for the producer of the next lap
+                    sequences.set(index, position + mask + 1);
+                    waiters.signalProducers();
+                    return o;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                //Nothing has been published at this position yet: the queue is empty
+                return null;
+            } else {
+                //Another consumer has taken this position
+                position = head.get();
+            }
+        }
+    }
+
+    @Override
+    public Object peek() {
+        for (;;) {
+            final long position = head.get();
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+
+            if (sequence < position + 1) return null;
+            if (sequence == position + 1) {
+                final Object o = elements[index];
+                if (o != null && head.get() == position) return o;
+            }
+        }
+    }
+
+    @Override
+    public void put(Object o) throws InterruptedException {
+        checkElement(o);
+        waiters.awaitProducer(() -> offer(o), -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException {
+        checkElement(o);
+        return waiters.awaitProducer(() -> offer(o), Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+        return waiters.awaitConsumer(this::poll, -1, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return waiters.awaitConsumer(this::poll, Math.max(timeout, 0), unit);
+    }
+
+    @Override
+    public int size() {
+        //Head must be read first: it never overtakes the tail
+        final long head = this.head.get();
+        final long size = tail.get() - head;
+        return (int) Math.min(Math.max(size, 0), capacity);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) throw new IllegalArgumentException("Can't drain a queue to itself");
+
+        int count = 0;
+        Object o;
+        while (count < maxElements && (o = poll()) != null) {
+            c.add(o);
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queue's contents. The iterator doesn't support removal.
+     */
+    @Override
+    public Iterator iterator() {
+        return Collections.unmodifiableList(Arrays.asList(toArray())).iterator();
+    }
+
+    /**
+     * Returns elements present in the queue, from head to tail, without blocking producers or consumers. Elements
+     * consumed while the snapshot is taken aren't included; elements published after the snapshot was started may or
+     * may not be included.
+     */
+    @Override
+    public Object[] toArray() {
+        final long from = head.get();
+        final long to = tail.get();
+        final Object[] snapshot = new Object[(int) Math.min(Math.max(to - from, 0), elements.length)];
+
+        int count = 0;
+        for (long position = Math.max(from, to - elements.length); position < to && count < snapshot.length; ++position) {
+            final int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) continue;
+
+            final Object o = elements[index];
+            //The element is only valid if the slot wasn't consumed (and possibly refilled) while we were reading it
+            if (o != null && sequences.get(index) == position + 1) snapshot[count++] = o;
+        }
+
+        return count == snapshot.length ? snapshot : Arrays.copyOf(snapshot, count);
+    }
 
-public class OptionsBlockingQueue implements CollectionBackedOption {
     @Override
     public Collection getBackingCollection() {
-        return null;
+        return this;
     }
 
     @Override
     public Class getCollectionClass() {
         return BlockingQueue.class;
     }
+
+    private void checkElement(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+    }
 }
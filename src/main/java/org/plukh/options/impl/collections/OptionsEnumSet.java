@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Set of enum constants, stored as a bitmask indexed by constant ordinals. Membership checks are a single bit test;
+ * iteration follows the declaration order of constants.
+ */
+public class OptionsEnumSet extends AbstractSet implements CollectionBackedOption, ObservableCollection {
+    private final Class elementClass;
+    private final Object[] universe;
+    private final long[] bits;
+    private int size;
+    private int modCount;
+    private Runnable modificationListener;
+
+    public OptionsEnumSet(Class elementClass) {
+        if (!elementClass.isEnum()) throw new CollectionInitializationException("Class " + elementClass.getName() +
+                " is not an enum, can't be used as OptionsEnumSet element class");
+        this.elementClass = elementClass;
+        this.universe = elementClass.getEnumConstants();
+        this.bits = new long[(universe.length + 63) >>> 6];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!elementClass.isInstance(o)) return false;
+        final int ordinal = ((Enum) o).ordinal();
+        return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    @Override
+    public boolean add(Object o) {
+        if (o == null) throw new NullPointerException("OptionsEnumSet doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this OptionsEnumSet instance");
+
+        final int ordinal = ((Enum) o).ordinal();
+        final long word = bits[ordinal >>> 6];
+        final long updated = word | (1L << ordinal);
+        if (word == updated) return false;
+
+        bits[ordinal >>> 6] = updated;
+        ++size;
+        ++modCount;
+        modified();
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!elementClass.isInstance(o)) return false;
+
+        final int ordinal = ((Enum) o).ordinal();
+        final long word = bits[ordinal >>> 6];
+        final long updated = word & ~(1L << ordinal);
+        if (word == updated) return false;
+
+        bits[ordinal >>> 6] = updated;
+        --size;
+        ++modCount;
+        modified();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < bits.length; ++i) bits[i] = 0;
+        size = 0;
+        ++modCount;
+        modified();
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new BitIterator();
+    }
+
+    @Override
+    public Collection getBackingCollection() {
+        return this;
+    }
+
+    @Override
+    public Class getCollectionClass() {
+        return Set.class;
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    private void modified() {
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
+
+    private class BitIterator implements Iterator {
+        private int next = nextSetBit(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Object next() {
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+            if (next < 0) throw new NoSuchElementException();
+
+            last = next;
+            next = nextSetBit(next + 1);
+            return universe[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (expectedModCount != modCount) throw new ConcurrentModificationException();
+
+            OptionsEnumSet.this.remove(universe[last]);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+
+    private int nextSetBit(int from) {
+        int index = from >>> 6;
+        if (index >= bits.length) return -1;
+
+        long word = bits[index] & (-1L << from);
+        while (true) {
+            if (word != 0) return (index << 6) + Long.numberOfTrailingZeros(word);
+            if (++index == bits.length) return -1;
+            word = bits[index];
+        }
+    }
+}
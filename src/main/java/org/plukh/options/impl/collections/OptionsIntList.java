@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.impl.NumberParsers;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of {@code int} values, stored in a growable {@code int[]} array. Besides the regular {@link List} methods,
+ * which box elements, provides primitive accessors.
+ */
+public class OptionsIntList extends AbstractPrimitiveList {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements = EMPTY;
+
+    public OptionsIntList(Class elementClass) {
+        super(elementClass, Integer.class);
+    }
+
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public int setInt(int index, int element) {
+        return (int) setElement(index, element);
+    }
+
+    public void addInt(int element) {
+        addElement(element);
+    }
+
+    public void addInt(int index, int element) {
+        addElement(index, element);
+    }
+
+    public int removeIntAt(int index) {
+        return (int) removeElementAt(index);
+    }
+
+    public int indexOfInt(int element) {
+        return indexOfElement(element);
+    }
+
+    public boolean containsInt(int element) {
+        return indexOfElement(element) >= 0;
+    }
+
+    /**
+     * Returns a copy of the list's contents as an array.
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size());
+    }
+
+    @Override
+    long elementAt(int index) {
+        return elements[index];
+    }
+
+    @Override
+    void storeElement(int index, long element) {
+        elements[index] = (int) element;
+    }
+
+    @Override
+    int capacity() {
+        return elements.length;
+    }
+
+    @Override
+    void resize(int capacity) {
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    void moveElements(int from, int to, int count) {
+        System.arraycopy(elements, from, elements, to, count);
+    }
+
+    @Override
+    void copyStorage(AbstractPrimitiveList other, int count) {
+        elements = Arrays.copyOf(((OptionsIntList) other).elements, count);
+    }
+
+    @Override
+    Object box(long element) {
+        return (int) element;
+    }
+
+    @Override
+    long parseElement(String s, int start, int end) {
+        return NumberParsers.parseInt(s, start, end);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.impl.NumberParsers;
+
+import java.util.Set;
+
+/**
+ * Copy-on-write set of {@code int} values, stored in an open-addressing hash table (a plain {@code int[]} array with
+ * linear probing), see {@link AbstractPrimitiveSet}. Besides the regular {@link Set} methods, which box elements,
+ * provides primitive accessors. Iteration order is unspecified.
+ */
+public class OptionsIntSet extends AbstractPrimitiveSet {
+    public OptionsIntSet(Class elementClass) {
+        super(elementClass, Integer.class);
+    }
+
+    public boolean containsInt(int key) {
+        return containsElement(key);
+    }
+
+    public boolean addInt(int key) {
+        return addElement(key);
+    }
+
+    public boolean removeInt(int key) {
+        return removeElement(key);
+    }
+
+    /**
+     * Returns a copy of the set's contents as an array, in unspecified order.
+     */
+    public int[] toIntArray() {
+        return (int[]) copyElements();
+    }
+
+    @Override
+    Table newTable(int capacity) {
+        return new IntTable(new int[capacity]);
+    }
+
+    @Override
+    Object box(long element) {
+        return (int) element;
+    }
+
+    @Override
+    long parseElement(String s, int start, int end) {
+        return NumberParsers.parseInt(s, start, end);
+    }
+
+    private static final class IntTable extends Table {
+        private final int[] keys;
+
+        private IntTable(int[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        int length() {
+            return keys.length;
+        }
+
+        @Override
+        long get(int pos) {
+            return keys[pos];
+        }
+
+        @Override
+        void set(int pos, long key) {
+            keys[pos] = (int) key;
+        }
+
+        @Override
+        Table copy() {
+            return new IntTable(keys.clone());
+        }
+
+        @Override
+        Object toArray(int size, boolean containsZero) {
+            final int[] result = new int[size];
+            int i = containsZero ? 1 : 0;
+            for (int key : keys) {
+                if (key != 0) result[i++] = key;
+            }
+            return result;
+        }
+    }
+}
@@ -14,19 +14,242 @@
  * limitations under the License.
  */
 
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * List backed by a persistent vector (a structurally shared 32-way trie). The list's contents are an immutable
+ * vector, replaced atomically on every modification; since a modified vector shares all but O(log n) nodes with the
+ * original one, modifications don't copy the whole list, while readers get immutable snapshots for free.
+ * <p/>
+ * Reads are lock-free, modifications are serialized. Iterators (and therefore saving the option) traverse the
+ * snapshot current at the time of their creation, never throw {@link ConcurrentModificationException} and don't
+ * support modification; use {@link #snapshot()} to get a consistent view of the list explicitly.
+ * <p/>
+ * Setting elements and adding or removing them at the end of the list copy O(log n) nodes; inserting or removing
+ * elements anywhere else rebuilds the list.
+ */
+public class OptionsList extends AbstractList implements RandomAccess, CollectionBackedOption, CopyOnWriteCollection,
+        ObservableCollection {
+    private final Class elementClass;
+    private final Object lock = new Object();
+    private volatile PersistentVector vector = PersistentVector.EMPTY;
+    private volatile Runnable modificationListener;
+
+    public OptionsList(Class elementClass) {
+        this.elementClass = elementClass;
+    }
+
+    /**
+     * Returns an immutable snapshot of the list's current contents, in constant time.
+     */
+    public List snapshot() {
+        return vector;
+    }
+
+    @Override
+    public Object get(int index) {
+        return vector.get(index);
+    }
+
+    @Override
+    public int size() {
+        return vector.size();
+    }
+
+    @Override
+    public Iterator iterator() {
+        return vector.iterator();
+    }
+
+    @Override
+    public ListIterator listIterator(int index) {
+        return Collections.unmodifiableList(vector).listIterator(index);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return vector.toArray();
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        checkElement(element);
+        synchronized (lock) {
+            final PersistentVector current = vector;
+            final Object previous = current.get(index);
+            publish(current.with(index, element));
+            return previous;
+        }
+    }
+
+    @Override
+    public boolean add(Object element) {
+        checkElement(element);
+        synchronized (lock) {
+            publish(vector.push(element));
+        }
+        return true;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        checkElement(element);
+        synchronized (lock) {
+            final PersistentVector current = vector;
+            if (index < 0 || index > current.size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + current.size());
+            if (index == current.size()) {
+                publish(current.push(element));
+                return;
+            }
+
+            final Object[] elements = current.toArray();
+            final Object[] updated = new Object[elements.length + 1];
+            System.arraycopy(elements, 0, updated, 0, index);
+            updated[index] = element;
+            System.arraycopy(elements, index, updated, index + 1, elements.length - index);
+            publish(PersistentVector.of(updated));
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection c) {
+        final Object[] added = c.toArray();
+        for (Object o : added) checkElement(o);
+
+        synchronized (lock) {
+            publish(vector.appendAll(added, 0, added.length));
+        }
+        return added.length > 0;
+    }
+
+    @Override
+    public Object remove(int index) {
+        synchronized (lock) {
+            final PersistentVector current = vector;
+            final Object removed = current.get(index);
+            if (index == current.size() - 1) {
+                publish(current.pop());
+            } else {
+                final Object[] elements = current.toArray();
+                final Object[] updated = new Object[elements.length - 1];
+                System.arraycopy(elements, 0, updated, 0, index);
+                System.arraycopy(elements, index + 1, updated, index, updated.length - index);
+                publish(PersistentVector.of(updated));
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        synchronized (lock) {
+            final int index = vector.indexOf(o);
+            if (index < 0) return false;
+            remove(index);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection c) {
+        Objects.requireNonNull(c);
+        return removeIf(o -> !c.contains(o));
+    }
+
+    @Override
+    public boolean removeIf(Predicate filter) {
+        synchronized (lock) {
+            final Object[] elements = vector.toArray();
+            int count = 0;
+            for (Object o : elements) {
+                if (!filter.test(o)) elements[count++] = o;
+            }
+
+            if (count == elements.length) return false;
+            publish(PersistentVector.EMPTY.appendAll(elements, 0, count));
+            return true;
+        }
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator operator) {
+        synchronized (lock) {
+            final Object[] elements = vector.toArray();
+            for (int i = 0; i < elements.length; ++i) {
+                elements[i] = operator.apply(elements[i]);
+                checkElement(elements[i]);
+            }
+            publish(PersistentVector.of(elements));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator c) {
+        synchronized (lock) {
+            final Object[] elements = vector.toArray();
+            Arrays.sort(elements, c);
+            publish(PersistentVector.of(elements));
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            publish(PersistentVector.EMPTY);
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection elements) {
+        final Object[] replacement = elements.toArray();
+        for (Object o : replacement) checkElement(o);
+
+        final PersistentVector updated = PersistentVector.of(replacement);
+        synchronized (lock) {
+            publish(updated);
+        }
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    /**
+     * Replaces the list's contents with an updated vector. Must be called with the lock held.
+     */
+    private void publish(PersistentVector updated) {
+        vector = updated;
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
 
-public class OptionsList implements CollectionBackedOption {
     @Override
     public Collection getBackingCollection() {
-        return null;
+        return this;
     }
 
     @Override
     public Class getCollectionClass() {
         return List.class;
     }
+
+    private void checkElement(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.impl.NumberParsers;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of {@code long} values, stored in a growable {@code long[]} array. Besides the regular {@link List} methods,
+ * which box elements, provides primitive accessors.
+ */
+public class OptionsLongList extends AbstractPrimitiveList {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] elements = EMPTY;
+
+    public OptionsLongList(Class elementClass) {
+        super(elementClass, Long.class);
+    }
+
+    public long getLong(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public long setLong(int index, long element) {
+        return setElement(index, element);
+    }
+
+    public void addLong(long element) {
+        addElement(element);
+    }
+
+    public void addLong(int index, long element) {
+        addElement(index, element);
+    }
+
+    public long removeLongAt(int index) {
+        return removeElementAt(index);
+    }
+
+    public int indexOfLong(long element) {
+        return indexOfElement(element);
+    }
+
+    public boolean containsLong(long element) {
+        return indexOfElement(element) >= 0;
+    }
+
+    /**
+     * Returns a copy of the list's contents as an array.
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(elements, size());
+    }
+
+    @Override
+    long elementAt(int index) {
+        return elements[index];
+    }
+
+    @Override
+    void storeElement(int index, long element) {
+        elements[index] = element;
+    }
+
+    @Override
+    int capacity() {
+        return elements.length;
+    }
+
+    @Override
+    void resize(int capacity) {
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    void moveElements(int from, int to, int count) {
+        System.arraycopy(elements, from, elements, to, count);
+    }
+
+    @Override
+    void copyStorage(AbstractPrimitiveList other, int count) {
+        elements = Arrays.copyOf(((OptionsLongList) other).elements, count);
+    }
+
+    @Override
+    Object box(long element) {
+        return element;
+    }
+
+    @Override
+    long parseElement(String s, int start, int end) {
+        return NumberParsers.parseLong(s, start, end);
+    }
+}
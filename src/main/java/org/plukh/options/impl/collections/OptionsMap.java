@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.*;
+
+/**
+ * Immutable map backing map options. Entries are kept in insertion order in a single array of alternating keys and
+ * values, indexed by an open-addressing hash table with linear probing, kept at most half full; a lookup of a present
+ * key usually takes a single probe and never allocates. Iteration order is the insertion order.
+ * <p/>
+ * Map options replace the whole map when reloaded, so a map obtained from an option's getter never changes. None of
+ * the modification methods are supported.
+ */
+public final class OptionsMap extends AbstractMap {
+    private static final OptionsMap EMPTY = new OptionsMap(new Object[0], 0, new int[1]);
+
+    //Keys at even indices, values at odd ones
+    private final Object[] entries;
+    private final int size;
+    //Entry numbers plus one; zero marks a free slot
+    private final int[] table;
+
+    private OptionsMap(Object[] entries, int size, int[] table) {
+        this.entries = entries;
+        this.size = size;
+        this.table = table;
+    }
+
+    public static OptionsMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a map from keys and values. If a key is repeated, its last value is used, keeping the position of its
+     * first occurrence.
+     *
+     * @throws NullPointerException if any of the keys or values is {@code null}.
+     */
+    public static OptionsMap of(List keys, List values) {
+        if (keys.size() != values.size()) throw new IllegalArgumentException("Number of keys " + keys.size() +
+                " doesn't match number of values " + values.size());
+        if (keys.isEmpty()) return EMPTY;
+
+        final int[] table = new int[tableSize(keys.size())];
+        final Object[] entries = new Object[keys.size() * 2];
+        int size = 0;
+
+        for (int i = 0; i < keys.size(); ++i) {
+            final Object key = Objects.requireNonNull(keys.get(i), "Map options don't allow for null keys");
+            final Object value = Objects.requireNonNull(values.get(i), "Map options don't allow for null values");
+
+            int slot = hash(key) & (table.length - 1);
+            while (table[slot] != 0 && !entries[(table[slot] - 1) * 2].equals(key)) slot = (slot + 1) & (table.length - 1);
+
+            if (table[slot] == 0) {
+                entries[size * 2] = key;
+                table[slot] = ++size;
+            }
+            entries[(table[slot] - 1) * 2 + 1] = value;
+        }
+
+        return new OptionsMap(size * 2 == entries.length ? entries : Arrays.copyOf(entries, size * 2), size, table);
+    }
+
+    private static int tableSize(int size) {
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) return -1;
+
+        final int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = table[slot];
+            if (entry == 0) return -1;
+            if (entries[(entry - 1) * 2].equals(key)) return entry - 1;
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : entries[index * 2 + 1];
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        final int index = indexOf(key);
+        return index < 0 ? defaultValue : entries[index * 2 + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry> entrySet() {
+        return new AbstractSet<Entry>() {
+            @Override
+            public Iterator<Entry> iterator() {
+                return new Iterator<Entry>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < size;
+                    }
+
+                    @Override
+                    public Entry next() {
+                        if (index >= size) throw new NoSuchElementException();
+                        final Entry entry = new SimpleImmutableEntry(entries[index * 2], entries[index * 2 + 1]);
+                        ++index;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
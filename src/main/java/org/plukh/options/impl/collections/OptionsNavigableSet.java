@@ -14,19 +14,362 @@
  * limitations under the License.
  */
 
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
-import java.util.NavigableSet;
+import java.util.*;
+
+/**
+ * Copy-on-write navigable set, optimized for sets which are read often and modified rarely. Elements must implement
+ * {@link Comparable} and are kept in their natural order in an immutable sorted array. {@link #contains(Object)},
+ * {@link #floor(Object)}, {@link #ceiling(Object)} and other lookups are lock-free binary searches in the current
+ * array; modifications are serialized, build a new array and publish it atomically. Iterators traverse the array
+ * current at the time of their creation and never throw {@link ConcurrentModificationException}.
+ * <p/>
+ * Subset views ({@link #subSet(Object, boolean, Object, boolean)}, {@link #headSet(Object)},
+ * {@link #descendingSet()} and the like) are read-only snapshots of the set's contents at the time of the call, rather
+ * than live views.
+ */
+public class OptionsNavigableSet extends AbstractSet implements NavigableSet, CollectionBackedOption, CopyOnWriteCollection,
+        ObservableCollection {
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Class elementClass;
+    private final Object lock = new Object();
+    private volatile Object[] elements = EMPTY;
+    private volatile Runnable modificationListener;
+
+    public OptionsNavigableSet(Class elementClass) {
+        if (!Comparable.class.isAssignableFrom(elementClass)) throw new CollectionInitializationException("Class " +
+                elementClass.getName() + " is not Comparable, can't be used as an element class of a sorted set");
+        this.elementClass = elementClass;
+    }
 
-public class OptionsNavigableSet implements CollectionBackedOption {
     @Override
-    public Collection getBackingCollection() {
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return elementClass.isInstance(o) && Arrays.binarySearch(elements, o) >= 0;
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new SnapshotIterator(elements, false);
+    }
+
+    @Override
+    public Iterator descendingIterator() {
+        return new SnapshotIterator(elements, true);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+
+    @Override
+    public Comparator comparator() {
         return null;
     }
 
+    @Override
+    public Object first() {
+        final Object[] elements = this.elements;
+        if (elements.length == 0) throw new NoSuchElementException();
+        return elements[0];
+    }
+
+    @Override
+    public Object last() {
+        final Object[] elements = this.elements;
+        if (elements.length == 0) throw new NoSuchElementException();
+        return elements[elements.length - 1];
+    }
+
+    @Override
+    public Object lower(Object o) {
+        final Object[] elements = this.elements;
+        return elementAt(elements, lowerIndex(elements, o, false));
+    }
+
+    @Override
+    public Object floor(Object o) {
+        final Object[] elements = this.elements;
+        return elementAt(elements, lowerIndex(elements, o, true));
+    }
+
+    @Override
+    public Object ceiling(Object o) {
+        final Object[] elements = this.elements;
+        return elementAt(elements, higherIndex(elements, o, true));
+    }
+
+    @Override
+    public Object higher(Object o) {
+        final Object[] elements = this.elements;
+        return elementAt(elements, higherIndex(elements, o, false));
+    }
+
+    //Index of the greatest element less than (or equal to, if inclusive) the key; -1 if there is none
+    private static int lowerIndex(Object[] elements, Object key, boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, Objects.requireNonNull(key));
+        if (index >= 0) return inclusive ? index : index - 1;
+        return -index - 2;
+    }
+
+    //Index of the least element greater than (or equal to, if inclusive) the key; length of the array if there is none
+    private static int higherIndex(Object[] elements, Object key, boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, Objects.requireNonNull(key));
+        if (index >= 0) return inclusive ? index : index + 1;
+        return -index - 1;
+    }
+
+    private static Object elementAt(Object[] elements, int index) {
+        return index >= 0 && index < elements.length ? elements[index] : null;
+    }
+
+    @Override
+    public boolean add(Object o) {
+        checkElement(o);
+        synchronized (lock) {
+            final Object[] current = elements;
+            int index = Arrays.binarySearch(current, o);
+            if (index >= 0) return false;
+
+            index = -index - 1;
+            final Object[] updated = new Object[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = o;
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+            publish(updated);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection c) {
+        final Object[] added = c.toArray();
+        for (Object o : added) checkElement(o);
+
+        synchronized (lock) {
+            final Object[] current = elements;
+            final Object[] merged = Arrays.copyOf(current, current.length + added.length);
+            System.arraycopy(added, 0, merged, current.length, added.length);
+
+            final Object[] updated = sortedUnique(merged);
+            if (updated.length == current.length) return false;
+            publish(updated);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!elementClass.isInstance(o)) return false;
+        synchronized (lock) {
+            final Object[] current = elements;
+            final int index = Arrays.binarySearch(current, o);
+            if (index < 0) return false;
+
+            publish(removeAt(current, index));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection c) {
+        return retain(c, false);
+    }
+
+    @Override
+    public boolean retainAll(Collection c) {
+        return retain(c, true);
+    }
+
+    private boolean retain(Collection c, boolean retainContained) {
+        Objects.requireNonNull(c);
+        synchronized (lock) {
+            final Object[] current = elements;
+            final Object[] retained = new Object[current.length];
+            int count = 0;
+            for (Object o : current) {
+                if (c.contains(o) == retainContained) retained[count++] = o;
+            }
+
+            if (count == current.length) return false;
+            publish(Arrays.copyOf(retained, count));
+            return true;
+        }
+    }
+
+    @Override
+    public Object pollFirst() {
+        synchronized (lock) {
+            final Object[] current = elements;
+            if (current.length == 0) return null;
+            publish(removeAt(current, 0));
+            return current[0];
+        }
+    }
+
+    @Override
+    public Object pollLast() {
+        synchronized (lock) {
+            final Object[] current = elements;
+            if (current.length == 0) return null;
+            publish(removeAt(current, current.length - 1));
+            return current[current.length - 1];
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            publish(EMPTY);
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection elements) {
+        final Object[] replacement = elements.toArray();
+        for (Object o : replacement) checkElement(o);
+
+        final Object[] updated = sortedUnique(replacement);
+        synchronized (lock) {
+            publish(updated);
+        }
+    }
+
+    @Override
+    public NavigableSet descendingSet() {
+        return snapshotView(elements, 0, elements.length).descendingSet();
+    }
+
+    @Override
+    public NavigableSet subSet(Object fromElement, boolean fromInclusive, Object toElement, boolean toInclusive) {
+        final Object[] elements = this.elements;
+        if (((Comparable) fromElement).compareTo(toElement) > 0)
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        return snapshotView(elements, higherIndex(elements, fromElement, fromInclusive),
+                lowerIndex(elements, toElement, toInclusive) + 1);
+    }
+
+    @Override
+    public NavigableSet headSet(Object toElement, boolean inclusive) {
+        final Object[] elements = this.elements;
+        return snapshotView(elements, 0, lowerIndex(elements, toElement, inclusive) + 1);
+    }
+
+    @Override
+    public NavigableSet tailSet(Object fromElement, boolean inclusive) {
+        final Object[] elements = this.elements;
+        return snapshotView(elements, higherIndex(elements, fromElement, inclusive), elements.length);
+    }
+
+    @Override
+    public SortedSet subSet(Object fromElement, Object toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet headSet(Object toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet tailSet(Object fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableSet snapshotView(Object[] elements, int from, int to) {
+        final TreeSet view = new TreeSet();
+        if (from < to) view.addAll(Arrays.asList(elements).subList(from, to));
+        return Collections.unmodifiableNavigableSet(view);
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    /**
+     * Replaces the set's contents with an updated array of elements. Must be called with the lock held.
+     */
+    private void publish(Object[] updated) {
+        elements = updated;
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
+
+    @Override
+    public Collection getBackingCollection() {
+        return this;
+    }
+
     @Override
     public Class getCollectionClass() {
         return NavigableSet.class;
     }
+
+    private void checkElement(Object o) {
+        if (o == null) throw new NullPointerException(getClass().getSimpleName() + " doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this " + getClass().getSimpleName() + " instance");
+    }
+
+    private static Object[] removeAt(Object[] current, int index) {
+        final Object[] updated = new Object[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        return updated;
+    }
+
+    /**
+     * Sorts an array in place and drops duplicate elements. The array may be returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object[] sortedUnique(Object[] elements) {
+        Arrays.sort(elements);
+        int count = 0;
+        for (Object o : elements) {
+            if (count == 0 || ((Comparable) elements[count - 1]).compareTo(o) != 0) elements[count++] = o;
+        }
+        return count == elements.length ? elements : Arrays.copyOf(elements, count);
+    }
+
+    private class SnapshotIterator implements Iterator {
+        private final Object[] elements;
+        private final boolean descending;
+        private int next;
+        private Object last;
+
+        private SnapshotIterator(Object[] elements, boolean descending) {
+            this.elements = elements;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < elements.length;
+        }
+
+        @Override
+        public Object next() {
+            if (next >= elements.length) throw new NoSuchElementException();
+            last = elements[descending ? elements.length - 1 - next : next];
+            ++next;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            OptionsNavigableSet.this.remove(last);
+            last = null;
+        }
+    }
 }
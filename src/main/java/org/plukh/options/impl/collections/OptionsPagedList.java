@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.ParseException;
+
+import java.util.*;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Read-only list for large collection options, kept in memory as encoded pages. Loading the list only cuts its string
+ * value into pages; elements of a page are decoded and converted the first time the page is accessed, and the most
+ * recently used decoded pages are kept in memory, up to {@link #getResidentPages()} pages. Pages evicted from memory
+ * are decoded again when they're accessed next time.
+ * <p/>
+ * Iterating over the list streams its pages sequentially: pages which aren't resident are decoded one at a time and
+ * aren't retained, so iterating over the whole list neither evicts pages used by random access, nor needs more than
+ * a single decoded page in memory.
+ * <p/>
+ * The list can't be modified directly; its contents are replaced atomically when the option is loaded or reset.
+ * Since elements are converted lazily, conversion errors are only detected when the page containing the element is
+ * accessed, and result in a {@link ParseException}.
+ */
+public class OptionsPagedList extends AbstractList implements RandomAccess, CollectionBackedOption, PagedCollection {
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+    public static final int DEFAULT_RESIDENT_PAGES = 16;
+
+    private final Class elementClass;
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+    private volatile int residentPages = DEFAULT_RESIDENT_PAGES;
+    private volatile PageDecoder decoder;
+    private volatile Contents contents;
+
+    public OptionsPagedList(Class elementClass) {
+        this.elementClass = elementClass;
+        contents = new Contents(new EncodedPages(0, pageSize, Collections.<String>emptyList()), residentPages);
+    }
+
+    @Override
+    public void setPaging(int pageSize, int residentPages) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        if (residentPages < 1) throw new IllegalArgumentException("Number of resident pages must be positive: " +
+                residentPages);
+        this.pageSize = pageSize;
+        this.residentPages = residentPages;
+        contents = new Contents(contents.pages, residentPages);
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int getResidentPages() {
+        return residentPages;
+    }
+
+    @Override
+    public void setPageDecoder(PageDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public EncodedPages getPages() {
+        return contents.pages;
+    }
+
+    @Override
+    public void setPages(EncodedPages pages) {
+        contents = new Contents(pages, residentPages);
+    }
+
+    /**
+     * Returns the number of decoded pages currently kept in memory.
+     */
+    public int getResidentPageCount() {
+        return contents.residentPageCount();
+    }
+
+    @Override
+    public Object get(int index) {
+        final Contents contents = this.contents;
+        final int size = contents.pages.getSize();
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+
+        final int pageSize = contents.pages.getPageSize();
+        return contents.page(index / pageSize, decoder, true)[index % pageSize];
+    }
+
+    @Override
+    public int size() {
+        return contents.pages.getSize();
+    }
+
+    @Override
+    public Iterator iterator() {
+        final Contents contents = this.contents;
+        final PageDecoder decoder = this.decoder;
+
+        return new Iterator() {
+            private int page = -1;
+            private Object[] elements = new Object[0];
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < elements.length || page + 1 < contents.pages.getPageCount();
+            }
+
+            @Override
+            public Object next() {
+                if (index == elements.length) {
+                    if (page + 1 >= contents.pages.getPageCount()) throw new NoSuchElementException();
+                    elements = contents.page(++page, decoder, false);
+                    index = 0;
+                }
+                return elements[index++];
+            }
+        };
+    }
+
+    @Override
+    public Spliterator spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+    }
+
+    @Override
+    public Collection getBackingCollection() {
+        return this;
+    }
+
+    @Override
+    public Class getCollectionClass() {
+        return List.class;
+    }
+
+    public Class getElementClass() {
+        return elementClass;
+    }
+
+    private static final class Contents {
+        private final EncodedPages pages;
+        //Decoded pages, least recently used first
+        private final LinkedHashMap<Integer, Object[]> resident;
+
+        private Contents(EncodedPages pages, final int residentPages) {
+            this.pages = pages;
+            resident = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+                    return size() > residentPages;
+                }
+            };
+        }
+
+        /**
+         * Returns decoded elements of a page, decoding the page if it's not resident.
+         *
+         * @param retain {@code true} to keep a newly decoded page resident.
+         */
+        private Object[] page(int page, PageDecoder decoder, boolean retain) {
+            synchronized (resident) {
+                final Object[] elements = resident.get(page);
+                if (elements != null) return elements;
+            }
+
+            if (decoder == null) throw new IllegalStateException("Page decoder is not set");
+
+            //Decode outside of the lock; concurrent readers may occasionally decode the same page twice
+            final Object[] elements = decoder.decode(pages.getPage(page));
+            if (elements.length != pages.getPageLength(page)) throw new ParseException(format("Error decoding " +
+                    "page {0}: expected {1} elements, got {2}", page, pages.getPageLength(page), elements.length));
+
+            if (retain) {
+                synchronized (resident) {
+                    resident.put(page, elements);
+                }
+            }
+            return elements;
+        }
+
+        private int residentPageCount() {
+            synchronized (resident) {
+                return resident.size();
+            }
+        }
+    }
+}
@@ -26,7 +26,7 @@ public class OptionsQueue implements CollectionBackedOption, Queue {
 
     private final Queue queue;
     private final Class elementClass;
-
+    private volatile QueueJournal journal;
 
     public OptionsQueue(Class elementClass) {
         this.elementClass = elementClass;
@@ -70,7 +70,24 @@ public class OptionsQueue implements CollectionBackedOption, Queue {
 
     @Override
     public Iterator iterator() {
-        return queue.iterator();
+        final Iterator iterator = queue.iterator();
+        return new Iterator() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                journalReplaced();
+            }
+        };
     }
 
     @Override
@@ -88,12 +105,16 @@ public class OptionsQueue implements CollectionBackedOption, Queue {
         if (o == null) throw new NullPointerException("OptionsQueue doesn't allow for null elements");
         if (!(elementClass.isAssignableFrom(o.getClass()))) throw new IllegalArgumentException("Only elements of class " +
                 elementClass.getName() + " supported in this OptionsQueue instance");
-        return queue.add(o);
+        final boolean added = queue.add(o);
+        if (added) journalOffered(o);
+        return added;
     }
 
     @Override
     public boolean remove(Object o) {
-        return queue.remove(o);
+        final boolean removed = queue.remove(o);
+        if (removed) journalReplaced();
+        return removed;
     }
 
     @Override
@@ -101,17 +122,23 @@ public class OptionsQueue implements CollectionBackedOption, Queue {
         if (o == null) throw new NullPointerException("OptionsQueue doesn't allow for null elements");
         if (!(elementClass.isAssignableFrom(o.getClass()))) throw new IllegalArgumentException("Only elements of class " +
                 elementClass.getName() + " supported in this OptionsQueue instance");
-        return queue.offer(o);
+        final boolean offered = queue.offer(o);
+        if (offered) journalOffered(o);
+        return offered;
     }
 
     @Override
     public Object remove() {
-        return queue.remove();
+        final Object o = queue.remove();
+        journalPolled();
+        return o;
     }
 
     @Override
     public Object poll() {
-        return queue.poll();
+        final Object o = queue.poll();
+        if (o != null) journalPolled();
+        return o;
     }
 
     @Override
@@ -137,22 +164,66 @@ public class OptionsQueue implements CollectionBackedOption, Queue {
             if (!(elementClass.isAssignableFrom(o.getClass()))) throw new IllegalArgumentException("Only elements of class " +
                     elementClass.getName() + " supported in this OptionsQueue instance");
         }
-        return queue.addAll(c);
+        final QueueJournal journal = this.journal;
+        if (journal == null) return queue.addAll(c);
+
+        //Journal elements one by one, so the journal never misses an element added before a failure
+        boolean changed = false;
+        for (Object o : c) {
+            if (queue.add(o)) {
+                journal.offered(o);
+                changed = true;
+            }
+        }
+        return changed;
     }
 
     @Override
     public boolean removeAll(Collection c) {
-        return queue.removeAll(c);
+        final boolean changed = queue.removeAll(c);
+        if (changed) journalReplaced();
+        return changed;
     }
 
     @Override
     public boolean retainAll(Collection c) {
-        return queue.retainAll(c);
+        final boolean changed = queue.retainAll(c);
+        if (changed) journalReplaced();
+        return changed;
     }
 
     @Override
     public void clear() {
         queue.clear();
+        journalReplaced();
+    }
+
+    /**
+     * Attaches a journal which will receive all further modifications of this queue, or detaches the current one
+     * if {@code journal} is {@code null}. Modifications made directly to the backing collection (see
+     * {@link #getBackingCollection()}) aren't journaled.
+     */
+    public void setJournal(QueueJournal journal) {
+        this.journal = journal;
+    }
+
+    public QueueJournal getJournal() {
+        return journal;
+    }
+
+    private void journalOffered(Object o) {
+        final QueueJournal journal = this.journal;
+        if (journal != null) journal.offered(o);
+    }
+
+    private void journalPolled() {
+        final QueueJournal journal = this.journal;
+        if (journal != null) journal.polled();
+    }
+
+    private void journalReplaced() {
+        final QueueJournal journal = this.journal;
+        if (journal != null) journal.replaced(queue);
     }
 
     @Override
@@ -14,19 +14,254 @@
  * limitations under the License.
  */
 
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
+
+/**
+ * Copy-on-write hash set, optimized for sets which are read often and modified rarely (allowlists and the like).
+ * Contents are kept in an immutable snapshot: an array of elements in insertion order and an open-addressing hash table
+ * indexing it. {@link #contains(Object)} is a lock-free hash lookup in the current snapshot; modifications are
+ * serialized, build a new snapshot and publish it atomically. Iterators traverse the snapshot current at the time of
+ * their creation and never throw {@link ConcurrentModificationException}.
+ * <p/>
+ * Each modification copies the whole set, so bulk changes should be made with bulk methods ({@link #addAll(Collection)},
+ * {@link #removeAll(Collection)}, {@link #retainAll(Collection)}, {@link #replaceContents(Collection)}), which
+ * publish a single snapshot.
+ */
+public class OptionsSet extends AbstractSet implements CollectionBackedOption, CopyOnWriteCollection, ObservableCollection {
+    private final Class elementClass;
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile Runnable modificationListener;
+
+    public OptionsSet(Class elementClass) {
+        this.elementClass = elementClass;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && snapshot.indexOf(o) >= 0;
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new SnapshotIterator(snapshot.elements);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot.elements.clone();
+    }
+
+    @Override
+    public boolean add(Object o) {
+        checkElement(o);
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            if (current.indexOf(o) >= 0) return false;
+
+            final Object[] elements = Arrays.copyOf(current.elements, current.elements.length + 1);
+            elements[elements.length - 1] = o;
+            publish(Snapshot.of(elements));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection c) {
+        final Object[] added = c.toArray();
+        for (Object o : added) checkElement(o);
+
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            final Object[] elements = Arrays.copyOf(current.elements, current.elements.length + added.length);
+            System.arraycopy(added, 0, elements, current.elements.length, added.length);
+
+            final Snapshot updated = Snapshot.of(elements);
+            if (updated.elements.length == current.elements.length) return false;
+            publish(updated);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            final int index = current.indexOf(o);
+            if (index < 0) return false;
+
+            final Object[] elements = new Object[current.elements.length - 1];
+            System.arraycopy(current.elements, 0, elements, 0, index);
+            System.arraycopy(current.elements, index + 1, elements, index, elements.length - index);
+            publish(Snapshot.of(elements));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection c) {
+        return retain(c, false);
+    }
+
+    @Override
+    public boolean retainAll(Collection c) {
+        return retain(c, true);
+    }
+
+    private boolean retain(Collection c, boolean retainContained) {
+        Objects.requireNonNull(c);
+        synchronized (lock) {
+            final Snapshot current = snapshot;
+            final Object[] elements = new Object[current.elements.length];
+            int count = 0;
+            for (Object o : current.elements) {
+                if (c.contains(o) == retainContained) elements[count++] = o;
+            }
+
+            if (count == current.elements.length) return false;
+            publish(Snapshot.of(Arrays.copyOf(elements, count)));
+            return true;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            publish(Snapshot.EMPTY);
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection elements) {
+        final Object[] replacement = elements.toArray();
+        for (Object o : replacement) checkElement(o);
+
+        final Snapshot updated = Snapshot.of(replacement);
+        synchronized (lock) {
+            publish(updated);
+        }
+    }
+
+    @Override
+    public void setModificationListener(Runnable listener) {
+        modificationListener = listener;
+    }
+
+    /**
+     * Replaces the set's contents with an updated snapshot. Must be called with the lock held.
+     */
+    private void publish(Snapshot updated) {
+        snapshot = updated;
+        final Runnable listener = modificationListener;
+        if (listener != null) listener.run();
+    }
 
-public class OptionsSet implements CollectionBackedOption {
     @Override
     public Collection getBackingCollection() {
-        return null;
+        return this;
     }
 
     @Override
     public Class getCollectionClass() {
         return Set.class;
     }
+
+    private void checkElement(Object o) {
+        if (o == null) throw new NullPointerException("OptionsSet doesn't allow for null elements");
+        if (!elementClass.isInstance(o)) throw new IllegalArgumentException("Only elements of class " +
+                elementClass.getName() + " supported in this OptionsSet instance");
+    }
+
+    /**
+     * Immutable contents of the set.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = of(new Object[0]);
+
+        //Elements in insertion order
+        private final Object[] elements;
+        //Open-addressing hash table with linear probing, holding indexes of elements plus one (zero marks free slots)
+        private final int[] table;
+
+        private Snapshot(Object[] elements, int[] table) {
+            this.elements = elements;
+            this.table = table;
+        }
+
+        /**
+         * Builds a snapshot from an array of elements, dropping duplicates. The array may be reused by the snapshot.
+         */
+        private static Snapshot of(Object[] candidates) {
+            int capacity = 2;
+            while (capacity < candidates.length * 2) capacity <<= 1;
+
+            final int[] table = new int[capacity];
+            final int mask = capacity - 1;
+            int count = 0;
+
+            outer:
+            for (Object o : candidates) {
+                int pos = spread(o.hashCode()) & mask;
+                for (int index; (index = table[pos]) != 0; pos = (pos + 1) & mask) {
+                    if (candidates[index - 1].equals(o)) continue outer;
+                }
+                //Elements are compacted in place; count never exceeds the index of the current candidate
+                candidates[count++] = o;
+                table[pos] = count;
+            }
+
+            return new Snapshot(count == candidates.length ? candidates : Arrays.copyOf(candidates, count), table);
+        }
+
+        private int indexOf(Object o) {
+            final int mask = table.length - 1;
+            for (int pos = spread(o.hashCode()) & mask; ; pos = (pos + 1) & mask) {
+                final int index = table[pos];
+                if (index == 0) return -1;
+                if (elements[index - 1].equals(o)) return index - 1;
+            }
+        }
+
+        private static int spread(int hash) {
+            final int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private class SnapshotIterator implements Iterator {
+        private final Object[] elements;
+        private int next;
+        private Object last;
+
+        private SnapshotIterator(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < elements.length;
+        }
+
+        @Override
+        public Object next() {
+            if (next >= elements.length) throw new NoSuchElementException();
+            return last = elements[next++];
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            OptionsSet.this.remove(last);
+            last = null;
+        }
+    }
 }
@@ -14,15 +14,17 @@
  * limitations under the License.
  */
 
+
 package org.plukh.options.impl.collections;
 
-import java.util.Collection;
 import java.util.SortedSet;
 
-public class OptionsSortedSet implements CollectionBackedOption {
-    @Override
-    public Collection getBackingCollection() {
-        return null;
+/**
+ * Copy-on-write sorted set; see {@link OptionsNavigableSet} for details.
+ */
+public class OptionsSortedSet extends OptionsNavigableSet {
+    public OptionsSortedSet(Class elementClass) {
+        super(elementClass);
     }
 
     @Override
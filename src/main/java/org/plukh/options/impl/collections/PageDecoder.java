@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.plukh.options.ParseException;
+
+/**
+ * Decodes a single page of a {@link PagedCollection}.
+ */
+@FunctionalInterface
+public interface PageDecoder {
+    /**
+     * Decodes and converts elements of an encoded page.
+     *
+     * @param page encoded page, in the format used for all collection options (see
+     *             {@link org.plukh.options.impl.options.CollectionOption}).
+     * @return elements of the page, in order.
+     * @throws ParseException if any of the elements can't be converted.
+     */
+    Object[] decode(String page) throws ParseException;
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+/**
+ * Implemented by options collections which keep their contents as encoded pages, decoding them only when they're
+ * accessed. Such collections are loaded by replacing their encoded pages, which doesn't convert any elements at all,
+ * and are persisted page by page.
+ */
+public interface PagedCollection {
+    /**
+     * Sets paging parameters. Should be called before the collection is populated; page size only applies to contents
+     * paginated afterwards.
+     *
+     * @param pageSize number of elements in a page.
+     * @param residentPages maximum number of decoded pages kept in memory.
+     * @throws IllegalArgumentException if any of the parameters is less than 1.
+     */
+    void setPaging(int pageSize, int residentPages);
+
+    /**
+     * Returns the number of elements in a page used when paginating new contents.
+     */
+    int getPageSize();
+
+    /**
+     * Returns the maximum number of decoded pages kept in memory.
+     */
+    int getResidentPages();
+
+    /**
+     * Sets the decoder used to decode pages when they're accessed.
+     */
+    void setPageDecoder(PageDecoder decoder);
+
+    /**
+     * Returns current contents of the collection in encoded form.
+     */
+    EncodedPages getPages();
+
+    /**
+     * Atomically replaces contents of the collection. Decoded pages of previous contents are discarded.
+     */
+    void setPages(EncodedPages pages);
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list stored in a 32-way trie, with the last (up to 32) elements kept in a separate tail array. Versions of
+ * the list produced by {@link #set(int, Object)}, {@link #push(Object)} and {@link #pop()} share all of the trie with
+ * the original except for the O(log n) nodes on the path to the modified element, so keeping old versions around as
+ * snapshots costs nothing.
+ * <p/>
+ * Being immutable, the list itself doesn't support any of the {@code List} modification methods.
+ */
+final class PersistentVector extends AbstractList implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    static final PersistentVector EMPTY = new PersistentVector(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    //Number of index bits consumed by the levels above the leaves
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    static PersistentVector of(Object[] elements) {
+        return EMPTY.appendAll(elements, 0, elements.length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        checkIndex(index);
+        return leafFor(index)[index & MASK];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) return tail;
+
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) node = (Object[]) node[(index >>> level) & MASK];
+        return node;
+    }
+
+    /**
+     * Returns a version of this list with the element at the specified position replaced.
+     */
+    PersistentVector with(int index, Object element) {
+        checkIndex(index);
+
+        if (index >= tailOffset()) {
+            final Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector(size, shift, root, newTail);
+        }
+        return new PersistentVector(size, shift, assoc(shift, root, index, element), tail);
+    }
+
+    private static Object[] assoc(int level, Object[] node, int index, Object element) {
+        final Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            final int child = (index >>> level) & MASK;
+            copy[child] = assoc(level - BITS, (Object[]) node[child], index, element);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a version of this list with an element appended to its end.
+     */
+    PersistentVector push(Object element) {
+        if (size - tailOffset() < WIDTH) {
+            final Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector(size + 1, shift, root, newTail);
+        }
+        return pushTail(new Object[]{element});
+    }
+
+    /**
+     * Returns a version of this list with elements {@code from} (inclusive) to {@code to} (exclusive) of the array
+     * appended to its end.
+     */
+    PersistentVector appendAll(Object[] elements, int from, int to) {
+        PersistentVector vector = this;
+
+        //Fill up the tail first, then move whole chunks of elements into the trie
+        final int room = WIDTH - (size - tailOffset());
+        if (room > 0 && from < to) {
+            final int count = Math.min(room, to - from);
+            final Object[] newTail = Arrays.copyOf(tail, tail.length + count);
+            System.arraycopy(elements, from, newTail, tail.length, count);
+            vector = new PersistentVector(size + count, shift, root, newTail);
+            from += count;
+        }
+
+        while (from < to) {
+            final int count = Math.min(WIDTH, to - from);
+            vector = vector.pushTail(Arrays.copyOfRange(elements, from, from + count));
+            from += count;
+        }
+        return vector;
+    }
+
+    //Moves the (full) tail into the trie, replacing it with a new one
+    private PersistentVector pushTail(Object[] newTail) {
+        final Object[] newRoot;
+        int newShift = shift;
+
+        if ((size >>> BITS) > (1 << shift)) {
+            //Root is full: grow the trie by one level
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushLeaf(shift, root, tail);
+        }
+
+        return new PersistentVector(size + newTail.length, newShift, newRoot, newTail);
+    }
+
+    private Object[] pushLeaf(int level, Object[] parent, Object[] leaf) {
+        final int child = ((size - 1) >>> level) & MASK;
+        final Object[] copy = parent.clone();
+
+        if (level == BITS) {
+            copy[child] = leaf;
+        } else {
+            final Object[] node = (Object[]) parent[child];
+            copy[child] = node != null ? pushLeaf(level - BITS, node, leaf) : newPath(level - BITS, leaf);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] leaf) {
+        if (level == 0) return leaf;
+
+        final Object[] node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+
+    /**
+     * Returns a version of this list without its last element.
+     */
+    PersistentVector pop() {
+        if (size == 0) throw new IllegalStateException("Can't remove last element of an empty list");
+        if (size == 1) return EMPTY;
+
+        if (size - tailOffset() > 1) {
+            return new PersistentVector(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+
+        //Tail becomes empty: the last leaf of the trie becomes the new tail
+        final Object[] newTail = leafFor(size - 2);
+        Object[] newRoot = popLeaf(shift, root);
+        int newShift = shift;
+        if (newRoot == null) newRoot = EMPTY_NODE;
+        if (shift > BITS && newRoot[1] == null) {
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector(size - 1, newShift, newRoot, newTail);
+    }
+
+    private Object[] popLeaf(int level, Object[] node) {
+        final int child = ((size - 2) >>> level) & MASK;
+
+        if (level > BITS) {
+            final Object[] newChild = popLeaf(level - BITS, (Object[]) node[child]);
+            if (newChild == null && child == 0) return null;
+
+            final Object[] copy = node.clone();
+            copy[child] = newChild;
+            return copy;
+        }
+
+        if (child == 0) return null;
+        final Object[] copy = node.clone();
+        copy[child] = null;
+        return copy;
+    }
+
+    /**
+     * Returns an iterator which looks up every leaf of the trie only once.
+     */
+    @Override
+    public Iterator iterator() {
+        return new Iterator() {
+            private int index;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Object next() {
+                if (index >= size) throw new NoSuchElementException();
+                if (leaf == null || (index & MASK) == 0) leaf = leafFor(index);
+                return leaf[index++ & MASK];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Object[] array = new Object[size];
+        final int tailOffset = tailOffset();
+        for (int i = 0; i < tailOffset; i += WIDTH) System.arraycopy(leafFor(i), 0, array, i, WIDTH);
+        System.arraycopy(tail, 0, array, tailOffset, size - tailOffset);
+        return array;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.Collection;
+
+/**
+ * Receives modifications of a journaled {@link OptionsQueue}, so they can be persisted one by one instead of
+ * re-serializing the whole queue. Methods are called after the modification has been applied to the queue.
+ */
+public interface QueueJournal {
+    /**
+     * Called when an element has been added to the tail of the queue.
+     */
+    void offered(Object element);
+
+    /**
+     * Called when an element has been removed from the head of the queue.
+     */
+    void polled();
+
+    /**
+     * Called after any other modification of the queue (like removal of an arbitrary element, or clearing the queue).
+     *
+     * @param contents current contents of the queue.
+     */
+    void replaced(Collection contents);
+}
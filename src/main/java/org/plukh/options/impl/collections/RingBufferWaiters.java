@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Parks threads blocked on a full or empty ring buffer. Non-blocking operations never touch the lock; they only check
+ * a waiter count after a successful insertion or removal and signal waiters if there are any.
+ */
+final class RingBufferWaiters {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    /**
+     * Repeats a non-blocking consumer operation until it returns a non-null result.
+     *
+     * @param timeout maximum time to wait, or a negative value to wait indefinitely.
+     * @return result of the operation, or {@code null} if the wait timed out.
+     */
+    <T> T awaitConsumer(Supplier<T> attempt, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(attempt, waitingConsumers, notEmpty, timeout, unit);
+    }
+
+    /**
+     * Repeats a non-blocking producer operation until it succeeds.
+     *
+     * @param timeout maximum time to wait, or a negative value to wait indefinitely.
+     * @return {@code true} if the operation succeeded, {@code false} if the wait timed out.
+     */
+    boolean awaitProducer(Supplier<Boolean> attempt, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(() -> attempt.get() ? Boolean.TRUE : null, waitingProducers, notFull, timeout, unit) != null;
+    }
+
+    private <T> T await(Supplier<T> attempt, AtomicInteger waiting, Condition condition, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        T result = attempt.get();
+        if (result != null) return result;
+
+        long nanos = timeout < 0 ? -1 : unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        //Registering before the retry guarantees that whoever frees a slot (or adds an element) after our failed
+        //attempt sees the waiter count and signals us
+        waiting.incrementAndGet();
+        try {
+            while ((result = attempt.get()) == null) {
+                if (nanos < 0) {
+                    condition.await();
+                } else {
+                    if (nanos == 0) return null;
+                    nanos = Math.max(condition.awaitNanos(nanos), 0);
+                }
+            }
+            return result;
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    void signalConsumers() {
+        signal(waitingConsumers, notEmpty);
+    }
+
+    void signalProducers() {
+        signal(waitingProducers, notFull);
+    }
+
+    private void signal(AtomicInteger waiting, Condition condition) {
+        if (waiting.get() == 0) return;
+
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
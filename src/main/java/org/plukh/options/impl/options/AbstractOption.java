@@ -134,6 +134,25 @@ public abstract class AbstractOption {
         return stringValue;
     }
 
+    /**
+     * Returns {@code true} if this option's value can be modified in place, without calling the option's setter (for
+     * example, contents of a collection), so the only way to find out whether it has changed is to compare its string
+     * value with an earlier one. Options overriding this method usually don't cache their string values.
+     * @return {@code true} if the value can be modified in place, {@code false} otherwise.
+     */
+    public boolean isModifiedInPlace() {
+        return false;
+    }
+
+    /**
+     * Returns the number of times this option's value has been modified in place so far, if the option keeps count of
+     * such modifications, so it can be found out whether the value has changed without comparing string values.
+     * @return the number of in-place modifications, or {@code -1} if the option doesn't count them.
+     */
+    public long getModificationCount() {
+        return -1;
+    }
+
     /**
      * Returns a key associated with this option. The key should be unique between all options in a given application-specific
      * options interface.
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ClassLoaderPolicy;
+import org.plukh.options.ParseException;
+
+/**
+ * Option class for {@code Class} values, stored as fully qualified class names. Classes are loaded (but not initialized)
+ * by a class loader determined by {@link ClassLoaderPolicy}, which is {@link ClassLoaderPolicy#CONTEXT} by default.
+ */
+public class ClassOption extends CompiledOption {
+    private ClassLoaderPolicy policy = ClassLoaderPolicy.CONTEXT;
+    private ClassLoader optionsClassLoader = ClassOption.class.getClassLoader();
+
+    public ClassOption() {
+        super(Class.class);
+    }
+
+    /**
+     * Sets class loader policy for this option.
+     * @param policy policy to use.
+     * @param optionsClassLoader class loader of the options interface declaring this option, used for
+     * {@link ClassLoaderPolicy#OPTIONS} policy (and as a fallback for {@link ClassLoaderPolicy#CONTEXT}).
+     */
+    public void setClassLoaderPolicy(ClassLoaderPolicy policy, ClassLoader optionsClassLoader) {
+        this.policy = policy;
+        this.optionsClassLoader = optionsClassLoader;
+        invalidate();
+    }
+
+    public ClassLoaderPolicy getClassLoaderPolicy() {
+        return policy;
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        try {
+            return Class.forName(s.trim(), false, getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw conversionError(s, e);
+        }
+    }
+
+    private ClassLoader getClassLoader() {
+        switch (policy) {
+            case SYSTEM:
+                return ClassLoader.getSystemClassLoader();
+            case CONTEXT:
+                final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+                if (contextClassLoader != null) return contextClassLoader;
+                //Fall through
+            default:
+                return optionsClassLoader;
+        }
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        return ((Class<?>) o).getName();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * String encoding of collection option values. Elements are separated by colons; colons and backslashes inside
+ * elements are escaped with a backslash. Backslashes followed by any other character are kept as is.
+ * <p/>
+ * Both directions work in a single pass over the input and don't create any intermediate strings for elements which
+ * contain no escaped characters.
+ */
+final class CollectionCodec {
+    static final char SEPARATOR = ':';
+    static final char ESCAPE = '\\';
+
+    private CollectionCodec() {
+    }
+
+    /**
+     * Appends an escaped element to a string builder.
+     */
+    static void escape(String s, StringBuilder out) {
+        final int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR || c == ESCAPE) {
+                out.append(s, start, i).append(ESCAPE).append(c);
+                start = i + 1;
+            }
+        }
+        out.append(s, start, length);
+    }
+
+    static String escape(String s) {
+        if (s == null) return null;
+        if (s.indexOf(SEPARATOR) < 0 && s.indexOf(ESCAPE) < 0) return s;
+
+        final StringBuilder sb = new StringBuilder(s.length() + 8);
+        escape(s, sb);
+        return sb.toString();
+    }
+
+    static String unescape(String s) {
+        if (s == null) return null;
+        if (s.indexOf(ESCAPE) < 0) return s;
+
+        final StringBuilder sb = new StringBuilder(s.length());
+        final int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length - 1; ++i) {
+            if (s.charAt(i) == ESCAPE && isEscapable(s.charAt(i + 1))) {
+                sb.append(s, start, i);
+                start = ++i;
+            }
+        }
+        return sb.append(s, start, length).toString();
+    }
+
+    /**
+     * Splits an encoded string into unescaped elements, passing them to the consumer in order. An empty string
+     * contains no elements.
+     */
+    static void split(String s, Consumer<String> consumer) {
+        final int length = s.length();
+        if (length == 0) return;
+
+        //Only used for elements containing escaped characters
+        StringBuilder sb = null;
+        boolean escaped = false;
+        int start = 0;
+
+        for (int i = 0; i < length; ++i) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR) {
+                consumer.accept(escaped ? sb.append(s, start, i).toString() : s.substring(start, i));
+                escaped = false;
+                start = i + 1;
+            } else if (c == ESCAPE && i + 1 < length && isEscapable(s.charAt(i + 1))) {
+                if (!escaped) {
+                    if (sb == null) sb = new StringBuilder();
+                    else sb.setLength(0);
+                    escaped = true;
+                }
+                sb.append(s, start, i);
+                //Escaped character is copied along with the rest of the element
+                start = ++i;
+            }
+        }
+
+        consumer.accept(escaped ? sb.append(s, start, length).toString() : s.substring(start, length));
+    }
+
+    /**
+     * Returns the number of elements in an encoded string, without unescaping or converting them. An empty string
+     * contains no elements.
+     */
+    static int count(String s) {
+        final int length = s.length();
+        if (length == 0) return 0;
+
+        int count = 1;
+        for (int i = 0; i < length; ++i) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR) ++count;
+            else if (c == ESCAPE && i + 1 < length && isEscapable(s.charAt(i + 1))) ++i;
+        }
+        return count;
+    }
+
+    /**
+     * Cuts an encoded string into encoded pages of {@code pageSize} elements each (the last page can be shorter),
+     * without unescaping or converting the elements. An empty string contains no pages.
+     */
+    static List<String> paginate(String s, int pageSize) {
+        final List<String> pages = new ArrayList<>();
+        final int length = s.length();
+        if (length == 0) return pages;
+
+        int start = 0;
+        int elements = 0;
+        for (int i = 0; i < length; ++i) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR) {
+                if (++elements == pageSize) {
+                    pages.add(s.substring(start, i));
+                    start = i + 1;
+                    elements = 0;
+                }
+            } else if (c == ESCAPE && i + 1 < length && isEscapable(s.charAt(i + 1))) {
+                ++i;
+            }
+        }
+
+        pages.add(s.substring(start, length));
+        return pages;
+    }
+
+    private static boolean isEscapable(char c) {
+        return c == SEPARATOR || c == ESCAPE;
+    }
+}
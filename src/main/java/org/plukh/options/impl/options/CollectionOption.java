@@ -18,24 +18,47 @@ package org.plukh.options.impl.options;
 
 import org.plukh.options.ParseException;
 import org.plukh.options.UnsupportedOptionClassException;
+import org.plukh.options.impl.collections.BoundedCollection;
 import org.plukh.options.impl.collections.CollectionBackedOption;
 import org.plukh.options.impl.collections.CollectionInitializationException;
+import org.plukh.options.impl.collections.CopyOnWriteCollection;
+import org.plukh.options.impl.collections.EncodedCollection;
+import org.plukh.options.impl.collections.EncodedPages;
+import org.plukh.options.impl.collections.ObservableCollection;
+import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.collections.PagedCollection;
 
 import java.lang.reflect.Constructor;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-//TODO: Implement with new @CollectionOption annotation scheme
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class backing collection options. The option's value is a {@link CollectionBackedOption} instance, which is
+ * created once and retained for the option's lifetime; loading the option replaces contents of its backing collection.
+ * <p/>
+ * String representation of the value is a list of elements separated with colons, each element being converted by
+ * an option class for the collection's element class. Colons and backslashes inside elements are escaped with
+ * a backslash, so {@code a\:b:c\\d} stands for two elements, {@code a:b} and {@code c\d}.
+ */
 public class CollectionOption extends AbstractOption {
-    private static final Pattern ESCAPE_PATTERN = Pattern.compile("([^:\\\\]*)([:\\\\])");
-    private static final Pattern UNESCAPE_PATTERN = Pattern.compile("\\\\([:\\\\])");
+    //Converts individual elements; created once per option, since conversions don't depend on option's state
+    private final AbstractOption elementOption;
+    private boolean assigned;
+    private boolean journaled;
+    //Modifications of an observable backing collection
+    private final AtomicLong modifications = new AtomicLong();
 
     public CollectionOption(Class<?> elementClass, Class<?> optionsCollectionClass) {
         super(elementClass);
         //Validate parameters
-        if (!isValidOptionClass(elementClass)) throw new IllegalArgumentException("Class " + elementClass.getName() +
-            " is not a valid option class");
+        elementOption = createElementOption(elementClass);
 
         if (!CollectionBackedOption.class.isAssignableFrom(optionsCollectionClass))
             throw new IllegalArgumentException("Class " + optionsCollectionClass.getName() +
@@ -50,6 +73,8 @@ public class CollectionOption extends AbstractOption {
             throw new CollectionInitializationException("Error initializing collection option instance for collection class: "
                     + optionsCollectionClass.getName(), e);
         }
+        if (value instanceof PagedCollection) ((PagedCollection) value).setPageDecoder(this::decodePage);
+        observeCollection();
 
         //Collection classes are read-only by definition
         setReadOnly(true);
@@ -58,8 +83,7 @@ public class CollectionOption extends AbstractOption {
     public CollectionOption(Class<?> collectionClass, Class<?> elementClass, Class<?> optionsCollectionClass, Class<?> backingClass) {
         super(elementClass);
         //Validate parameters
-        if (!isValidOptionClass(elementClass)) throw new IllegalArgumentException("Class " + elementClass.getName() +
-                " is not a valid option class");
+        elementOption = createElementOption(elementClass);
 
         if (!CollectionBackedOption.class.isAssignableFrom(optionsCollectionClass))
             throw new IllegalArgumentException("Class " + optionsCollectionClass.getName() +
@@ -78,11 +102,217 @@ public class CollectionOption extends AbstractOption {
             throw new CollectionInitializationException("Error initializing collection option instance for collection class: "
                     + optionsCollectionClass.getName(), e);
         }
+        observeCollection();
+    }
+
+    private void observeCollection() {
+        if (value instanceof ObservableCollection) {
+            ((ObservableCollection) value).setModificationListener(modifications::incrementAndGet);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this option is backed by a bounded collection, which supports
+     * {@link #setCapacity(int)}.
+     */
+    public boolean isBounded() {
+        return value instanceof BoundedCollection;
+    }
+
+    /**
+     * Sets capacity of the bounded collection backing this option. Must be called before the collection is populated.
+     *
+     * @throws IllegalArgumentException if the collection isn't bounded, or capacity is less than 1.
+     */
+    public void setCapacity(int capacity) {
+        if (!isBounded()) throw new IllegalArgumentException("Collection class " + value.getClass().getName() +
+                " is not bounded");
+        ((BoundedCollection) value).setCapacity(capacity);
+    }
+
+    /**
+     * Returns {@code true} if modifications of this option's queue are persisted to a journal (see
+     * {@link org.plukh.options.CollectionOption#journaled()}).
+     */
+    public boolean isJournaled() {
+        return journaled;
+    }
+
+    /**
+     * Enables or disables journaling for this option. Only queue options backed by {@link OptionsQueue} can be journaled.
+     *
+     * @throws IllegalArgumentException if journaling is requested for any other collection.
+     */
+    public void setJournaled(boolean journaled) {
+        if (journaled && !(value instanceof OptionsQueue)) throw new IllegalArgumentException("Collection class " +
+                value.getClass().getName() + " doesn't support journaling");
+        this.journaled = journaled;
     }
 
+    /**
+     * Returns {@code true} if this option is backed by a paged collection, which supports {@link #setPaging(int, int)}.
+     */
+    public boolean isPaged() {
+        return value instanceof PagedCollection;
+    }
+
+    /**
+     * Sets paging parameters of the paged collection backing this option. Must be called before the collection is
+     * populated.
+     *
+     * @throws IllegalArgumentException if the collection isn't paged, or any of the parameters is less than 1.
+     */
+    public void setPaging(int pageSize, int residentPages) {
+        if (!isPaged()) throw new IllegalArgumentException("Collection class " + value.getClass().getName() +
+                " is not paged");
+        ((PagedCollection) value).setPaging(pageSize, residentPages);
+    }
+
+    /**
+     * Returns contents of the paged collection backing this option, in encoded form.
+     *
+     * @throws IllegalArgumentException if the collection isn't paged.
+     */
+    public EncodedPages getEncodedPages() {
+        if (!isPaged()) throw new IllegalArgumentException("Collection class " + value.getClass().getName() +
+                " is not paged");
+        return ((PagedCollection) value).getPages();
+    }
+
+    /**
+     * Replaces contents of the paged collection backing this option with encoded pages. Only the number of elements
+     * in each page is checked (see {@link #checkEncodedPages(EncodedPages)}); elements themselves are converted when
+     * their pages are accessed.
+     *
+     * @throws IllegalArgumentException if the collection isn't paged.
+     * @throws ParseException if any of the pages doesn't contain the expected number of elements.
+     */
+    public void setEncodedPages(EncodedPages pages) {
+        if (!isPaged()) throw new IllegalArgumentException("Collection class " + value.getClass().getName() +
+                " is not paged");
+        checkEncodedPages(pages);
+
+        assigned = true;
+        ((PagedCollection) value).setPages(pages);
+    }
+
+    /**
+     * Checks that every encoded page contains the expected number of elements, without converting them.
+     *
+     * @throws ParseException if any of the pages doesn't contain the expected number of elements.
+     */
+    public void checkEncodedPages(EncodedPages pages) throws ParseException {
+        for (int i = 0; i < pages.getPageCount(); ++i) {
+            final String page = pages.getPage(i);
+            //A page consisting of a single empty element is indistinguishable from an empty page
+            final int count = page.isEmpty() ? 1 : CollectionCodec.count(page);
+            if (count != pages.getPageLength(i)) throw new ParseException(format("Error converting page {0} of {1} " +
+                    "collection: expected {2} elements, got {3}", i, getOptionClass().getSimpleName(),
+                    pages.getPageLength(i), count));
+        }
+    }
+
+    private EncodedPages paginate(String s, int pageSize) {
+        if (s == null || s.isEmpty()) return new EncodedPages(0, pageSize, Collections.<String>emptyList());
+        return new EncodedPages(CollectionCodec.count(s), pageSize, CollectionCodec.paginate(s, pageSize));
+    }
+
+    private Object[] decodePage(String page) throws ParseException {
+        //Pages are never empty, so an empty page consists of a single empty element
+        if (page.isEmpty()) return new Object[] {convertElement(page)};
+
+        final List<Object> elements = new ArrayList<>();
+        CollectionCodec.split(page, element -> elements.add(convertElement(element)));
+        return elements.toArray();
+    }
+
+    private static AbstractOption createElementOption(Class<?> elementClass) {
+        try {
+            return OptionFactory.getOptionForClass(elementClass);
+        } catch (UnsupportedOptionClassException | IllegalAccessException | InstantiationException e) {
+            throw new IllegalArgumentException("Class " + elementClass.getName() + " is not a valid option class", e);
+        }
+    }
+
+    /**
+     * Converts a string representation of a collection into an unmodifiable collection of elements. Used to validate
+     * string values; the result can then be assigned to the option with {@link #setConvertedValue(Object)}, without
+     * converting elements again.
+     *
+     * @throws ParseException if any of the elements can't be converted, or there are more elements than a bounded
+     * collection can hold.
+     */
     @Override
     public Object convertStringToValue(String s) throws ParseException {
-        return null;
+        if (s == null || s.isEmpty()) return Collections.emptyList();
+
+        //Paged collections are only paginated, their elements are converted on access
+        if (value instanceof PagedCollection) {
+            final PagedCollection scratch = (PagedCollection) newScratchCollection();
+            final PagedCollection paged = (PagedCollection) value;
+            scratch.setPaging(paged.getPageSize(), paged.getResidentPages());
+            scratch.setPageDecoder(this::decodePage);
+            scratch.setPages(paginate(s, paged.getPageSize()));
+            return new ScratchCollection(scratch);
+        }
+
+        //Self-encoding collections decode into a scratch instance of their own class, avoiding boxing
+        if (value instanceof EncodedCollection) {
+            final EncodedCollection scratch = (EncodedCollection) newScratchCollection();
+            scratch.decode(s);
+            return new ScratchCollection(scratch);
+        }
+
+        final List<Object> elements = new ArrayList<>();
+        CollectionCodec.split(s, element -> elements.add(convertElement(element)));
+        checkCapacity(elements.size());
+        return Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * Checks that a bounded collection can hold the number of elements being loaded into it.
+     *
+     * @throws ParseException if there are more elements than the collection's capacity.
+     */
+    private void checkCapacity(int count) throws ParseException {
+        if (!isBounded()) return;
+        final int capacity = ((BoundedCollection) value).getCapacity();
+        if (count > capacity) throw new ParseException(format("Error converting {0} collection: {1} elements " +
+                "exceed its capacity of {2}", getOptionClass().getSimpleName(), count, capacity));
+    }
+
+    private Object newScratchCollection() {
+        try {
+            return value.getClass().getConstructor(Class.class).newInstance(getOptionClass());
+        } catch (ReflectiveOperationException e) {
+            throw new CollectionInitializationException("Error initializing collection instance for class: " +
+                    value.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Converts string representation of a single element of this collection.
+     *
+     * @throws ParseException if the element can't be converted.
+     */
+    public Object convertStringToElement(String element) throws ParseException {
+        return convertElement(element);
+    }
+
+    /**
+     * Converts a single element of this collection to its string representation (not escaped).
+     */
+    public String convertElementToString(Object element) {
+        if (!getOptionClass().isInstance(element)) throw new IllegalArgumentException("Collection element " +
+                element + " is not instance of the element class " + getOptionClass().getName());
+        return elementOption.convertValueToString(element);
+    }
+
+    private Object convertElement(String element) throws ParseException {
+        final Object converted = elementOption.convertStringToValue(element);
+        if (converted == null) throw new ParseException(format("Error converting string: {0} to {1} value, " +
+                "options collection should not contain nulls", element, getOptionClass().getSimpleName()));
+        return converted;
     }
 
     @Override
@@ -91,23 +321,35 @@ public class CollectionOption extends AbstractOption {
         if (!(o instanceof CollectionBackedOption))
             throw new IllegalArgumentException("Can only convert values implementing CollectionBackedOption interface");
 
-        Collection collection = ((CollectionBackedOption)o).getBackingCollection();
+        StringBuilder sb = new StringBuilder();
 
-        AbstractOption option;
-        try {
-            option = OptionFactory.getOptionForClass(getOptionClass());
-        } catch (UnsupportedOptionClassException e) {
-            throw new IllegalArgumentException("Collection element class is unsupported, weird: " + getOptionClass().getName());
-        } catch (IllegalAccessException | InstantiationException e) {
-            throw new OptionConversionException("Error instantiating option for class: " + getOptionClass().getName(), e);
+        if (o instanceof EncodedCollection) {
+            ((EncodedCollection) o).encode(sb);
+            return sb.toString();
         }
 
+        if (o instanceof PagedCollection) {
+            final List<String> pages = ((PagedCollection) o).getPages().getPages();
+            for (int i = 0; i < pages.size(); ++i) {
+                if (i > 0) sb.append(CollectionCodec.SEPARATOR);
+                sb.append(pages.get(i));
+            }
+            return sb.toString();
+        }
+
+        return convertElementsToString(((CollectionBackedOption) o).getBackingCollection());
+    }
+
+    /**
+     * Converts elements to string representation of a collection, in the format used by this option.
+     */
+    public String convertElementsToString(Collection elements) {
         StringBuilder sb = new StringBuilder();
 
         int c = 0;
-        for (Object value : collection) {
+        for (Object value : elements) {
             //Append : to output
-            if (c > 0) sb.append(':');
+            if (c > 0) sb.append(CollectionCodec.SEPARATOR);
             ++c;
 
             if (value != null) {
@@ -115,11 +357,9 @@ public class CollectionOption extends AbstractOption {
                 if (!getOptionClass().isInstance(value)) throw new IllegalArgumentException("Collection element " +
                         value.toString() + " is not instance of the element class " + getOptionClass().getName());
 
-                //Convert value to string; escape the converted string
-                final String string = escapeString(option.convertValueToString(value));
-
-                //Append to output
-                sb.append(string);
+                //Convert value to string, appending escaped string to output
+                final String string = elementOption.convertValueToString(value);
+                if (string != null) CollectionCodec.escape(string, sb);
             } else {
                 //Should be no nulls!
                 throw new IllegalArgumentException("Options collection should not contain nulls!");
@@ -130,37 +370,166 @@ public class CollectionOption extends AbstractOption {
     }
 
     String escapeString(String string) {
-        if (string == null) return null;
+        return CollectionCodec.escape(string);
+    }
 
-        StringBuffer sb = new StringBuffer();
+    String unescapeString(String string) {
+        return CollectionCodec.unescape(string);
+    }
 
-        Matcher matcher = ESCAPE_PATTERN.matcher(string);
+    /**
+     * Returns the collection backing this option. The same instance is returned for the lifetime of the option.
+     */
+    @Override
+    public Object getValue() throws ParseException {
+        return value;
+    }
 
-        while (matcher.find()) {
-            matcher.appendReplacement(sb, "$1\\\\$2");
-        }
-        matcher.appendTail(sb);
+    /**
+     * Returns {@code true} unless the option is paged: paged lists are read-only, and only change when loaded.
+     */
+    @Override
+    public boolean isModifiedInPlace() {
+        return !isPaged();
+    }
 
-        return sb.toString();
+    /**
+     * Returns the number of modifications of the backing collection so far, if it reports them (see
+     * {@link ObservableCollection}); otherwise, the collection's string representation has to be compared to find out
+     * whether it has changed.
+     */
+    @Override
+    public long getModificationCount() {
+        return value instanceof ObservableCollection ? modifications.get() : -1;
     }
 
-    String unescapeString(String string) {
-        if (string == null) return null;
+    /**
+     * Returns string representation of the collection's current contents. Since the collection can be modified directly
+     * at any time, the string representation is never cached.
+     */
+    @Override
+    public String getStringValue() {
+        return convertValueToString(value);
+    }
 
-        StringBuffer sb = new StringBuffer();
+    /**
+     * Replaces contents of the backing collection with elements decoded from the string. Elements are converted and
+     * added to the collection as they're decoded; if any of them can't be converted, the collection is left empty.
+     * Copy-on-write collections are an exception: all elements are decoded first and then swapped in atomically, so
+     * if any of them can't be converted, the collection is left unchanged.
+     *
+     * @throws ParseException if any of the elements can't be converted, or there are more elements than a bounded
+     * collection can hold.
+     */
+    @Override
+    public void setStringValue(String stringValue) {
+        if (stringValue != null && !stringValue.isEmpty()) checkCapacity(CollectionCodec.count(stringValue));
+        assigned = true;
 
-        Matcher matcher = UNESCAPE_PATTERN.matcher(string);
+        if (value instanceof EncodedCollection) {
+            ((EncodedCollection) value).decode(stringValue == null ? "" : stringValue);
+            return;
+        }
 
-        while (matcher.find()) {
-            matcher.appendReplacement(sb, "$1");
+        if (value instanceof PagedCollection) {
+            final EncodedPages pages = paginate(stringValue, ((PagedCollection) value).getPageSize());
+            ((PagedCollection) value).setPages(pages);
+            return;
         }
-        matcher.appendTail(sb);
 
-        return sb.toString();
+        if (value instanceof CopyOnWriteCollection) {
+            //Readers must never see a partially loaded collection
+            ((CopyOnWriteCollection) value).replaceContents((Collection) convertStringToValue(stringValue));
+            return;
+        }
+
+        //Go through the options collection itself (rather than its backing collection), so journaled queues record the change
+        final Collection collection = value instanceof Collection ? (Collection) value :
+                ((CollectionBackedOption) value).getBackingCollection();
+        collection.clear();
+
+        if (stringValue == null || stringValue.isEmpty()) return;
+
+        try {
+            CollectionCodec.split(stringValue, element -> collection.add(convertElement(element)));
+        } catch (ParseException e) {
+            collection.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces contents of the backing collection with a collection returned by {@link #convertStringToValue(String)},
+     * which is assigned as is, its elements having already been converted.
+     *
+     * @throws IllegalArgumentException if the value isn't a collection.
+     * @throws ParseException if there are more elements than a bounded collection can hold.
+     */
+    public void setConvertedValue(Object converted) {
+        if (!(converted instanceof Collection)) throw new IllegalArgumentException("Converted value of a collection " +
+                "option must be a collection");
+        checkCapacity(((Collection) converted).size());
+        assigned = true;
+
+        //Collections decoded into a scratch instance of the backing collection's class take its contents directly
+        final Object scratch = converted instanceof ScratchCollection ? ((ScratchCollection) converted).scratch : null;
+        if (scratch != null && scratch.getClass() == value.getClass()) {
+            if (value instanceof EncodedCollection) {
+                ((EncodedCollection) value).copyContents((EncodedCollection) scratch);
+                return;
+            }
+            if (value instanceof PagedCollection) {
+                ((PagedCollection) value).setPages(((PagedCollection) scratch).getPages());
+                return;
+            }
+        }
+
+        if (value instanceof CopyOnWriteCollection) {
+            ((CopyOnWriteCollection) value).replaceContents((Collection) converted);
+            return;
+        }
+
+        //Go through the options collection itself (rather than its backing collection), so journaled queues record the change
+        final Collection collection = value instanceof Collection ? (Collection) value :
+                ((CollectionBackedOption) value).getBackingCollection();
+        collection.clear();
+        collection.addAll((Collection) converted);
+    }
+
+    /**
+     * Sets the default value of this option. If the collection hadn't been loaded or assigned before, it's populated
+     * with the default value.
+     */
+    @Override
+    public void setDefaultValue(String defaultValue) {
+        super.setDefaultValue(defaultValue);
+        if (!assigned) setStringValue(defaultValue);
     }
 
     @Override
     public void setValue(Object value) {
         throw new IllegalArgumentException("Collection options are by definition read-only, can't assign values to them");
     }
+
+    /**
+     * Unmodifiable view of a scratch collection a string has been decoded into, which keeps the scratch collection
+     * itself, so its contents can be taken over when the converted value is assigned.
+     */
+    private static final class ScratchCollection extends AbstractCollection {
+        private final Object scratch;
+
+        private ScratchCollection(Object scratch) {
+            this.scratch = scratch;
+        }
+
+        @Override
+        public Iterator iterator() {
+            return Collections.unmodifiableCollection((Collection) scratch).iterator();
+        }
+
+        @Override
+        public int size() {
+            return ((Collection) scratch).size();
+        }
+    }
 }
@@ -2,28 +2,74 @@ package org.plukh.options.impl.options;
 
 import org.plukh.options.UnsupportedOptionClassException;
 import org.plukh.options.impl.collections.CollectionBackedOption;
+import org.plukh.options.impl.collections.OptionsBlockingDeque;
+import org.plukh.options.impl.collections.OptionsBlockingQueue;
+import org.plukh.options.impl.collections.OptionsEnumSet;
+import org.plukh.options.impl.collections.OptionsIntList;
+import org.plukh.options.impl.collections.OptionsIntSet;
+import org.plukh.options.impl.collections.OptionsList;
+import org.plukh.options.impl.collections.OptionsLongList;
+import org.plukh.options.impl.collections.OptionsLongSet;
+import org.plukh.options.impl.collections.OptionsNavigableSet;
 import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.collections.OptionsSet;
+import org.plukh.options.impl.collections.OptionsSortedSet;
 
+import java.lang.reflect.Modifier;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
 
 import static java.text.MessageFormat.format;
 
 public class CollectionOptionFactory {
     private static final Map<Class<? extends Collection>, Class<? extends CollectionBackedOption>> COLLECTION_CLASSES = new HashMap<>();
+    //Collections specialized for specific element classes (all enums share Enum.class); take precedence over generic ones
+    private static final Map<Class, Map<Class<? extends Collection>, Class<? extends CollectionBackedOption>>> SPECIALIZED_COLLECTION_CLASSES = new HashMap<>();
 
     static {
         registerCollectionOptionClassForType(Queue.class, OptionsQueue.class);
+        registerCollectionOptionClassForType(BlockingQueue.class, OptionsBlockingQueue.class);
+        registerCollectionOptionClassForType(BlockingDeque.class, OptionsBlockingDeque.class);
+        registerCollectionOptionClassForType(List.class, OptionsList.class);
+        registerCollectionOptionClassForType(Set.class, OptionsSet.class);
+        registerCollectionOptionClassForType(SortedSet.class, OptionsSortedSet.class);
+        registerCollectionOptionClassForType(NavigableSet.class, OptionsNavigableSet.class);
+        registerSpecializedCollectionOptionClass(Enum.class, Set.class, OptionsEnumSet.class);
+        registerSpecializedCollectionOptionClass(Integer.class, List.class, OptionsIntList.class);
+        registerSpecializedCollectionOptionClass(Integer.class, Set.class, OptionsIntSet.class);
+        registerSpecializedCollectionOptionClass(Long.class, List.class, OptionsLongList.class);
+        registerSpecializedCollectionOptionClass(Long.class, Set.class, OptionsLongSet.class);
     }
 
     private static void registerCollectionOptionClassForType(Class<? extends Collection> collectionClass, Class<? extends CollectionBackedOption> optionCollectionClass) {
         COLLECTION_CLASSES.put(collectionClass, optionCollectionClass);
     }
 
+    private static void registerSpecializedCollectionOptionClass(Class elementClass, Class<? extends Collection> collectionClass,
+                                                                 Class<? extends CollectionBackedOption> optionCollectionClass) {
+        SPECIALIZED_COLLECTION_CLASSES.computeIfAbsent(elementClass, c -> new HashMap<>()).put(collectionClass, optionCollectionClass);
+    }
+
     public static CollectionOption getCollectionOption(Class elementClass, Class collectionClass) throws UnsupportedOptionClassException {
-        Class optionCollectionClass = COLLECTION_CLASSES.get(collectionClass);
+        //Concrete options collection classes (like OptionsLongSet) can be used as getter return types directly
+        if (CollectionBackedOption.class.isAssignableFrom(collectionClass) && !collectionClass.isInterface() &&
+                !Modifier.isAbstract(collectionClass.getModifiers())) {
+            return new CollectionOption(elementClass, collectionClass);
+        }
+
+        Class optionCollectionClass = null;
+        final Map<Class<? extends Collection>, Class<? extends CollectionBackedOption>> specialized =
+                SPECIALIZED_COLLECTION_CLASSES.get(elementClass.isEnum() ? Enum.class : elementClass);
+        if (specialized != null) optionCollectionClass = specialized.get(collectionClass);
+        if (optionCollectionClass == null) optionCollectionClass = COLLECTION_CLASSES.get(collectionClass);
         if (optionCollectionClass == null) {
             throw new UnsupportedOptionClassException(format("There is no supported options collection class for {0}", collectionClass.getName()));
         }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Base class for options whose values are expensive to build from their string form (compiled regular expressions,
+ * message formats, classes and the like). The value is compiled at most once for a given string: the last compiled
+ * value is remembered and reused as long as the option's string value stays the same, so reloading options doesn't
+ * recompile values which haven't changed. Changing the string value invalidates the compiled value automatically.
+ * <p/>
+ * Compiled values are shared between all callers of the option's getter, so subclasses returning mutable objects must
+ * copy them in {@link #getValue()}.
+ */
+public abstract class CompiledOption extends AbstractOption {
+    private volatile Compiled last;
+
+    protected CompiledOption(Class<?> optionClass) {
+        super(optionClass);
+    }
+
+    @Override
+    public final Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+
+        final Compiled last = this.last;
+        if (last != null && last.source.equals(s)) return last.value;
+
+        final Object value = compile(s);
+        this.last = new Compiled(s, value);
+        return value;
+    }
+
+    /**
+     * Compiles a (non-empty) string representation of the option's value.
+     * @param s string to compile.
+     * @return compiled value.
+     * @throws ParseException if the string can't be compiled.
+     */
+    protected abstract Object compile(String s) throws ParseException;
+
+    /**
+     * Discards the remembered compiled value. Subclasses must call this method when a setting affecting compilation
+     * changes.
+     */
+    protected void invalidate() {
+        last = null;
+    }
+
+    /**
+     * Creates an exception reporting a failure to compile a string value.
+     */
+    protected ParseException conversionError(String s, Throwable cause) {
+        return new ParseException(format("Error converting string: {0} to {1} value", s,
+                getOptionClass().getSimpleName()), cause);
+    }
+
+    private static final class Compiled {
+        private final String source;
+        private final Object value;
+
+        private Compiled(String source, Object value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class for counters backed by {@link AtomicInteger}, {@link AtomicLong} or {@link LongAdder}. The option owns
+ * a single counter instance for its whole lifetime: getters always return the same instance, so the application can
+ * keep a reference to it and update it concurrently without going through the options proxy. Loading and resetting the
+ * option (as well as calling a setter, if one is declared) update the counter in place; saving stores the counter's
+ * current value.
+ */
+public class CounterOption extends AbstractOption {
+    public CounterOption(Class<?> counterClass) {
+        super(counterClass);
+        value = newCounter(counterClass, 0);
+    }
+
+    private static Object newCounter(Class<?> counterClass, long initialValue) {
+        if (counterClass == AtomicInteger.class) return new AtomicInteger((int) initialValue);
+        if (counterClass == AtomicLong.class) return new AtomicLong(initialValue);
+        if (counterClass == LongAdder.class) {
+            final LongAdder adder = new LongAdder();
+            adder.add(initialValue);
+            return adder;
+        }
+        throw new IllegalArgumentException("Unsupported counter class: " + counterClass.getName());
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        return newCounter(getOptionClass(), parseCount(s));
+    }
+
+    private long parseCount(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return 0;
+        try {
+            return getOptionClass() == AtomicInteger.class ? Integer.parseInt(s) : Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new ParseException(format("Error converting string: {0} to {1} value", s, getOptionClass().getSimpleName()), e);
+        }
+    }
+
+    @Override
+    public Object getValue() throws ParseException {
+        return value;
+    }
+
+    @Override
+    public boolean isModifiedInPlace() {
+        return true;
+    }
+
+    /**
+     * Returns the current value of the counter in string form. Unlike other options, the string value is never cached,
+     * since the counter may be changed at any time.
+     */
+    @Override
+    public String getStringValue() {
+        return convertValueToString(value);
+    }
+
+    /**
+     * Sets the counter to the value represented by the string. An empty or {@code null} string resets the counter to
+     * zero.
+     * @throws ParseException if the string is not a valid integer.
+     */
+    @Override
+    public void setStringValue(String stringValue) {
+        setCount(parseCount(stringValue));
+    }
+
+    /**
+     * Sets the counter to the current value of another counter of the same class; {@code null} resets the counter to
+     * zero. The counter instance owned by this option is retained.
+     */
+    @Override
+    public void setValue(Object value) {
+        if (value != null && !getOptionClass().isInstance(value)) {
+            throw new IllegalArgumentException(format("Can only set value to {0}", getOptionClass().getSimpleName()));
+        }
+        setCount(value == null ? 0 : ((Number) value).longValue());
+    }
+
+    private void setCount(long count) {
+        //Counter now holds an explicitly assigned value, which setting a default must not overwrite
+        stringToValueConverted = true;
+        if (value instanceof AtomicInteger) {
+            ((AtomicInteger) value).set((int) count);
+        } else if (value instanceof AtomicLong) {
+            ((AtomicLong) value).set(count);
+        } else {
+            final LongAdder adder = (LongAdder) value;
+            adder.reset();
+            adder.add(count);
+        }
+    }
+}
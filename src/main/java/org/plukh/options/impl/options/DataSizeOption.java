@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.DataSize;
+import org.plukh.options.ParseException;
+
+/**
+ * Option class for {@link DataSize} values, stored as an amount with a unit suffix (like {@code 512MB} or {@code 2GiB}).
+ */
+public class DataSizeOption extends AbstractOption {
+    public DataSizeOption() {
+        super(DataSize.class);
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+        return DataSize.parse(s);
+    }
+}
@@ -14,36 +14,38 @@
  * limitations under the License.
  */
 
-package org.plukh.options.impl.options;
 
-import org.plukh.options.ParseException;
+package org.plukh.options.impl.options;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
 import java.util.Date;
 
-public class DateOption extends AbstractOption {
-    private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
-    private final SimpleDateFormat sdf = new SimpleDateFormat(DATE_PATTERN);
+/**
+ * Option class for {@link Date} values. Dates are converted in the system default time zone, using
+ * {@code yyyy-MM-dd HH:mm:ss.SSS} pattern unless a custom one is specified.
+ */
+public class DateOption extends TemporalOption {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatters.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
 
     DateOption() {
-        super(Date.class);
+        super(Date.class, DATE_FORMATTER.withZone(ZoneId.systemDefault()), Instant::from);
+    }
+
+    @Override
+    protected Object fromTemporal(Object temporal) {
+        return Date.from((Instant) temporal);
     }
 
     @Override
-    public Object convertStringToValue(String s) throws ParseException {
-        if (s == null || s.isEmpty()) return null;
-        try {
-            return sdf.parse(s);
-        } catch (java.text.ParseException e) {
-            throw new ParseException("Error parsing date string: " + s, e);
-        }
+    protected TemporalAccessor toTemporal(Object value) {
+        return ((Date) value).toInstant();
     }
 
     @Override
-    public String convertValueToString(Object o) {
-        if (o == null) {
-            return null;
-        }
-        return sdf.format((Date)o);
+    protected DateTimeFormatter adjustFormatter(DateTimeFormatter formatter) {
+        return formatter.getZone() == null ? formatter.withZone(ZoneId.systemDefault()) : formatter;
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of compiled {@link DateTimeFormatter} instances shared by all date and time options. Formatters are immutable
+ * and thread-safe, so a pattern is only compiled once no matter how many options use it.
+ */
+final class DateTimeFormatters {
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private DateTimeFormatters() {
+    }
+
+    /**
+     * Returns a formatter for the pattern, compiling it on first use.
+     *
+     * @param pattern pattern, as accepted by {@link DateTimeFormatter#ofPattern(String)}.
+     * @return shared formatter instance.
+     * @throws IllegalArgumentException if the pattern is invalid.
+     */
+    static DateTimeFormatter ofPattern(String pattern) {
+        DateTimeFormatter formatter = FORMATTERS.get(pattern);
+        if (formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(pattern);
+            FORMATTERS.putIfAbsent(pattern, formatter);
+        }
+        return formatter;
+    }
+}
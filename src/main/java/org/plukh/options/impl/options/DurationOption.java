@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+import org.plukh.options.TimeSpan;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class for {@link Duration} values, stored in ISO-8601 format (like {@code PT30S}). When loading, values with
+ * a unit suffix (like {@code 30s} or {@code 250ms}, see {@link TimeSpan}) are accepted as well.
+ */
+public class DurationOption extends AbstractOption {
+    public DurationOption() {
+        super(Duration.class);
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+        if (!isIsoDuration(s)) return TimeSpan.parse(s).toDuration();
+        try {
+            return Duration.parse(s);
+        } catch (DateTimeException e) {
+            throw new ParseException(format("Error converting string: {0} to {1} value", s, getOptionClass().getSimpleName()), e);
+        }
+    }
+
+    private static boolean isIsoDuration(String s) {
+        //ISO-8601 durations start with "P", optionally preceded by a sign
+        final int p = s.charAt(0) == '-' || s.charAt(0) == '+' ? 1 : 0;
+        return p < s.length() && Character.toUpperCase(s.charAt(p)) == 'P';
+    }
+}
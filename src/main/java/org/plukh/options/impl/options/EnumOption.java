@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class for enum values, stored by constant name. Names are resolved once, when the option is loaded, through
+ * a table precomputed for each enum class, so getters return the enum constant directly. Name matching is case-sensitive
+ * unless case-insensitivity is turned on via {@link org.plukh.options.Option#ignoreCase()}. Even then, names of
+ * constants which differ only in case (like {@code Foo} and {@code FOO}) must match exactly.
+ */
+public class EnumOption extends AbstractOption {
+    private static final ClassValue<EnumNames> NAMES = new ClassValue<EnumNames>() {
+        @Override
+        protected EnumNames computeValue(Class<?> type) {
+            return new EnumNames(type);
+        }
+    };
+
+    private final EnumNames names;
+    private boolean ignoreCase;
+
+    public EnumOption(Class<?> enumClass) {
+        super(enumClass);
+        if (!enumClass.isEnum()) throw new IllegalArgumentException("Class " + enumClass.getName() + " is not an enum");
+        names = NAMES.get(enumClass);
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+        final Enum<?> value = names.lookup(s, ignoreCase);
+        if (value == null)
+            throw new ParseException(format("Error converting string: {0} to {1} value", s, getOptionClass().getSimpleName()));
+        return value;
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        return ((Enum<?>) o).name();
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Turns case-insensitive matching of constant names on or off.
+     * @param ignoreCase {@code true} to match constant names ignoring case.
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Name lookup tables for a single enum class.
+     */
+    private static final class EnumNames {
+        private final Map<String, Enum<?>> exact = new HashMap<>();
+        private final Map<String, Enum<?>> upperCase = new HashMap<>();
+
+        private EnumNames(Class<?> enumClass) {
+            //Upper-cased names shared by several constants are ambiguous, such constants are only matched exactly
+            final Set<String> ambiguous = new HashSet<>();
+            for (Object constant : enumClass.getEnumConstants()) {
+                final Enum<?> e = (Enum<?>) constant;
+                exact.put(e.name(), e);
+                final String name = e.name().toUpperCase(Locale.ROOT);
+                if (upperCase.put(name, e) != null) ambiguous.add(name);
+            }
+            upperCase.keySet().removeAll(ambiguous);
+        }
+
+        private Enum<?> lookup(String name, boolean ignoreCase) {
+            final Enum<?> value = exact.get(name);
+            if (value != null || !ignoreCase) return value;
+            return upperCase.get(name.toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+/**
+ * Implemented by option classes which allow to customize the format of their string representation via
+ * {@link org.plukh.options.Option#format()}.
+ */
+public interface FormattedOption {
+    /**
+     * Sets a format pattern to be used when converting option values to and from strings. Should be called before
+     * any conversions take place.
+     *
+     * @param format format pattern, specific to the option class.
+     * @throws IllegalArgumentException if the pattern is invalid.
+     */
+    void setFormat(String format);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Option class for {@link Instant} values. By default, instants are stored in ISO-8601 format in UTC
+ * (like {@code 2014-01-31T22:00:00Z}); custom patterns without a time zone are interpreted in UTC as well.
+ */
+public class InstantOption extends TemporalOption {
+    public InstantOption() {
+        super(Instant.class, DateTimeFormatter.ISO_INSTANT, Instant::from);
+    }
+
+    @Override
+    protected DateTimeFormatter adjustFormatter(DateTimeFormatter formatter) {
+        return formatter.getZone() == null ? formatter.withZone(ZoneOffset.UTC) : formatter;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.IpRangeSet;
+import org.plukh.options.ParseException;
+
+/**
+ * Option class for {@link IpRangeSet} values, stored as a comma-separated list of CIDR ranges. The radix trees used for
+ * matching are built once per distinct string value, when the option is loaded, and the new set replaces the old one
+ * as a whole, so threads matching addresses never see a partially built set.
+ */
+public class IpRangeSetOption extends CompiledOption {
+    public IpRangeSetOption() {
+        super(IpRangeSet.class);
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        return IpRangeSet.parse(s);
+    }
+
+    /**
+     * Returns the set of ranges; an empty set if the option has no value.
+     */
+    @Override
+    public Object getValue() throws ParseException {
+        final Object value = super.getValue();
+        return value == null ? IpRangeSet.EMPTY : value;
+    }
+}
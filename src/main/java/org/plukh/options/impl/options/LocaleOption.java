@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import java.util.IllformedLocaleException;
+import java.util.Locale;
+
+/**
+ * Option class for {@link Locale} values, stored as IETF BCP 47 language tags (like {@code en-US}). Underscores are
+ * accepted in place of hyphens when loading, so {@code Locale.toString()}-style values like {@code en_US} can be used
+ * as well.
+ */
+public class LocaleOption extends CompiledOption {
+    public LocaleOption() {
+        super(Locale.class);
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        try {
+            return new Locale.Builder().setLanguageTag(s.trim().replace('_', '-')).build();
+        } catch (IllformedLocaleException e) {
+            throw conversionError(s, e);
+        }
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        return ((Locale) o).toLanguageTag();
+    }
+}
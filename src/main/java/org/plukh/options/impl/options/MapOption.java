@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+import org.plukh.options.UnsupportedOptionClassException;
+import org.plukh.options.impl.collections.OptionsMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class for maps. Values are immutable {@link OptionsMap} instances, built once when the option's string value
+ * changes, so reading the map and looking up its entries never involves any parsing. Map options are read-only.
+ * <p/>
+ * Maps are converted to strings as {@code key=value} pairs separated by colons, for example
+ * {@code api.example.com=500:cdn.example.com=2000}. Colons and backslashes in keys and values, as well as equal signs in
+ * keys, are escaped with a backslash; entries are stored in the map's iteration order. An empty string stands for
+ * an empty map.
+ */
+public class MapOption extends CompiledOption {
+    private static final char SEPARATOR = ':';
+    private static final char KEY_SEPARATOR = '=';
+    private static final char ESCAPE = '\\';
+
+    private final AbstractOption keyOption;
+    private final AbstractOption valueOption;
+    private final Class<?> keyClass;
+    private final Class<?> valueClass;
+
+    public MapOption(Class<?> keyClass, Class<?> valueClass) {
+        super(Map.class);
+        this.keyClass = keyClass;
+        this.valueClass = valueClass;
+        keyOption = createElementOption(keyClass);
+        valueOption = createElementOption(valueClass);
+
+        //Map options are read-only by definition
+        setReadOnly(true);
+    }
+
+    private static AbstractOption createElementOption(Class<?> elementClass) {
+        try {
+            return OptionFactory.getOptionForClass(elementClass);
+        } catch (UnsupportedOptionClassException | IllegalAccessException | InstantiationException e) {
+            throw new IllegalArgumentException("Class " + elementClass.getName() + " is not a valid option class", e);
+        }
+    }
+
+    public Class<?> getKeyClass() {
+        return keyClass;
+    }
+
+    public Class<?> getValueClass() {
+        return valueClass;
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        final List<Object> keys = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+
+        final StringBuilder sb = new StringBuilder();
+        String key = null;
+        final int length = s.length();
+        for (int i = 0; i <= length; ++i) {
+            final char c = i < length ? s.charAt(i) : SEPARATOR;
+
+            if (c == ESCAPE && i + 1 < length && isEscapable(s.charAt(i + 1))) {
+                sb.append(s.charAt(++i));
+            } else if (c == KEY_SEPARATOR && key == null) {
+                key = sb.toString();
+                sb.setLength(0);
+            } else if (c == SEPARATOR) {
+                if (key == null) throw new ParseException(format("Error converting string: {0} to map value, " +
+                        "entry {1} is missing a value", s, sb));
+                keys.add(convertElement(keyOption, key, s));
+                values.add(convertElement(valueOption, sb.toString(), s));
+                key = null;
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return OptionsMap.of(keys, values);
+    }
+
+    private static Object convertElement(AbstractOption option, String element, String s) throws ParseException {
+        final Object converted = option.convertStringToValue(element);
+        if (converted == null) throw new ParseException(format("Error converting string: {0} to map value, " +
+                "map options should not contain nulls", s));
+        return converted;
+    }
+
+    private static boolean isEscapable(char c) {
+        return c == SEPARATOR || c == KEY_SEPARATOR || c == ESCAPE;
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) return null;
+        if (!(o instanceof Map)) throw new IllegalArgumentException("Can only convert Map values");
+
+        final StringBuilder sb = new StringBuilder();
+        for (Object e : ((Map) o).entrySet()) {
+            final Map.Entry entry = (Map.Entry) e;
+            if (sb.length() > 0) sb.append(SEPARATOR);
+            escape(keyOption.convertValueToString(entry.getKey()), true, sb);
+            sb.append(KEY_SEPARATOR);
+            escape(valueOption.convertValueToString(entry.getValue()), false, sb);
+        }
+        return sb.toString();
+    }
+
+    private static void escape(String s, boolean key, StringBuilder out) {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c == SEPARATOR || c == ESCAPE || (key && c == KEY_SEPARATOR)) out.append(ESCAPE);
+            out.append(c);
+        }
+    }
+
+    /**
+     * Returns the map; an empty map if the option has no value.
+     */
+    @Override
+    public Object getValue() throws ParseException {
+        final Object value = super.getValue();
+        return value == null ? OptionsMap.empty() : value;
+    }
+
+    @Override
+    public void setValue(Object value) {
+        throw new IllegalArgumentException("Map options are by definition read-only, can't assign values to them");
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import java.text.MessageFormat;
+
+/**
+ * Option class for {@link MessageFormat} templates. Since {@code MessageFormat} is mutable and not thread-safe, getters
+ * return a copy of the compiled template, which callers are free to use and modify.
+ */
+public class MessageFormatOption extends CompiledOption {
+    public MessageFormatOption() {
+        super(MessageFormat.class);
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        try {
+            return new MessageFormat(s);
+        } catch (IllegalArgumentException e) {
+            throw conversionError(s, e);
+        }
+    }
+
+    @Override
+    public Object getValue() throws ParseException {
+        final Object value = super.getValue();
+        return value == null ? null : ((MessageFormat) value).clone();
+    }
+
+    @Override
+    public void setValue(Object value) {
+        super.setValue(value instanceof MessageFormat ? ((MessageFormat) value).clone() : value);
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        return ((MessageFormat) o).toPattern();
+    }
+}
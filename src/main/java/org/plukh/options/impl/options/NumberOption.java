@@ -15,6 +15,7 @@ public class NumberOption extends AbstractOption {
     public NumberOption(Class<?> clazz) {
         super(PrimitivesUtils.primitiveToWrapper(clazz));
         converter = PrimitivesUtils.getStringConverter(clazz);
+        if (converter == null) throw new IllegalArgumentException("Unsupported number class: " + clazz.getName());
     }
 
     @Override
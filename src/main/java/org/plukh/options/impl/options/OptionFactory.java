@@ -1,11 +1,26 @@
 package org.plukh.options.impl.options;
 
+import org.plukh.options.DataSize;
+import org.plukh.options.IpRangeSet;
+import org.plukh.options.PatternSet;
+import org.plukh.options.TimeSpan;
 import org.plukh.options.UnsupportedOptionClassException;
 import org.plukh.options.impl.PrimitivesUtils;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
+import java.time.*;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 
 import static java.text.MessageFormat.format;
 
@@ -16,7 +31,36 @@ public class OptionFactory {
         registerOptionClassForType(Boolean.class, BooleanOption.class);
         registerOptionClassForType(String.class, StringOption.class);
         registerOptionClassForType(Date.class, DateOption.class);
-        registerOptionClassForType(Number.class, NumberOption.class);
+        registerOptionClassForType(Byte.class, NumberOption.class);
+        registerOptionClassForType(Short.class, NumberOption.class);
+        registerOptionClassForType(Integer.class, NumberOption.class);
+        registerOptionClassForType(Long.class, NumberOption.class);
+        registerOptionClassForType(Float.class, NumberOption.class);
+        registerOptionClassForType(Double.class, NumberOption.class);
+        registerOptionClassForType(BigInteger.class, NumberOption.class);
+        registerOptionClassForType(BigDecimal.class, NumberOption.class);
+        registerOptionClassForType(AtomicInteger.class, CounterOption.class);
+        registerOptionClassForType(AtomicLong.class, CounterOption.class);
+        registerOptionClassForType(LongAdder.class, CounterOption.class);
+        registerOptionClassForType(Instant.class, InstantOption.class);
+        registerOptionClassForType(LocalDate.class, LocalDateOption.class);
+        registerOptionClassForType(LocalDateTime.class, LocalDateTimeOption.class);
+        registerOptionClassForType(ZonedDateTime.class, ZonedDateTimeOption.class);
+        registerOptionClassForType(Duration.class, DurationOption.class);
+        registerOptionClassForType(TimeSpan.class, TimeSpanOption.class);
+        registerOptionClassForType(DataSize.class, DataSizeOption.class);
+        registerOptionClassForType(IpRangeSet.class, IpRangeSetOption.class);
+        registerOptionClassForType(Enum.class, EnumOption.class);
+        registerOptionClassForType(Pattern.class, PatternOption.class);
+        registerOptionClassForType(PatternSet.class, PatternSetOption.class);
+        registerOptionClassForType(MessageFormat.class, MessageFormatOption.class);
+        registerOptionClassForType(Class.class, ClassOption.class);
+        registerOptionClassForType(URI.class, URIOption.class);
+        registerOptionClassForType(Charset.class, CharsetOption.class);
+        registerOptionClassForType(Locale.class, LocaleOption.class);
+        registerOptionClassForType(int[].class, PrimitiveArrayOption.class);
+        registerOptionClassForType(long[].class, PrimitiveArrayOption.class);
+        registerOptionClassForType(double[].class, PrimitiveArrayOption.class);
     }
 
     /**
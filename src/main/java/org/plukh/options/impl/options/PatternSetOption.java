@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+import org.plukh.options.PatternSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Option class for {@link PatternSet} values. String representation is a list of patterns in the format used for
+ * collection options (patterns separated with colons, colons and backslashes inside patterns escaped with a
+ * backslash), so values of {@code String} collection options holding patterns can be used as is. The set is compiled
+ * once per distinct string value.
+ * <p/>
+ * Patterns are regular expressions by default; specify {@code glob} as the option's format (see
+ * {@link org.plukh.options.Option#format()}) to use glob patterns instead.
+ */
+public class PatternSetOption extends CompiledOption implements FormattedOption {
+    private volatile PatternSet.Syntax syntax = PatternSet.Syntax.REGEX;
+
+    public PatternSetOption() {
+        super(PatternSet.class);
+    }
+
+    /**
+     * Sets syntax of the patterns: either {@code regex} or {@code glob} (case-insensitive).
+     *
+     * @throws IllegalArgumentException if the syntax is unknown.
+     */
+    @Override
+    public void setFormat(String format) {
+        try {
+            syntax = PatternSet.Syntax.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown pattern syntax: " + format + ", expected regex or glob", e);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected Object compile(String s) throws ParseException {
+        final List<String> patterns = new ArrayList<>();
+        CollectionCodec.split(s, patterns::add);
+        try {
+            return PatternSet.compile(patterns, syntax);
+        } catch (PatternSyntaxException e) {
+            throw conversionError(s, e);
+        }
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) return null;
+
+        final StringBuilder sb = new StringBuilder();
+        for (String pattern : ((PatternSet) o).getPatterns()) {
+            if (sb.length() > 0) sb.append(CollectionCodec.SEPARATOR);
+            CollectionCodec.escape(pattern, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the set of patterns; an empty set if the option has no value.
+     */
+    @Override
+    public Object getValue() throws ParseException {
+        final Object value = super.getValue();
+        return value == null ? PatternSet.compile(new ArrayList<String>(), syntax) : value;
+    }
+}
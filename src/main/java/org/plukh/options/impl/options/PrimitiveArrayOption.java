@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+import org.plukh.options.impl.NumberParsers;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Option class for {@code int[]}, {@code long[]} and {@code double[]} values. Arrays are stored in the same format
+ * as collection options (elements separated with colons) and are parsed directly from the string, without boxing
+ * elements or growing intermediate arrays.
+ * <p/>
+ * Getters return the array held by the option rather than a copy, to avoid copying large arrays on every call;
+ * callers must not modify returned arrays (use the setter to change option's value instead).
+ */
+public class PrimitiveArrayOption extends AbstractOption {
+    public PrimitiveArrayOption(Class<?> arrayClass) {
+        super(arrayClass);
+        if (arrayClass != int[].class && arrayClass != long[].class && arrayClass != double[].class)
+            throw new IllegalArgumentException("Unsupported array class: " + arrayClass.getName());
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null) return null;
+
+        final Class<?> arrayClass = getOptionClass();
+        final int length = s.length();
+        final int count = length == 0 ? 0 : countElements(s);
+
+        final int[] ints = arrayClass == int[].class ? new int[count] : null;
+        final long[] longs = arrayClass == long[].class ? new long[count] : null;
+        final double[] doubles = arrayClass == double[].class ? new double[count] : null;
+
+        int start = 0;
+        int index = 0;
+        for (int i = 0; count > 0 && i <= length; ++i) {
+            if (i == length || s.charAt(i) == CollectionCodec.SEPARATOR) {
+                try {
+                    if (ints != null) ints[index++] = NumberParsers.parseInt(s, start, i);
+                    else if (longs != null) longs[index++] = NumberParsers.parseLong(s, start, i);
+                    else doubles[index++] = Double.parseDouble(s.substring(start, i));
+                } catch (NumberFormatException e) {
+                    throw new ParseException(format("Error converting string: {0} to {1} value", s,
+                            arrayClass.getSimpleName()), e);
+                }
+                start = i + 1;
+            }
+        }
+
+        return ints != null ? ints : longs != null ? longs : doubles;
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        if (o instanceof int[]) {
+            final int[] array = (int[]) o;
+            for (int i = 0; i < array.length; ++i) {
+                if (i > 0) sb.append(CollectionCodec.SEPARATOR);
+                sb.append(array[i]);
+            }
+        } else if (o instanceof long[]) {
+            final long[] array = (long[]) o;
+            for (int i = 0; i < array.length; ++i) {
+                if (i > 0) sb.append(CollectionCodec.SEPARATOR);
+                sb.append(array[i]);
+            }
+        } else {
+            final double[] array = (double[]) o;
+            for (int i = 0; i < array.length; ++i) {
+                if (i > 0) sb.append(CollectionCodec.SEPARATOR);
+                sb.append(array[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int countElements(String s) {
+        int count = 1;
+        for (int i = s.indexOf(CollectionCodec.SEPARATOR); i >= 0; i = s.indexOf(CollectionCodec.SEPARATOR, i + 1)) ++count;
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+
+import java.time.DateTimeException;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Base class for date and time options. Conversions are performed by an immutable {@link DateTimeFormatter}, so unlike
+ * {@code java.text} formats, option instances don't carry any mutable formatting state and can be converted from
+ * several threads at once.
+ * <p/>
+ * Subclasses supply a default formatter and a query which extracts option's value from a parsed temporal object.
+ * A custom pattern can be set via {@link org.plukh.options.Option#format()}.
+ */
+public abstract class TemporalOption extends AbstractOption implements FormattedOption {
+    private final TemporalQuery<?> query;
+    private DateTimeFormatter formatter;
+
+    protected TemporalOption(Class<?> optionClass, DateTimeFormatter formatter, TemporalQuery<?> query) {
+        super(optionClass);
+        this.formatter = formatter;
+        this.query = query;
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+        try {
+            return fromTemporal(formatter.parse(s, query));
+        } catch (DateTimeException e) {
+            throw new ParseException(format("Error converting string: {0} to {1} value", s, getOptionClass().getSimpleName()), e);
+        }
+    }
+
+    @Override
+    public String convertValueToString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        return formatter.format(toTemporal(o));
+    }
+
+    @Override
+    public void setFormat(String format) {
+        formatter = adjustFormatter(DateTimeFormatters.ofPattern(format));
+    }
+
+    DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Converts an object returned by the query into the option's value. By default, returns the object as is.
+     */
+    protected Object fromTemporal(Object temporal) {
+        return temporal;
+    }
+
+    /**
+     * Converts option's value into a temporal object suitable for formatting. By default, casts the value.
+     */
+    protected TemporalAccessor toTemporal(Object value) {
+        return (TemporalAccessor) value;
+    }
+
+    /**
+     * Adjusts a formatter compiled from a custom pattern before it's used by this option (for example, to supply
+     * a time zone for types which require one). By default, returns the formatter unchanged.
+     */
+    protected DateTimeFormatter adjustFormatter(DateTimeFormatter formatter) {
+        return formatter;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.plukh.options.ParseException;
+import org.plukh.options.TimeSpan;
+
+/**
+ * Option class for {@link TimeSpan} values, stored as an amount with a unit suffix (like {@code 30s} or {@code 250ms}).
+ */
+public class TimeSpanOption extends AbstractOption {
+    public TimeSpanOption() {
+        super(TimeSpan.class);
+    }
+
+    @Override
+    public Object convertStringToValue(String s) throws ParseException {
+        if (s == null || s.isEmpty()) return null;
+        return TimeSpan.parse(s);
+    }
+}
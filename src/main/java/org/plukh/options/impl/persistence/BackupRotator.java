@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps generations of backups of an options file: {@code <filename>.bak} holds the file as it was before the last
+ * save, {@code <filename>.bak.2} the one before that, and so on; generations other than the first one may be
+ * gzip-compressed ({@code <filename>.bak.2.gz}).
+ * <p/>
+ * When a file is saved, a snapshot of the file being replaced is taken first, with a hard link to it if the file system
+ * supports them, so nothing has to be copied. Generations are then rotated, by renaming files, and compressed on a
+ * background thread shared by all options files; rotations run in the order snapshots were taken. The thread is a
+ * daemon one, so rotations pending when the JVM exits are lost, leaving their snapshots
+ * ({@code <filename>.bak-<random>.tmp}) behind.
+ * <p/>
+ * Backups of a file shared by several processes are rotated while holding an exclusive lock of its lock file, so
+ * rotations of different processes don't interleave.
+ * <p/>
+ * Errors of background rotations are kept until {@link #takeFailure()} is called.
+ */
+final class BackupRotator {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "options-backup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path backup;
+    private final int generations;
+    private final boolean compress;
+    private final Path lockFile;
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Creates a rotator.
+     *
+     * @param backup first generation of backups.
+     * @param generations number of generations kept, at least 1.
+     * @param compress whether generations other than the first one should be compressed.
+     * @param lockFile lock file of an options file shared with other processes, or {@code null} if it isn't shared.
+     */
+    BackupRotator(Path backup, int generations, boolean compress, Path lockFile) {
+        if (generations < 1) throw new IllegalArgumentException("At least one generation of backups must be kept");
+        this.backup = backup;
+        this.generations = generations;
+        this.compress = compress;
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Takes a snapshot of a file about to be replaced by another one, to become its first generation of backups when
+     * passed to {@link #rotate(Path)}. The file must not be modified in place after that.
+     *
+     * @return the snapshot, or {@code null} if the file doesn't exist.
+     */
+    Path snapshot(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+
+        //Names of snapshots have to be unique across processes saving the same file
+        final Path linked = createSnapshotFile();
+        try {
+            Files.delete(linked);
+            Files.createLink(linked, file);
+            return linked;
+        } catch (UnsupportedOperationException | IOException e) {
+            //Including the name having been taken by another process in the meantime; a new file is only ours
+            final Path copied = createSnapshotFile();
+            try {
+                Files.copy(file, copied, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException copyError) {
+                Files.deleteIfExists(copied);
+                throw copyError;
+            }
+            return copied;
+        }
+    }
+
+    private Path createSnapshotFile() throws IOException {
+        return Files.createTempFile(backup.toAbsolutePath().getParent(), backup.getFileName() + "-", ".tmp");
+    }
+
+    /**
+     * Makes a snapshot the first generation of backups in the background, shifting older generations.
+     */
+    void rotate(Path snapshot) {
+        EXECUTOR.execute(() -> {
+            try {
+                rotateLocked(snapshot);
+            } catch (IOException e) {
+                failure.set(e);
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (IOException ignored) {
+                    //Nothing else can be done
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("try")
+    private void rotateLocked(Path snapshot) throws IOException {
+        try (OptionsFileLock ignored = lockFile != null ? OptionsFileLock.acquire(lockFile, false) : null) {
+            shift();
+            Files.move(snapshot, backup, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void shift() throws IOException {
+        if (generations == 1) return;
+
+        Files.deleteIfExists(getGeneration(generations));
+        for (int generation = generations - 1; generation >= 2; --generation) {
+            final Path source = getGeneration(generation);
+            if (Files.exists(source)) {
+                Files.move(source, getGeneration(generation + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        if (!Files.exists(backup)) return;
+        if (compress) {
+            //Compress into a temporary file first, so a failure leaves no partially written generation
+            final Path target = getGeneration(2);
+            final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (InputStream in = Files.newInputStream(backup);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(backup);
+        } else {
+            Files.move(backup, getGeneration(2), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns a generation of backups, starting from 1.
+     */
+    Path getGeneration(int generation) {
+        if (generation == 1) return backup;
+        return backup.resolveSibling(backup.getFileName() + "." + generation + (compress ? ".gz" : ""));
+    }
+
+    /**
+     * Returns and clears the error of the last failed rotation.
+     *
+     * @return the error, or {@code null} if no rotation has failed since the last call.
+     */
+    IOException takeFailure() {
+        return failure.getAndSet(null);
+    }
+
+    /**
+     * Waits until rotations of backups of all options files requested so far are done. Used in tests.
+     */
+    static void awaitRotations() throws InterruptedException {
+        try {
+            EXECUTOR.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -18,14 +18,31 @@ package org.plukh.options.impl.persistence;
 
 import org.plukh.options.PersistenceConfig;
 
+import java.nio.file.FileSystem;
+
 /**
- * Configuration class for {@link PropertiesPersistenceProvider}. Allows to specify path to and filename of the options
- * file and whether the provider should back up existing file before overwriting it with a new one.
+ * Configuration class for {@link PropertiesPersistenceProvider}. Allows to specify file system, path to and filename of
+ * the options file, whether and how many generations of backups of existing file the provider should keep, replace it atomically
+ * and force saved file to the storage device, whether the file is shared by several processes, and when and with how many threads large options files should be loaded in parallel.
  */
 public class FileConfig extends PersistenceConfig {
+    /**
+     * Default size of options files, in bytes, starting from which they are loaded in parallel.
+     */
+    public static final long DEFAULT_PARALLEL_LOAD_THRESHOLD = 16L * 1024 * 1024;
+
     private String path;
     private String filename;
+    private FileSystem fileSystem;
     private boolean backupOnSave;
+    private int backupGenerations = 1;
+    private boolean compressBackups;
+    private boolean syncOnSave;
+    private boolean atomicSave;
+    private boolean groupCommit = true;
+    private boolean sharedFile;
+    private long parallelLoadThreshold = DEFAULT_PARALLEL_LOAD_THRESHOLD;
+    private int loadParallelism;
 
     public FileConfig(String path, String filename) {
         this.path = path;
@@ -70,6 +87,28 @@ public class FileConfig extends PersistenceConfig {
         this.filename = filename;
     }
 
+    /**
+     * Returns the file system of the options file, or {@code null} if it's on the default file system.
+     * @return the file system of the options file.
+     */
+    public FileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Sets the file system of the options file, for example, an in-memory one for tests, or a zip file system to read
+     * options from an archive. The path to the options file is resolved on this file system; if it's empty or relative,
+     * it's resolved against the file system's working directory rather than user's home directory. By default (or if
+     * set to {@code null}), the options file is on the default file system.
+     * <p/>
+     * Some features may not be available on other file systems: for example, if the file system can't map files, they
+     * are read into memory instead, and if it doesn't support hard links, backups are copied.
+     * @param fileSystem the file system of the options file, or {@code null} to use the default one.
+     */
+    public void setFileSystem(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
     /**
      * Returns {@code true} if options file should be backed up before being overwritten.
      * @return {@code true} if options file should be backed up before being overwritten.
@@ -85,4 +124,153 @@ public class FileConfig extends PersistenceConfig {
     public void setBackupOnSave(boolean backupOnSave) {
         this.backupOnSave = backupOnSave;
     }
+
+    /**
+     * Returns the number of generations of backups of options file kept.
+     * @return the number of generations of backups kept.
+     */
+    public int getBackupGenerations() {
+        return backupGenerations;
+    }
+
+    /**
+     * Sets the number of generations of backups of options file kept when {@link #setBackupOnSave(boolean) backup}
+     * is enabled: {@code <filename>.bak} is the file as it was before the last save, {@code <filename>.bak.2} the one
+     * before that, and so on. By default, only one generation is kept.
+     * @param backupGenerations the number of generations of backups kept, at least 1.
+     * @throws IllegalArgumentException if {@code backupGenerations} is less than 1.
+     */
+    public void setBackupGenerations(int backupGenerations) {
+        if (backupGenerations < 1) throw new IllegalArgumentException("At least one generation of backups must be kept");
+        this.backupGenerations = backupGenerations;
+    }
+
+    /**
+     * Returns {@code true} if generations of backups other than the first one should be compressed.
+     * @return {@code true} if older generations of backups should be compressed.
+     */
+    public boolean isCompressBackups() {
+        return compressBackups;
+    }
+
+    /**
+     * Set to {@code true} to gzip generations of backups other than the first one ({@code <filename>.bak.2.gz},
+     * {@code <filename>.bak.3.gz} and so on). Compression is done in the background, and doesn't slow down saving.
+     * @param compressBackups {@code true} if older generations of backups should be compressed.
+     */
+    public void setCompressBackups(boolean compressBackups) {
+        this.compressBackups = compressBackups;
+    }
+
+    /**
+     * Returns {@code true} if saved options file should be forced to the storage device.
+     * @return {@code true} if saved options file should be forced to the storage device.
+     */
+    public boolean isSyncOnSave() {
+        return syncOnSave;
+    }
+
+    /**
+     * Set to {@code true} to ask persistence provider to force options file to the storage device after saving it, so
+     * it isn't lost if the system crashes. Saving becomes considerably slower.
+     * @param syncOnSave {@code true} if saved options file should be forced to the storage device.
+     */
+    public void setSyncOnSave(boolean syncOnSave) {
+        this.syncOnSave = syncOnSave;
+    }
+
+    /**
+     * Returns {@code true} if options file should be replaced atomically when saving.
+     * @return {@code true} if options file should be replaced atomically when saving.
+     */
+    public boolean isAtomicSave() {
+        return atomicSave;
+    }
+
+    /**
+     * Set to {@code true} to ask persistence provider to write options to a temporary file in the same directory and
+     * rename it over the options file, so a crash in the middle of saving leaves either the old or the new file, never
+     * a partially written one. Every save then rewrites the whole file, instead of patching changed lines in place.
+     * To also survive system crashes, combine with {@link #setSyncOnSave(boolean)}.
+     * @param atomicSave {@code true} if options file should be replaced atomically when saving.
+     */
+    public void setAtomicSave(boolean atomicSave) {
+        this.atomicSave = atomicSave;
+    }
+
+    /**
+     * Returns {@code true} if atomically saved options files are forced to the storage device together with other
+     * files saved in the same directory at the same time.
+     * @return {@code true} if syncs of saved options files are group committed.
+     */
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Set to {@code false} to force each atomically saved options file to the storage device separately. By default,
+     * when several options files in the same directory are saved concurrently (for example, by different
+     * {@code Options} instances), their renames are persisted by syncing the directory once per batch of saves rather
+     * than once per save. Has no effect unless both {@link #setAtomicSave(boolean)} and
+     * {@link #setSyncOnSave(boolean)} are set.
+     * @param groupCommit {@code true} if syncs of saved options files should be group committed.
+     */
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Returns {@code true} if options file is shared by several processes.
+     * @return {@code true} if options file is shared by several processes.
+     */
+    public boolean isSharedFile() {
+        return sharedFile;
+    }
+
+    /**
+     * Set to {@code true} if options file is updated by several processes (for example, worker JVMs sharing a
+     * configuration file). The file is then read while holding a shared lock and replaced while holding an exclusive
+     * one, both taken on a {@code <filename>.lock} file next to it, and only for the time of reading and renaming the
+     * file. If the file has been replaced by another process since it was loaded, options changed by this process are
+     * merged into the other process's version rather than overwrite it. All processes sharing the file must enable
+     * this setting.
+     * @param sharedFile {@code true} if options file is shared by several processes.
+     */
+    public void setSharedFile(boolean sharedFile) {
+        this.sharedFile = sharedFile;
+    }
+
+    /**
+     * Returns size of options files, in bytes, starting from which they are loaded in parallel.
+     * @return size of options files loaded in parallel.
+     */
+    public long getParallelLoadThreshold() {
+        return parallelLoadThreshold;
+    }
+
+    /**
+     * Sets size of options files, in bytes, starting from which they are loaded in parallel: parsed in chunks and
+     * converted on a fork-join pool. Use {@code Long.MAX_VALUE} to always load options files in a single thread.
+     * @param parallelLoadThreshold size of options files loaded in parallel.
+     */
+    public void setParallelLoadThreshold(long parallelLoadThreshold) {
+        this.parallelLoadThreshold = parallelLoadThreshold;
+    }
+
+    /**
+     * Returns the number of threads loading large options files, or 0 if the common fork-join pool is used.
+     * @return the number of threads loading large options files.
+     */
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    /**
+     * Sets the number of threads loading large options files. By default (or if set to 0), options files are loaded
+     * in the common fork-join pool.
+     * @param loadParallelism the number of threads loading large options files, or 0 to use the common pool.
+     */
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
 }
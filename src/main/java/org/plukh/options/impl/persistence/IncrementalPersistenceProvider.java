@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.plukh.options.OptionsException;
+import org.plukh.options.PersistenceProvider;
+import org.plukh.options.impl.options.AbstractOption;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Persistence provider which can save only options changed since they were last loaded or saved, leaving the rest of
+ * the backing store as is, and tell whether options have to be reloaded at all.
+ */
+public interface IncrementalPersistenceProvider extends PersistenceProvider {
+    /**
+     * Saves options like {@link #save(Collection, boolean)} does, but only writes options which have changed. Options
+     * whose values can be modified in place (see {@link AbstractOption#isModifiedInPlace()}) are checked by the
+     * provider itself; options changed in any other way are marked by the caller.
+     *
+     * @param options options to be persisted, in the same order they were loaded in.
+     * @param changed positions of options (in {@code options}' iteration order) changed since they were last loaded
+     *                or saved.
+     * @param nonDefaultOnly see {@link #save(Collection, boolean)}.
+     * @throws OptionsException if an errors occurs while persisting options to the backing store.
+     */
+    void save(Collection<AbstractOption> options, BitSet changed, boolean nonDefaultOnly) throws OptionsException;
+
+    /**
+     * Returns {@code true} if loading options would leave them as they are: neither the backing store nor any of the
+     * options have changed since options were last loaded or saved. Options whose values can be modified in place are
+     * checked by the provider itself; options changed in any other way are marked by the caller. If unsure, providers
+     * should return {@code false}.
+     *
+     * @param options options to be loaded, in the same order they were last loaded or saved in.
+     * @param changed positions of options (in {@code options}' iteration order) changed since they were last loaded
+     *                or saved.
+     */
+    boolean isUpToDate(Collection<AbstractOption> options, BitSet changed);
+}
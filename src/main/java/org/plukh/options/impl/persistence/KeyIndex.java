@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable index of option keys, mapping raw key bytes to slots - positions of the keys in the list the index was
+ * built from. Keys are hashed with a multiplicative hash function; when the index is built, multipliers are tried
+ * until one is found which maps every key to a distinct table entry, so a lookup is a single hash computation and
+ * a single comparison of key bytes. If no such multiplier is found (which is unlikely), colliding keys are probed
+ * linearly.
+ * <p/>
+ * Keys must consist of ASCII characters only, which is the case for all valid option keys.
+ */
+public final class KeyIndex {
+    private static final int ATTEMPTS_PER_SIZE = 16;
+    //Perfect hashing may use tables up to 32 times larger than the minimal ones, but not larger than 64K entries
+    private static final int MAX_EXTRA_BITS = 5;
+    private static final int MAX_PERFECT_BITS = 16;
+
+    private final String[] keys;
+    private final boolean[] paged;
+    //Slot of each table entry, -1 for empty ones
+    private final int[] table;
+    private final byte[][] tableKeys;
+    private final int multiplier;
+    private final int shift;
+    private final boolean perfect;
+
+    /**
+     * Builds an index.
+     *
+     * @param keys keys, slots being their positions in the list.
+     * @param paged whether each key is a paged option's key (see {@link PropertiesFileParser.Sink#pageValue}).
+     * @throws IllegalArgumentException if any of the keys is duplicate or contains non-ASCII characters.
+     */
+    public KeyIndex(List<String> keys, boolean[] paged) {
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.paged = paged.clone();
+        final int[] hashes = new int[this.keys.length];
+        for (int i = 0; i < hashes.length; ++i) hashes[i] = hash(this.keys[i]);
+
+        //Tables are at least twice as large as the number of keys; perfect hashing may use larger ones
+        final int minBits = Math.max(2, 33 - Integer.numberOfLeadingZeros(Math.max(this.keys.length, 1)));
+        final int maxBits = Math.min(minBits + MAX_EXTRA_BITS, Math.max(minBits, MAX_PERFECT_BITS));
+        int bits = minBits;
+        int multiplier = 0;
+        for (int b = minBits; multiplier == 0 && b <= maxBits; ++b) {
+            for (int attempt = 0; attempt < ATTEMPTS_PER_SIZE; ++attempt) {
+                final int candidate = mix(attempt) | 1;
+                if (isPerfect(hashes, candidate, 32 - b)) {
+                    multiplier = candidate;
+                    bits = b;
+                    break;
+                }
+            }
+        }
+        //No perfect hash function found, fall back to linear probing
+        perfect = multiplier != 0;
+        if (!perfect) multiplier = mix(0) | 1;
+
+        this.multiplier = multiplier;
+        shift = 32 - bits;
+        table = new int[1 << bits];
+        tableKeys = new byte[1 << bits][];
+        Arrays.fill(table, -1);
+
+        for (int slot = 0; slot < this.keys.length; ++slot) {
+            int entry = (hashes[slot] * multiplier) >>> shift;
+            while (table[entry] >= 0) {
+                if (this.keys[table[entry]].equals(this.keys[slot]))
+                    throw new IllegalArgumentException("Duplicate key: " + this.keys[slot]);
+                entry = (entry + 1) & (table.length - 1);
+            }
+            table[entry] = slot;
+            tableKeys[entry] = this.keys[slot].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static boolean isPerfect(int[] hashes, int multiplier, int shift) {
+        final boolean[] used = new boolean[1 << (32 - shift)];
+        for (int hash : hashes) {
+            final int entry = (hash * multiplier) >>> shift;
+            if (used[entry]) return false;
+            used[entry] = true;
+        }
+        return true;
+    }
+
+    private static int mix(int seed) {
+        //Golden ratio based sequence of well-distributed multipliers
+        int h = (seed + 1) * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ h >>> 13;
+    }
+
+    private static int hash(String key) {
+        for (int i = 0; i < key.length(); ++i) {
+            if (key.charAt(i) >= 0x80) throw new IllegalArgumentException("Key must be ASCII: " + key);
+        }
+        //Hash code of an ASCII key is the same as of its bytes (see find())
+        return key.hashCode();
+    }
+
+    /**
+     * Looks up a key by its bytes.
+     *
+     * @return slot of the key, or -1 if the bytes don't match any key.
+     */
+    public int find(ByteBuffer buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; ++i) hash = 31 * hash + buffer.get(i);
+
+        for (int entry = (hash * multiplier) >>> shift; table[entry] >= 0; entry = (entry + 1) & (table.length - 1)) {
+            if (matches(tableKeys[entry], buffer, start, end)) return table[entry];
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) return false;
+        for (int i = 0; i < key.length; ++i) {
+            if (key[i] != buffer.get(start + i)) return false;
+        }
+        return true;
+    }
+
+    public String getKey(int slot) {
+        return keys[slot];
+    }
+
+    public boolean isPaged(int slot) {
+        return paged[slot];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    boolean isPerfect() {
+        return perfect;
+    }
+}
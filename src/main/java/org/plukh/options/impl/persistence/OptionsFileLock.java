@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Advisory lock of an options file shared by several processes, held on a sidecar lock file
+ * ({@code <filename>.lock}) rather than on the options file itself, which is replaced when saved. Locks are meant to be
+ * held for short sections only: while the file is read, or while it's being replaced.
+ * <p/>
+ * File locks are held on behalf of the whole JVM and can't overlap within it, so threads of the JVM locking the same
+ * file take turns before locking it.
+ */
+final class OptionsFileLock implements Closeable {
+    private static final ConcurrentMap<Path, ReentrantLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock threadLock;
+    private final FileChannel channel;
+
+    private OptionsFileLock(ReentrantLock threadLock, FileChannel channel) {
+        this.threadLock = threadLock;
+        this.channel = channel;
+    }
+
+    /**
+     * Locks a lock file, creating it if it doesn't exist, waiting until the lock is available.
+     *
+     * @param shared {@code true} to take a shared lock, which other processes can hold at the same time, {@code false}
+     *               to take an exclusive one.
+     */
+    static OptionsFileLock acquire(Path lockFile, boolean shared) throws IOException {
+        final ReentrantLock threadLock = THREAD_LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(),
+                path -> new ReentrantLock());
+        threadLock.lock();
+        try {
+            final FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+            try {
+                channel.lock(0, Long.MAX_VALUE, shared);
+                return new OptionsFileLock(threadLock, channel);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            threadLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the lock.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            //Closing the channel releases the lock
+            channel.close();
+        } finally {
+            threadLock.unlock();
+        }
+    }
+}
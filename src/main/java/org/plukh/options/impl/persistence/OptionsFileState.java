@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.plukh.options.impl.options.AbstractOption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * State of an options file as it was last loaded or saved: where lines of options are in the file, and what it held.
+ * Used to save only options which have changed since, patching their lines in place, and to skip reloading files which
+ * haven't changed. Options are identified by their slots in the key index.
+ */
+final class OptionsFileState {
+    private static final long NO_CHECKSUM = -1;
+    //Files modified this close to the time their state was recorded may have been modified again without changing
+    //their modification time, as file systems store it with limited resolution
+    private static final long RACY_INTERVAL = 2000;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private long size;
+    private long modified;
+    //Identity of the file (such as its inode), if the file system provides it; changes when the file is replaced
+    private Object fileKey;
+    private long recorded;
+    //CRC32 of the file's contents, if known
+    private long checksum = NO_CHECKSUM;
+    //Start and length (excluding the line break) of each option's line, -1 if there's no line or it isn't known
+    final long[] lineStarts;
+    final int[] lineLengths;
+    //Whether each option is present in the file (paged options are present without known lines)
+    final boolean[] present;
+    //Saved values of options modified in place: modification counts of options which count their modifications
+    //(see AbstractOption.getModificationCount()), string values of the rest
+    final long[] modificationCounts;
+    final String[] values;
+    //Options whose values differ from the file's ones (for example, because of conversion errors)
+    final BitSet stale = new BitSet();
+
+    OptionsFileState(int slots) {
+        lineStarts = new long[slots];
+        lineLengths = new int[slots];
+        present = new boolean[slots];
+        modificationCounts = new long[slots];
+        values = new String[slots];
+        Arrays.fill(lineStarts, -1);
+    }
+
+    /**
+     * Records the saved value of an option modified in place.
+     *
+     * @param modificationCount the option's modification count, taken before its string value, or {@code -1} if the
+     *                          option doesn't count its modifications.
+     * @param value the option's string value; only kept if the option doesn't count its modifications.
+     */
+    void recordValue(int slot, long modificationCount, String value) {
+        modificationCounts[slot] = modificationCount;
+        values[slot] = modificationCount < 0 ? value : null;
+    }
+
+    /**
+     * Returns {@code true} if an option modified in place has changed since its value was recorded.
+     */
+    boolean isValueChanged(int slot, AbstractOption option) {
+        final long modificationCount = option.getModificationCount();
+        if (modificationCount >= 0) return modificationCount != modificationCounts[slot];
+        return !Objects.equals(option.getStringValue(), values[slot]);
+    }
+
+    /**
+     * Records the current size, modification time and identity of the file.
+     *
+     * @throws NoSuchFileException if the file doesn't exist.
+     */
+    void recordFile(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        size = attributes.size();
+        modified = attributes.lastModifiedTime().toMillis();
+        fileKey = attributes.fileKey();
+        recorded = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the checksum of the file's contents.
+     *
+     * @param contents the file's contents, from the current position to the limit; the position is left unchanged.
+     */
+    void recordChecksum(ByteBuffer contents) {
+        final CRC32 crc = new CRC32();
+        crc.update(contents.duplicate());
+        checksum = crc.getValue();
+    }
+
+    /**
+     * Records the checksum of the file's contents, if the file hasn't changed since its state was recorded (otherwise,
+     * the checksum remains unknown).
+     */
+    void recordChecksum(Path file) throws IOException {
+        if (!matches(file)) return;
+        final long crc = computeChecksum(file);
+        if (matches(file)) checksum = crc;
+    }
+
+    /**
+     * Forgets the checksum of the file's contents, after the file has been changed.
+     */
+    void clearChecksum() {
+        checksum = NO_CHECKSUM;
+    }
+
+    private static long computeChecksum(Path file) throws IOException {
+        final CRC32 crc = new CRC32();
+        //The file is read rather than mapped, as it may be truncated by others in the meantime, which would crash
+        //the JVM while reading the mapping
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns {@code true} if contents of the file are the same as when its state was recorded. Usually, this only
+     * takes reading the file's attributes: the file is unchanged if they are the same, unless it was modified shortly
+     * before its state was recorded, and could have been modified again since without changing its modification time.
+     * Otherwise, or if the attributes differ (for example, if the file has been touched, or replaced with an identical
+     * copy), the checksum of the file's contents is compared with the recorded one, if it's known; if they are the
+     * same, the file's current attributes are recorded, so next time the file is checked by its attributes only.
+     */
+    boolean isUnchanged(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (matches(attributes) && recorded - modified >= RACY_INTERVAL) return true;
+            if (checksum == NO_CHECKSUM || attributes.size() != size) return false;
+
+            if (computeChecksum(file) != checksum) return false;
+            final long crc = checksum;
+            recordFile(file);
+            //Contents could have changed while computing the checksum
+            if (recorded - modified < RACY_INTERVAL && computeChecksum(file) != crc) return false;
+            checksum = crc;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the file seems to be unchanged since its state was recorded: its size, modification
+     * time and identity are the same. As files replaced by renaming others over them get new identities, replacing
+     * a file is noticed even if it happens within the resolution of modification times.
+     */
+    boolean matches(Path file) {
+        try {
+            return matches(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean matches(BasicFileAttributes attributes) {
+        return attributes.size() == size && attributes.lastModifiedTime().toMillis() == modified &&
+                Objects.equals(attributes.fileKey(), fileKey);
+    }
+
+    long getSize() {
+        return size;
+    }
+}
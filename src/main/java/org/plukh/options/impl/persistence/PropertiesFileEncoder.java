@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes lines of an options file into a byte buffer. Lines are collected first and their UTF-8 encoded length is
+ * computed beforehand, so the caller can provide a buffer large enough to hold the whole file, which is then encoded
+ * directly into it, without any intermediate strings or encoder buffers.
+ * <p/>
+ * Unpaired surrogate characters are encoded as "?", like {@link String#getBytes(java.nio.charset.Charset)} does.
+ * Encoders can be reused: {@link #clear()} forgets collected lines, keeping the arrays holding them.
+ */
+final class PropertiesFileEncoder {
+    static final String LINE_SEPARATOR = System.lineSeparator();
+
+    //Keys and values of lines; lines with null keys are written as is
+    private String[] keys = new String[64];
+    private String[] values = new String[64];
+    private int size;
+    private int length;
+
+    /**
+     * Adds a line written as is (for example, a comment).
+     */
+    void line(String text) {
+        add(null, text);
+    }
+
+    /**
+     * Adds a key/value line.
+     */
+    void line(String key, String value) {
+        add(key, value == null ? "" : value);
+    }
+
+    private void add(String key, String value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        ++size;
+
+        length += (key == null ? encodedLength(value) : lineLength(key, value)) + LINE_SEPARATOR.length();
+    }
+
+    /**
+     * Returns the number of bytes the collected lines are encoded into.
+     */
+    int getEncodedLength() {
+        return length;
+    }
+
+    /**
+     * Encodes the collected lines into a buffer, starting at its position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer's remaining space is smaller than
+     * {@link #getEncodedLength()}.
+     */
+    void encode(ByteBuffer buffer) {
+        for (int i = 0; i < size; ++i) {
+            if (keys[i] != null) encodeLine(keys[i], values[i], buffer);
+            else encode(values[i], buffer);
+            encode(LINE_SEPARATOR, buffer);
+        }
+    }
+
+    /**
+     * Returns the number of bytes a key/value line is encoded into, not counting the line separator.
+     */
+    static int lineLength(String key, String value) {
+        return encodedLength(key) + 1 + encodedLength(value);
+    }
+
+    /**
+     * Encodes a key/value line, without a line separator.
+     */
+    static void encodeLine(String key, String value, ByteBuffer buffer) {
+        encode(key, buffer);
+        buffer.put((byte) '=');
+        encode(value, buffer);
+    }
+
+    static void encodeLineSeparator(ByteBuffer buffer) {
+        encode(LINE_SEPARATOR, buffer);
+    }
+
+    void clear() {
+        //Don't keep strings of the options reachable
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        length = 0;
+    }
+
+    static int encodedLength(String s) {
+        int length = s.length();
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c < 0x80) continue;
+
+            if (c < 0x800) {
+                ++length;
+            } else if (isSurrogatePair(s, i)) {
+                //Four bytes for two chars
+                length += 2;
+                ++i;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    private static void encode(String s, ByteBuffer buffer) {
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (isSurrogatePair(s, i)) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static boolean isSurrogatePair(String s, int i) {
+        return Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1));
+    }
+}
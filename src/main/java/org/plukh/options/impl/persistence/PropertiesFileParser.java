@@ -0,0 +1,376 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parsers for options files in the format used by {@link PropertiesPersistenceProvider}. Each line holds a key and
+ * a value separated by the first "=" sign; both are trimmed (like {@link String#trim()} does), and empty lines and lines
+ * starting with "#" are ignored. Files are encoded in UTF-8.
+ * <p/>
+ * Parsers scan raw bytes - of a memory-mapped file (small files are read into memory instead), or of a stream read in
+ * chunks - looking keys up in a precomputed {@link KeyIndex} without creating any strings, and passing values of
+ * indexed keys straight to a {@link Sink}; lines with any other keys are skipped without allocating anything. Values
+ * consisting of ASCII characters only are copied as is; UTF-8 is only decoded for values containing other characters.
+ * Large files can also be scanned in parallel, in chunks split on line boundaries.
+ * <p/>
+ * Note that a memory-mapped file must not be truncated while it's scanned: accessing the truncated part of the mapping
+ * crashes the JVM rather than throwing an exception. Also, on some platforms (notably Windows) a memory-mapped file
+ * can't be modified or deleted until the mapping is garbage-collected. Files which may be modified in place should be
+ * read into memory instead (see {@link #read(Path, boolean)}).
+ */
+public final class PropertiesFileParser {
+    //Files smaller than this are read into memory rather than mapped
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    private static final byte COMMENT = '#';
+    private static final byte SEPARATOR = '=';
+    //Separates a paged option's key from the page's suffix
+    private static final byte PAGE_SEPARATOR = '#';
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    //Files are split into chunks of at least this size when read in parallel
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 256 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private PropertiesFileParser() {
+    }
+
+    /**
+     * Reads values of indexed keys from a file, passing them to a sink. Lines with any other keys are skipped.
+     *
+     * @param file file to read.
+     * @param index keys to read.
+     * @param sink sink receiving values.
+     * @throws IOException if the file can't be read.
+     */
+    public static void parse(Path file, KeyIndex index, Sink sink) throws IOException {
+        parse(read(file, true), index, sink);
+    }
+
+    /**
+     * Reads values of indexed keys from a buffer holding a file's contents, passing them to a sink. Lines with any
+     * other keys are skipped. The buffer's position is left unchanged.
+     *
+     * @param contents contents of the file, from the buffer's position to its limit.
+     * @param index keys to read.
+     * @param sink sink receiving values.
+     */
+    public static void parse(ByteBuffer contents, KeyIndex index, Sink sink) {
+        new LineScanner(index, sink).scan(contents, contents.position(), contents.limit(), true);
+    }
+
+    /**
+     * Reads values of indexed keys from a file in parallel, passing them to a sink. The file is split into chunks on
+     * line boundaries, and the chunks are scanned by tasks of a fork-join pool. The sink is only called from the
+     * calling thread, after all chunks have been scanned, with values in the same order as {@link #parse(Path,
+     * KeyIndex, Sink)} passes them.
+     *
+     * @param file file to read.
+     * @param index keys to read.
+     * @param sink sink receiving values.
+     * @param pool pool to scan chunks in.
+     * @throws IOException if the file can't be read.
+     */
+    public static void parse(Path file, KeyIndex index, Sink sink, ForkJoinPool pool) throws IOException {
+        parse(read(file, true), index, sink, pool);
+    }
+
+    /**
+     * Reads values of indexed keys from a buffer holding a file's contents in parallel, like {@link #parse(Path,
+     * KeyIndex, Sink, ForkJoinPool)} does. The buffer's position is left unchanged.
+     *
+     * @param buffer contents of the file, from the buffer's position to its limit.
+     * @param index keys to read.
+     * @param sink sink receiving values.
+     * @param pool pool to scan chunks in.
+     */
+    public static void parse(ByteBuffer buffer, KeyIndex index, Sink sink, ForkJoinPool pool) {
+        //Split the buffer into chunks - a few per thread, to balance the load - ending right after line breaks
+        final int start = buffer.position();
+        final int limit = buffer.limit();
+        final int chunkCount = Math.max(1, Math.min((limit - start) / MIN_PARALLEL_CHUNK_SIZE,
+                pool.getParallelism() * CHUNKS_PER_THREAD));
+        final List<ChunkTask> chunks = new ArrayList<>(chunkCount);
+        int chunkStart = start;
+        for (int i = 1; i <= chunkCount && chunkStart < limit; ++i) {
+            int chunkEnd = i == chunkCount ? limit : start + (int) ((long) (limit - start) * i / chunkCount);
+            chunkEnd = Math.max(chunkStart, chunkEnd);
+            while (chunkEnd < limit && buffer.get(chunkEnd) != '\n' && buffer.get(chunkEnd) != '\r') ++chunkEnd;
+            if (chunkEnd < limit) ++chunkEnd;
+
+            chunks.add(new ChunkTask(buffer, chunkStart, chunkEnd, index));
+            chunkStart = chunkEnd;
+        }
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+        });
+
+        //Replay values in the order of chunks, so later lines still override earlier ones
+        for (ChunkTask chunk : chunks) chunk.values.replay(sink);
+    }
+
+    /**
+     * Reads a file's contents into a buffer, to be parsed. Large files may be memory-mapped rather than read; smaller
+     * ones, and files of file systems not supporting mapping, are always read into memory.
+     *
+     * @param file file to read.
+     * @param map {@code true} to map large files; only safe if the file is never truncated while it's mapped (for
+     *            example, if it's only ever replaced by renaming another file over it).
+     * @return buffer holding the file's contents, from its position to its limit.
+     * @throws IOException if the file can't be read.
+     */
+    public static ByteBuffer read(Path file, boolean map) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File is too large: " + file);
+
+            if (map && size >= MAP_THRESHOLD) {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                } catch (UnsupportedOperationException e) {
+                    //File systems other than the default one may not support mapping files, read them instead
+                }
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //Keep reading
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads values of indexed keys from a stream, passing them to a sink. Lines with any other keys are skipped, and
+     * the stream is read in chunks, so memory used doesn't depend on the size of the stream (only on the length of its
+     * longest line). The stream is closed afterwards.
+     *
+     * @param in stream to read.
+     * @param index keys to read.
+     * @param sink sink receiving values.
+     * @throws IOException if the stream can't be read.
+     */
+    public static void parse(InputStream in, KeyIndex index, Sink sink) throws IOException {
+        final LineScanner scanner = new LineScanner(index, sink);
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        int length = 0;
+
+        try (InputStream input = in) {
+            int read;
+            while ((read = input.read(chunk, length, chunk.length - length)) >= 0) {
+                length += read;
+
+                //Scan complete lines, keeping the incomplete last one for the next chunk
+                final int consumed = scanner.scan(ByteBuffer.wrap(chunk, 0, length), 0, length, false);
+                System.arraycopy(chunk, consumed, chunk, 0, length - consumed);
+                length -= consumed;
+                scanner.base += consumed;
+
+                //Grow the chunk if a single line doesn't fit into it
+                if (length == chunk.length) chunk = Arrays.copyOf(chunk, chunk.length * 2);
+            }
+            scanner.scan(ByteBuffer.wrap(chunk, 0, length), 0, length, true);
+        }
+    }
+
+    /**
+     * Receives values read from an options file.
+     */
+    public interface Sink {
+        /**
+         * Called for a line with one of the indexed keys.
+         *
+         * @param slot slot of the key in the index.
+         * @param value trimmed value.
+         * @param lineStart position of the line's first byte in the file or stream.
+         * @param lineLength length of the line in bytes, not counting the line break.
+         */
+        void value(int slot, String value, long lineStart, int lineLength);
+
+        /**
+         * Called for a line with a page key of a paged option (the option's key followed by "#" and any suffix).
+         *
+         * @param slot slot of the option's key in the index.
+         * @param key full key of the line.
+         * @param value trimmed value.
+         */
+        void pageValue(int slot, String key, String value);
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final KeyIndex index;
+        private final ChunkValues values = new ChunkValues();
+
+        private ChunkTask(ByteBuffer buffer, int start, int end, KeyIndex index) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            //Absolute reads don't change the buffer's state, so the buffer is safely shared between tasks
+            new LineScanner(index, values).scan(buffer, start, end, true);
+        }
+    }
+
+    /**
+     * Values read from a chunk, in the order they were read.
+     */
+    private static final class ChunkValues implements Sink {
+        private int[] slots = new int[64];
+        //Full keys of page lines, null for values
+        private String[] keys = new String[64];
+        private String[] values = new String[64];
+        private long[] lineStarts = new long[64];
+        private int[] lineLengths = new int[64];
+        private int size;
+
+        @Override
+        public void value(int slot, String value, long lineStart, int lineLength) {
+            add(slot, null, value, lineStart, lineLength);
+        }
+
+        @Override
+        public void pageValue(int slot, String key, String value) {
+            add(slot, key, value, -1, 0);
+        }
+
+        private void add(int slot, String key, String value, long lineStart, int lineLength) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                lineStarts = Arrays.copyOf(lineStarts, size * 2);
+                lineLengths = Arrays.copyOf(lineLengths, size * 2);
+            }
+            slots[size] = slot;
+            keys[size] = key;
+            values[size] = value;
+            lineStarts[size] = lineStart;
+            lineLengths[size] = lineLength;
+            ++size;
+        }
+
+        private void replay(Sink sink) {
+            for (int i = 0; i < size; ++i) {
+                if (keys[i] == null) sink.value(slots[i], values[i], lineStarts[i], lineLengths[i]);
+                else sink.pageValue(slots[i], keys[i], values[i]);
+            }
+        }
+    }
+
+    private static final class LineScanner {
+        private final KeyIndex index;
+        private final Sink sink;
+        private byte[] value = new byte[256];
+        //Position of the buffer's first byte in the stream
+        private long base;
+
+        private LineScanner(KeyIndex index, Sink sink) {
+            this.index = index;
+            this.sink = sink;
+        }
+
+        /**
+         * Scans lines in a buffer.
+         *
+         * @param last {@code true} if the buffer ends with the last line, {@code false} if the last line can be
+         *             incomplete (and shouldn't be scanned).
+         * @return position of the first byte which wasn't scanned.
+         */
+        private int scan(ByteBuffer buffer, int start, int limit, boolean last) {
+            int p = start;
+            while (p < limit) {
+                //Find the end of the line
+                int end = p;
+                while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r') ++end;
+                if (end == limit && !last) return p;
+
+                scanLine(buffer, p, end);
+                p = end + 1;
+            }
+            return limit;
+        }
+
+        private void scanLine(ByteBuffer buffer, int lineStart, int end) {
+            int p = lineStart;
+            //Trim the line, skip empty lines and comments
+            while (p < end && (buffer.get(p) & 0xFF) <= ' ') ++p;
+            if (p == end || buffer.get(p) == COMMENT) return;
+
+            //Find the separator; lines without one are skipped
+            int separator = p;
+            while (separator < end && buffer.get(separator) != SEPARATOR) ++separator;
+            if (separator == end) return;
+
+            int keyEnd = separator;
+            while (keyEnd > p && (buffer.get(keyEnd - 1) & 0xFF) <= ' ') --keyEnd;
+
+            //Look up the key, or the paged option's key before the page separator
+            int pageSeparator = p;
+            while (pageSeparator < keyEnd && buffer.get(pageSeparator) != PAGE_SEPARATOR) ++pageSeparator;
+            final int slot = index.find(buffer, p, pageSeparator);
+            if (slot < 0 || pageSeparator < keyEnd && !index.isPaged(slot)) return;
+
+            int valueStart = separator + 1;
+            int valueEnd = end;
+            while (valueStart < valueEnd && (buffer.get(valueStart) & 0xFF) <= ' ') ++valueStart;
+            while (valueEnd > valueStart && (buffer.get(valueEnd - 1) & 0xFF) <= ' ') --valueEnd;
+
+            if (pageSeparator == keyEnd) {
+                sink.value(slot, decode(buffer, valueStart, valueEnd), base + lineStart, end - lineStart);
+            } else sink.pageValue(slot, decode(buffer, p, keyEnd), decode(buffer, valueStart, valueEnd));
+        }
+
+        private String decode(ByteBuffer buffer, int start, int end) {
+            //Copy the bytes, checking whether they're pure ASCII along the way
+            final int length = end - start;
+            if (length > value.length) value = new byte[Math.max(length, value.length * 2)];
+            boolean ascii = true;
+            for (int i = 0; i < length; ++i) {
+                final byte b = buffer.get(start + i);
+                value[i] = b;
+                if (b < 0) ascii = false;
+            }
+            return new String(value, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -17,19 +17,31 @@
 package org.plukh.options.impl.persistence;
 
 import org.plukh.options.*;
+import org.plukh.options.impl.collections.EncodedPages;
 import org.plukh.options.impl.options.AbstractOption;
+import org.plukh.options.impl.options.CollectionOption;
 
 import java.io.*;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * {@code PropertiesPersistenceProvider} uses {@code .properties} text files on a file system as a persistent backing
  * store for application-specific options. Each application-specific interface must use a different file; otherwise,
- * this provider's behavior is unpredictable and can result in properties file getting corrupted.
+ * this provider's behavior is unpredictable and can result in properties file getting corrupted. The same file can
+ * only be updated by several processes (or several providers) if all of them configure it as
+ * {@link FileConfig#setSharedFile(boolean) shared}.
  * <p/>
  * <b>Configuration:</b>
  * <p/>
@@ -54,6 +66,50 @@ import java.util.*;
  *  <li>whitespace handling is somewhat more lax; in particular, both keys and values will be trimmed before conversion.</li>
  * </ul>
  * <p/>
+ * Paged collection options (see {@link org.plukh.options.CollectionOption#pageSize()}) are stored page by page, each
+ * page on a separate line, preceded by an index line holding the number of elements and the page size:
+ * <pre>
+ * ids#index=2500:1024
+ * ids#0=...
+ * ids#1=...
+ * ids#2=...
+ * </pre>
+ * Loading such an option doesn't convert any of its elements; they're converted when their pages are accessed.
+ * Paged options stored as a single line are loaded as well.
+ * <p/>
+ * Options files are saved by encoding all of their lines into a direct buffer, reused between saves, and writing it
+ * with a single write to a file channel. The buffer only grows, so it stays as large as the largest file saved.
+ * <p/>
+ * When options proxies save options, only options changed since they were last loaded or saved are written (see
+ * {@link IncrementalPersistenceProvider}): positions of their lines, recorded when the file was loaded or saved, are
+ * used to overwrite them in place, or to rewrite the file from the first changed line if lengths of the lines change.
+ * Lines of unchanged options, comments and lines with unknown keys are left as is, and nothing is written at all if
+ * no option has changed. The file is rewritten as a whole if its size or modification time show it has been changed
+ * by anyone else, or if a paged option has changed. The header of the file holds no timestamp, so saving the same
+ * options always produces the same bytes.
+ * <p/>
+ * With {@link FileConfig#setAtomicSave(boolean) atomic saves}, the whole file is written to a temporary file next to
+ * it, {@code <filename>.tmp}, which is then renamed over the options file, so a crash leaves either the old or the new
+ * file. If the file is also {@link FileConfig#setSyncOnSave(boolean) forced to the storage device}, the temporary file
+ * is forced before it's renamed, and the directory after that. Directories are forced through a {@link SyncGroup}
+ * shared by all providers saving files in the same directory, so concurrent saves share syncs of it, unless
+ * {@link FileConfig#setGroupCommit(boolean) group commit} is disabled.
+ * <p/>
+ * {@link FileConfig#setBackupOnSave(boolean) Backed up} options files are replaced the same way, even if not saved
+ * atomically: a hard link to the file being replaced is taken before renaming the new one over it, so backing up
+ * copies nothing. Generations of backups are then rotated and compressed in the background by a
+ * {@link BackupRotator}; its errors are reported by the next save, which fails.
+ * <p/>
+ * {@link Options#reload(boolean) Reloading} options is skipped if neither the options file nor any of the options have
+ * changed since they were last loaded or saved (see {@link #isUpToDate(Collection, BitSet)}). The file's size,
+ * modification time and identity are recorded when it's loaded or saved, together with a CRC32 checksum of its
+ * contents, which is only compared if its attributes have changed or are too recent to be trusted.
+ * <p/>
+ * Options files of {@link FileConfig#getParallelLoadThreshold()} bytes or more are loaded in parallel: the file is
+ * split into chunks on line boundaries, which are parsed on a fork-join pool, and then values of the options are
+ * converted in parallel as well. The result is the same as of loading the file in a single thread: later lines override
+ * earlier ones, conversion errors are reported in the order of options, and no option is changed if there are any.
+ * <p/>
  * <b>Default configuration:</b>
  * <p/>
  * By default, the following configuration options are in effect for {@code PropertiesPersistenceProvider}:
@@ -63,16 +119,54 @@ import java.util.*;
  *     <li>options filename: fully-qualified class name of the interface to which this instance of persistence provider
  *     is attached, combined with {@code .properties} extension (for example,
  *     {@code com.company.project.MyOptions.properties});</li>
- *     <li>backup of options file is disabled.</li>
+ *     <li>backup of options file is disabled;</li>
+ *     <li>options file is overwritten in place rather than replaced atomically;</li>
+ *     <li>saved options file isn't forced to the storage device;</li>
+ *     <li>options files of {@link FileConfig#DEFAULT_PARALLEL_LOAD_THRESHOLD} bytes or more are loaded in parallel, in
+ *     the common fork-join pool.</li>
  * </ul>
  */
-public class PropertiesPersistenceProvider implements StreamPersistenceProvider {
+public class PropertiesPersistenceProvider implements StreamPersistenceProvider, IncrementalPersistenceProvider {
+    private static final String PAGE_SEPARATOR = "#";
+    private static final String PAGE_INDEX = "index";
+    private static final int MIN_SAVE_BUFFER_SIZE = 8192;
+    private static final long DUPLICATE_LINE = -2;
+    //Streams with values of this many options or more are converted in parallel
+    private static final int PARALLEL_CONVERSION_THRESHOLD = 16384;
+    //Number of options converted by a single task when converting in parallel
+    private static final int CONVERSION_TASK_SIZE = 512;
+    //Files can't be replaced on Windows while a mapping of them lingers, until it's garbage-collected
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
     private Class<? extends Options> optionsClass;
     private String path;
     private String filename;
     private boolean backupOnSave;
+    private long parallelLoadThreshold = FileConfig.DEFAULT_PARALLEL_LOAD_THRESHOLD;
+    private int loadParallelism;
+    //Pool loading large files, if a dedicated one is configured
+    private ForkJoinPool loadPool;
+    private boolean syncOnSave;
+    private boolean atomicSave;
+    private boolean groupCommit = true;
+    private boolean sharedFile;
+    private int backupGenerations = 1;
+    private boolean compressBackups;
+    //Rotator of backups of the current options file, created on first backup
+    private BackupRotator backupRotator;
+    private final PropertiesFileEncoder encoder = new PropertiesFileEncoder();
+    //Buffer options files are encoded into when saving, reused between saves
+    private ByteBuffer saveBuffer;
 
-    private File optionsFile;
+    private FileSystem fileSystem;
+    private Path optionsFile;
+    //Journals of journaled queue options, by option key
+    private final Map<String, QueueJournalFile> journals = new HashMap<>();
+    //Index of option keys, built once for the options being loaded
+    private AbstractOption[] indexedOptions;
+    private KeyIndex keyIndex;
+    //State of the options file as last loaded or saved, null if unknown
+    private OptionsFileState fileState;
 
     public PropertiesPersistenceProvider() {
     }
@@ -85,8 +179,18 @@ public class PropertiesPersistenceProvider implements StreamPersistenceProvider
 
     @Override
     public void configure(PersistenceConfig configuration) throws ProviderConfigurationException {
+        //Journals belong to the current options file
+        try {
+            detachJournals();
+        } catch (OptionsException e) {
+            throw new ProviderConfigurationException("Error closing journals of options file: " +
+                    optionsFile + ": " + e.getMessage());
+        }
+
         //Configure file-related parameters
         configureFileConfig(configuration);
+        fileState = null;
+        backupRotator = null;
 
         //Set up path using defaults, if necessary
         setupOptionsFile();
@@ -97,199 +201,1101 @@ public class PropertiesPersistenceProvider implements StreamPersistenceProvider
             FileConfig fileConfig = (FileConfig) configuration;
             path = fileConfig.getPath();
             filename = fileConfig.getFilename();
+            fileSystem = fileConfig.getFileSystem();
             backupOnSave = fileConfig.isBackupOnSave();
+            backupGenerations = fileConfig.getBackupGenerations();
+            compressBackups = fileConfig.isCompressBackups();
+            syncOnSave = fileConfig.isSyncOnSave();
+            atomicSave = fileConfig.isAtomicSave();
+            groupCommit = fileConfig.isGroupCommit();
+            sharedFile = fileConfig.isSharedFile();
+            parallelLoadThreshold = fileConfig.getParallelLoadThreshold();
+            setLoadParallelism(fileConfig.getLoadParallelism());
         } else {
             if (!configuration.getClass().equals(PersistenceConfig.class))
                 throw new ProviderConfigurationException("Use instances of PersistenceConfig or FileConfig to" +
                     "configure PropertiesPersistenceProvider");
             path = null;
             filename = null;
+            fileSystem = null;
             backupOnSave = false;
+            backupGenerations = 1;
+            compressBackups = false;
+            syncOnSave = false;
+            atomicSave = false;
+            groupCommit = true;
+            sharedFile = false;
+            parallelLoadThreshold = FileConfig.DEFAULT_PARALLEL_LOAD_THRESHOLD;
+            setLoadParallelism(0);
             optionsFile = null;
         }
     }
 
+    private void setLoadParallelism(int parallelism) {
+        if (parallelism == loadParallelism) return;
+
+        if (loadPool != null) loadPool.shutdown();
+        loadPool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+        loadParallelism = parallelism;
+    }
+
+    private ForkJoinPool getLoadPool() {
+        return loadPool != null ? loadPool : ForkJoinPool.commonPool();
+    }
+
     @Override
     public void save(Collection<AbstractOption> options, boolean nonDefaultOnly) throws OptionsException {
-        //See if the target file already exists
-        if (optionsFile.exists() && optionsFile.isFile()) {
-            if (backupOnSave) {
-                try {
-                    Files.copy(optionsFile.toPath(), Paths.get(optionsFile.getAbsolutePath() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+        save(options, null, nonDefaultOnly);
+    }
 
-                } catch (IOException e) {
-                    throw new OptionsException("Error making backup copy of options file: " +
-                            optionsFile.getAbsolutePath(), e);
-                }
+    /**
+     * Saves options which have changed since the options file was last loaded or saved by this provider, patching
+     * their lines and leaving the rest of the file as is; nothing is written at all if no option has changed. The whole
+     * file is rewritten instead if it has been modified by anyone else since, or if any of the changed options is
+     * stored page by page. If options files are saved atomically or backed up, changed lines are patched in a copy of
+     * the file, which then replaces it.
+     */
+    @Override
+    public void save(Collection<AbstractOption> options, BitSet changed, boolean nonDefaultOnly)
+            throws OptionsException {
+        //Backups are rotated in the background, report their errors with the next save
+        if (backupRotator != null) {
+            final IOException failure = backupRotator.takeFailure();
+            if (failure != null) {
+                throw new OptionsException("Error making backup copy of options file: " +
+                        optionsFile, failure);
             }
-        } else {
+        }
+
+        if (!Files.isRegularFile(optionsFile)) {
             //See if the target directory already exists
-            if (!optionsFile.getParentFile().isDirectory()) {
+            final Path directory = optionsFile.getParent();
+            if (!Files.isDirectory(directory)) {
                 //See if the file object with the correct name exists, but is not a directory
-                if (optionsFile.getParentFile().exists())
-                    throw new OptionsException("Target file exists, but is not a directory: " + optionsFile.getParent());
+                if (Files.exists(directory))
+                    throw new OptionsException("Target file exists, but is not a directory: " + directory);
                 //Create a target directory
-                if (!optionsFile.getParentFile().mkdirs()) throw new OptionsException("Unable to create target directory");
+                try {
+                    Files.createDirectories(directory);
+                } catch (IOException e) {
+                    throw new OptionsException("Unable to create target directory", e);
+                }
             }
         }
 
-        //Create an output stream
-        OutputStream out;
-        try {
-            out = new FileOutputStream(optionsFile);
-        } catch (FileNotFoundException e) {
-            throw new OptionsException("Unable to open options file " + optionsFile.getAbsolutePath() + " for writing", e);
+        //Values of journaled options are kept in their journals rather than in the options file
+        attachJournals(options, false, false);
+
+        getKeyIndex(options);
+        if (sharedFile) {
+            saveSharedFile(changed, nonDefaultOnly);
+            return;
+        }
+        if (changed != null && fileState != null && fileState.matches(optionsFile)) {
+            final List<LineChange> changes = findChangedLines(changed, nonDefaultOnly);
+            if (changes != null) {
+                if (changes.isEmpty()) return;
+
+                patchOptionsFile(changes);
+                return;
+            }
         }
 
-        //Save options
-        saveToStream(out, options, nonDefaultOnly);
+        if (isReplacingOptionsFile()) {
+            replaceOptionsFile(nonDefaultOnly);
+        } else {
+            writeOptionsFile(nonDefaultOnly);
+        }
     }
 
-    public void saveToStream(OutputStream out, Collection<AbstractOption> options, boolean nonDefaultOnly)
-            throws OptionsException {
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF8")));
+    /**
+     * Returns {@code true} if saved options files replace existing ones rather than overwrite them: when saving
+     * atomically, when backing up, so the replaced file becomes the backup as is, and when sharing the file with other
+     * processes, so they never read a partially written file.
+     */
+    private boolean isReplacingOptionsFile() {
+        return atomicSave || backupOnSave || sharedFile;
+    }
+
+    /**
+     * Reads the options file's contents to be parsed. The file is only memory-mapped if it's always replaced by
+     * renaming another file over it, as it's truncated in place otherwise, and truncating a mapped file crashes the
+     * JVM. Files aren't mapped on Windows, where they couldn't be replaced while a mapping of them lingers.
+     */
+    private ByteBuffer readOptionsFile() throws IOException {
+        return PropertiesFileParser.read(optionsFile, isReplacingOptionsFile() && !WINDOWS);
+    }
+
+    private void writeOptionsFile(boolean nonDefaultOnly) throws OptionsException {
+        final OptionsFileState state = encodeOptionsFile(nonDefaultOnly);
+
+        fileState = null;
+        try (FileChannel channel = FileChannel.open(optionsFile, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (saveBuffer.hasRemaining()) channel.write(saveBuffer);
+            if (syncOnSave) channel.force(true);
+        } catch (IOException e) {
+            throw new OptionsException("Error saving options to file: " + optionsFile, e);
+        }
+        recordFileState(state);
+    }
+
+    /**
+     * Writes the whole options file to a temporary file, then renames it over the options file.
+     */
+    private void replaceOptionsFile(boolean nonDefaultOnly) throws OptionsException {
+        final OptionsFileState state = encodeOptionsFile(nonDefaultOnly);
 
+        fileState = null;
+        Path temp = null;
         try {
-            writer.write("# [" + optionsClass.getSimpleName() + "]" + ", modified on " + new Date());
-            writer.newLine();
+            temp = createTempFile();
+            writeEncodedFile(temp);
+            commitOptionsFile(temp);
+        } catch (IOException e) {
+            deleteTempFile(temp);
+            throw new OptionsException("Error saving options to file: " + optionsFile, e);
+        }
+        recordFileState(state);
+    }
+
+    /**
+     * Writes the options file encoded into the save buffer to a file other than the options file.
+     */
+    private void writeEncodedFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (saveBuffer.hasRemaining()) channel.write(saveBuffer);
+            if (syncOnSave) channel.force(true);
+        }
+    }
+
+    /**
+     * Creates a temporary file next to the options file, to be renamed over it. Each save gets a file of its own, so
+     * writers sharing the options file never overwrite each other's temporary files.
+     */
+    private Path createTempFile() throws IOException {
+        return Files.createTempFile(optionsFile.toAbsolutePath().getParent(), optionsFile.getFileName() + "-", ".tmp");
+    }
+
+    private Path getLockFile() {
+        return getSiblingFile(".lock");
+    }
+
+    /**
+     * Returns a file next to the options file, named after it.
+     */
+    private Path getSiblingFile(String suffix) {
+        return optionsFile.resolveSibling(optionsFile.getFileName() + suffix);
+    }
 
-            for (AbstractOption option : options) {
-                //Transient options should be skipped outright
-                if (option.isTransient()) continue;
+    /**
+     * Saves an options file shared with other processes. The file is patched (or rewritten, see
+     * {@link #save(Collection, BitSet, boolean)}) in a temporary file without holding any locks; the file is then
+     * locked, and if it hasn't been replaced by anyone else since it was last loaded or saved by this provider, the
+     * temporary file is renamed over it. Otherwise, the other writer's version of the file is read, and changed lines
+     * are patched in it instead, so only options changed by this provider are overwritten. Files rewritten as a whole
+     * (for example, because a paged option has changed) replace other writers' versions, though.
+     */
+    @SuppressWarnings("try")
+    private void saveSharedFile(BitSet changed, boolean nonDefaultOnly) throws OptionsException {
+        List<LineChange> changes = changed != null && fileState != null ?
+                findChangedLines(changed, nonDefaultOnly) : null;
+        if (changes != null && changes.isEmpty()) return;
 
-                final String value = option.getStringValue();
+        Path temp = null;
+        try {
+            temp = createTempFile();
+            while (true) {
+                OptionsFileState state = fileState;
+                fileState = null;
+                if (changes != null) {
+                    writePatchedCopy(temp, changes, state, prepareLineChanges(changes, state));
+                } else {
+                    //A state without a recorded file never matches, the file is replaced unconditionally
+                    state = encodeOptionsFile(nonDefaultOnly);
+                    writeEncodedFile(temp);
+                }
 
-                //If non-default only flag is true, and option has a default value set, see if we should persist it
-                if (nonDefaultOnly && option.isDefaultValueSet()) {
-                    final String defaultValue = option.getDefaultValue();
-                    if (defaultValue == null && value == null) continue;
-                    if (defaultValue == null) continue;
-                    if (defaultValue.equals(value)) continue;
+                try (OptionsFileLock ignored = OptionsFileLock.acquire(getLockFile(), false)) {
+                    if (changes == null || state.matches(optionsFile)) {
+                        commitOptionsFile(temp);
+                        if (changes != null) recordLineChanges(changes, state);
+                        else recordFileState(state);
+                        return;
+                    }
                 }
 
-                writer.write(option.getKey() + "=" + (value == null ? "" : value));
-                writer.newLine();
+                //The file has been replaced by another writer, apply changes to their version
+                fileState = readSharedFileState();
+                changes = rebaseLineChanges(changes, fileState);
+            }
+        } catch (IOException e) {
+            deleteTempFile(temp);
+            throw new OptionsException("Error saving options to file: " + optionsFile, e);
+        }
+    }
+
+    /**
+     * Reads positions of options' lines in the options file, without changing options.
+     *
+     * @return the state of the file, or {@code null} if it doesn't exist.
+     */
+    @SuppressWarnings("try")
+    private OptionsFileState readSharedFileState() throws IOException {
+        final LoadedValues values = new LoadedValues(keyIndex, new OptionsFileState(indexedOptions.length));
+        try (OptionsFileLock ignored = OptionsFileLock.acquire(getLockFile(), true)) {
+            values.fileState.recordFile(optionsFile);
+            PropertiesFileParser.parse(readOptionsFile(), keyIndex, values);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        final OptionsFileState state = values.fileState;
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            final AbstractOption option = indexedOptions[slot];
+            state.present[slot] = values.values[slot] != null ||
+                    values.pageLines.containsKey(option.getKey() + PAGE_SEPARATOR + PAGE_INDEX);
+            if (values.lineStarts[slot] >= 0) {
+                state.lineStarts[slot] = values.lineStarts[slot];
+                state.lineLengths[slot] = values.lineLengths[slot];
+            }
+            //Values written by others are left as they are unless changed by this provider
+            if (option.isModifiedInPlace() && !option.isTransient() && !isJournaled(option)) {
+                final long modificationCount = option.getModificationCount();
+                state.recordValue(slot, modificationCount, modificationCount < 0 ? option.getStringValue() : null);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Rebases changes of lines onto another state of the options file.
+     *
+     * @return changes of lines of the file, or {@code null} if the file has to be rewritten as a whole.
+     */
+    private static List<LineChange> rebaseLineChanges(List<LineChange> changes, OptionsFileState state) {
+        if (state == null) return null;
+
+        final List<LineChange> rebased = new ArrayList<>(changes.size());
+        for (LineChange change : changes) {
+            if (state.present[change.slot] && state.lineStarts[change.slot] < 0) return null;
+            //Lines already removed by others
+            if (change.value == null && !state.present[change.slot]) continue;
+            rebased.add(change);
+        }
+        return rebased;
+    }
+
+    /**
+     * Renames a fully written temporary file over the options file, backing up the file being replaced.
+     */
+    private void commitOptionsFile(Path temp) throws IOException {
+        final Path file = optionsFile;
+        final Path snapshot = backupOnSave ? getBackupRotator().snapshot(file) : null;
+        try {
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
             }
         } catch (IOException e) {
-            throw new OptionsException("Error saving options to file: " + optionsFile.getAbsolutePath(), e);
+            if (snapshot != null) deleteTempFile(snapshot);
+            throw e;
+        }
+        if (syncOnSave) syncDirectory(file.getParent());
+        if (snapshot != null) backupRotator.rotate(snapshot);
+    }
+
+    private BackupRotator getBackupRotator() {
+        if (backupRotator == null) {
+            backupRotator = new BackupRotator(getSiblingFile(".bak"), backupGenerations,
+                    compressBackups, sharedFile ? getLockFile() : null);
+        }
+        return backupRotator;
+    }
+
+    private static void deleteTempFile(Path temp) {
+        if (temp == null) return;
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            //Nothing more can be done about it
+        }
+    }
+
+    /**
+     * Encodes the whole options file into the save buffer, ready to be written at once.
+     */
+    private OptionsFileState encodeOptionsFile(boolean nonDefaultOnly) {
+        final OptionsFileState state = new OptionsFileState(indexedOptions.length);
+        encodeOptions(Arrays.asList(indexedOptions), nonDefaultOnly, state);
+        try {
+            final int length = encoder.getEncodedLength();
+            if (saveBuffer == null || saveBuffer.capacity() < length) {
+                saveBuffer = ByteBuffer.allocateDirect(Math.max(length + length / 4, MIN_SAVE_BUFFER_SIZE));
+            }
+            saveBuffer.clear();
+            encoder.encode(saveBuffer);
+            saveBuffer.flip();
+            state.recordChecksum(saveBuffer);
         } finally {
+            encoder.clear();
+        }
+        return state;
+    }
+
+    private void syncDirectory(Path directory) throws IOException {
+        if (groupCommit) {
+            SyncGroup.forDirectory(directory).sync();
+        } else {
+            SyncGroup.syncDirectory(directory);
+        }
+    }
+
+    private void recordFileState(OptionsFileState state) {
+        try {
+            state.recordFile(optionsFile);
+            fileState = state;
+        } catch (IOException e) {
+            //The file will be rewritten as a whole next time
+            fileState = null;
+        }
+    }
+
+    /**
+     * Finds lines of the options file which have to be changed, added or removed to save options.
+     *
+     * @return changes of lines, or {@code null} if the file has to be rewritten as a whole.
+     */
+    private List<LineChange> findChangedLines(BitSet changed, boolean nonDefaultOnly) {
+        final List<LineChange> changes = new ArrayList<>();
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            final AbstractOption option = indexedOptions[slot];
+            if (option.isTransient() || isJournaled(option)) continue;
+
+            //Options missing from the file are loaded with their default values, so there's no need to add lines
+            //for unchanged options when saving all of them, or to remove them when saving non-default ones only
+            if (!changed.get(slot) && !fileState.stale.get(slot) &&
+                    !(option.isModifiedInPlace() && fileState.isValueChanged(slot, option))) continue;
+
+            //Only single lines can be patched
+            if (isPaged(option) || fileState.present[slot] && fileState.lineStarts[slot] < 0) return null;
+
+            //Modifications made while the value is being converted are saved next time
+            final long modificationCount = option.getModificationCount();
+            final String value = option.getStringValue();
+            final boolean saved = isSaved(option, value, nonDefaultOnly);
+            if (saved || fileState.present[slot]) {
+                changes.add(new LineChange(slot, option.getKey(), saved ? (value == null ? "" : value) : null,
+                        modificationCount));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Patches lines of the options file. If all changed lines keep their lengths, they are overwritten in place;
+     * otherwise, the file is rewritten starting from the first changed line. Removed lines are cut out of the file,
+     * and added ones are appended to it. If the options file is to be replaced rather than overwritten, the lines are
+     * patched in a copy of it.
+     */
+    private void patchOptionsFile(List<LineChange> changes) throws OptionsException {
+        final OptionsFileState state = fileState;
+        fileState = null;
+        final boolean inPlace = prepareLineChanges(changes, state);
+
+        if (isReplacingOptionsFile()) {
+            Path temp = null;
             try {
-                writer.close();
+                temp = createTempFile();
+                writePatchedCopy(temp, changes, state, inPlace);
+                commitOptionsFile(temp);
+            } catch (IOException e) {
+                deleteTempFile(temp);
+                throw new OptionsException("Error saving options to file: " + optionsFile, e);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(optionsFile, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                applyLineChanges(channel, changes, state, inPlace);
+                if (syncOnSave) channel.force(true);
+            } catch (IOException e) {
+                throw new OptionsException("Error saving options to file: " + optionsFile, e);
+            }
+        }
+
+        recordLineChanges(changes, state);
+    }
+
+    /**
+     * Sorts changes of lines in the order of their position in the file, followed by added ones, and computes lengths
+     * of changed lines.
+     *
+     * @return {@code true} if all changed lines keep their lengths, so they can be overwritten in place.
+     */
+    private static boolean prepareLineChanges(List<LineChange> changes, OptionsFileState state) {
+        changes.sort((c1, c2) -> {
+            final long start1 = state.lineStarts[c1.slot];
+            final long start2 = state.lineStarts[c2.slot];
+            if (start1 < 0 || start2 < 0) return start1 < 0 ? (start2 < 0 ? 0 : 1) : -1;
+            return Long.compare(start1, start2);
+        });
+
+        boolean inPlace = true;
+        for (LineChange change : changes) {
+            change.length = change.value == null ? 0 : PropertiesFileEncoder.lineLength(change.key, change.value);
+            if (change.value == null || state.lineStarts[change.slot] < 0 ||
+                    change.length != state.lineLengths[change.slot]) inPlace = false;
+        }
+        return inPlace;
+    }
+
+    /**
+     * Copies the options file to a temporary file, patching lines in the copy.
+     */
+    private void writePatchedCopy(Path temp, List<LineChange> changes, OptionsFileState state, boolean inPlace)
+            throws IOException {
+        try (FileChannel source = FileChannel.open(optionsFile, StandardOpenOption.READ);
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = source.size();
+            for (long position = 0; position < size; ) {
+                position += source.transferTo(position, size - position, channel);
+            }
+            applyLineChanges(channel, changes, state, inPlace);
+            if (syncOnSave) channel.force(true);
+        }
+    }
+
+    /**
+     * Records the state of the options file after patching its lines.
+     */
+    private void recordLineChanges(List<LineChange> changes, OptionsFileState state) {
+        for (LineChange change : changes) {
+            if (indexedOptions[change.slot].isModifiedInPlace()) {
+                state.recordValue(change.slot, change.modificationCount, change.value);
+            }
+        }
+        state.stale.clear();
+        state.clearChecksum();
+        recordFileState(state);
+        if (fileState != null) {
+            try {
+                //The patched file has just been written, so it's read from the cache
+                fileState.recordChecksum(optionsFile);
+            } catch (IOException e) {
+                //The file will be reloaded if its attributes change
+            }
+        }
+    }
+
+    private void applyLineChanges(FileChannel channel, List<LineChange> changes, OptionsFileState state,
+                                  boolean inPlace) throws IOException {
+        if (inPlace) {
+            for (LineChange change : changes) {
+                final ByteBuffer line = ByteBuffer.allocate(change.length);
+                PropertiesFileEncoder.encodeLine(change.key, change.value, line);
+                line.flip();
+                long position = state.lineStarts[change.slot];
+                while (line.hasRemaining()) position += channel.write(line, position);
+            }
+        } else {
+            spliceOptionsFile(channel, changes, state);
+        }
+    }
+
+    /**
+     * Rewrites the options file starting from its first changed line, updating positions of lines in the state.
+     */
+    private void spliceOptionsFile(FileChannel channel, List<LineChange> changes, OptionsFileState state)
+            throws IOException {
+        final long size = state.getSize();
+        final long firstStart = state.lineStarts[changes.get(0).slot];
+        final long first = firstStart >= 0 ? firstStart : size;
+        if (size - first > Integer.MAX_VALUE) throw new IOException("Options file is too large to patch");
+
+        //Read the rest of the file
+        final ByteBuffer tail = ByteBuffer.allocate((int) (size - first));
+        while (tail.hasRemaining() && channel.read(tail, first + tail.position()) >= 0) {
+            //Keep reading
+        }
+        if (tail.hasRemaining()) throw new IOException("Options file has been truncated");
+
+        final int separatorLength = PropertiesFileEncoder.LINE_SEPARATOR.length();
+        int capacity = tail.capacity() + separatorLength;
+        for (LineChange change : changes) capacity += change.length + separatorLength;
+        final ByteBuffer out = ByteBuffer.allocate(capacity);
+
+        //Old positions of changed lines, and how much lines following each of them are shifted by
+        final long[] changeStarts = new long[changes.size()];
+        final long[] shifts = new long[changes.size()];
+        final BitSet changedSlots = new BitSet();
+        int changeCount = 0;
+
+        int p = 0;
+        for (LineChange change : changes) {
+            changedSlots.set(change.slot);
+            final long start = state.lineStarts[change.slot];
+            if (start < 0) continue;
+
+            //Copy lines preceding the changed one as is
+            final int lineStart = (int) (start - first);
+            out.put(tail.array(), p, lineStart - p);
+            p = lineStart + state.lineLengths[change.slot];
+
+            if (change.value != null) {
+                state.lineStarts[change.slot] = first + out.position();
+                state.lineLengths[change.slot] = change.length;
+                PropertiesFileEncoder.encodeLine(change.key, change.value, out);
+            } else {
+                //Cut out the line break as well
+                if (p < tail.capacity() && tail.get(p) == '\r') ++p;
+                if (p < tail.capacity() && tail.get(p) == '\n') ++p;
+                state.lineStarts[change.slot] = -1;
+                state.present[change.slot] = false;
+            }
+            changeStarts[changeCount] = start;
+            shifts[changeCount++] = out.position() - p;
+        }
+        out.put(tail.array(), p, tail.capacity() - p);
+
+        //Append added lines, making sure the last line of the file is terminated first
+        boolean terminated;
+        if (out.position() > 0) {
+            terminated = isLineBreak(out.get(out.position() - 1));
+        } else if (first > 0) {
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, first - 1);
+            terminated = isLineBreak(last.get(0));
+        } else {
+            terminated = true;
+        }
+        for (LineChange change : changes) {
+            if (state.lineStarts[change.slot] >= 0 || change.value == null) continue;
+
+            if (!terminated) PropertiesFileEncoder.encodeLineSeparator(out);
+            terminated = true;
+            state.lineStarts[change.slot] = first + out.position();
+            state.lineLengths[change.slot] = change.length;
+            state.present[change.slot] = true;
+            PropertiesFileEncoder.encodeLine(change.key, change.value, out);
+            PropertiesFileEncoder.encodeLineSeparator(out);
+        }
+
+        out.flip();
+        long position = first;
+        while (out.hasRemaining()) position += channel.write(out, position);
+        channel.truncate(position);
+
+        //Shift lines following changed ones
+        for (int slot = 0; slot < state.lineStarts.length; ++slot) {
+            final long start = state.lineStarts[slot];
+            if (start < first || changedSlots.get(slot)) continue;
+
+            //Find the last changed line preceding this one
+            int i = Arrays.binarySearch(changeStarts, 0, changeCount, start);
+            i = i < 0 ? -i - 2 : i;
+            if (i >= 0) state.lineStarts[slot] = start + shifts[i];
+        }
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * A line of the options file to be changed: replaced, removed (if the value is {@code null}) or added (if the
+     * option doesn't have a line yet).
+     */
+    private static final class LineChange {
+        private final int slot;
+        private final String key;
+        private final String value;
+        //Modification count of the option when its value was taken
+        private final long modificationCount;
+        //Encoded length of the new line
+        private int length;
+
+        private LineChange(int slot, String key, String value, long modificationCount) {
+            this.slot = slot;
+            this.key = key;
+            this.value = value;
+            this.modificationCount = modificationCount;
+        }
+    }
+
+    public void saveToStream(OutputStream out, Collection<AbstractOption> options, boolean nonDefaultOnly)
+            throws OptionsException {
+        final byte[] bytes;
+        encodeOptions(options, nonDefaultOnly, null);
+        try {
+            final ByteBuffer buffer = ByteBuffer.allocate(encoder.getEncodedLength());
+            encoder.encode(buffer);
+            bytes = buffer.array();
+        } finally {
+            encoder.clear();
+        }
+
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new OptionsException("Error saving options to file: " + optionsFile, e);
+        } finally {
+            try {
+                out.close();
             } catch (IOException e) {
                 //noinspection ThrowFromFinallyBlock
-                throw new OptionsException("Error closing options file: " + optionsFile.getAbsolutePath(), e);
+                throw new OptionsException("Error closing options file: " + optionsFile, e);
             }
         }
     }
 
+    /**
+     * Collects lines of the options file in the encoder.
+     *
+     * @param state state to record positions of lines and saved values in, {@code null} if they aren't needed; options
+     *              must be the indexed ones in this case.
+     */
+    private void encodeOptions(Collection<AbstractOption> options, boolean nonDefaultOnly, OptionsFileState state) {
+        encoder.line("# [" + optionsClass.getSimpleName() + "]");
+
+        int slot = -1;
+        for (AbstractOption option : options) {
+            ++slot;
+            //Transient and journaled options should be skipped outright
+            if (option.isTransient() || isJournaled(option)) continue;
+
+            final long modificationCount = option.getModificationCount();
+            final String value = option.getStringValue();
+            if (state != null && option.isModifiedInPlace()) state.recordValue(slot, modificationCount, value);
+            if (!isSaved(option, value, nonDefaultOnly)) continue;
+
+            if (state != null) state.present[slot] = true;
+            if (isPaged(option)) {
+                encodePages(option.getKey(), ((CollectionOption) option).getEncodedPages());
+                continue;
+            }
+
+            if (state != null) {
+                state.lineStarts[slot] = encoder.getEncodedLength();
+                state.lineLengths[slot] = PropertiesFileEncoder.lineLength(option.getKey(), value == null ? "" : value);
+            }
+            encoder.line(option.getKey(), value);
+        }
+    }
+
+    private static boolean isSaved(AbstractOption option, String value, boolean nonDefaultOnly) {
+        //If non-default only flag is true, and option has a default value set, see if we should persist it
+        if (nonDefaultOnly && option.isDefaultValueSet()) {
+            final String defaultValue = option.getDefaultValue();
+            if (defaultValue == null && value == null) return false;
+            if (defaultValue == null) return false;
+            if (defaultValue.equals(value)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Loads options from the options file, then replays journals of journaled queue options (see
+     * {@link org.plukh.options.CollectionOption#journaled()}). Journals are stored next to the options file, named
+     * after the file and the option's key (for example, {@code MyOptions.properties.retries.journal}), and compacted
+     * in the background after having been replayed.
+     */
     @Override
     public boolean load(Collection<AbstractOption> options, boolean suppressConversionErrors) throws OptionsException {
-        InputStream in;
+        //Loading values into journaled options must not be journaled
+        detachJournals();
+
+        boolean loaded = false;
+        boolean replay = false;
+        fileState = null;
         try {
-            in = new FileInputStream(optionsFile);
-            loadFromStream(in, options, suppressConversionErrors);
-        } catch (FileNotFoundException e) {
-            return false;
+            final boolean parallel = getOptionsFileSize() >= parallelLoadThreshold;
+            final LoadedValues values = loadValuesFromFile(options, parallel);
+            if (values != null) {
+                loadValues(values, parallel, suppressConversionErrors);
+                fileState = values.fileState;
+                loaded = true;
+            }
+            //Journals can still be present if the options file isn't
+            replay = true;
+        } finally {
+            attachJournals(options, replay, suppressConversionErrors);
         }
 
-        return true;
+        return loaded;
+    }
+
+    /**
+     * Checks whether the options file is unchanged since options were last loaded or saved, and none of the options
+     * have changed either. Usually, this only takes reading the file's attributes; if they have changed, but the
+     * file's contents haven't (for example, if the file has been touched), the file's checksum is compared with the
+     * one recorded when it was loaded or saved as a whole. Options files which failed to convert are never up to date,
+     * so reloading them reports the errors again.
+     * <p/>
+     * Options modified in place are checked by their modification counts, if they keep them; only the rest (such as
+     * counters) are converted to strings. Journaled queues aren't checked, as they are kept in their journals.
+     */
+    @Override
+    public boolean isUpToDate(Collection<AbstractOption> options, BitSet changed) {
+        if (fileState == null || !changed.isEmpty() || !fileState.stale.isEmpty() || !isIndexed(options)) return false;
+
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            final AbstractOption option = indexedOptions[slot];
+            //Journaled options are kept in their journals rather than in the options file
+            if (option.isModifiedInPlace() && !option.isTransient() && !isJournaled(option) &&
+                    fileState.isValueChanged(slot, option)) return false;
+        }
+        return fileState.isUnchanged(optionsFile);
+    }
+
+    private long getOptionsFileSize() {
+        try {
+            return Files.size(optionsFile);
+        } catch (IOException e) {
+            //Missing files are loaded in a single thread, reporting errors of reading the file
+            return 0;
+        }
+    }
+
+    private void encodePages(String key, EncodedPages pages) {
+        encoder.line(key + PAGE_SEPARATOR + PAGE_INDEX, pages.getSize() + ":" + pages.getPageSize());
+        for (int i = 0; i < pages.getPageCount(); ++i) encoder.line(key + PAGE_SEPARATOR + i, pages.getPage(i));
+    }
+
+    /**
+     * Reads pages of a paged option from properties, if the option is stored page by page.
+     *
+     * @return pages of the option, or {@code null} if the option isn't stored page by page.
+     * @throws ParseException if the index is malformed or any of the pages is missing.
+     */
+    private static EncodedPages readPages(String key, Map<String, String> properties) throws ParseException {
+        final String index = properties.get(key + PAGE_SEPARATOR + PAGE_INDEX);
+        if (index == null) return null;
+
+        try {
+            final int p = index.indexOf(':');
+            final int size = Integer.parseInt(index.substring(0, p));
+            final int pageSize = Integer.parseInt(index.substring(p + 1));
+            if (size < 0 || pageSize < 1) throw new ParseException("Invalid page index for key " + key + ": " + index);
+
+            final List<String> pages = new ArrayList<>();
+            for (int i = 0; i < (size + pageSize - 1) / pageSize; ++i) {
+                final String page = properties.get(key + PAGE_SEPARATOR + i);
+                if (page == null) throw new ParseException("Page " + i + " is missing for key " + key);
+                pages.add(page);
+            }
+            return new EncodedPages(size, pageSize, pages);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ParseException("Invalid page index for key " + key + ": " + index, e);
+        }
+    }
+
+    private static boolean isPaged(AbstractOption option) {
+        return option instanceof CollectionOption && ((CollectionOption) option).isPaged();
+    }
+
+    private static boolean isJournaled(AbstractOption option) {
+        return option instanceof CollectionOption && ((CollectionOption) option).isJournaled() && !option.isTransient();
+    }
+
+    /**
+     * Attaches journals to journaled options which don't have one attached yet.
+     *
+     * @param replay {@code true} to replay existing journals (compacting them in the background afterwards),
+     *               {@code false} to overwrite them with the current contents of the queues.
+     */
+    private void attachJournals(Collection<AbstractOption> options, boolean replay, boolean suppressConversionErrors)
+            throws OptionsException {
+        for (AbstractOption option : options) {
+            if (!isJournaled(option) || journals.containsKey(option.getKey())) continue;
+
+            final QueueJournalFile journal = new QueueJournalFile(getJournalFile(option.getKey()), (CollectionOption) option);
+            if (replay) journal.replay(suppressConversionErrors);
+            journal.attach(replay);
+            journals.put(option.getKey(), journal);
+        }
+    }
+
+    /**
+     * Detaches journals of journaled queues from their options, waiting for their background compactions to complete
+     * and closing their files. Further modifications of the queues are not journaled until options are loaded or
+     * saved again.
+     *
+     * @throws OptionsException if a journal couldn't be closed
+     */
+    public void closeJournals() throws OptionsException {
+        detachJournals();
+    }
+
+    private void detachJournals() throws OptionsException {
+        try {
+            for (QueueJournalFile journal : journals.values()) journal.detach();
+        } finally {
+            journals.clear();
+        }
     }
 
     public void loadFromStream(InputStream in, Collection<AbstractOption> options, boolean suppressConversionErrors)
             throws OptionsException {
-        //Read properties from file and store in a map
-        final Map<String, String> properties = loadPropertiesFromStream(in);
+        //Values are passed straight to their options' slots, lines with unknown keys are skipped
+        final LoadedValues values = new LoadedValues(getKeyIndex(options), null);
+        //Options no longer match the options file
+        fileState = null;
+        try {
+            PropertiesFileParser.parse(in, values.index, values);
+        } catch (IOException e) {
+            throw new OptionsException("Error reading options file: " + optionsFile, e);
+        }
+
+        loadValues(values, options.size() >= PARALLEL_CONVERSION_THRESHOLD, suppressConversionErrors);
+    }
+
+    /**
+     * Reads values of options from the options file, skipping lines with keys of other options without decoding them.
+     *
+     * @return values read, or {@code null} if the options file doesn't exist.
+     */
+    @SuppressWarnings("try")
+    private LoadedValues loadValuesFromFile(Collection<AbstractOption> options, boolean parallel)
+            throws OptionsException {
+        final KeyIndex index = getKeyIndex(options);
+        final LoadedValues values = new LoadedValues(index, new OptionsFileState(index.size()));
+        try (OptionsFileLock ignored = sharedFile ? OptionsFileLock.acquire(getLockFile(), true) : null) {
+            //The file's state is recorded first, so changes made while it's being read are noticed on save
+            values.fileState.recordFile(optionsFile);
+            final ByteBuffer contents = readOptionsFile();
+            values.fileState.recordChecksum(contents);
+            if (parallel) PropertiesFileParser.parse(contents, values.index, values, getLoadPool());
+            else PropertiesFileParser.parse(contents, values.index, values);
+            //The checksum is only trusted if the file hasn't changed while being read
+            if (!values.fileState.matches(optionsFile)) values.fileState.clearChecksum();
+            return values;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new OptionsException("Error reading options file: " + optionsFile, e);
+        }
+    }
+
+    /**
+     * Returns the index of option keys, building it if it hadn't been built for these options yet. Slots of the index
+     * are positions of options in {@link #indexedOptions}.
+     */
+    private KeyIndex getKeyIndex(Collection<AbstractOption> options) {
+        if (keyIndex != null && isIndexed(options)) return keyIndex;
+
+        final AbstractOption[] indexed = options.toArray(new AbstractOption[options.size()]);
+        final List<String> keys = new ArrayList<>(indexed.length);
+        final boolean[] paged = new boolean[indexed.length];
+        for (int i = 0; i < indexed.length; ++i) {
+            keys.add(indexed[i].getKey());
+            paged[i] = isPaged(indexed[i]);
+        }
+
+        keyIndex = new KeyIndex(keys, paged);
+        indexedOptions = indexed;
+        fileState = null;
+        return keyIndex;
+    }
+
+    private boolean isIndexed(Collection<AbstractOption> options) {
+        if (options.size() != indexedOptions.length) return false;
 
+        int i = 0;
+        for (AbstractOption option : options) {
+            if (option != indexedOptions[i++]) return false;
+        }
+        return true;
+    }
+
+    private void loadValues(LoadedValues values, boolean parallel, boolean suppressConversionErrors)
+            throws OptionsException {
         //Try string to value conversion, collection conversion errors
-        final Collection<String> conversionErrors = tryConvertingStringsToValues(options, properties);
+        final EncodedPages[] pages = new EncodedPages[indexedOptions.length];
+        final Collection<String> conversionErrors = tryConvertingStringsToValues(values, pages, parallel);
 
         //If there are conversion errors and they are not suppressed, throw an exception
         if (!conversionErrors.isEmpty() && !suppressConversionErrors)
             throw new ConversionException("Error converting option values from options file: " +
-                    optionsFile.getAbsolutePath() + ": " + conversionErrors, conversionErrors);
+                    optionsFile + ": " + conversionErrors, conversionErrors);
 
         //We know there will be no further errors; assign string values to options
-        assignStringValues(options, properties);
+        assignStringValues(values, pages);
+        if (values.fileState != null) recordLoadedState(values, pages);
     }
 
-    private void assignStringValues(Collection<AbstractOption> options, Map<String, String> properties) {
-        for (AbstractOption option : options) {
+    private void recordLoadedState(LoadedValues values, EncodedPages[] pages) {
+        final OptionsFileState state = values.fileState;
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            final AbstractOption option = indexedOptions[slot];
+            //Options which failed to convert have been reset to defaults, so the file has to be updated
+            if (values.failed[slot]) state.stale.set(slot);
+            state.present[slot] = pages[slot] != null || values.values[slot] != null || values.failed[slot];
+            if (values.lineStarts[slot] >= 0) {
+                state.lineStarts[slot] = values.lineStarts[slot];
+                state.lineLengths[slot] = values.lineLengths[slot];
+            }
+            if (option.isModifiedInPlace() && !option.isTransient() && !isJournaled(option)) {
+                final long modificationCount = option.getModificationCount();
+                state.recordValue(slot, modificationCount, modificationCount < 0 && values.values[slot] == null ?
+                        option.getStringValue() : values.values[slot]);
+            }
+        }
+    }
+
+    private void assignStringValues(LoadedValues values, EncodedPages[] pages) {
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            final AbstractOption option = indexedOptions[slot];
             //Skip transient options
             if (option.isTransient()) continue;
 
-            final String key = option.getKey();
-            if (properties.containsKey(key)) option.setStringValue(properties.get(key));
+            if (pages[slot] != null) ((CollectionOption) option).setEncodedPages(pages[slot]);
+            else if (values.converted[slot] != null) ((CollectionOption) option).setConvertedValue(values.converted[slot]);
+            else if (values.values[slot] != null) option.setStringValue(values.values[slot]);
             else option.resetToDefaultValue();
         }
     }
 
-    private Collection<String> tryConvertingStringsToValues(Collection<AbstractOption> options,
-                                                            Map<String, String> properties) {
+    private Collection<String> tryConvertingStringsToValues(final LoadedValues values, final EncodedPages[] pages,
+                                                            boolean parallel) {
+        final boolean[] failed = values.failed;
+        if (parallel) {
+            //Every option is converted by a single task, options being independent of each other
+            getLoadPool().invoke(new ConversionTask(values, pages, failed, 0, indexedOptions.length));
+        } else {
+            for (int slot = 0; slot < indexedOptions.length; ++slot) failed[slot] = !tryConverting(slot, values, pages);
+        }
 
+        //Report errors in the order of options
         final Collection<String> conversionErrors = new LinkedList<>();
+        for (int slot = 0; slot < indexedOptions.length; ++slot) {
+            if (failed[slot]) conversionErrors.add(indexedOptions[slot].getKey());
+        }
+        return conversionErrors;
+    }
 
-        for (AbstractOption option : options) {
-            final String key = option.getKey();
-            if (properties.containsKey(key)) {
-                try {
-                    option.convertStringToValue(properties.get(key));
-                } catch (ParseException e) {
-                    conversionErrors.add(key);
-                    properties.remove(key);
+    /**
+     * Tries converting the value of an option, clearing it if conversion fails.
+     *
+     * @return {@code true} if conversion is successful, {@code false} otherwise.
+     */
+    private boolean tryConverting(int slot, LoadedValues values, EncodedPages[] pages) {
+        final AbstractOption option = indexedOptions[slot];
+        if (isPaged(option)) {
+            //Only the pages' structure is checked, elements are converted when their pages are accessed
+            try {
+                final EncodedPages optionPages = readPages(option.getKey(), values.pageLines);
+                if (optionPages != null) {
+                    ((CollectionOption) option).checkEncodedPages(optionPages);
+                    pages[slot] = optionPages;
+                    return true;
                 }
+            } catch (ParseException e) {
+                values.values[slot] = null;
+                return false;
             }
         }
-
-        return conversionErrors;
+        if (values.values[slot] != null) {
+            try {
+                final Object converted = option.convertStringToValue(values.values[slot]);
+                //Collections are assigned their converted contents, so their elements aren't converted twice
+                if (option instanceof CollectionOption) values.converted[slot] = converted;
+            } catch (ParseException e) {
+                values.values[slot] = null;
+                return false;
+            }
+        }
+        return true;
     }
 
-    //TODO: write tests for UTF8
+    private final class ConversionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
 
-    private Map<String, String> loadPropertiesFromStream(InputStream in) throws OptionsException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charset.forName("UTF8")));
+        private final LoadedValues values;
+        private final EncodedPages[] pages;
+        private final boolean[] failed;
+        private final int from;
+        private final int to;
 
-        final Map<String, String> properties = new HashMap<>();
+        private ConversionTask(LoadedValues values, EncodedPages[] pages, boolean[] failed, int from, int to) {
+            this.values = values;
+            this.pages = pages;
+            this.failed = failed;
+            this.from = from;
+            this.to = to;
+        }
 
-        try {
-            String s;
-            while ((s = reader.readLine()) != null) {
-                s = s.trim();
+        @Override
+        protected void compute() {
+            if (to - from <= CONVERSION_TASK_SIZE) {
+                for (int slot = from; slot < to; ++slot) failed[slot] = !tryConverting(slot, values, pages);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ConversionTask(values, pages, failed, from, middle),
+                        new ConversionTask(values, pages, failed, middle, to));
+            }
+        }
+    }
 
-                //Ignore empty strings and comments
-                if (s.isEmpty() || s.startsWith("#")) continue;
+    /**
+     * Values read from an options file, by slots of the key index.
+     */
+    private static final class LoadedValues implements PropertiesFileParser.Sink {
+        private final KeyIndex index;
+        private final String[] values;
+        private final long[] lineStarts;
+        private final int[] lineLengths;
+        private final boolean[] failed;
+        //Values of collection options, converted while validating them
+        private final Object[] converted;
+        //Page lines of paged options, by their full keys
+        private final Map<String, String> pageLines = new HashMap<>();
+        //State of the options file being read, null when reading a stream
+        private final OptionsFileState fileState;
 
-                final int p = s.indexOf('=');
-                if (p < 0) continue; //no equal sign - no need to parse further
+        private LoadedValues(KeyIndex index, OptionsFileState fileState) {
+            this.index = index;
+            this.fileState = fileState;
+            values = new String[index.size()];
+            lineStarts = new long[index.size()];
+            lineLengths = new int[index.size()];
+            failed = new boolean[index.size()];
+            converted = new Object[index.size()];
+            Arrays.fill(lineStarts, -1);
+        }
 
-                final String key = s.substring(0, p).trim();
-                final String value = s.substring(p + 1, s.length()).trim();
+        @Override
+        public void value(int slot, String value, long lineStart, int lineLength) {
+            //Lines of options present more than once can't be patched
+            lineStarts[slot] = values[slot] == null ? lineStart : DUPLICATE_LINE;
+            values[slot] = value;
+            lineLengths[slot] = lineLength;
+        }
 
-                //Store the key-value pair
-                properties.put(key, value);
-            }
-        } catch (IOException e) {
-            throw new OptionsException("Error reading options file: " + optionsFile.getAbsolutePath(), e);
-        } finally {
-            try {
-                reader.close();
-            } catch (IOException e) {
-                //noinspection ThrowFromFinallyBlock
-                throw new OptionsException("Error closing options file reader: " + optionsFile.getAbsolutePath(), e);
-            }
+        @Override
+        public void pageValue(int slot, String key, String value) {
+            pageLines.put(key, value);
         }
-        return properties;
     }
 
     private void setupOptionsFile() {
+        final FileSystem fs = fileSystem != null ? fileSystem : FileSystems.getDefault();
         if (path == null) path = "";
         if (filename == null) filename = "";
 
         //Make sure that filename is *really* filename
-        filename = new File(filename).getName();
+        final Path name = filename.isEmpty() ? null : fs.getPath(filename).getFileName();
+        filename = name != null ? name.toString() : "";
+
+        //Default directory is user's home directory, or the working directory on file systems other than the default one
+        final String defaultPath = fs.equals(FileSystems.getDefault()) ? System.getProperty("user.home") :
+                fs.getPath("").toAbsolutePath().toString();
 
         //If path is empty, use default directory
         if (path.isEmpty()) {
-            path = System.getProperty("user.home");
+            path = defaultPath;
         }
 
         //If filename is empty, use default filename
@@ -298,10 +1304,18 @@ public class PropertiesPersistenceProvider implements StreamPersistenceProvider
         //If filename lacks an extension, use default extension
         if (filename.lastIndexOf(".") == -1) filename += ".properties";
 
-        //If the path provided is not absolute, prepend it with user's home directory (which is absolute)
-        if (!new File(path).isAbsolute()) path = new File(System.getProperty("user.home"), path).getAbsolutePath();
+        //If the path provided is not absolute, prepend it with the default directory (which is absolute)
+        if (!fs.getPath(path).isAbsolute()) path = fs.getPath(defaultPath).resolve(path).toAbsolutePath().toString();
+
+        optionsFile = fs.getPath(path, filename);
+    }
+
+    Path getJournalFile(String key) {
+        return getSiblingFile("." + key + ".journal");
+    }
 
-        optionsFile = new File(path, filename);
+    void awaitJournalCompactions() throws Exception {
+        for (QueueJournalFile journal : journals.values()) journal.awaitCompaction();
     }
 
     Class<? extends Options> getOptionsClass() {
@@ -316,7 +1330,7 @@ public class PropertiesPersistenceProvider implements StreamPersistenceProvider
         return filename;
     }
 
-    File getOptionsFile() {
+    Path getOptionsFile() {
         return optionsFile;
     }
 
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.plukh.options.ConversionException;
+import org.plukh.options.OptionsException;
+import org.plukh.options.ParseException;
+import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.collections.QueueJournal;
+import org.plukh.options.impl.options.CollectionOption;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Append-only journal of a queue option, stored in a sidecar file next to the options file. Each line of the journal
+ * is a record:
+ * <ul>
+ *     <li>{@code =<collection>} - snapshot of the whole queue, in the usual collection option format;</li>
+ *     <li>{@code +<element>} - an element added to the tail of the queue;</li>
+ *     <li>{@code -} - an element removed from the head of the queue.</li>
+ * </ul>
+ * Line separators and backslashes in records are escaped with a backslash ({@code \n}, {@code \r} and {@code \\}),
+ * so elements containing them can't break a record into several lines.
+ * <p/>
+ * Appending a record costs the same regardless of the queue's size. Compaction replaces the journal with a single
+ * snapshot record; it runs on a background thread after the journal has been replayed, while records appended in the
+ * meantime go to the old journal and are carried over to the compacted one.
+ */
+final class QueueJournalFile implements QueueJournal {
+    private static final char SNAPSHOT = '=';
+    private static final char OFFER = '+';
+    private static final char POLL = '-';
+    private static final char ESCAPE = '\\';
+
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "options-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final CollectionOption option;
+    private final OptionsQueue queue;
+
+    private final Object lock = new Object();
+    //Guarded by lock
+    private Writer writer;
+    //Records appended while compaction is running; null if it isn't
+    private List<String> pendingRecords;
+    private Future<?> compaction;
+
+    QueueJournalFile(Path file, CollectionOption option) {
+        this.file = file;
+        this.option = option;
+        this.queue = (OptionsQueue) option.getValue();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Replays the journal, applying its records to the queue. Must be called before the journal is attached to
+     * the queue.
+     *
+     * @return {@code true} if the journal existed.
+     */
+    @SuppressWarnings("unchecked")
+    boolean replay(boolean suppressConversionErrors) throws OptionsException {
+        final String journal;
+        try {
+            journal = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new OptionsException("Error reading journal file: " + file.toAbsolutePath(), e);
+        }
+
+        //Replay into a copy, so the queue is left unmodified if the journal can't be replayed
+        final Queue replayed = new ArrayDeque(queue.getBackingCollection());
+        int start = 0;
+        int end;
+        //A record without a trailing line separator was torn by a crash and is ignored
+        while ((end = journal.indexOf('\n', start)) >= 0) {
+            final String record = journal.substring(start, end);
+            start = end + 1;
+            if (record.isEmpty()) continue;
+
+            try {
+                applyRecord(replayed, record);
+            } catch (ParseException e) {
+                if (!suppressConversionErrors) throw new ConversionException("Error converting journal record " +
+                        record + " from journal file: " + file.toAbsolutePath(), e,
+                        Collections.singletonList(option.getKey()));
+            }
+        }
+
+        if (start < journal.length()) truncate(journal.substring(0, start));
+
+        final Collection backing = queue.getBackingCollection();
+        backing.clear();
+        backing.addAll(replayed);
+        return true;
+    }
+
+    //Drops a torn record, so records appended later don't get glued to it
+    private void truncate(String completeRecords) throws OptionsException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            out.truncate(completeRecords.getBytes(StandardCharsets.UTF_8).length);
+        } catch (IOException e) {
+            throw new OptionsException("Error truncating journal file: " + file.toAbsolutePath(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyRecord(Queue replayed, String record) throws OptionsException {
+        switch (record.charAt(0)) {
+            case SNAPSHOT:
+                final Collection elements = (Collection) option.convertStringToValue(unescape(record));
+                replayed.clear();
+                replayed.addAll(elements);
+                break;
+            case OFFER:
+                replayed.add(option.convertStringToElement(unescape(record)));
+                break;
+            case POLL:
+                replayed.poll();
+                break;
+            default:
+                throw new OptionsException("Unknown journal record " + record + " in journal file: " +
+                        file.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Attaches the journal to the queue and compacts it, replacing its contents with the snapshot of the queue.
+     *
+     * @param background {@code true} to compact on a background thread, {@code false} to wait for compaction.
+     */
+    void attach(boolean background) throws OptionsException {
+        final Object[] snapshot = queue.getBackingCollection().toArray();
+        synchronized (lock) {
+            pendingRecords = new ArrayList<>();
+            queue.setJournal(this);
+        }
+
+        if (background) {
+            compaction = COMPACTOR.submit(() -> {
+                try {
+                    compact(snapshot);
+                } catch (IOException e) {
+                    //The old journal is still complete; compaction will be retried on next load
+                    synchronized (lock) {
+                        pendingRecords = null;
+                    }
+                }
+                return null;
+            });
+        } else {
+            try {
+                compact(snapshot);
+            } catch (IOException e) {
+                throw new OptionsException("Error writing journal file: " + file.toAbsolutePath(), e);
+            }
+        }
+    }
+
+    private void compact(Object[] snapshot) throws IOException {
+        final Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = openWriter(compacted, false)) {
+            out.write(record(SNAPSHOT, option.convertElementsToString(Arrays.asList(snapshot))));
+        }
+
+        synchronized (lock) {
+            try (Writer out = openWriter(compacted, true)) {
+                for (String record : pendingRecords) out.write(record);
+            }
+            closeWriter();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            pendingRecords = null;
+        }
+    }
+
+    /**
+     * Detaches the journal from the queue, waiting for compaction to complete.
+     */
+    void detach() throws OptionsException {
+        queue.setJournal(null);
+
+        final Future<?> compaction = this.compaction;
+        if (compaction != null) {
+            try {
+                compaction.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new OptionsException("Error compacting journal file: " + file.toAbsolutePath(), e.getCause());
+            }
+        }
+
+        synchronized (lock) {
+            try {
+                closeWriter();
+            } catch (IOException e) {
+                throw new OptionsException("Error closing journal file: " + file.toAbsolutePath(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits for a background compaction to complete, if one is running.
+     */
+    void awaitCompaction() throws InterruptedException, ExecutionException {
+        final Future<?> compaction = this.compaction;
+        if (compaction != null) compaction.get();
+    }
+
+    @Override
+    public void offered(Object element) {
+        append(record(OFFER, option.convertElementToString(element)));
+    }
+
+    @Override
+    public void polled() {
+        append(record(POLL, ""));
+    }
+
+    @Override
+    public void replaced(Collection contents) {
+        append(record(SNAPSHOT, option.convertValueToString(queue)));
+    }
+
+    private static String record(char type, String payload) {
+        final StringBuilder sb = new StringBuilder(payload.length() + 2).append(type);
+        for (int i = 0; i < payload.length(); i++) {
+            final char c = payload.charAt(i);
+            switch (c) {
+                case '\n':
+                    sb.append(ESCAPE).append('n');
+                    break;
+                case '\r':
+                    sb.append(ESCAPE).append('r');
+                    break;
+                case ESCAPE:
+                    sb.append(ESCAPE).append(ESCAPE);
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.append('\n').toString();
+    }
+
+    //Returns the payload of a record, following its type
+    private static String unescape(String record) {
+        if (record.indexOf(ESCAPE) < 0) return record.substring(1);
+
+        final StringBuilder sb = new StringBuilder(record.length());
+        for (int i = 1; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == ESCAPE) {
+                if (++i == record.length()) throw new ParseException("Unterminated escape sequence in journal record");
+                c = record.charAt(i);
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case ESCAPE:
+                        break;
+                    default:
+                        throw new ParseException("Unknown escape sequence \\" + c + " in journal record");
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void append(String record) {
+        synchronized (lock) {
+            try {
+                if (writer == null) writer = openWriter(file, true);
+                writer.write(record);
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error writing journal file: " + file.toAbsolutePath(), e);
+            }
+            if (pendingRecords != null) pendingRecords.add(record);
+        }
+    }
+
+    private static Writer openWriter(Path file, boolean append) throws IOException {
+        //Options file may not have been saved yet
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } finally {
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Group commit of syncs of a directory. Files replaced by renaming temporary files over them are only persisted when
+ * their directory is forced to the storage device; threads saving files in the same directory request syncs of it,
+ * and requests arriving while a sync is in progress are collected into a batch, which is then synced once by one of
+ * the waiting threads, while the others wait for it. A single sync persists renames of all files in the batch.
+ * <p/>
+ * Files themselves are forced by the threads saving them, before they are renamed: concurrent syncs of files are
+ * merged into shared journal commits by the file system anyway.
+ */
+final class SyncGroup {
+    private static final ConcurrentMap<Path, SyncGroup> GROUPS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    //Batch collecting requests, synced when the batch being synced is done
+    private Batch current = new Batch();
+    private boolean syncing;
+    private long batchCount;
+
+    private SyncGroup(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the sync group of a directory, shared by all options files in it.
+     */
+    static SyncGroup forDirectory(Path directory) {
+        final Path key = directory.toAbsolutePath().normalize();
+        return GROUPS.computeIfAbsent(key, SyncGroup::new);
+    }
+
+    /**
+     * Forces the directory's entries (in particular, files renamed in it before this call) to the storage device,
+     * together with other requests made at the same time.
+     *
+     * @throws IOException if syncing of the directory fails.
+     */
+    void sync() throws IOException {
+        final Batch batch;
+        boolean interrupted = false;
+        synchronized (this) {
+            batch = current;
+            //Batches are synced one at a time; the first thread finding no sync in progress syncs its batch
+            while (!batch.done && syncing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    //The batch may already be syncing on behalf of this thread, so wait for it anyway
+                    interrupted = true;
+                }
+            }
+            if (!batch.done) {
+                syncing = true;
+                current = new Batch();
+            }
+        }
+
+        try {
+            if (!batch.done) {
+                try {
+                    syncDirectory(directory);
+                } catch (IOException e) {
+                    batch.failure = e;
+                } finally {
+                    synchronized (this) {
+                        batch.done = true;
+                        syncing = false;
+                        ++batchCount;
+                        notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        if (batch.failure != null) throw new IOException("Error syncing directory " + directory, batch.failure);
+    }
+
+    /**
+     * Returns the number of batches synced so far. Used in tests.
+     */
+    synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    private static final class Batch {
+        //Guarded by the group's lock
+        private boolean done;
+        private IOException failure;
+    }
+
+    /**
+     * Forces a directory's entries to the storage device. Directories can't be opened on some platforms (notably
+     * Windows), where this is skipped.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -20,16 +20,31 @@ import org.junit.Before;
 import org.junit.Test;
 import org.plukh.options.impl.OptionsProxyHandler;
 import org.plukh.options.impl.collections.CollectionBackedOption;
+import org.plukh.options.impl.collections.OptionsBlockingDeque;
+import org.plukh.options.impl.collections.OptionsBlockingQueue;
+import org.plukh.options.impl.collections.OptionsEnumSet;
+import org.plukh.options.impl.collections.OptionsIntList;
+import org.plukh.options.impl.collections.OptionsList;
+import org.plukh.options.impl.collections.OptionsLongSet;
+import org.plukh.options.impl.collections.OptionsMap;
+import org.plukh.options.impl.collections.OptionsPagedList;
+import org.plukh.options.impl.collections.OptionsNavigableSet;
 import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.collections.OptionsSet;
+import org.plukh.options.impl.collections.OptionsSortedSet;
 import org.plukh.options.impl.options.AbstractOption;
 import org.plukh.options.impl.options.NonConvertibleOption;
 import org.plukh.options.impl.persistence.OptionsAccessPersistenceProvider;
 import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
 import org.plukh.options.impl.persistence.TransientPersistenceProvider;
+import org.plukh.options.impl.persistence.interfaces.PagedCollectionTestOptions;
 import org.plukh.options.interfaces.*;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -246,6 +261,50 @@ public class OptionsFactoryTest {
         assertTrue("Option of unsupported class should be backed by NonConvertibleOption", option instanceof NonConvertibleOption);
     }
 
+    @Test
+    public void formatFromAnnotationShouldBeUsedForConversions() {
+        FormatTestOptions options = OptionsFactory.getOptionsInstance(FormatTestOptions.class);
+        assertEquals(LocalDate.of(1974, 1, 31), options.getDate());
+    }
+
+    @Test
+    public void formatForOptionWithoutFormatSupportShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedFormatTestOptions.class, "getInt",
+                "Expected exception not thrown for format specified for an option class without format support");
+    }
+
+    @Test
+    public void enumOptionsShouldBeSupported() {
+        EnumTestOptions options = OptionsFactory.getOptionsInstance(EnumTestOptions.class);
+        assertEquals(EnumTestOptions.Color.GREEN, options.getColor());
+        assertEquals(EnumTestOptions.Color.BLUE, options.getCaseInsensitiveColor());
+        options.setColor(EnumTestOptions.Color.RED);
+        assertEquals(EnumTestOptions.Color.RED, options.getColor());
+    }
+
+    @Test
+    public void ignoreCaseForNonEnumOptionShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedIgnoreCaseTestOptions.class, "getString",
+                "Expected exception not thrown for ignoreCase specified for a non-enum option");
+    }
+
+    @Test
+    public void compiledOptionsShouldBeSupported() {
+        CompiledTestOptions options = OptionsFactory.getOptionsInstance(CompiledTestOptions.class);
+        assertTrue(options.getPattern().matcher("123").matches());
+        assertSame(options.getPattern(), options.getPattern());
+        assertEquals(ArrayList.class, options.getImplementation());
+        assertTrue(options.getTrustedProxies().containsIPv4(0x0A010203));
+        assertSame(options.getTrustedProxies(), options.getTrustedProxies());
+        assertEquals(1, options.getUntracedRoutes().match("/static/site.css"));
+    }
+
+    @Test
+    public void classLoaderPolicyForNonClassOptionShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedClassLoaderTestOptions.class, "getString",
+                "Expected exception not thrown for class loader policy specified for a non-class option");
+    }
+
     //Collection option tests
 
     @Test
@@ -304,6 +363,95 @@ public class OptionsFactoryTest {
         assertEquals(LinkedBlockingQueue.class, c.getBackingCollection().getClass());
     }
 
+    @Test
+    public void setOfEnumsShouldBeBackedByEnumSet() {
+        EnumTestOptions options = OptionsFactory.getOptionsInstance(EnumTestOptions.class);
+        assertTrue(options.getColors() instanceof OptionsEnumSet);
+        options.getColors().add(EnumTestOptions.Color.BLUE);
+        assertTrue(options.getColors().contains(EnumTestOptions.Color.BLUE));
+    }
+
+    @Test
+    public void primitiveCollectionOptionsInstantiation() {
+        PrimitiveCollectionTestOptions options = OptionsFactory.getOptionsInstance(PrimitiveCollectionTestOptions.class);
+        assertTrue(options.getIntList() instanceof OptionsIntList);
+        assertEquals(Arrays.asList(1, 2, 3), options.getIntList());
+        assertTrue(options.getLongSet() instanceof OptionsLongSet);
+        assertTrue(options.getAllowedIds().containsLong(42));
+        assertTrue(Arrays.equals(new long[]{4, 5, 6}, options.getLongArray()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void setCollectionsShouldUseCopyOnWriteImplementations() throws OptionsException, InstantiationException {
+        SetCollectionTestOptions options = OptionsFactory.getOptionsInstance(SetCollectionTestOptions.class);
+        assertTrue(options.getNames() instanceof OptionsSet);
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(options.getNames()));
+        assertTrue(options.getSortedNames() instanceof OptionsSortedSet);
+        assertEquals("a", options.getSortedNames().first());
+        assertTrue(options.getThresholds() instanceof OptionsNavigableSet);
+        assertEquals(2.5, options.getThresholds().ceiling(2.0), 0);
+    }
+
+    @Test
+    public void blockingCollectionsShouldUseRingBuffers() throws OptionsException, InstantiationException {
+        BlockingCollectionTestOptions options = OptionsFactory.getOptionsInstance(BlockingCollectionTestOptions.class);
+        assertTrue(options.getTasks() instanceof OptionsBlockingQueue);
+        assertEquals(8, ((OptionsBlockingQueue) options.getTasks()).getCapacity());
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(options.getTasks()));
+        assertTrue(options.getHistory() instanceof OptionsBlockingDeque);
+        assertEquals(OptionsBlockingDeque.DEFAULT_CAPACITY, ((OptionsBlockingDeque) options.getHistory()).getCapacity());
+    }
+
+    @Test
+    public void capacityForUnboundedCollectionShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedCapacityTestOptions.class, "getStrings",
+                "Expected exception not thrown for capacity specified for an unbounded collection");
+    }
+
+    @Test
+    public void journalingForNonQueueCollectionShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedJournalingTestOptions.class, "getStrings",
+                "Expected exception not thrown for journaling requested for a non-queue collection");
+    }
+
+    @Test
+    public void listCollectionsShouldUsePersistentVectors() throws OptionsException, InstantiationException {
+        ListCollectionTestOptions options = OptionsFactory.getOptionsInstance(ListCollectionTestOptions.class);
+        assertTrue(options.getNames() instanceof OptionsList);
+        assertEquals(Arrays.asList("b", "a", "b"), options.getNames());
+    }
+
+    @Test
+    public void pagedCollectionOptionsShouldUsePagedLists() throws OptionsException, InstantiationException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+        assertTrue(options.getIds() instanceof OptionsPagedList);
+        assertEquals(2, ((OptionsPagedList) options.getIds()).getPageSize());
+        assertEquals(1, ((OptionsPagedList) options.getIds()).getResidentPages());
+        assertEquals(Arrays.asList(1, 2, 3), options.getIds());
+    }
+
+    @Test
+    public void pagingForNonListCollectionShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(UnsupportedPagingTestOptions.class, "getStrings",
+                "Expected exception not thrown for paging requested for a non-list collection");
+    }
+
+    @Test
+    public void mapOptionsShouldBeBackedByOptionsMaps() throws OptionsException, InstantiationException {
+        MapTestOptions options = OptionsFactory.getOptionsInstance(MapTestOptions.class);
+        assertTrue(options.getTimeouts() instanceof OptionsMap);
+        assertEquals(Integer.valueOf(1), options.getTimeouts().get("a"));
+        assertEquals(Integer.valueOf(2), options.getTimeouts().get("b"));
+        assertTrue(options.getEmpty().isEmpty());
+    }
+
+    @Test
+    public void mapOptionReturningNonMapInterfaceShouldThrowAnException() throws NoSuchMethodException, InstantiationException {
+        testForInstantiationException(MapOptionReturnsNonMapTestOptions.class, "getMap",
+                "Method annotated with @MapOption must return java.util.Map");
+    }
+
     @Test
     public void backingClassWithoutDefaultConstructorShouldThrowAnException() throws InstantiationException {
         testOptionsInstantiation(CollectionClassWithoutDefaultConstructorTestOptions.class,
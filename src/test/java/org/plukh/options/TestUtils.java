@@ -16,8 +16,18 @@
 
 package org.plukh.options;
 
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
@@ -26,6 +36,57 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.fail;
 
 public class TestUtils {
+    //Set to "memory" to run tests of file-backed providers on an in-memory file system (see the memory-fs profile)
+    private static final String TEST_FILE_SYSTEM_PROPERTY = "options.test.filesystem";
+
+    private static FileSystem testFileSystem;
+
+    /**
+     * Returns the file system tests should create their files on: the default one, or an in-memory one if
+     * {@value #TEST_FILE_SYSTEM_PROPERTY} system property is set to "memory".
+     */
+    public static synchronized FileSystem getTestFileSystem() {
+        if (testFileSystem == null) {
+            testFileSystem = "memory".equals(System.getProperty(TEST_FILE_SYSTEM_PROPERTY)) ?
+                    Jimfs.newFileSystem(Configuration.unix()) : FileSystems.getDefault();
+        }
+        return testFileSystem;
+    }
+
+    public static Path createTempDirectory(String prefix) throws IOException {
+        final FileSystem fs = getTestFileSystem();
+        if (fs == FileSystems.getDefault()) return Files.createTempDirectory(prefix);
+
+        return Files.createTempDirectory(Files.createDirectories(fs.getPath("/tmp")), prefix);
+    }
+
+    public static void cleanDirectory(Path directory) throws IOException {
+        deleteFiles(directory, false);
+    }
+
+    public static void deleteDirectory(Path directory) throws IOException {
+        deleteFiles(directory, true);
+    }
+
+    private static void deleteFiles(final Path directory, final boolean deleteDirectory) throws IOException {
+        if (directory == null || !Files.exists(directory)) return;
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) throw e;
+                if (deleteDirectory || !dir.equals(directory)) Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     public static File createTempDir(String prefix) throws IOException {
         File tempFile = File.createTempFile(prefix, null);
         //noinspection ResultOfMethodCallIgnored
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.plukh.options.impl.collections.OptionsLongSet;
+import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.options.CollectionOption;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures save (value to string) and load (string to value) throughput of collection options with 100k elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollectionOptionBenchmark {
+    private static final int SIZE = 100000;
+
+    /**
+     * Element kinds: plain strings, strings with characters which have to be escaped, boxed integers and longs, and
+     * longs stored in a primitive set.
+     */
+    @Param({"plain", "escaped", "integer", "long", "primitiveLong"})
+    public String elements;
+
+    private CollectionOption option;
+    private String saved;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        switch (elements) {
+            case "integer":
+                option = new CollectionOption(Integer.class, OptionsQueue.class);
+                break;
+            case "long":
+                option = new CollectionOption(Long.class, OptionsQueue.class);
+                break;
+            case "primitiveLong":
+                option = new CollectionOption(Long.class, OptionsLongSet.class);
+                break;
+            default:
+                option = new CollectionOption(String.class, OptionsQueue.class);
+        }
+
+        final Collection collection = (Collection) option.getValue();
+        for (int i = 0; i < SIZE; ++i) {
+            if (elements.equals("integer")) collection.add(i);
+            else if (elements.equals("long") || elements.equals("primitiveLong")) collection.add(1000000000000L + i * 7919L);
+            else if (elements.equals("escaped")) collection.add("host" + i + ":80\\\\path");
+            else collection.add("element" + i);
+        }
+
+        saved = option.getStringValue();
+    }
+
+    @Benchmark
+    public String save() {
+        return option.getStringValue();
+    }
+
+    @Benchmark
+    public Object load() {
+        option.setStringValue(saved);
+        return option.getValue();
+    }
+}
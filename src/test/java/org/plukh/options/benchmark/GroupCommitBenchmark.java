@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.plukh.options.Options;
+import org.plukh.options.OptionsException;
+import org.plukh.options.impl.options.AbstractOption;
+import org.plukh.options.impl.options.OptionFactory;
+import org.plukh.options.impl.persistence.FileConfig;
+import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures saves per second of 16 threads, each saving its own options file of 50 options into the same directory
+ * atomically and forcing it to the storage device, with syncs of the directory group committed and done by each save
+ * separately.
+ * <p/>
+ * Files are saved into a temporary directory; as it's often on a memory file system, where syncs cost nothing, run
+ * with {@code -p directory=...} to save into a directory on the device of interest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class GroupCommitBenchmark {
+    private static final int OPTIONS = 50;
+
+    @State(Scope.Benchmark)
+    public static class Directory {
+        @Param({"true", "false"})
+        public boolean groupCommit;
+
+        /**
+         * Directory to save files into, empty for a new temporary directory.
+         */
+        @Param({""})
+        public String directory;
+
+        private File dir;
+        private boolean temporary;
+        private final AtomicInteger files = new AtomicInteger();
+
+        @Setup
+        public void setUp() throws IOException {
+            temporary = directory.isEmpty();
+            dir = temporary ? Files.createTempDirectory("options").toFile() :
+                    Files.createDirectories(Paths.get(directory)).toFile();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            if (temporary) Files.deleteIfExists(dir.toPath());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OptionsFile {
+        private PropertiesPersistenceProvider provider;
+        private List<AbstractOption> options;
+        private File file;
+
+        @Setup
+        public void setUp(Directory directory) throws Exception {
+            final String filename = "options" + directory.files.getAndIncrement() + ".properties";
+            file = new File(directory.dir, filename);
+
+            options = new ArrayList<>(OPTIONS);
+            for (int i = 0; i < OPTIONS; ++i) {
+                final AbstractOption option = OptionFactory.getOptionForClass(String.class);
+                option.setKey("generated.option" + i);
+                option.setStringValue("value of option " + i);
+                options.add(option);
+            }
+
+            final FileConfig config = new FileConfig(directory.dir.getAbsolutePath(), filename);
+            config.setAtomicSave(true);
+            config.setSyncOnSave(true);
+            config.setGroupCommit(directory.groupCommit);
+
+            provider = new PropertiesPersistenceProvider();
+            provider.init(Options.class);
+            provider.configure(config);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Benchmark
+    public void save(OptionsFile file) throws OptionsException {
+        file.provider.save(file.options, false);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.plukh.options.impl.options.AbstractOption;
+import org.plukh.options.impl.options.OptionFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures string-to-value conversion throughput of numeric options, for every supported number type. For
+ * {@code BigInteger} and {@code BigDecimal}, both values fitting into a {@code long} and wider values are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberParseBenchmark {
+    @Param({
+            "java.lang.Byte:-42",
+            "java.lang.Short:31337",
+            "java.lang.Integer:1048576",
+            "java.lang.Long:9007199254740993",
+            "java.lang.Float:3.1415927",
+            "java.lang.Double:2.718281828459045",
+            "java.math.BigInteger:9007199254740993",
+            "java.math.BigInteger:1234567890123456789012345678901234567890",
+            "java.math.BigDecimal:12345.6789",
+            "java.math.BigDecimal:1234567890123456789012345678901234567890.0123456789",
+            "java.util.concurrent.atomic.AtomicInteger:1048576",
+            "java.util.concurrent.atomic.AtomicLong:9007199254740993",
+            "java.util.concurrent.atomic.LongAdder:9007199254740993"
+    })
+    public String input;
+
+    private AbstractOption option;
+    private String value;
+
+    @Setup
+    public void setUp() throws Exception {
+        final int separator = input.indexOf(':');
+        option = OptionFactory.getOptionForClass(Class.forName(input.substring(0, separator)));
+        value = input.substring(separator + 1);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return option.convertStringToValue(value);
+    }
+}
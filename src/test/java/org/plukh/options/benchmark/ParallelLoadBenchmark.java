@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.plukh.options.Options;
+import org.plukh.options.OptionsException;
+import org.plukh.options.impl.collections.OptionsQueue;
+import org.plukh.options.impl.options.AbstractOption;
+import org.plukh.options.impl.options.CollectionOption;
+import org.plukh.options.impl.options.OptionFactory;
+import org.plukh.options.impl.persistence.FileConfig;
+import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Measures loading of an options file with 200k options - collections of integers and regular expressions, about
+ * 15 MB - in a single thread and in parallel with 1 to 8 threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelLoadBenchmark {
+    private static final int OPTIONS = 200000;
+
+    /**
+     * Number of threads loading the file, 0 for the single-threaded load.
+     */
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+
+    private File dir;
+    private PropertiesPersistenceProvider provider;
+    private List<AbstractOption> options;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("options").toFile();
+        options = new ArrayList<>(OPTIONS);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dir, "options.properties")), StandardCharsets.UTF_8))) {
+            for (int i = 0; i < OPTIONS; ++i) {
+                final AbstractOption option;
+                if (i % 2 == 0) {
+                    option = new CollectionOption(Integer.class, OptionsQueue.class);
+                    writer.write("generated.list" + i + "=" + i + ":1:22:333:4444:55555:666666:7777777:" + i + "\n");
+                } else {
+                    option = OptionFactory.getOptionForClass(Pattern.class);
+                    writer.write("generated.pattern" + i + "=^/api/v[0-9]+/items/" + i + "/(\\w+)$\n");
+                }
+                option.setKey(i % 2 == 0 ? "generated.list" + i : "generated.pattern" + i);
+                options.add(option);
+            }
+        }
+
+        final FileConfig config = new FileConfig(dir.getAbsolutePath(), "options.properties");
+        if (threads == 0) config.setParallelLoadThreshold(Long.MAX_VALUE);
+        else config.setParallelLoadThreshold(0);
+        config.setLoadParallelism(threads);
+
+        provider = new PropertiesPersistenceProvider();
+        provider.init(Options.class);
+        provider.configure(config);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(new File(dir, "options.properties").toPath());
+        Files.deleteIfExists(dir.toPath());
+    }
+
+    @Benchmark
+    public boolean load() throws OptionsException {
+        return provider.load(options, false);
+    }
+}
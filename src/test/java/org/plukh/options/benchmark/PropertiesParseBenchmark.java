@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.plukh.options.impl.persistence.KeyIndex;
+import org.plukh.options.impl.persistence.PropertiesFileParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a reader-based parser collecting all properties into a map with the parser dispatching values of indexed
+ * keys to their slots, reading a memory-mapped file or a stream, on a generated options file of about 50 MB (one
+ * million lines). Either a thousand keys scattered over the file or all of them are read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertiesParseBenchmark {
+    private static final int LINES = 1000000;
+
+    @Param({"1000", "1000000"})
+    public int keys;
+
+    private File file;
+    private KeyIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("options", ".properties");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("# [GeneratedOptions], modified on " + new java.util.Date() + "\n");
+            for (int i = 0; i < LINES; ++i) {
+                writer.write("generated.option.key" + i + " = value of option " + i + ": some payload\n");
+            }
+        }
+
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < LINES; i += LINES / keys) names.add("generated.option.key" + i);
+        index = new KeyIndex(names, new boolean[names.size()]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public Map<String, String> reader() throws IOException {
+        final Map<String, String> properties = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String s;
+            while ((s = reader.readLine()) != null) {
+                s = s.trim();
+                if (s.isEmpty() || s.startsWith("#")) continue;
+
+                final int p = s.indexOf('=');
+                if (p < 0) continue;
+                properties.put(s.substring(0, p).trim(), s.substring(p + 1).trim());
+            }
+        }
+        return properties;
+    }
+
+    @Benchmark
+    public String[] mapped() throws IOException {
+        final Values values = new Values(index.size());
+        PropertiesFileParser.parse(file.toPath(), index, values);
+        return values.values;
+    }
+
+    @Benchmark
+    public String[] stream() throws IOException {
+        final Values values = new Values(index.size());
+        try (InputStream in = new FileInputStream(file)) {
+            PropertiesFileParser.parse(in, index, values);
+        }
+        return values.values;
+    }
+
+    private static class Values implements PropertiesFileParser.Sink {
+        private final String[] values;
+
+        private Values(int size) {
+            values = new String[size];
+        }
+
+        @Override
+        public void value(int slot, String value, long lineStart, int lineLength) {
+            values[slot] = value;
+        }
+
+        @Override
+        public void pageValue(int slot, String key, String value) {
+        }
+    }
+}
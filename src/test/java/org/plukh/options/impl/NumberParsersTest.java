@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class NumberParsersTest {
+    @Test
+    public void longShouldBeParsedFromPartOfString() {
+        assertEquals(123, NumberParsers.parseLong("a:123:b", 2, 5));
+        assertEquals(-5, NumberParsers.parseLong(" -5 ", 0, 4));
+        assertEquals(7, NumberParsers.parseLong("+7", 0, 2));
+        assertEquals(Long.MAX_VALUE, NumberParsers.parseLong("9223372036854775807", 0, 19));
+        assertEquals(Long.MIN_VALUE, NumberParsers.parseLong("-9223372036854775808", 0, 20));
+    }
+
+    @Test
+    public void invalidLongsShouldNotBeParsed() {
+        for (String s : new String[]{"", " ", "-", "+", "1a", "1 2", "9223372036854775808", "-9223372036854775809",
+                "99999999999999999999"}) {
+            try {
+                NumberParsers.parseLong(s, 0, s.length());
+                fail("Expected exception not thrown for " + s);
+            } catch (NumberFormatException e) {
+                //Expected
+            }
+        }
+    }
+
+    @Test
+    public void intShouldBeRangeChecked() {
+        assertEquals(Integer.MIN_VALUE, NumberParsers.parseInt("-2147483648", 0, 11));
+        try {
+            NumberParsers.parseInt("2147483648", 0, 10);
+            fail("Expected exception not thrown");
+        } catch (NumberFormatException e) {
+            //Expected
+        }
+    }
+}
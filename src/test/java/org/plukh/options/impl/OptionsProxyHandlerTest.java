@@ -23,16 +23,19 @@ import org.plukh.options.PersistenceProvider;
 import org.plukh.options.ProviderConfigurationException;
 import org.plukh.options.impl.options.*;
 import org.plukh.options.PersistenceConfig;
+import org.plukh.options.impl.persistence.IncrementalPersistenceProvider;
 import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
 import org.plukh.options.interfaces.TestOptions;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class OptionsProxyHandlerTest {
@@ -168,6 +171,60 @@ public class OptionsProxyHandlerTest {
         assertEquals("abc", options.getString());
     }
 
+    @Test
+    public void optionsChangedBySettersShouldBePassedToIncrementalProvider() throws OptionsException,
+            NoSuchMethodException {
+        IncrementalPersistenceProvider pp = createMock(IncrementalPersistenceProvider.class);
+        handler.setPersistenceProvider(pp);
+
+        //Positions are in the order options are passed to the provider
+        BitSet changed = new BitSet();
+        int position = 0;
+        for (AbstractOption option : getters.values()) {
+            if (option == getters.get(TestOptions.class.getMethod("getInt2"))) changed.set(position);
+            ++position;
+        }
+
+        expect(pp.load(getters.values(), false)).andReturn(true);
+        pp.save(getters.values(), changed, false);
+        pp.save(getters.values(), new BitSet(), false);
+        replay(pp);
+
+        options.setInt(10);
+        options.load(false);
+        options.setInt2(20);
+        options.save(false);
+        options.save(false);
+        verify(pp);
+    }
+
+    @Test
+    public void reloadShouldBeSkippedIfOptionsAreUpToDate() throws OptionsException {
+        IncrementalPersistenceProvider pp = createMock(IncrementalPersistenceProvider.class);
+        handler.setPersistenceProvider(pp);
+
+        expect(pp.isUpToDate(getters.values(), new BitSet())).andReturn(true);
+        expect(pp.isUpToDate(getters.values(), new BitSet())).andReturn(false);
+        expect(pp.load(getters.values(), false)).andReturn(true);
+        replay(pp);
+
+        assertFalse(options.reload(false));
+        assertTrue(options.reload(false));
+        verify(pp);
+    }
+
+    @Test
+    public void reloadShouldAlwaysLoadFromNonIncrementalProvider() throws OptionsException {
+        PersistenceProvider pp = getMockPersistenceProvider();
+        handler.setPersistenceProvider(pp);
+
+        expect(pp.load(getters.values(), true)).andReturn(false);
+        replay(pp);
+
+        assertTrue(options.reload(true));
+        verify(pp);
+    }
+
     private PersistenceProvider getMockPersistenceProvider() {
         return createMock(PersistenceProvider.class);
     }
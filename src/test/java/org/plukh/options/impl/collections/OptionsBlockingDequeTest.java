@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class OptionsBlockingDequeTest {
+    private OptionsBlockingDeque deque;
+
+    @Before
+    public void setUp() {
+        deque = new OptionsBlockingDeque(Integer.class);
+        deque.setCapacity(4);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        deque.getClass().getConstructor(Class.class);
+    }
+
+    @Test
+    public void dequeShouldWorkAtBothEnds() {
+        assertTrue(deque.offerLast(2));
+        assertTrue(deque.offerFirst(1));
+        assertTrue(deque.offerLast(3));
+        assertTrue(deque.offerFirst(0));
+        assertFalse(deque.offerFirst(-1));
+        assertFalse(deque.offer(4));
+        assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<>(deque));
+
+        assertEquals(0, deque.peekFirst());
+        assertEquals(3, deque.peekLast());
+        assertEquals(3, deque.pollLast());
+        assertEquals(0, deque.pollFirst());
+        assertEquals(1, deque.pop());
+        deque.push(5);
+        assertEquals(Arrays.asList(5, 2), new ArrayList<>(deque));
+
+        final List<Object> descending = new ArrayList<>();
+        for (Iterator iterator = deque.descendingIterator(); iterator.hasNext(); ) descending.add(iterator.next());
+        assertEquals(Arrays.asList(2, 5), descending);
+    }
+
+    @Test
+    public void removingOccurrencesShouldWork() {
+        deque.addAll(Arrays.asList(1, 2, 1, 3));
+        assertTrue(deque.removeLastOccurrence(1));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(deque));
+        assertTrue(deque.remove(1));
+        assertFalse(deque.remove(1));
+        assertEquals(Arrays.asList(2, 3), new ArrayList<>(deque));
+
+        for (Iterator iterator = deque.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().equals(3)) iterator.remove();
+        }
+        assertEquals(Collections.singletonList(2), new ArrayList<>(deque));
+    }
+
+    @Test
+    public void wrappingAroundShouldWork() {
+        for (int i = 0; i < 100; ++i) {
+            deque.addFirst(i);
+            deque.addFirst(i + 1);
+            deque.addLast(i + 2);
+            assertEquals(Arrays.asList(i + 1, i, i + 2), new ArrayList<>(deque));
+            assertEquals(i + 2, deque.removeLast());
+            assertEquals(i + 1, deque.removeFirst());
+            assertEquals(i, deque.removeFirst());
+        }
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addingToFullDequeShouldThrowAnException() {
+        deque.addAll(Arrays.asList(1, 2, 3, 4, 5));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void removingFromEmptyDequeShouldThrowAnException() {
+        deque.removeFirst();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementsOfOtherClassesShouldBeRejected() {
+        deque.addFirst("1");
+    }
+
+    @Test
+    public void timedOperationsShouldTimeOut() throws InterruptedException {
+        assertNull(deque.pollLast(10, TimeUnit.MILLISECONDS));
+        deque.addAll(Arrays.asList(1, 2, 3, 4));
+        assertFalse(deque.offerFirst(0, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void blockedConsumerShouldBeReleasedByProducer() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Object> taken = executor.submit(() -> deque.takeLast());
+            Thread.sleep(50);
+            deque.putFirst(42);
+            assertEquals(42, taken.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void collectionClassShouldBeBlockingDeque() {
+        assertEquals(4, deque.getCapacity());
+        assertEquals(BlockingDeque.class, deque.getCollectionClass());
+        assertSame(deque, deque.getBackingCollection());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class OptionsBlockingQueueTest {
+    private OptionsBlockingQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new OptionsBlockingQueue(Integer.class);
+        queue.setCapacity(3);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        queue.getClass().getConstructor(Class.class);
+    }
+
+    @Test
+    public void queueShouldBeFifoAndBounded() {
+        assertEquals(3, queue.getCapacity());
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(3));
+        assertFalse(queue.offer(4));
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals(1, queue.peek());
+        assertEquals(1, queue.poll());
+        assertTrue(queue.offer(4));
+        assertEquals(Arrays.asList(2, 3, 4), new ArrayList<>(queue));
+
+        assertEquals(2, queue.poll());
+        assertEquals(3, queue.poll());
+        assertEquals(4, queue.poll());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void wrappingAroundShouldWork() {
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(queue.offer(i));
+            assertTrue(queue.offer(i + 1));
+            assertEquals(i, queue.poll());
+            assertEquals(i + 1, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addingToFullQueueShouldThrowAnException() {
+        queue.addAll(Arrays.asList(1, 2, 3, 4));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void capacityOfNonEmptyQueueCantBeChanged() {
+        queue.add(1);
+        queue.setCapacity(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementsOfOtherClassesShouldBeRejected() {
+        queue.add("1");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullElementsShouldBeRejected() {
+        queue.offer(null);
+    }
+
+    @Test
+    public void timedOperationsShouldTimeOut() throws InterruptedException {
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        queue.addAll(Arrays.asList(1, 2, 3));
+        assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void drainToShouldRemoveElements() {
+        queue.addAll(Arrays.asList(1, 2, 3));
+        final List<Object> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(Arrays.asList(1, 2), drained);
+        assertEquals(Collections.singletonList(3), new ArrayList<>(queue));
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void concurrentProducersAndConsumersShouldTransferAllElements() throws Exception {
+        final int producers = 4;
+        final int perProducer = 20000;
+        final OptionsBlockingQueue queue = new OptionsBlockingQueue(Integer.class);
+        queue.setCapacity(16);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(producers * 2);
+        try {
+            final List<Future<long[]>> consumers = new ArrayList<>();
+            for (int p = 0; p < producers; ++p) {
+                final int base = p * perProducer;
+                executor.submit(() -> {
+                    for (int i = 0; i < perProducer; ++i) queue.put(base + i);
+                    return null;
+                });
+                consumers.add(executor.submit(() -> {
+                    long sum = 0;
+                    for (int i = 0; i < perProducer; ++i) sum += (Integer) queue.take();
+                    return new long[]{sum};
+                }));
+            }
+
+            long sum = 0;
+            for (Future<long[]> consumer : consumers) sum += consumer.get()[0];
+
+            final long total = (long) producers * perProducer;
+            assertEquals(total * (total - 1) / 2, sum);
+            assertTrue(queue.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void snapshotsShouldPreserveOrderWhileQueueIsModified() throws Exception {
+        final OptionsBlockingQueue queue = new OptionsBlockingQueue(Integer.class);
+        queue.setCapacity(64);
+        final AtomicBoolean stop = new AtomicBoolean();
+
+        final Thread producer = new Thread(() -> {
+            int i = 0;
+            try {
+                while (!stop.get()) {
+                    queue.put(i++);
+                    if (queue.size() > 32) queue.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        try {
+            for (int i = 0; i < 2000; ++i) {
+                int previous = -1;
+                for (Object o : queue) {
+                    assertTrue((Integer) o > previous);
+                    previous = (Integer) o;
+                }
+            }
+        } finally {
+            stop.set(true);
+            producer.interrupt();
+            producer.join();
+        }
+    }
+
+    @Test
+    public void collectionClassShouldBeBlockingQueue() {
+        assertEquals(BlockingQueue.class, queue.getCollectionClass());
+        assertSame(queue, queue.getBackingCollection());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OptionsEnumSetTest {
+    private OptionsEnumSet set;
+
+    @Before
+    public void setUp() {
+        set = new OptionsEnumSet(TimeUnit.class);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        set.getClass().getConstructor(Class.class);
+    }
+
+    @Test(expected = CollectionInitializationException.class)
+    public void nonEnumElementClassShouldBeRejected() {
+        new OptionsEnumSet(String.class);
+    }
+
+    @Test
+    public void addAndRemoveShouldUpdateMembership() {
+        assertTrue(set.add(TimeUnit.SECONDS));
+        assertFalse(set.add(TimeUnit.SECONDS));
+        assertTrue(set.add(TimeUnit.DAYS));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(TimeUnit.SECONDS));
+        assertFalse(set.contains(TimeUnit.HOURS));
+        assertFalse(set.contains("SECONDS"));
+
+        assertTrue(set.remove(TimeUnit.SECONDS));
+        assertFalse(set.remove(TimeUnit.SECONDS));
+        assertEquals(1, set.size());
+        assertFalse(set.contains(TimeUnit.SECONDS));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void iterationShouldFollowDeclarationOrder() {
+        set.add(TimeUnit.DAYS);
+        set.add(TimeUnit.NANOSECONDS);
+        set.add(TimeUnit.MINUTES);
+        assertEquals(Arrays.asList(TimeUnit.NANOSECONDS, TimeUnit.MINUTES, TimeUnit.DAYS), new ArrayList<Object>(set));
+    }
+
+    @Test
+    public void iteratorRemoveShouldRemoveElements() {
+        set.addAll(Arrays.asList(TimeUnit.values()));
+        for (Iterator i = set.iterator(); i.hasNext(); ) {
+            if (((TimeUnit) i.next()).ordinal() % 2 == 0) i.remove();
+        }
+        List<Object> expected = new ArrayList<>();
+        for (TimeUnit unit : TimeUnit.values()) if (unit.ordinal() % 2 != 0) expected.add(unit);
+        assertEquals(expected, new ArrayList<Object>(set));
+    }
+
+    @Test
+    public void addMethodsShouldThrowExceptionForWrongClasses() {
+        try {
+            set.add("SECONDS");
+            fail("Expected exception not thrown for add()");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+
+        try {
+            set.add(null);
+            fail("Expected exception not thrown for null element");
+        } catch (NullPointerException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void enumsWithMoreThan64ConstantsShouldBeSupported() {
+        OptionsEnumSet large = new OptionsEnumSet(Large.class);
+        large.add(Large.C0);
+        large.add(Large.C63);
+        large.add(Large.C64);
+        large.add(Large.C69);
+        assertEquals(4, large.size());
+        assertTrue(large.contains(Large.C64));
+        assertFalse(large.contains(Large.C65));
+        assertEquals(Arrays.asList(Large.C0, Large.C63, Large.C64, Large.C69), new ArrayList<Object>(large));
+    }
+
+    @Test
+    public void setShouldBeEqualToOtherSetsWithSameElements() {
+        set.add(TimeUnit.SECONDS);
+        set.add(TimeUnit.HOURS);
+        Set<TimeUnit> other = new HashSet<>(Arrays.asList(TimeUnit.HOURS, TimeUnit.SECONDS));
+        assertEquals(other, set);
+        assertEquals(other.hashCode(), set.hashCode());
+    }
+
+    private enum Large {
+        C0, C1, C2, C3, C4, C5, C6, C7, C8, C9, C10, C11, C12, C13, C14, C15, C16, C17, C18, C19,
+        C20, C21, C22, C23, C24, C25, C26, C27, C28, C29, C30, C31, C32, C33, C34, C35, C36, C37, C38, C39,
+        C40, C41, C42, C43, C44, C45, C46, C47, C48, C49, C50, C51, C52, C53, C54, C55, C56, C57, C58, C59,
+        C60, C61, C62, C63, C64, C65, C66, C67, C68, C69
+    }
+}
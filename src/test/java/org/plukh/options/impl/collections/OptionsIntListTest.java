@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OptionsIntListTest {
+    private OptionsIntList list;
+
+    @Before
+    public void setUp() {
+        list = new OptionsIntList(Integer.class);
+    }
+
+    @Test
+    public void listOperationsShouldWork() {
+        list.addInt(1);
+        list.add(3);
+        list.add(1, 2);
+        assertEquals(Arrays.asList(1, 2, 3), list);
+        assertEquals(1, list.indexOfInt(2));
+        assertEquals(-1, list.indexOf(2L));
+        assertArrayEquals(new int[]{1, 2, 3}, list.toIntArray());
+    }
+
+    @Test
+    public void decodedListShouldBeEncodedBack() {
+        list.decode("1:-2:2147483647");
+        StringBuilder sb = new StringBuilder();
+        list.encode(sb);
+        assertEquals("1:-2:2147483647", sb.toString());
+    }
+
+    @Test(expected = ParseException.class)
+    public void valuesOutOfRangeShouldNotBeDecoded() {
+        list.decode("1:2147483648");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class OptionsIntSetTest {
+    private OptionsIntSet set;
+
+    @Before
+    public void setUp() {
+        set = new OptionsIntSet(Integer.class);
+    }
+
+    @Test
+    public void setShouldBehaveLikeHashSet() {
+        final Random random = new Random(42);
+        final Set<Integer> expected = new HashSet<>();
+
+        for (int i = 0; i < 20000; ++i) {
+            final int value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.removeInt(value));
+            } else {
+                assertEquals(expected.add(value), set.addInt(value));
+            }
+        }
+
+        assertEquals(expected, set);
+    }
+
+    @Test
+    public void decodedSetShouldBeEncodedBack() {
+        set.decode("-2147483648:0:2147483647");
+        StringBuilder sb = new StringBuilder();
+        set.encode(sb);
+        OptionsIntSet decoded = new OptionsIntSet(Integer.class);
+        decoded.decode(sb.toString());
+        assertEquals(3, decoded.size());
+        assertEquals(set, decoded);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OptionsListTest {
+    private OptionsList list;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        list = new OptionsList(String.class);
+        list.addAll(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        list.getClass().getConstructor(Class.class);
+    }
+
+    @Test
+    public void listOperationsShouldWork() {
+        assertEquals("b", list.set(1, "x"));
+        list.add("d");
+        list.add(0, "z");
+        list.add(5, "e");
+        assertEquals(Arrays.asList("z", "a", "x", "c", "d", "e"), list);
+
+        assertEquals("z", list.remove(0));
+        assertEquals("e", list.remove(4));
+        assertTrue(list.remove("x"));
+        assertFalse(list.remove("x"));
+        assertEquals(Arrays.asList("a", "c", "d"), list);
+
+        assertTrue(list.retainAll(Arrays.asList("a", "d")));
+        assertEquals(Arrays.asList("a", "d"), list);
+        assertTrue(list.removeAll(Collections.singleton("a")));
+        assertEquals(Collections.singletonList("d"), list);
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void listShouldBehaveLikeArrayList() {
+        final Random random = new Random(42);
+        final List<Object> expected = new ArrayList<>(list);
+
+        for (int i = 0; i < 5000; ++i) {
+            final String value = String.valueOf(i);
+            switch (random.nextInt(4)) {
+                case 0:
+                    list.add(value);
+                    expected.add(value);
+                    break;
+                case 1:
+                    if (expected.isEmpty()) break;
+                    final int index = random.nextInt(expected.size());
+                    assertEquals(expected.set(index, value), list.set(index, value));
+                    break;
+                case 2:
+                    if (expected.isEmpty()) break;
+                    assertEquals(expected.remove(expected.size() - 1), list.remove(list.size() - 1));
+                    break;
+                default:
+                    list.add(value);
+                    list.add(value);
+                    expected.add(value);
+                    expected.add(value);
+            }
+        }
+
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void snapshotsShouldNotChange() {
+        final List snapshot = list.snapshot();
+        final Iterator iterator = list.iterator();
+        list.set(0, "x");
+        list.add("d");
+        list.remove(1);
+
+        assertEquals(Arrays.asList("a", "b", "c"), snapshot);
+        final List<Object> iterated = new ArrayList<>();
+        while (iterator.hasNext()) iterated.add(iterator.next());
+        assertEquals(Arrays.asList("a", "b", "c"), iterated);
+        assertEquals(Arrays.asList("x", "c", "d"), list);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void iteratorsShouldNotSupportModification() {
+        final Iterator iterator = list.iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bulkModificationsShouldWork() {
+        list.replaceAll(o -> o + "1");
+        assertEquals(Arrays.asList("a1", "b1", "c1"), list);
+        list.sort(Comparator.reverseOrder());
+        assertEquals(Arrays.asList("c1", "b1", "a1"), list);
+        list.replaceContents(Arrays.asList("q", "r"));
+        assertEquals(Arrays.asList("q", "r"), list);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementsOfOtherClassesShouldBeRejected() {
+        list.add(1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullElementsShouldBeRejected() {
+        list.set(0, null);
+    }
+
+    @Test
+    public void collectionClassShouldBeList() {
+        assertEquals(List.class, list.getCollectionClass());
+        assertSame(list, list.getBackingCollection());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OptionsLongListTest {
+    private OptionsLongList list;
+
+    @Before
+    public void setUp() {
+        list = new OptionsLongList(Long.class);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        list.getClass().getConstructor(Class.class);
+    }
+
+    @Test(expected = CollectionInitializationException.class)
+    public void otherElementClassesShouldBeRejected() {
+        new OptionsLongList(Integer.class);
+    }
+
+    @Test
+    public void listOperationsShouldWork() {
+        list.addLong(1);
+        list.add(3L);
+        list.add(1, 2L);
+        assertEquals(Arrays.asList(1L, 2L, 3L), list);
+        assertEquals(2, list.getLong(1));
+        assertTrue(list.containsLong(3));
+        assertFalse(list.contains(3));
+
+        assertEquals(2L, list.remove(1));
+        list.set(0, 10L);
+        assertArrayEquals(new long[]{10, 3}, list.toLongArray());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void addMethodsShouldThrowExceptionForWrongClasses() {
+        try {
+            list.add(1);
+            fail("Expected exception not thrown for add()");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+
+        try {
+            list.add(null);
+            fail("Expected exception not thrown for null element");
+        } catch (NullPointerException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void decodedListShouldBeEncodedBack() {
+        list.decode("1:-2:9223372036854775807: 4 ");
+        assertArrayEquals(new long[]{1, -2, Long.MAX_VALUE, 4}, list.toLongArray());
+
+        StringBuilder sb = new StringBuilder();
+        list.encode(sb);
+        assertEquals("1:-2:9223372036854775807:4", sb.toString());
+
+        list.decode("");
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void decodingErrorShouldLeaveListEmpty() {
+        list.addLong(1);
+        try {
+            list.decode("2:x:3");
+            fail("Expected exception not thrown");
+        } catch (ParseException e) {
+            assertTrue(list.isEmpty());
+        }
+    }
+}
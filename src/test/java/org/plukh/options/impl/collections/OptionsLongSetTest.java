@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class OptionsLongSetTest {
+    private OptionsLongSet set;
+
+    @Before
+    public void setUp() {
+        set = new OptionsLongSet(Long.class);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        set.getClass().getConstructor(Class.class);
+    }
+
+    @Test(expected = CollectionInitializationException.class)
+    public void otherElementClassesShouldBeRejected() {
+        new OptionsLongSet(String.class);
+    }
+
+    @Test
+    public void setOperationsShouldWork() {
+        assertTrue(set.addLong(5));
+        assertFalse(set.addLong(5));
+        assertTrue(set.add(0L));
+        assertTrue(set.add(-7L));
+        assertEquals(3, set.size());
+        assertTrue(set.containsLong(0));
+        assertTrue(set.contains(-7L));
+        assertFalse(set.contains(-7));
+        assertFalse(set.containsLong(6));
+
+        assertTrue(set.removeLong(0));
+        assertTrue(set.remove(5L));
+        assertFalse(set.remove(5L));
+        assertEquals(Collections.singleton(-7L), set);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void setShouldBehaveLikeHashSet() {
+        final Random random = new Random(42);
+        final Set<Long> expected = new HashSet<>();
+
+        //Small value range to get plenty of collisions, removals and re-additions
+        for (int i = 0; i < 20000; ++i) {
+            final long value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.removeLong(value));
+            } else {
+                assertEquals(expected.add(value), set.addLong(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+    }
+
+    @Test
+    public void iteratorRemoveShouldVisitEveryElementOnce() {
+        final Random random = new Random(7);
+        for (int round = 0; round < 50; ++round) {
+            set.clear();
+            final Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < 200; ++i) {
+                final long value = random.nextLong();
+                set.addLong(value);
+                expected.add(value);
+            }
+
+            final List<Object> visited = new ArrayList<>();
+            for (Iterator i = set.iterator(); i.hasNext(); ) {
+                final Object value = i.next();
+                visited.add(value);
+                if (((Long) value) % 3 == 0) {
+                    i.remove();
+                    expected.remove(value);
+                }
+            }
+
+            assertEquals(200, visited.size());
+            assertEquals(200, new HashSet<>(visited).size());
+            assertEquals(expected, set);
+        }
+    }
+
+    @Test
+    public void decodedSetShouldBeEncodedBack() {
+        set.decode("3:1:0:2:3");
+        assertEquals(new HashSet<>(Arrays.asList(0L, 1L, 2L, 3L)), set);
+
+        StringBuilder sb = new StringBuilder();
+        set.encode(sb);
+        OptionsLongSet decoded = new OptionsLongSet(Long.class);
+        decoded.decode(sb.toString());
+        assertEquals(set, decoded);
+    }
+
+    @Test
+    public void readersShouldNeverSeePartiallyDecodedSet() throws InterruptedException {
+        final String small = encodeRange(1, 100);
+        final String large = encodeRange(1000, 5000);
+        final AtomicBoolean stop = new AtomicBoolean();
+
+        final Thread writer = new Thread(() -> {
+            while (!stop.get()) {
+                set.decode(small);
+                set.decode(large);
+            }
+        });
+        writer.start();
+
+        try {
+            for (int i = 0; i < 20000; ++i) {
+                final long[] contents = set.toLongArray();
+                assertTrue(contents.length == 0 || contents.length == 100 || contents.length == 4001);
+                //Keys of one snapshot must never be looked up with another snapshot's mask
+                set.containsLong(4000);
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+    private static String encodeRange(long from, long to) {
+        StringBuilder sb = new StringBuilder();
+        for (long i = from; i <= to; ++i) {
+            if (sb.length() > 0) sb.append(':');
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void decodingErrorShouldLeaveSetEmpty() {
+        set.addLong(1);
+        try {
+            set.decode("2::3");
+            fail("Expected exception not thrown");
+        } catch (ParseException e) {
+            assertTrue(set.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OptionsMapTest {
+    @Test
+    public void lookupsShouldFindAllEntries() {
+        List<Object> keys = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            keys.add("key" + i);
+            values.add(i);
+        }
+
+        OptionsMap map = OptionsMap.of(keys, values);
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i, map.get("key" + i));
+            assertTrue(map.containsKey("key" + i));
+        }
+        assertNull(map.get("key1000"));
+        assertNull(map.get(null));
+        assertEquals(-1, map.getOrDefault("missing", -1));
+    }
+
+    @Test
+    public void iterationShouldFollowInsertionOrder() {
+        OptionsMap map = OptionsMap.of(Arrays.<Object>asList("c", "a", "b"), Arrays.<Object>asList(3, 1, 2));
+        assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<>(map.keySet()));
+        assertEquals(Arrays.asList(3, 1, 2), new ArrayList<>(map.values()));
+    }
+
+    @Test
+    public void duplicateKeysShouldKeepLastValueAtFirstPosition() {
+        OptionsMap map = OptionsMap.of(Arrays.<Object>asList("a", "b", "a"), Arrays.<Object>asList(1, 2, 3));
+        assertEquals(2, map.size());
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(map.keySet()));
+        assertEquals(3, map.get("a"));
+    }
+
+    @Test
+    public void mapShouldBeEqualToOtherMapsWithSameEntries() {
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("a", 1);
+        expected.put("b", 2);
+
+        OptionsMap map = OptionsMap.of(Arrays.<Object>asList("a", "b"), Arrays.<Object>asList(1, 2));
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertTrue(OptionsMap.empty().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void mapShouldBeReadOnly() {
+        OptionsMap.of(Collections.<Object>singletonList("a"), Collections.<Object>singletonList(1)).put("b", 2);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void entrySetShouldBeReadOnly() {
+        Iterator it = OptionsMap.of(Collections.<Object>singletonList("a"), Collections.<Object>singletonList(1))
+                .entrySet().iterator();
+        it.next();
+        it.remove();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValuesShouldBeRejected() {
+        OptionsMap.of(Collections.<Object>singletonList("a"), Collections.singletonList(null));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OptionsNavigableSetTest {
+    private OptionsNavigableSet set;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        set = new OptionsNavigableSet(Integer.class);
+        set.addAll(Arrays.asList(50, 10, 30, 20, 40));
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        set.getClass().getConstructor(Class.class);
+        new OptionsSortedSet(Integer.class).getClass().getConstructor(Class.class);
+    }
+
+    @Test(expected = CollectionInitializationException.class)
+    public void nonComparableElementClassesShouldBeRejected() {
+        new OptionsNavigableSet(Object.class);
+    }
+
+    @Test
+    public void elementsShouldBeSorted() {
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), new ArrayList<>(set));
+        assertEquals(10, set.first());
+        assertEquals(50, set.last());
+
+        final List<Object> descending = new ArrayList<>();
+        for (Iterator iterator = set.descendingIterator(); iterator.hasNext(); ) descending.add(iterator.next());
+        assertEquals(Arrays.asList(50, 40, 30, 20, 10), descending);
+    }
+
+    @Test
+    public void navigationShouldWork() {
+        assertTrue(set.contains(30));
+        assertFalse(set.contains(35));
+        assertFalse(set.contains("30"));
+
+        assertEquals(20, set.lower(30));
+        assertEquals(30, set.floor(30));
+        assertEquals(30, set.floor(35));
+        assertEquals(30, set.ceiling(30));
+        assertEquals(40, set.ceiling(35));
+        assertEquals(40, set.higher(30));
+
+        assertNull(set.lower(10));
+        assertNull(set.floor(5));
+        assertNull(set.ceiling(55));
+        assertNull(set.higher(50));
+    }
+
+    @Test
+    public void modificationsShouldKeepOrder() {
+        assertTrue(set.add(25));
+        assertFalse(set.add(25));
+        assertTrue(set.remove(10));
+        assertFalse(set.remove(10));
+        assertEquals(Arrays.asList(20, 25, 30, 40, 50), new ArrayList<>(set));
+
+        assertEquals(20, set.pollFirst());
+        assertEquals(50, set.pollLast());
+        assertEquals(Arrays.asList(25, 30, 40), new ArrayList<>(set));
+    }
+
+    @Test
+    public void subSetsShouldBeSnapshots() {
+        assertEquals(Arrays.asList(20, 30), new ArrayList<>(set.subSet(20, 40)));
+        assertEquals(Arrays.asList(30, 40), new ArrayList<>(set.subSet(20, false, 40, true)));
+        assertEquals(Arrays.asList(10, 20), new ArrayList<>(set.headSet(30)));
+        assertEquals(Arrays.asList(30, 40, 50), new ArrayList<>(set.tailSet(30)));
+        assertEquals(Arrays.asList(50, 40, 30, 20, 10), new ArrayList<>(set.descendingSet()));
+
+        final SortedSet head = set.headSet(30);
+        set.add(15);
+        assertEquals(2, head.size());
+    }
+
+    @Test
+    public void iteratorShouldTraverseSnapshot() {
+        final Iterator iterator = set.iterator();
+        set.clear();
+
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            ++count;
+        }
+        assertEquals(5, count);
+    }
+
+    @Test
+    public void replaceContentsShouldSortAndDropDuplicates() {
+        set.replaceContents(Arrays.asList(3, 1, 2, 3));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(set));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementsOfOtherClassesShouldBeRejected() {
+        set.add("10");
+    }
+
+    @Test
+    public void collectionClassShouldMatchInterface() {
+        assertEquals(NavigableSet.class, set.getCollectionClass());
+        assertEquals(SortedSet.class, new OptionsSortedSet(Integer.class).getCollectionClass());
+    }
+}
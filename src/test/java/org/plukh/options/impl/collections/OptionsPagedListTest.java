@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class OptionsPagedListTest {
+    private OptionsPagedList list;
+    private List<String> decoded;
+
+    @Before
+    public void setUp() {
+        decoded = new ArrayList<>();
+        list = new OptionsPagedList(Integer.class);
+        list.setPaging(2, 2);
+        list.setPageDecoder(page -> {
+            decoded.add(page);
+            return Arrays.stream(page.split(":")).map(Integer::valueOf).toArray();
+        });
+        list.setPages(new EncodedPages(7, 2, Arrays.asList("0:1", "2:3", "4:5", "6")));
+    }
+
+    @Test
+    public void onlyAccessedPagesShouldBeDecoded() {
+        assertEquals(7, list.size());
+        assertEquals(5, list.get(5));
+        assertEquals(4, list.get(4));
+        assertEquals(Collections.singletonList("4:5"), decoded);
+        assertEquals(1, list.getResidentPageCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedPagesShouldBeEvicted() {
+        list.get(0);
+        list.get(2);
+        list.get(1);
+        list.get(4);
+        assertEquals(2, list.getResidentPageCount());
+
+        //Page 1 was evicted, page 0 is still resident
+        list.get(0);
+        list.get(3);
+        assertEquals(Arrays.asList("0:1", "2:3", "4:5", "2:3"), decoded);
+    }
+
+    @Test
+    public void iterationShouldStreamPagesWithoutRetainingThem() {
+        list.get(0);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6), new ArrayList<Object>(list));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6), list.stream().collect(Collectors.toList()));
+        assertEquals(1, list.getResidentPageCount());
+    }
+
+    @Test
+    public void replacingPagesShouldDiscardDecodedPages() {
+        list.get(0);
+        EncodedPages pages = list.getPages();
+
+        list.setPages(new EncodedPages(3, 2, Arrays.asList("7:8", "9")));
+        assertEquals(0, list.getResidentPageCount());
+        assertEquals(Arrays.asList(7, 8, 9), new ArrayList<Object>(list));
+
+        //Previous contents are unaffected
+        assertEquals(7, pages.getSize());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void accessBeyondEndShouldThrowAnException() {
+        list.get(7);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void listShouldBeReadOnly() {
+        list.add(7);
+    }
+
+    @Test(expected = ParseException.class)
+    public void pageWithWrongNumberOfElementsShouldThrowAnException() {
+        list.setPages(new EncodedPages(3, 2, Arrays.asList("7", "9")));
+        list.get(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumberOfPagesShouldThrowAnException() {
+        new EncodedPages(5, 2, Arrays.asList("0:1", "2:3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositivePageSizeShouldThrowAnException() {
+        list.setPaging(0, 1);
+    }
+}
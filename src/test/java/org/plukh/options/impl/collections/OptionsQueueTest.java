@@ -19,10 +19,10 @@ package org.plukh.options.impl.collections;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.*;
 import java.util.concurrent.DelayQueue;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -73,4 +73,45 @@ public class OptionsQueueTest {
             //Expected
         }
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void modificationsShouldBeJournaled() {
+        final List<String> records = new ArrayList<>();
+        queue.add("x");
+        queue.setJournal(new QueueJournal() {
+            @Override
+            public void offered(Object element) {
+                records.add("+" + element);
+            }
+
+            @Override
+            public void polled() {
+                records.add("-");
+            }
+
+            @Override
+            public void replaced(Collection contents) {
+                records.add("=" + contents);
+            }
+        });
+
+        queue.add("a");
+        queue.offer("b");
+        queue.addAll(Arrays.asList("c", "d"));
+        queue.poll();
+        queue.remove();
+        queue.remove("d");
+        for (Iterator iterator = queue.iterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.remove();
+        }
+        queue.poll();
+
+        assertEquals(Arrays.asList("+a", "+b", "+c", "+d", "-", "-", "=[b, c]", "=[c]", "=[]"), records);
+
+        queue.setJournal(null);
+        queue.add("e");
+        assertEquals(9, records.size());
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OptionsSetTest {
+    private OptionsSet set;
+
+    @Before
+    public void setUp() {
+        set = new OptionsSet(String.class);
+    }
+
+    @Test
+    public void classMustHaveProperConstructors() throws NoSuchMethodException {
+        set.getClass().getConstructor(Class.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void setOperationsShouldWork() {
+        assertTrue(set.add("a"));
+        assertFalse(set.add("a"));
+        assertTrue(set.add("b"));
+        assertTrue(set.add("c"));
+        assertEquals(3, set.size());
+        assertTrue(set.contains("b"));
+        assertFalse(set.contains("d"));
+        assertFalse(set.contains(1));
+
+        assertTrue(set.remove("b"));
+        assertFalse(set.remove("b"));
+        assertEquals(Arrays.asList("a", "c"), new ArrayList<>(set));
+
+        assertTrue(set.addAll(Arrays.asList("c", "d", "d")));
+        assertEquals(Arrays.asList("a", "c", "d"), new ArrayList<>(set));
+        assertTrue(set.retainAll(Arrays.asList("a", "d")));
+        assertEquals(Arrays.asList("a", "d"), new ArrayList<>(set));
+        assertTrue(set.removeAll(Collections.singleton("a")));
+        assertEquals(Collections.singleton("d"), set);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void setShouldBehaveLikeLinkedHashSet() {
+        final Random random = new Random(42);
+        final Set<String> expected = new LinkedHashSet<>();
+
+        for (int i = 0; i < 5000; ++i) {
+            final String value = String.valueOf(random.nextInt(300));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(value, expected.contains(value), set.contains(value));
+        }
+
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void iteratorShouldTraverseSnapshot() {
+        set.addAll(Arrays.asList("a", "b", "c"));
+
+        final Iterator iterator = set.iterator();
+        set.add("d");
+        set.remove("a");
+
+        final List<Object> traversed = new ArrayList<>();
+        while (iterator.hasNext()) traversed.add(iterator.next());
+        assertEquals(Arrays.asList("a", "b", "c"), traversed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void iteratorRemoveShouldWork() {
+        set.addAll(Arrays.asList("a", "b", "c"));
+        for (Iterator iterator = set.iterator(); iterator.hasNext(); ) {
+            if ("b".equals(iterator.next())) iterator.remove();
+        }
+        assertEquals(Arrays.asList("a", "c"), new ArrayList<>(set));
+    }
+
+    @Test
+    public void replaceContentsShouldDropDuplicates() {
+        set.add("x");
+        set.replaceContents(Arrays.asList("b", "a", "b"));
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(set));
+        assertFalse(set.contains("x"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullElementsShouldBeRejected() {
+        set.add(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elementsOfOtherClassesShouldBeRejected() {
+        set.add(1);
+    }
+
+    @Test
+    public void collectionClassShouldBeSet() {
+        assertEquals(Set.class, set.getCollectionClass());
+        assertSame(set, set.getBackingCollection());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentVectorTest {
+    @Test
+    public void pushAndPopShouldWorkAcrossTrieLevels() {
+        final List<Object> expected = new ArrayList<>();
+        PersistentVector vector = PersistentVector.EMPTY;
+
+        //Three levels of the trie are needed for over 32 * 32 + 32 elements
+        for (int i = 0; i < 40000; ++i) {
+            vector = vector.push(i);
+            expected.add(i);
+        }
+        assertEquals(expected, vector);
+        assertEquals(expected, new ArrayList<>(vector));
+        assertArrayEquals(expected.toArray(), vector.toArray());
+
+        while (!expected.isEmpty()) {
+            vector = vector.pop();
+            expected.remove(expected.size() - 1);
+            if (expected.size() % 997 == 0) assertEquals(expected, vector);
+        }
+        assertTrue(vector.isEmpty());
+    }
+
+    @Test
+    public void appendAllShouldMatchPush() {
+        final Integer[] elements = new Integer[5000];
+        for (int i = 0; i < elements.length; ++i) elements[i] = i;
+
+        for (int split : new int[]{0, 1, 31, 32, 33, 1055, 4999}) {
+            PersistentVector vector = PersistentVector.EMPTY;
+            for (int i = 0; i < split; ++i) vector = vector.push(elements[i]);
+            vector = vector.appendAll(elements, split, elements.length);
+            assertEquals(Arrays.asList(elements), vector);
+        }
+    }
+
+    @Test
+    public void modifiedVersionsShouldNotAffectOriginal() {
+        final Random random = new Random(42);
+        final Integer[] elements = new Integer[3000];
+        for (int i = 0; i < elements.length; ++i) elements[i] = i;
+
+        final PersistentVector original = PersistentVector.of(elements);
+        final List<Object> expected = new ArrayList<>(Arrays.asList(elements));
+        PersistentVector modified = original;
+
+        for (int i = 0; i < 1000; ++i) {
+            final int index = random.nextInt(expected.size());
+            modified = modified.with(index, -i);
+            expected.set(index, -i);
+        }
+
+        assertEquals(expected, modified);
+        assertEquals(Arrays.asList(elements), original);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void vectorShouldBeImmutable() {
+        PersistentVector.of(new Object[]{1}).add(2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBoundsShouldThrowAnException() {
+        PersistentVector.of(new Object[]{1}).get(1);
+    }
+}
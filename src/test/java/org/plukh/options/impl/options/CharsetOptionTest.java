@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharsetOptionTest {
+    private CharsetOption option;
+
+    @Before
+    public void setUp() {
+        option = new CharsetOption();
+    }
+
+    @Test
+    public void testStringToCharsetConversion() {
+        assertEquals(StandardCharsets.UTF_8, option.convertStringToValue("UTF-8"));
+        //Aliases should be accepted
+        assertEquals(StandardCharsets.UTF_8, option.convertStringToValue("utf8"));
+        assertEquals("ISO-8859-1", option.convertValueToString(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test(expected = ParseException.class)
+    public void unsupportedCharsetShouldThrowAnException() {
+        option.convertStringToValue("NO-SUCH-CHARSET");
+    }
+
+    @Test(expected = ParseException.class)
+    public void illegalCharsetNameShouldThrowAnException() {
+        option.convertStringToValue("UTF 8");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ClassLoaderPolicy;
+import org.plukh.options.ParseException;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ClassOptionTest {
+    private ClassOption option;
+
+    @Before
+    public void setUp() {
+        option = new ClassOption();
+    }
+
+    @Test
+    public void testStringToClassConversion() {
+        assertEquals(String.class, option.convertStringToValue("java.lang.String"));
+        assertEquals(ClassOptionTest.class, option.convertStringToValue(ClassOptionTest.class.getName()));
+        assertEquals("java.util.HashMap", option.convertValueToString(java.util.HashMap.class));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("org.plukh.options.NoSuchClass");
+    }
+
+    @Test
+    public void contextClassLoaderShouldBeUsedByDefault() {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+        final ClassLoader isolated = new URLClassLoader(new URL[0], null);
+        try {
+            thread.setContextClassLoader(isolated);
+            try {
+                option.convertStringToValue(ClassOptionTest.class.getName());
+            } catch (ParseException e) {
+                //Expected, test classes are not visible to the isolated class loader
+                return;
+            }
+            throw new AssertionError("Class should have been loaded by the context class loader");
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    @Test
+    public void optionsClassLoaderPolicyShouldIgnoreContextClassLoader() {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+        option.setClassLoaderPolicy(ClassLoaderPolicy.OPTIONS, ClassOptionTest.class.getClassLoader());
+        try {
+            thread.setContextClassLoader(new URLClassLoader(new URL[0], null));
+            assertSame(ClassOptionTest.class, option.convertStringToValue(ClassOptionTest.class.getName()));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+}
@@ -18,14 +18,18 @@ package org.plukh.options.impl.options;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.plukh.options.ParseException;
+import org.plukh.options.impl.collections.EncodedPages;
+import org.plukh.options.impl.collections.OptionsBlockingQueue;
+import org.plukh.options.impl.collections.OptionsList;
+import org.plukh.options.impl.collections.OptionsLongSet;
+import org.plukh.options.impl.collections.OptionsPagedList;
 import org.plukh.options.impl.collections.OptionsQueue;
 
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.math.BigDecimal;
+import java.util.*;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 @SuppressWarnings("unchecked")
 public class CollectionOptionTest {
@@ -148,6 +152,167 @@ public class CollectionOptionTest {
 
     //Conversion tests
 
+    @Test
+    public void stringShouldBeSplitIntoUnescapedElements() {
+        assertEquals(Arrays.asList("a:b", "c\\d", "", "e"), option.convertStringToValue("a\\:b:c\\\\d::e"));
+        assertEquals(Arrays.asList("x\\y"), option.convertStringToValue("x\\y"));
+        assertEquals(Collections.emptyList(), option.convertStringToValue(""));
+    }
+
+    @Test
+    public void loadedElementsShouldBeAddedToBackingCollection() {
+        collection.add("old");
+        option.setStringValue("a\\:b:c");
+        assertEquals(Arrays.asList("a:b", "c"), new ArrayList<>(collection));
+        assertSame(collection, option.getValue());
+    }
+
+    @Test
+    public void elementsExceedingCapacityShouldNotBeLoaded() {
+        option = new CollectionOption(Integer.class, OptionsBlockingQueue.class);
+        option.setCapacity(2);
+        option.setStringValue("1:2");
+        try {
+            option.convertStringToValue("1:2:3");
+            fail("Expected exception not thrown");
+        } catch (ParseException e) {
+            assertTrue(e.getMessage().contains("capacity"));
+        }
+        try {
+            option.setStringValue("3:4:5");
+            fail("Expected exception not thrown");
+        } catch (ParseException e) {
+            //Collection is left unchanged
+            assertEquals(Arrays.asList(1, 2), new ArrayList<>((Collection) option.getValue()));
+        }
+    }
+
+    @Test
+    public void convertedValueShouldBeAssignedWithoutConvertingAgain() {
+        option = new CollectionOption(BigDecimal.class, OptionsQueue.class);
+        final Collection converted = (Collection) option.convertStringToValue("1.50:2");
+        option.setConvertedValue(converted);
+        //Elements are the very instances converted before
+        assertSame(converted.iterator().next(), ((Collection) option.getValue()).iterator().next());
+
+        option = new CollectionOption(Long.class, OptionsLongSet.class);
+        option.setConvertedValue(option.convertStringToValue("3:0:-7"));
+        assertEquals(new HashSet<>(Arrays.asList(3L, 0L, -7L)), option.getValue());
+        ((OptionsLongSet) option.getValue()).addLong(5);
+        assertEquals(new HashSet<>(Arrays.asList(3L, 0L, -7L, 5L)), option.getValue());
+    }
+
+    @Test
+    public void savedStringShouldReflectCurrentContents() {
+        collection.add("a:b");
+        assertEquals("a\\:b", option.getStringValue());
+        collection.add("c\\");
+        assertEquals("a\\:b:c\\\\", option.getStringValue());
+    }
+
+    @Test
+    public void savedStringShouldBeLoadedBack() {
+        final List<String> elements = Arrays.asList("plain", "with:colon", "with\\backslash", "\\:", "", "end");
+        collection.addAll(elements);
+        final String saved = option.getStringValue();
+
+        CollectionOption loaded = new CollectionOption(String.class, OptionsQueue.class);
+        loaded.setStringValue(saved);
+        assertEquals(elements, new ArrayList<>((Collection) loaded.getValue()));
+    }
+
+    @Test
+    public void elementsShouldBeConvertedToElementClass() {
+        option = new CollectionOption(Integer.class, OptionsQueue.class);
+        option.setStringValue("1:2:3");
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>((Collection) option.getValue()));
+        assertEquals("1:2:3", option.getStringValue());
+    }
+
+    @Test
+    public void conversionErrorShouldLeaveCollectionEmpty() {
+        option = new CollectionOption(Integer.class, OptionsQueue.class);
+        option.setStringValue("1:2");
+        try {
+            option.setStringValue("3:x:4");
+            fail("Expected exception not thrown");
+        } catch (ParseException e) {
+            assertTrue(((Collection) option.getValue()).isEmpty());
+        }
+    }
+
+    @Test
+    public void defaultValueShouldPopulateCollection() {
+        option.setDefaultValue("a:b");
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(collection));
+
+        option.setStringValue("c");
+        option.resetToDefaultValue();
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(collection));
+    }
+
 
     //Other tests
+
+    @Test
+    public void pagedCollectionShouldBeSplitIntoPagesAtUnescapedSeparators() {
+        option = new CollectionOption(String.class, OptionsPagedList.class);
+        option.setPaging(2, 4);
+        option.setStringValue("a\\:b:c\\\\:d:e:");
+
+        EncodedPages pages = option.getEncodedPages();
+        assertEquals(5, pages.getSize());
+        assertEquals(Arrays.asList("a\\:b:c\\\\", "d:e", ""), pages.getPages());
+        assertEquals(Arrays.asList("a:b", "c\\", "d", "e", ""), new ArrayList<>((Collection) option.getValue()));
+        assertEquals("a\\:b:c\\\\:d:e:", option.getStringValue());
+    }
+
+    @Test
+    public void pagedCollectionShouldConvertElementsOnAccess() {
+        option = new CollectionOption(Integer.class, OptionsPagedList.class);
+        option.setPaging(2, 4);
+        option.setStringValue("1:2:x");
+
+        List list = (List) option.getValue();
+        assertEquals(2, list.get(1));
+        try {
+            list.get(2);
+            fail("Expected exception not thrown for an unconvertible element");
+        } catch (ParseException e) {
+            //Expected
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void encodedPagesWithWrongNumberOfElementsShouldBeRejected() {
+        option = new CollectionOption(String.class, OptionsPagedList.class);
+        option.setEncodedPages(new EncodedPages(3, 2, Arrays.asList("a", "b:c")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pagingShouldOnlyBeSupportedByPagedCollections() {
+        option.setPaging(2, 4);
+    }
+
+    @Test
+    public void modificationsOfObservableCollectionsShouldBeCounted() {
+        option = new CollectionOption(String.class, OptionsList.class);
+        final List list = (List) option.getValue();
+        final long loaded = option.getModificationCount();
+
+        list.add("a");
+        list.set(0, "b");
+        assertEquals(loaded + 2, option.getModificationCount());
+        list.remove("c");
+        assertEquals(loaded + 2, option.getModificationCount());
+
+        option.setStringValue("x:y");
+        assertEquals(loaded + 3, option.getModificationCount());
+    }
+
+    @Test
+    public void modificationsOfQueuesShouldNotBeCounted() {
+        collection.add("a");
+        assertEquals(-1, option.getModificationCount());
+    }
 }
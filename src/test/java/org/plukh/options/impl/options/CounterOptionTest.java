@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CounterOptionTest {
+    @Test
+    public void counterInstanceShouldBeRetainedOnLoad() {
+        CounterOption option = new CounterOption(AtomicLong.class);
+        AtomicLong counter = (AtomicLong) option.getValue();
+
+        option.setStringValue("42");
+        assertSame(counter, option.getValue());
+        assertEquals(42, counter.get());
+
+        option.resetToDefaultValue();
+        assertSame(counter, option.getValue());
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void stringValueShouldReflectCurrentCount() {
+        CounterOption option = new CounterOption(LongAdder.class);
+        LongAdder counter = (LongAdder) option.getValue();
+        assertEquals("0", option.getStringValue());
+
+        counter.increment();
+        counter.add(10);
+        assertEquals("11", option.getStringValue());
+        counter.increment();
+        assertEquals("12", option.getStringValue());
+    }
+
+    @Test
+    public void defaultValueShouldInitializeCounter() {
+        CounterOption option = new CounterOption(AtomicInteger.class);
+        option.setDefaultValue("7");
+        assertEquals(7, ((AtomicInteger) option.getValue()).get());
+
+        //Default value shouldn't overwrite an assigned value
+        option.setStringValue("3");
+        option.setDefaultValue("8");
+        assertEquals(3, ((AtomicInteger) option.getValue()).get());
+    }
+
+    @Test
+    public void settingValueShouldCopyCount() {
+        CounterOption option = new CounterOption(AtomicLong.class);
+        AtomicLong counter = (AtomicLong) option.getValue();
+        option.setValue(new AtomicLong(5));
+        assertSame(counter, option.getValue());
+        assertEquals(5, counter.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyCounterOfSameClassShouldBeAssignable() {
+        new CounterOption(AtomicLong.class).setValue(new AtomicInteger(1));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        new CounterOption(AtomicInteger.class).convertStringToValue("9223372036854775807");
+    }
+
+    @Test
+    public void optionFactoryShouldReturnCounterOptionForCounters() throws Exception {
+        assertEquals(CounterOption.class, OptionFactory.getOptionForClass(AtomicInteger.class).getClass());
+        assertEquals(CounterOption.class, OptionFactory.getOptionForClass(AtomicLong.class).getClass());
+        assertEquals(CounterOption.class, OptionFactory.getOptionForClass(LongAdder.class).getClass());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.DataSize;
+import org.plukh.options.ParseException;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DataSizeOptionTest {
+    private DataSizeOption option;
+
+    @Before
+    public void setUp() {
+        option = new DataSizeOption();
+    }
+
+    @Test
+    public void testStringToDataSizeConversion() {
+        assertEquals(512000000L, ((DataSize) option.convertStringToValue("512MB")).toBytes());
+        assertEquals(2L << 30, ((DataSize) option.convertStringToValue("2GiB")).toBytes());
+        assertEquals(4096, ((DataSize) option.convertStringToValue("4 kib")).toBytes());
+        assertEquals(100, ((DataSize) option.convertStringToValue("100B")).toBytes());
+        assertEquals(100, ((DataSize) option.convertStringToValue("100")).toBytes());
+    }
+
+    @Test
+    public void dataSizeShouldBeConvertedToCanonicalString() {
+        assertEquals("512MB", option.convertValueToString(DataSize.ofBytes(512000000L)));
+        assertEquals("2GiB", option.convertValueToString(DataSize.ofBytes(2L << 30)));
+        assertEquals("1KB", option.convertValueToString(DataSize.ofBytes(1000)));
+        assertEquals("1001B", option.convertValueToString(DataSize.ofBytes(1001)));
+        assertEquals("0B", option.convertValueToString(DataSize.ZERO));
+    }
+
+    @Test
+    public void unitsShouldBeParsedRegardlessOfDefaultLocale() {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(1024, ((DataSize) option.convertStringToValue("1kib")).toBytes());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void unknownUnitShouldThrowAnException() {
+        option.convertStringToValue("10 bytes");
+    }
+
+    @Test(expected = ParseException.class)
+    public void negativeSizeShouldThrowAnException() {
+        option.convertStringToValue("-1KB");
+    }
+
+    @Test(expected = ParseException.class)
+    public void overflowShouldThrowAnException() {
+        option.convertStringToValue("9000EiB");
+    }
+
+    @Test
+    public void nullOrEmptyShouldConvertAsNullBothWays() {
+        assertNull(option.convertStringToValue(null));
+        assertNull(option.convertStringToValue(""));
+        assertNull(option.convertValueToString(null));
+    }
+}
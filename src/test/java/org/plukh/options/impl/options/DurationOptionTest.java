@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationOptionTest {
+    private DurationOption option;
+
+    @Before
+    public void setUp() {
+        option = new DurationOption();
+    }
+
+    @Test
+    public void testDurationToStringConversion() {
+        assertEquals("PT1M30S", option.convertValueToString(Duration.ofSeconds(90)));
+    }
+
+    @Test
+    public void testStringToDurationConversion() {
+        assertEquals(Duration.ofMillis(250), option.convertStringToValue("PT0.25S"));
+    }
+
+    @Test
+    public void valuesWithUnitSuffixShouldBeAccepted() {
+        assertEquals(Duration.ofSeconds(30), option.convertStringToValue("30s"));
+        assertEquals(Duration.ofMillis(250), option.convertStringToValue("250ms"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("thisShouldNotWork");
+    }
+}
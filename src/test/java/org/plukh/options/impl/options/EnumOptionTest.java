@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class EnumOptionTest {
+    private enum Variant {
+        Foo, FOO, BAR
+    }
+
+    private EnumOption option;
+
+    @Before
+    public void setUp() {
+        option = new EnumOption(TimeUnit.class);
+    }
+
+    @Test
+    public void testStringToEnumConversion() {
+        assertEquals(TimeUnit.SECONDS, option.convertStringToValue("SECONDS"));
+        assertEquals(TimeUnit.DAYS, option.convertStringToValue("DAYS"));
+    }
+
+    @Test
+    public void testEnumToStringConversion() {
+        assertEquals("MINUTES", option.convertValueToString(TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void emptyStringShouldConvertToNull() {
+        assertNull(option.convertStringToValue(""));
+        assertNull(option.convertStringToValue(null));
+        assertNull(option.convertValueToString(null));
+    }
+
+    @Test(expected = ParseException.class)
+    public void unknownNameShouldThrowAnException() {
+        option.convertStringToValue("FORTNIGHTS");
+    }
+
+    @Test(expected = ParseException.class)
+    public void namesShouldBeCaseSensitiveByDefault() {
+        option.convertStringToValue("seconds");
+    }
+
+    @Test
+    public void namesShouldMatchIgnoringCaseWhenRequested() {
+        option.setIgnoreCase(true);
+        assertEquals(TimeUnit.SECONDS, option.convertStringToValue("seconds"));
+        assertEquals(TimeUnit.MILLISECONDS, option.convertStringToValue("MilliSeconds"));
+    }
+
+    @Test
+    public void namesDifferingOnlyInCaseShouldMatchExactly() {
+        option = new EnumOption(Variant.class);
+        option.setIgnoreCase(true);
+        assertEquals(Variant.Foo, option.convertStringToValue("Foo"));
+        assertEquals(Variant.FOO, option.convertStringToValue("FOO"));
+        assertEquals(Variant.BAR, option.convertStringToValue("bar"));
+        try {
+            option.convertStringToValue("foo");
+            fail("Ambiguous name should not be matched ignoring case");
+        } catch (ParseException e) {
+            //Expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonEnumClassShouldBeRejected() {
+        new EnumOption(String.class);
+    }
+
+    @Test
+    public void optionFactoryShouldReturnEnumOptionForEnums() throws Exception {
+        AbstractOption factoryOption = OptionFactory.getOptionForClass(TimeUnit.class);
+        assertEquals(EnumOption.class, factoryOption.getClass());
+        assertEquals(TimeUnit.class, factoryOption.getOptionClass());
+    }
+}
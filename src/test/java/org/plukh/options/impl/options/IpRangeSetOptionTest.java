@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.IpRangeSet;
+import org.plukh.options.ParseException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IpRangeSetOptionTest {
+    private IpRangeSetOption option;
+
+    @Before
+    public void setUp() {
+        option = new IpRangeSetOption();
+    }
+
+    @Test
+    public void testStringToIpRangeSetConversion() throws UnknownHostException {
+        IpRangeSet set = (IpRangeSet) option.convertStringToValue("10.0.0.0/8, 10.1.0.0/16,192.168.1.1, 2001:db8::/32");
+        assertEquals(4, set.getRanges().size());
+        assertEquals("10.0.0.0/8, 10.1.0.0/16, 192.168.1.1, 2001:db8::/32", option.convertValueToString(set));
+
+        assertEquals(8, set.longestMatch(address("10.2.3.4")));
+        assertEquals(16, set.longestMatch(address("10.1.3.4")));
+        assertEquals(32, set.longestMatch(address("192.168.1.1")));
+        assertEquals(-1, set.longestMatch(address("192.168.1.2")));
+        assertEquals(-1, set.longestMatch(address("11.0.0.1")));
+        assertEquals(32, set.longestMatch(address("2001:db8:1::1")));
+        assertEquals(-1, set.longestMatch(address("2001:db9::1")));
+        assertTrue(set.contains(InetAddress.getByName("10.255.255.255")));
+        assertTrue(set.containsIPv4(0x0A000001));
+    }
+
+    @Test
+    public void ipv6NotationsShouldBeSupported() {
+        IpRangeSet set = (IpRangeSet) option.convertStringToValue("::1, ::ffff:192.0.2.0/120, fe80::/10, " +
+                "1:2:3:4:5:6:7:8, ::/0");
+        assertEquals(128, set.longestMatch(address("::1")));
+        //InetAddress converts IPv4-mapped addresses to IPv4 ones
+        byte[] mapped = new byte[16];
+        mapped[10] = mapped[11] = (byte) 0xFF;
+        System.arraycopy(address("192.0.2.255"), 0, mapped, 12, 4);
+        assertEquals(120, set.longestMatch(mapped));
+        assertEquals(10, set.longestMatch(address("febf::1")));
+        assertEquals(128, set.longestMatch(address("1:2:3:4:5:6:7:8")));
+        assertEquals(0, set.longestMatch(address("2001:db8::1")));
+        //IPv4 addresses are matched against IPv4 ranges only
+        assertEquals(-1, set.longestMatch(address("192.0.2.1")));
+    }
+
+    @Test
+    public void defaultRouteShouldMatchAllAddresses() {
+        IpRangeSet set = (IpRangeSet) option.convertStringToValue("0.0.0.0/0");
+        assertEquals(0, set.longestMatch(address("255.255.255.255")));
+        assertEquals(0, set.longestMatch(address("0.0.0.0")));
+    }
+
+    @Test
+    public void matchesShouldAgreeWithLinearScan() {
+        Random random = new Random(42);
+        int[] networks = new int[200];
+        int[] lengths = new int[networks.length];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < networks.length; ++i) {
+            lengths[i] = random.nextInt(33);
+            networks[i] = random.nextInt() & mask(lengths[i]);
+            if (i > 0) sb.append(',');
+            sb.append(format(networks[i])).append('/').append(lengths[i]);
+        }
+        IpRangeSet set = (IpRangeSet) option.convertStringToValue(sb.toString());
+
+        for (int i = 0; i < 10000; ++i) {
+            //Half of the addresses are picked from the ranges, the rest are random
+            int address = random.nextBoolean() ? random.nextInt() :
+                    networks[random.nextInt(networks.length)] | random.nextInt(256);
+            int expected = -1;
+            for (int j = 0; j < networks.length; ++j) {
+                if ((address & mask(lengths[j])) == networks[j]) expected = Math.max(expected, lengths[j]);
+            }
+            assertEquals(expected, set.longestMatchIPv4(address));
+        }
+    }
+
+    @Test
+    public void emptyOptionShouldReturnEmptySet() {
+        assertSame(IpRangeSet.EMPTY, option.getValue());
+        assertFalse(IpRangeSet.EMPTY.contains(address("10.0.0.1")));
+    }
+
+    @Test
+    public void invalidRangesShouldThrowAnException() {
+        for (String s : new String[] {"10.0.0.0/33", "10.0.0.1/8", "256.0.0.0", "10.0.0", "10.0.0.0/", "1::2::3",
+                "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7", "::ffff:1.2.3.4/200", "fe80::1%eth0", "12345::", "host"}) {
+            try {
+                option.convertStringToValue(s);
+                fail("Expected exception not thrown for " + s);
+            } catch (ParseException e) {
+                //Expected
+            }
+        }
+    }
+
+    private static int mask(int length) {
+        return length == 0 ? 0 : -1 << (32 - length);
+    }
+
+    private static String format(int address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static byte[] address(String literal) {
+        try {
+            //Literals are parsed without name service lookups
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class LocaleOptionTest {
+    private LocaleOption option;
+
+    @Before
+    public void setUp() {
+        option = new LocaleOption();
+    }
+
+    @Test
+    public void testStringToLocaleConversion() {
+        assertEquals(Locale.US, option.convertStringToValue("en-US"));
+        assertEquals(Locale.US, option.convertStringToValue("en_US"));
+        assertEquals(Locale.forLanguageTag("zh-Hant-TW"), option.convertStringToValue("zh-Hant-TW"));
+        assertEquals(Locale.GERMAN, option.convertStringToValue("de"));
+    }
+
+    @Test
+    public void testLocaleToStringConversion() {
+        assertEquals("en-US", option.convertValueToString(Locale.US));
+        assertEquals("fr", option.convertValueToString(Locale.FRENCH));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("not a locale");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MapOptionTest {
+    private MapOption option;
+
+    @Before
+    public void setUp() {
+        option = new MapOption(String.class, Integer.class);
+    }
+
+    @Test
+    public void testStringToMapConversion() {
+        Map map = (Map) option.convertStringToValue("b=2:a=1");
+        assertEquals(2, map.size());
+        assertEquals(2, map.get("b"));
+        assertEquals(1, map.get("a"));
+        assertEquals("b=2:a=1", option.convertValueToString(map));
+    }
+
+    @Test
+    public void specialCharactersShouldBeEscaped() {
+        MapOption stringOption = new MapOption(String.class, String.class);
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("a=b:c\\", "x:y=z\\");
+        map.put("", "");
+
+        String s = stringOption.convertValueToString(map);
+        assertEquals("a\\=b\\:c\\\\=x\\:y=z\\\\:=", s);
+        assertEquals(map, stringOption.convertStringToValue(s));
+    }
+
+    @Test
+    public void unescapedEqualSignsShouldBelongToValue() {
+        MapOption stringOption = new MapOption(String.class, String.class);
+        Map map = (Map) stringOption.convertStringToValue("a=b=c");
+        assertEquals(Collections.singletonMap("a", "b=c"), map);
+    }
+
+    @Test
+    public void emptyOptionShouldReturnEmptyMap() {
+        assertTrue(((Map) option.getValue()).isEmpty());
+        option.setStringValue("");
+        assertTrue(((Map) option.getValue()).isEmpty());
+    }
+
+    @Test
+    public void mapShouldBeCompiledOnlyOnceForSameString() {
+        option.setStringValue("a=1");
+        Object compiled = option.getValue();
+
+        option.setStringValue("a=1");
+        assertSame(compiled, option.getValue());
+    }
+
+    @Test(expected = ParseException.class)
+    public void entryWithoutValueShouldThrowAnException() {
+        option.convertStringToValue("a=1:b");
+    }
+
+    @Test(expected = ParseException.class)
+    public void valueConversionErrorShouldThrowAnException() {
+        option.convertStringToValue("a=x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void settingValueShouldThrowAnException() {
+        option.setValue(new HashMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedValueClassShouldThrowAnException() {
+        new MapOption(String.class, Object.class);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.text.MessageFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class MessageFormatOptionTest {
+    private MessageFormatOption option;
+
+    @Before
+    public void setUp() {
+        option = new MessageFormatOption();
+    }
+
+    @Test
+    public void testStringToMessageFormatConversion() {
+        option.setStringValue("Hello, {0}!");
+        assertEquals("Hello, world!", ((MessageFormat) option.getValue()).format(new Object[]{"world"}));
+        assertEquals("Hello, {0}!", option.getStringValue());
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("Hello, {0");
+    }
+
+    @Test
+    public void getterShouldReturnIndependentCopies() {
+        option.setStringValue("Hello, {0}!");
+        MessageFormat first = (MessageFormat) option.getValue();
+        first.applyPattern("Bye, {0}!");
+
+        MessageFormat second = (MessageFormat) option.getValue();
+        assertNotSame(first, second);
+        assertEquals("Hello, {0}!", second.toPattern());
+    }
+}
@@ -20,7 +20,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.plukh.options.ParseException;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class NumberOptionTest {
     private NumberOption option;
@@ -49,4 +53,44 @@ public class NumberOptionTest {
     public void conversionErrorShouldThrowAnException() {
         option.convertStringToValue("thisShouldNotWork");
     }
+
+    @Test
+    public void testStringToBigIntegerConversion() {
+        option = new NumberOption(BigInteger.class);
+        assertEquals(BigInteger.valueOf(-42), option.convertStringToValue("-42"));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), option.convertStringToValue("9223372036854775807"));
+        assertEquals(new BigInteger("123456789012345678901234567890"),
+                option.convertStringToValue("123456789012345678901234567890"));
+        assertEquals("-123456789012345678901234567890",
+                option.convertValueToString(new BigInteger("-123456789012345678901234567890")));
+    }
+
+    @Test
+    public void testStringToBigDecimalConversion() {
+        option = new NumberOption(BigDecimal.class);
+        //Scale must be retained, so use the same values as BigDecimal(String) would produce
+        for (String s : new String[]{"0", "-0.0", "1.50", "+12.5", ".5", "5.", "123456789012345678",
+                "1234567890123456789.0123456789", "1E+3", "-2.5e-7"}) {
+            assertEquals("Converting " + s, new BigDecimal(s), option.convertStringToValue(s));
+        }
+        assertEquals("1.50", option.convertValueToString(new BigDecimal("1.50")));
+    }
+
+    @Test
+    public void bigDecimalConversionErrorShouldThrowAnException() {
+        option = new NumberOption(BigDecimal.class);
+        for (String s : new String[]{"-", ".", "1.2.3", "1,5", "abc"}) {
+            try {
+                option.convertStringToValue(s);
+                fail("Expected exception not thrown for " + s);
+            } catch (ParseException e) {
+                //Expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedNumberClassShouldBeRejected() {
+        new NumberOption(Number.class);
+    }
 }
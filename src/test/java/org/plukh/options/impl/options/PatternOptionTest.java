@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PatternOptionTest {
+    private PatternOption option;
+
+    @Before
+    public void setUp() {
+        option = new PatternOption();
+    }
+
+    @Test
+    public void testStringToPatternConversion() {
+        Pattern pattern = (Pattern) option.convertStringToValue("[a-z]+\\d");
+        assertTrue(pattern.matcher("abc1").matches());
+        assertEquals("[a-z]+\\d", option.convertValueToString(pattern));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("[a-z");
+    }
+
+    @Test
+    public void patternShouldBeCompiledOnlyOnceForSameString() {
+        option.setStringValue("a+");
+        Object compiled = option.getValue();
+
+        //Reload with the same string value
+        option.setStringValue("a+");
+        assertSame(compiled, option.getValue());
+    }
+
+    @Test
+    public void changedStringShouldInvalidateCompiledPattern() {
+        option.setStringValue("a+");
+        Pattern compiled = (Pattern) option.getValue();
+
+        option.setStringValue("b+");
+        Pattern recompiled = (Pattern) option.getValue();
+        assertNotSame(compiled, recompiled);
+        assertEquals("b+", recompiled.pattern());
+    }
+}
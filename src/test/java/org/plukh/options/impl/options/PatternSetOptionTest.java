@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+import org.plukh.options.PatternSet;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PatternSetOptionTest {
+    private PatternSetOption option;
+
+    @Before
+    public void setUp() {
+        option = new PatternSetOption();
+    }
+
+    @Test
+    public void matchShouldReportFirstMatchingPattern() {
+        PatternSet set = (PatternSet) option.convertStringToValue("/health:/api/(v1|v2)/.*:/api/v1/users");
+        assertEquals(Arrays.asList("/health", "/api/(v1|v2)/.*", "/api/v1/users"), set.getPatterns());
+
+        assertEquals(0, set.match("/health"));
+        assertEquals(1, set.match("/api/v2/orders"));
+        //Both the second and the third pattern match, the second one takes precedence
+        assertEquals(1, set.match("/api/v1/users"));
+        assertEquals(-1, set.match("/healthz"));
+        assertFalse(set.matches("/api/v3/users"));
+    }
+
+    @Test
+    public void groupsInsidePatternsShouldNotAffectMatchIndex() {
+        PatternSet set = (PatternSet) option.convertStringToValue("(a)(b)(c):(?<x>d)(e):f");
+        assertEquals(0, set.match("abc"));
+        assertEquals(1, set.match("de"));
+        assertEquals(2, set.match("f"));
+    }
+
+    @Test
+    public void escapedColonsShouldBePartOfPatterns() {
+        PatternSet set = (PatternSet) option.convertStringToValue("https\\://.*:\\d+");
+        assertEquals(Arrays.asList("https://.*", "\\d+"), set.getPatterns());
+        assertEquals(0, set.match("https://example.com"));
+        assertEquals(1, set.match("123"));
+        assertEquals("https\\://.*:\\\\d+", option.convertValueToString(set));
+        assertEquals(set, option.convertStringToValue(option.convertValueToString(set)));
+    }
+
+    @Test
+    public void globPatternsShouldBeSupported() {
+        option.setFormat("glob");
+        PatternSet set = (PatternSet) option.convertStringToValue("/static/**:/api/*/status:*.{png,jpg}:/file?.[!a-c]");
+        assertEquals(PatternSet.Syntax.GLOB, set.getSyntax());
+
+        assertEquals(0, set.match("/static/css/site.css"));
+        assertEquals(1, set.match("/api/orders/status"));
+        assertEquals(-1, set.match("/api/orders/1/status"));
+        assertEquals(2, set.match("logo.png"));
+        assertEquals(-1, set.match("images/logo.png"));
+        assertEquals(3, set.match("/file1.d"));
+        assertEquals(-1, set.match("/file1.a"));
+    }
+
+    @Test
+    public void globSpecialCharactersShouldBeMatchedLiterally() {
+        option.setFormat("GLOB");
+        PatternSet set = (PatternSet) option.convertStringToValue("a+b(c).\\*");
+        assertTrue(set.matches("a+b(c).*"));
+        assertFalse(set.matches("a+b(c).x"));
+    }
+
+    @Test
+    public void patternSetShouldBeCompiledOnlyOnceForSameString() {
+        option.setStringValue("a+:b+");
+        Object compiled = option.getValue();
+
+        option.setStringValue("a+:b+");
+        assertSame(compiled, option.getValue());
+    }
+
+    @Test
+    public void emptyOptionShouldReturnEmptySet() {
+        PatternSet set = (PatternSet) option.getValue();
+        assertTrue(set.isEmpty());
+        assertEquals(-1, set.match(""));
+    }
+
+    @Test(expected = ParseException.class)
+    public void invalidPatternShouldThrowAnException() {
+        option.convertStringToValue("a+:[b");
+    }
+
+    @Test(expected = ParseException.class)
+    public void invalidGlobShouldThrowAnException() {
+        option.setFormat("glob");
+        option.convertStringToValue("{a,b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSyntaxShouldThrowAnException() {
+        option.setFormat("wildcard");
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PrimitiveArrayOptionTest {
+    @Test
+    public void testStringToArrayConversion() {
+        assertArrayEquals(new int[]{1, -2, 3}, (int[]) new PrimitiveArrayOption(int[].class).convertStringToValue("1:-2:3"));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0}, (long[]) new PrimitiveArrayOption(long[].class)
+                .convertStringToValue("-9223372036854775808:0"));
+        assertArrayEquals(new double[]{1.5, -2e10}, (double[]) new PrimitiveArrayOption(double[].class)
+                .convertStringToValue("1.5:-2e10"), 0);
+        assertArrayEquals(new long[0], (long[]) new PrimitiveArrayOption(long[].class).convertStringToValue(""));
+    }
+
+    @Test
+    public void testArrayToStringConversion() {
+        assertEquals("1:-2:3", new PrimitiveArrayOption(int[].class).convertValueToString(new int[]{1, -2, 3}));
+        assertEquals("5", new PrimitiveArrayOption(long[].class).convertValueToString(new long[]{5}));
+        assertEquals("1.5:0.25", new PrimitiveArrayOption(double[].class).convertValueToString(new double[]{1.5, 0.25}));
+        assertEquals("", new PrimitiveArrayOption(int[].class).convertValueToString(new int[0]));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        new PrimitiveArrayOption(int[].class).convertStringToValue("1:two:3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyArraysOfOptionClassShouldBeAssignable() {
+        new PrimitiveArrayOption(int[].class).setValue(new long[0]);
+    }
+
+    @Test
+    public void optionFactoryShouldReturnArrayOptionForPrimitiveArrays() throws Exception {
+        assertEquals(PrimitiveArrayOption.class, OptionFactory.getOptionForClass(long[].class).getClass());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.time.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TemporalOptionTest {
+    private static final LocalDateTime DATE_TIME = LocalDateTime.of(1974, 1, 31, 22, 0, 0, 111000000);
+
+    @Test
+    public void testInstantConversion() {
+        InstantOption option = new InstantOption();
+        final Instant instant = DATE_TIME.toInstant(ZoneOffset.UTC);
+
+        assertEquals("1974-01-31T22:00:00.111Z", option.convertValueToString(instant));
+        assertEquals(instant, option.convertStringToValue("1974-01-31T22:00:00.111Z"));
+    }
+
+    @Test
+    public void instantWithCustomPatternShouldUseUtc() {
+        InstantOption option = new InstantOption();
+        option.setFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        final Instant instant = DATE_TIME.toInstant(ZoneOffset.UTC);
+
+        assertEquals("1974-01-31 22:00:00.111", option.convertValueToString(instant));
+        assertEquals(instant, option.convertStringToValue("1974-01-31 22:00:00.111"));
+    }
+
+    @Test
+    public void testLocalDateConversion() {
+        LocalDateOption option = new LocalDateOption();
+
+        assertEquals("1974-01-31", option.convertValueToString(DATE_TIME.toLocalDate()));
+        assertEquals(DATE_TIME.toLocalDate(), option.convertStringToValue("1974-01-31"));
+    }
+
+    @Test
+    public void testLocalDateTimeConversion() {
+        LocalDateTimeOption option = new LocalDateTimeOption();
+
+        assertEquals("1974-01-31T22:00:00.111", option.convertValueToString(DATE_TIME));
+        assertEquals(DATE_TIME, option.convertStringToValue("1974-01-31T22:00:00.111"));
+    }
+
+    @Test
+    public void testZonedDateTimeConversion() {
+        ZonedDateTimeOption option = new ZonedDateTimeOption();
+        final ZonedDateTime dateTime = DATE_TIME.atZone(ZoneId.of("Europe/Moscow"));
+
+        assertEquals(dateTime, option.convertStringToValue(option.convertValueToString(dateTime)));
+    }
+
+    @Test
+    public void customPatternShouldBeUsedBothWays() {
+        LocalDateOption option = new LocalDateOption();
+        option.setFormat("dd.MM.yyyy");
+
+        assertEquals("31.01.1974", option.convertValueToString(DATE_TIME.toLocalDate()));
+        assertEquals(DATE_TIME.toLocalDate(), option.convertStringToValue("31.01.1974"));
+    }
+
+    @Test
+    public void formattersShouldBeSharedBetweenOptions() {
+        LocalDateOption option1 = new LocalDateOption();
+        LocalDateOption option2 = new LocalDateOption();
+        option1.setFormat("dd.MM.yyyy");
+        option2.setFormat("dd.MM.yyyy");
+
+        assertEquals(option1.getFormatter(), option2.getFormatter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPatternShouldThrowAnException() {
+        new LocalDateOption().setFormat("yyyy-MM-dd{");
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        new LocalDateTimeOption().convertStringToValue("1974-01-31");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyValuesOfOptionClassShouldBeAssignable() {
+        new LocalDateOption().setValue(DATE_TIME);
+    }
+
+    @Test
+    public void nullOrEmptyShouldConvertAsNullBothWays() {
+        InstantOption option = new InstantOption();
+        assertNull(option.convertStringToValue(null));
+        assertNull(option.convertStringToValue(""));
+        assertNull(option.convertValueToString(null));
+    }
+}
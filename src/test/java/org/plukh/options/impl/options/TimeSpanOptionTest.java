@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+import org.plukh.options.TimeSpan;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TimeSpanOptionTest {
+    private TimeSpanOption option;
+
+    @Before
+    public void setUp() {
+        option = new TimeSpanOption();
+    }
+
+    @Test
+    public void testStringToTimeSpanConversion() {
+        assertEquals(TimeUnit.SECONDS.toNanos(30), ((TimeSpan) option.convertStringToValue("30s")).toNanos());
+        assertEquals(250, ((TimeSpan) option.convertStringToValue("250ms")).toMillis());
+        assertEquals(TimeUnit.MINUTES.toNanos(5), ((TimeSpan) option.convertStringToValue("5 min")).toNanos());
+        assertEquals(TimeUnit.HOURS.toNanos(2), ((TimeSpan) option.convertStringToValue("2H")).toNanos());
+        assertEquals(-10, ((TimeSpan) option.convertStringToValue("-10us")).toMicros());
+    }
+
+    @Test
+    public void unitsShouldBeParsedRegardlessOfDefaultLocale() {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(TimeUnit.MINUTES.toNanos(1), ((TimeSpan) option.convertStringToValue("1MIN")).toNanos());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void amountWithoutUnitShouldBeTreatedAsMilliseconds() {
+        assertEquals(TimeSpan.of(1500, TimeUnit.MILLISECONDS), option.convertStringToValue("1500"));
+    }
+
+    @Test
+    public void timeSpanShouldBeConvertedToCanonicalString() {
+        assertEquals("30s", option.convertValueToString(TimeSpan.of(30000, TimeUnit.MILLISECONDS)));
+        assertEquals("90s", option.convertValueToString(TimeSpan.of(90, TimeUnit.SECONDS)));
+        assertEquals("2h", option.convertValueToString(TimeSpan.of(120, TimeUnit.MINUTES)));
+        assertEquals("1001us", option.convertValueToString(TimeSpan.ofNanos(1001000)));
+        assertEquals("0s", option.convertValueToString(TimeSpan.ZERO));
+    }
+
+    @Test(expected = ParseException.class)
+    public void unknownUnitShouldThrowAnException() {
+        option.convertStringToValue("10 weeks");
+    }
+
+    @Test(expected = ParseException.class)
+    public void overflowShouldThrowAnException() {
+        option.convertStringToValue("9223372036854775807d");
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("thisShouldNotWork");
+    }
+
+    @Test
+    public void nullOrEmptyShouldConvertAsNullBothWays() {
+        assertNull(option.convertStringToValue(null));
+        assertNull(option.convertStringToValue(""));
+        assertNull(option.convertValueToString(null));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.options;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.plukh.options.ParseException;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class URIOptionTest {
+    private URIOption option;
+
+    @Before
+    public void setUp() {
+        option = new URIOption();
+    }
+
+    @Test
+    public void testStringToURIConversion() {
+        assertEquals(URI.create("http://example.com/path?q=1"), option.convertStringToValue("http://example.com/path?q=1"));
+        assertEquals("file:/tmp/x", option.convertValueToString(URI.create("file:/tmp/x")));
+        assertNull(option.convertStringToValue(""));
+    }
+
+    @Test(expected = ParseException.class)
+    public void conversionErrorShouldThrowAnException() {
+        option.convertStringToValue("http://example.com/a b");
+    }
+}
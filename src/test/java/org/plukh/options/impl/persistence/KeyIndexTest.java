@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyIndexTest {
+    @Test
+    public void keysShouldBeFoundInTheirSlots() {
+        KeyIndex index = new KeyIndex(Arrays.asList("app.name", "app.port", "ids"), new boolean[] {false, false, true});
+
+        assertEquals(3, index.size());
+        assertEquals(0, find(index, "app.name"));
+        assertEquals(1, find(index, "app.port"));
+        assertEquals(2, find(index, "ids"));
+        assertEquals("app.port", index.getKey(1));
+        assertTrue(index.isPaged(2));
+        assertFalse(index.isPaged(0));
+    }
+
+    @Test
+    public void unknownKeysShouldNotBeFound() {
+        KeyIndex index = new KeyIndex(Arrays.asList("abc", "def"), new boolean[2]);
+
+        assertEquals(-1, find(index, "ab"));
+        assertEquals(-1, find(index, "abcd"));
+        assertEquals(-1, find(index, ""));
+        assertEquals(-1, find(index, "ключ"));
+    }
+
+    @Test
+    public void keysFoundInsideBufferShouldMatchExactly() {
+        KeyIndex index = new KeyIndex(Collections.singletonList("key"), new boolean[1]);
+        ByteBuffer buffer = ByteBuffer.wrap("xkeyx".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(0, index.find(buffer, 1, 4));
+        assertEquals(-1, index.find(buffer, 0, 4));
+    }
+
+    @Test
+    public void typicalKeySetsShouldBeHashedPerfectly() {
+        for (int count : new int[] {0, 1, 10, 50, 100}) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < count; ++i) keys.add("org.plukh.options.option" + i);
+            KeyIndex index = new KeyIndex(keys, new boolean[count]);
+
+            assertTrue("Not perfect for " + count + " keys", index.isPerfect());
+            for (int i = 0; i < count; ++i) assertEquals(i, find(index, keys.get(i)));
+        }
+    }
+
+    @Test
+    public void largeKeySetsShouldBeIndexed() {
+        //Too many keys for perfect hashing tables, colliding keys are probed
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100000; ++i) keys.add("key" + i);
+        KeyIndex index = new KeyIndex(keys, new boolean[keys.size()]);
+
+        for (int i = 0; i < keys.size(); ++i) assertEquals(i, find(index, keys.get(i)));
+        assertEquals(-1, find(index, "key100000"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateKeysShouldBeRejected() {
+        new KeyIndex(Arrays.asList("a", "b", "a"), new boolean[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonAsciiKeysShouldBeRejected() {
+        new KeyIndex(Collections.singletonList("ключ"), new boolean[1]);
+    }
+
+    private static int find(KeyIndex index, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return index.find(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.plukh.options.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class OptionsFileLockTest {
+    private static Path tempDir;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        tempDir = TestUtils.createTempDirectory("lockfiletest");
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        TestUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void lockShouldBeExclusiveWithinJvm() throws Exception {
+        final Path lockFile = tempDir.resolve("options.properties.lock");
+        final CountDownLatch locked = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        final Thread other;
+        try (OptionsFileLock ignored = OptionsFileLock.acquire(lockFile, false)) {
+            assertTrue(Files.exists(lockFile));
+            other = new Thread(() -> {
+                try (OptionsFileLock lock = OptionsFileLock.acquire(lockFile, true)) {
+                    locked.countDown();
+                } catch (IOException e) {
+                    failed.set(true);
+                }
+            });
+            other.start();
+            assertFalse("Lock shouldn't be taken while held by another thread",
+                    locked.await(200, TimeUnit.MILLISECONDS));
+        }
+
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        other.join();
+        assertFalse(failed.get());
+    }
+}
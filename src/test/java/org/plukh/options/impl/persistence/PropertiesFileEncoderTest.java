@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PropertiesFileEncoderTest {
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    public void linesShouldBeEncodedAsUtf8() {
+        PropertiesFileEncoder encoder = new PropertiesFileEncoder();
+        encoder.line("# comment");
+        encoder.line("ascii", "value");
+        encoder.line("empty", null);
+        encoder.line("unicode", "Привет, мир: ü € 😀");
+        encoder.line("surrogates", "\uD83D-\uDE00");
+
+        String expected = "# comment" + NL + "ascii=value" + NL + "empty=" + NL +
+                "unicode=Привет, мир: ü € 😀" + NL + "surrogates=\uD83D-\uDE00" + NL;
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), encode(encoder));
+    }
+
+    @Test
+    public void encodedLengthShouldMatchStringEncoding() {
+        for (String s : Arrays.asList("", "abc", "ü", "€", "😀", "\uD83D", "\uDE00x", "a😀b\uD800")) {
+            assertEquals(s, s.getBytes(StandardCharsets.UTF_8).length, PropertiesFileEncoder.encodedLength(s));
+        }
+    }
+
+    @Test
+    public void clearedEncoderShouldBeReusable() {
+        PropertiesFileEncoder encoder = new PropertiesFileEncoder();
+        for (int i = 0; i < 1000; ++i) encoder.line("key" + i, "value" + i);
+        encode(encoder);
+        encoder.clear();
+
+        assertEquals(0, encoder.getEncodedLength());
+        encoder.line("key", "value");
+        assertArrayEquals(("key=value" + NL).getBytes(StandardCharsets.UTF_8), encode(encoder));
+    }
+
+    private static byte[] encode(PropertiesFileEncoder encoder) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoder.getEncodedLength());
+        encoder.encode(buffer);
+        assertFalse(buffer.hasRemaining());
+
+        byte[] bytes = new byte[buffer.capacity()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.plukh.options.TestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PropertiesFileParserTest {
+    private static final String CONTENTS = "# [TestOptions], modified on today\n" +
+            "  string =  a value with spaces  \r\n" +
+            "\n" +
+            "int=5\r" +
+            "#commented=1\n" +
+            "no separator line\n" +
+            "unicode=Привет, мир\n" +
+            "empty=\n" +
+            "equals=a=b\n" +
+            "other=skipped\n" +
+            "ids#index=3:2\n" +
+            "ids#0=1:2\n" +
+            "ids#1=3\n" +
+            "string=last value wins";
+
+    private static Path tempDir;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        tempDir = TestUtils.createTempDirectory("pfptest");
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        TestUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void streamShouldBeParsed() throws IOException {
+        Map<String, String> properties = parseStream(CONTENTS, index(Collections.singletonList("ids"),
+                "string", "int", "unicode", "empty", "equals", "missing", "ids"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("string", "last value wins");
+        expected.put("int", "5");
+        expected.put("unicode", "Привет, мир");
+        expected.put("empty", "");
+        expected.put("equals", "a=b");
+        expected.put("ids#index", "3:2");
+        expected.put("ids#0", "1:2");
+        expected.put("ids#1", "3");
+        assertEquals(expected, properties);
+    }
+
+    @Test
+    public void fileShouldBeParsedLikeStream() throws IOException {
+        KeyIndex index = index(Collections.singletonList("ids"), "string", "int", "unicode", "empty", "equals", "ids");
+        Path file = tempDir.resolve("contents.properties");
+        Files.write(file, CONTENTS.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(parseStream(CONTENTS, index), parseFile(file, index));
+    }
+
+    @Test
+    public void pageLinesShouldOnlyBeReadForPagedKeys() throws IOException {
+        Map<String, String> properties = parseStream(CONTENTS, index(Collections.<String>emptyList(), "ids"));
+        assertTrue(properties.isEmpty());
+    }
+
+    @Test
+    public void keysShouldMatchExactly() throws IOException {
+        Map<String, String> properties = parseStream("abc=1\nab=2\nabcd=3\n", index(Collections.<String>emptyList(),
+                "abc"));
+        assertEquals(Collections.singletonMap("abc", "1"), properties);
+    }
+
+    @Test
+    public void linesShouldBeParsedAcrossStreamChunks() throws IOException {
+        //Lines of various lengths, some of them longer than a chunk, end at every possible offset in a chunk
+        StringBuilder sb = new StringBuilder();
+        Map<String, String> expected = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            String value = "value ü " + new String(new char[i % 500 == 0 ? 100000 + i : i]).replace('\0', 'x');
+            sb.append("key").append(i).append(" = ").append(value).append(i % 2 == 0 ? "\n" : "\r\n");
+            keys.add("key" + i);
+            expected.put("key" + i, value);
+        }
+
+        Map<String, String> properties = parseStream(sb.toString(), new KeyIndex(keys, new boolean[keys.size()]));
+        assertEquals(expected.keySet(), properties.keySet());
+        for (String key : keys) assertTrue("Wrong value of " + key, expected.get(key).equals(properties.get(key)));
+    }
+
+    @Test
+    public void smallAndLargeFilesShouldBeParsed() throws IOException {
+        //Large files are memory-mapped
+        for (int lines : new int[] {10, 100000}) {
+            StringBuilder sb = new StringBuilder();
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 0; i < lines; ++i) {
+                sb.append("key").append(i).append('=').append("value ").append(i).append(" ü\n");
+                if (i % 7 == 0) expected.put("key" + i, "value " + i + " ü");
+            }
+            Path file = tempDir.resolve("test" + lines + ".properties");
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+            KeyIndex index = new KeyIndex(new ArrayList<>(expected.keySet()), new boolean[expected.size()]);
+            assertEquals(expected, parseFile(file, index));
+        }
+    }
+
+    @Test
+    public void filesShouldBeParsedInParallelLikeSequentially() throws IOException {
+        //Keys repeat all over the file, so values from later chunks must override earlier ones
+        StringBuilder sb = new StringBuilder(CONTENTS).append('\n');
+        for (int i = 0; i < 100000; ++i) {
+            sb.append("key").append(i % 1000).append(" = value ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+            if (i % 10000 == 0) sb.append("ids#").append(i / 10000).append("=page ").append(i).append('\n');
+        }
+        Path file = tempDir.resolve("parallel.properties");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> keys = new ArrayList<>(Arrays.asList("string", "unicode", "ids"));
+        for (int i = 0; i < 1000; i += 3) keys.add("key" + i);
+        boolean[] paged = new boolean[keys.size()];
+        paged[2] = true;
+        KeyIndex index = new KeyIndex(keys, paged);
+
+        Map<String, String> expected = parseFile(file, index);
+        assertEquals("value 99999", expected.get("key999"));
+        assertEquals("page 90000", expected.get("ids#9"));
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            MapSink sink = new MapSink(index);
+            PropertiesFileParser.parse(file, index, sink, pool);
+            assertEquals(expected, sink.properties);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void filesModifiedInPlaceShouldBeReadIntoMemory() throws IOException {
+        StringBuilder sb = new StringBuilder(CONTENTS).append('\n');
+        for (int i = 0; sb.length() < 2 * 1024 * 1024; ++i) sb.append("key").append(i).append('=').append(i).append('\n');
+        Path file = tempDir.resolve("inplace.properties");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        KeyIndex index = index(Collections.<String>emptyList(), "string", "key1000");
+
+        ByteBuffer contents = PropertiesFileParser.read(file, false);
+        assertFalse(contents instanceof MappedByteBuffer);
+
+        //Truncating the file doesn't affect contents already read
+        Files.write(file, new byte[0]);
+        MapSink sink = new MapSink(index);
+        PropertiesFileParser.parse(contents, index, sink);
+        assertEquals("1000", sink.properties.get("key1000"));
+        assertEquals("last value wins", sink.properties.get("string"));
+    }
+
+    private static KeyIndex index(List<String> paged, String... keys) {
+        boolean[] pagedSlots = new boolean[keys.length];
+        for (int i = 0; i < keys.length; ++i) pagedSlots[i] = paged.contains(keys[i]);
+        return new KeyIndex(Arrays.asList(keys), pagedSlots);
+    }
+
+    private static Map<String, String> parseStream(String contents, KeyIndex index) throws IOException {
+        MapSink sink = new MapSink(index);
+        PropertiesFileParser.parse(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), index, sink);
+        return sink.properties;
+    }
+
+    private static Map<String, String> parseFile(Path file, KeyIndex index) throws IOException {
+        MapSink sink = new MapSink(index);
+        PropertiesFileParser.parse(file, index, sink);
+        return sink.properties;
+    }
+
+    private static class MapSink implements PropertiesFileParser.Sink {
+        private final KeyIndex index;
+        private final Map<String, String> properties = new HashMap<>();
+
+        private MapSink(KeyIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void value(int slot, String value, long lineStart, int lineLength) {
+            properties.put(index.getKey(slot), value);
+        }
+
+        @Override
+        public void pageValue(int slot, String key, String value) {
+            assertTrue(key.startsWith(index.getKey(slot) + "#"));
+            properties.put(key, value);
+        }
+    }
+}
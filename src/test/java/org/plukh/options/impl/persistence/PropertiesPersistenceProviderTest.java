@@ -16,16 +16,40 @@
 
 package org.plukh.options.impl.persistence;
 
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.plukh.options.*;
+import org.plukh.options.impl.persistence.interfaces.BoundedQueueTestOptions;
+import org.plukh.options.impl.persistence.interfaces.CollectionTestOptions;
 import org.plukh.options.impl.persistence.interfaces.DefaultValueTestOptions;
+import org.plukh.options.impl.persistence.interfaces.PagedCollectionTestOptions;
+import org.plukh.options.impl.persistence.interfaces.PatchTestOptions;
 import org.plukh.options.impl.persistence.interfaces.ReadOnlyTestOptions;
 import org.plukh.options.impl.persistence.interfaces.TransientOptionTestOptions;
 import org.plukh.options.interfaces.TestOptions;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
 
@@ -33,8 +57,32 @@ public class PropertiesPersistenceProviderTest {
     private PropertiesPersistenceProvider provider;
     private String homeDir;
 
+    private static final String NL = System.lineSeparator();
+    private static final String PATCH_CONTENTS = "# Hand-edited options\n" +
+            "  name = server one  \n" +
+            "unknown.key=kept\n" +
+            "port=8080\r\n" +
+            "hosts=x:y";
+
+    private static Path tempDir;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        tempDir = TestUtils.createTempDirectory("ppptest");
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException, InterruptedException {
+        //Backups may still be rotated in the background
+        BackupRotator.awaitRotations();
+        TestUtils.deleteDirectory(tempDir);
+    }
+
     @Before
-    public void setUp() {
+    public void setUp() throws IOException {
+        try (DirectoryStream<Path> patchFiles = Files.newDirectoryStream(tempDir, "patch.properties*")) {
+            for (Path file : patchFiles) Files.delete(file);
+        }
         TestUtils.resetOptionsFactory();
         provider = new PropertiesPersistenceProvider();
         homeDir = System.getProperty("user.home");
@@ -105,6 +153,33 @@ public class PropertiesPersistenceProviderTest {
         testPathConfig(null, filename, expectedPath);
     }
 
+    @Test
+    public void pathsShouldBeResolvedAgainstWorkingDirOfConfiguredFileSystem() throws Exception {
+        try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix().toBuilder().setWorkingDirectory("/work").build())) {
+            FileConfig config = new FileConfig("test", "test.properties");
+            config.setFileSystem(fs);
+            provider.init(TestOptions.class);
+            provider.configure(config);
+            assertEquals(fs.getPath("/work/test/test.properties"), provider.getOptionsFile().toAbsolutePath());
+
+            config = new FileConfig(null, "patch");
+            config.setFileSystem(fs);
+            TestUtils.resetOptionsFactory();
+            PatchTestOptions options = OptionsFactory.getOptionsInstance(PatchTestOptions.class);
+            options.configurePersistenceProvider(config);
+            options.setPort(8081);
+            options.save(false);
+            assertTrue(new String(Files.readAllBytes(fs.getPath("/work/patch.properties")), StandardCharsets.UTF_8)
+                    .contains("port=8081"));
+
+            TestUtils.resetOptionsFactory();
+            options = OptionsFactory.getOptionsInstance(PatchTestOptions.class);
+            options.configurePersistenceProvider(config);
+            options.load(false);
+            assertEquals(8081, options.getPort());
+        }
+    }
+
     @Test
     public void testOptionLoad() throws OptionsException, IOException {
         DefaultValueTestOptions options = OptionsFactory.getOptionsInstance(DefaultValueTestOptions.class);
@@ -208,11 +283,551 @@ public class PropertiesPersistenceProviderTest {
         assertEquals(1, options.getValue());
     }
 
+    @Test
+    public void collectionOptionsShouldBeLoaded() throws OptionsException {
+        CollectionTestOptions options = OptionsFactory.getOptionsInstance(CollectionTestOptions.class);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(options.getStrings()));
+
+        loadOptionsFromProperties(options, false, "properties/CollectionTestOptions.properties");
+        assertEquals(Arrays.asList("x", "y", "z"), new ArrayList<>(options.getStrings()));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(options.getNumbers()));
+    }
+
+    @Test
+    public void collectionOptionsShouldBeSaved() throws OptionsException, IOException {
+        CollectionTestOptions options = OptionsFactory.getOptionsInstance(CollectionTestOptions.class);
+        options.getStrings().clear();
+        options.getStrings().addAll(Arrays.asList("x", "y", "z"));
+        options.getNumbers().addAll(Arrays.asList(1, 2, 3));
+
+        saveOptionsAndCompareResult(options, false, "properties/CollectionTestOptions.properties");
+    }
+
+    @Test
+    public void collectionOptionsMissingFromTheStoreShouldBeResetToDefaultOnLoad() throws OptionsException {
+        CollectionTestOptions options = OptionsFactory.getOptionsInstance(CollectionTestOptions.class);
+        options.getStrings().add("c");
+        options.getNumbers().add(1);
+
+        loadOptionsFromProperties(options, false, "properties/EmptyProperties.properties");
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(options.getStrings()));
+        assertTrue(options.getNumbers().isEmpty());
+    }
+
+    @Test
+    public void pagedCollectionOptionsShouldBeSavedPageByPage() throws OptionsException, IOException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        options.saveToStream(out, false);
+        Properties props = new Properties();
+        props.load(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals("3:2", props.getProperty("ids#index"));
+        assertEquals("1:2", props.getProperty("ids#0"));
+        assertEquals("3", props.getProperty("ids#1"));
+        assertFalse(props.containsKey("ids"));
+    }
+
+    @Test
+    public void pagedCollectionOptionsShouldBeLoadedLazily() throws OptionsException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+
+        //Elements of pages which aren't accessed are never converted
+        loadOptionsFromString(options, false, "ids#index=5:2\nids#0=10:20\nids#1=x:y\nids#2=50\n");
+        assertEquals(5, options.getIds().size());
+        assertEquals(Integer.valueOf(10), options.getIds().get(0));
+        assertEquals(Integer.valueOf(50), options.getIds().get(4));
+
+        try {
+            options.getIds().get(2);
+            fail("Expected exception not thrown for a page with unconvertible elements");
+        } catch (ParseException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void pagedCollectionOptionsStoredAsSingleLineShouldBeLoaded() throws OptionsException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+
+        loadOptionsFromString(options, false, "ids=4:5:6:7:8\n");
+        assertEquals(Arrays.asList(4, 5, 6, 7, 8), new ArrayList<>(options.getIds()));
+    }
+
+    @Test
+    public void pagedCollectionOptionWithMissingPageShouldBeResetToDefaultIfErrorsSuppressed() throws OptionsException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+
+        try {
+            loadOptionsFromString(options, false, "ids#index=5:2\nids#0=10:20\nids#2=50\n");
+            fail("Expected exception not thrown for a missing page");
+        } catch (ConversionException e) {
+            assertTrue(e.getMessage().contains("ids"));
+        }
+
+        loadOptionsFromString(options, true, "ids#index=5:2\nids#0=10:20\nids#2=50\n");
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(options.getIds()));
+    }
+
+    @Test
+    public void queueExceedingCapacityShouldBeReportedAsConversionError() throws OptionsException {
+        BoundedQueueTestOptions options = OptionsFactory.getOptionsInstance(BoundedQueueTestOptions.class);
+        final String properties = "port=5\ntasks=1:2:3:4:5:6:7:8:9:10\n";
+        try {
+            loadOptionsFromString(options, false, properties);
+            fail("Expected conversion exception not thrown");
+        } catch (ConversionException e) {
+            assertEquals(Collections.singletonList("tasks"), new ArrayList<>(e.getConversionErrors()));
+            //Nothing is loaded
+            assertEquals(8080, options.getPort());
+            assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(options.getTasks()));
+        }
+
+        loadOptionsFromString(options, true, properties);
+        assertEquals(5, options.getPort());
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(options.getTasks()));
+    }
+
+    @Test
+    public void largeFilesShouldBeLoadedInParallelLikeSmallOnes() throws OptionsException, ProviderConfigurationException,
+            IOException {
+        PagedCollectionTestOptions options = OptionsFactory.getOptionsInstance(PagedCollectionTestOptions.class);
+        configureParallelLoad(options);
+
+        //Lines of the option are spread over chunks; the last index line wins
+        writeLargeOptionsFile("ids#index=1:2\n", "ids#0=10:20\nids#1=30\n", "ids#index=3:2\n");
+        assertTrue(options.load(false));
+        assertEquals(Arrays.asList(10, 20, 30), new ArrayList<>(options.getIds()));
+    }
+
+    @Test
+    public void conversionErrorsShouldBeReportedWhenLoadingInParallel() throws OptionsException, ProviderConfigurationException,
+            IOException {
+        DefaultValueTestOptions options = OptionsFactory.getOptionsInstance(DefaultValueTestOptions.class);
+        configureParallelLoad(options);
+        options.setValue(10);
+
+        writeLargeOptionsFile("default.value=5\n", "default.value=x\n", "");
+        try {
+            options.load(false);
+            fail("Expected conversion exception not thrown");
+        } catch (ConversionException e) {
+            assertEquals(Collections.singletonList("default.value"), new ArrayList<>(e.getConversionErrors()));
+            assertEquals(10, options.getValue());
+        }
+
+        options.load(true);
+        assertEquals(1, options.getValue());
+    }
+
+    @Test
+    public void optionsFileShouldBeTruncatedWhenSavingSmallerFile() throws OptionsException,
+            ProviderConfigurationException, IOException {
+        CollectionTestOptions options = OptionsFactory.getOptionsInstance(CollectionTestOptions.class);
+        FileConfig config = fileConfig("save.properties");
+        config.setSyncOnSave(true);
+        options.configurePersistenceProvider(config);
+
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) strings.add("Значение " + i);
+        options.getStrings().addAll(strings);
+        options.save(false);
+        long largeLength = Files.size(tempDir.resolve("save.properties"));
+
+        options.getStrings().clear();
+        options.getStrings().addAll(Arrays.asList("a", "b"));
+        options.save(false);
+        assertTrue(Files.size(tempDir.resolve("save.properties")) < largeLength);
+
+        options.getStrings().addAll(strings);
+        options.load(false);
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(options.getStrings()));
+    }
+
+    @Test
+    public void savedOptionsShouldNotDependOnTimeOfSaving() throws OptionsException, InterruptedException {
+        DefaultValueTestOptions options = OptionsFactory.getOptionsInstance(DefaultValueTestOptions.class);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        options.saveToStream(first, false);
+        Thread.sleep(1100);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        options.saveToStream(second, false);
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+    }
+
+    @Test
+    public void unchangedOptionsShouldNotBeSaved() throws OptionsException, ProviderConfigurationException,
+            IOException, InterruptedException {
+        PatchTestOptions options = loadPatchTestOptions(true);
+        Path backup = tempDir.resolve("patch.properties.bak");
+
+        options.save(false);
+        assertFalse("Unchanged options file shouldn't be written", Files.exists(backup));
+        assertEquals(PATCH_CONTENTS, readPatchFile());
+
+        //Setting an option marks it changed even if its value is the same
+        options.setPort(8080);
+        options.save(false);
+        BackupRotator.awaitRotations();
+        assertTrue(Files.exists(backup));
+        assertEquals(PATCH_CONTENTS, readPatchFile());
+    }
+
+    @Test
+    public void changedOptionsShouldBePatchedInPlace() throws OptionsException, ProviderConfigurationException,
+            IOException {
+        PatchTestOptions options = loadPatchTestOptions(false);
+
+        //Same length
+        options.setPort(9090);
+        options.save(false);
+        String expected = PATCH_CONTENTS.replace("port=8080", "port=9090");
+        assertEquals(expected, readPatchFile());
+
+        //Shorter line, lines following it shift
+        options.setName("srv");
+        options.save(false);
+        expected = expected.replace("  name = server one  ", "name=srv");
+        assertEquals(expected, readPatchFile());
+
+        options.setPort(12345);
+        options.save(false);
+        expected = expected.replace("port=9090", "port=12345");
+        assertEquals(expected, readPatchFile());
+
+        //Collections are modified in place
+        options.getHosts().add("z");
+        options.save(false);
+        expected = expected.replace("hosts=x:y", "hosts=x:y:z");
+        assertEquals(expected, readPatchFile());
+
+        //Missing options are appended
+        options.setTimeout(60);
+        options.save(false);
+        expected = expected + NL + "timeout=60" + NL;
+        assertEquals(expected, readPatchFile());
+
+        //Options with default values are removed when saving non-default values only
+        options.setPort(8080);
+        options.save(true);
+        expected = expected.replace("port=12345\r\n", "");
+        assertEquals(expected, readPatchFile());
+
+        PatchTestOptions loaded = loadPatchTestOptions(false);
+        assertEquals("srv", loaded.getName());
+        assertEquals(8080, loaded.getPort());
+        assertEquals(60, loaded.getTimeout());
+        assertEquals(Arrays.asList("x", "y", "z"), new ArrayList<>(loaded.getHosts()));
+    }
+
+    @Test
+    public void optionsFileModifiedByOthersShouldBeRewritten() throws OptionsException,
+            ProviderConfigurationException, IOException {
+        PatchTestOptions options = loadPatchTestOptions(false);
+        Files.write(tempDir.resolve("patch.properties"), "port=1\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        options.setTimeout(60);
+        options.save(false);
+        String contents = readPatchFile();
+        assertFalse(contents.contains("unknown.key"));
+        assertTrue(contents.contains("port=8080" + NL));
+        assertTrue(contents.contains("timeout=60" + NL));
+    }
+
+    @Test
+    public void optionsFailedToConvertShouldBeSavedEvenIfUnchanged() throws OptionsException,
+            ProviderConfigurationException, IOException {
+        Path file = tempDir.resolve("patch.properties");
+        Files.write(file, PATCH_CONTENTS.replace("port=8080", "port=x").getBytes(StandardCharsets.UTF_8));
+        PatchTestOptions options = OptionsFactory.getOptionsInstance(PatchTestOptions.class);
+        options.configurePersistenceProvider(fileConfig("patch.properties"));
+        options.load(true);
+
+        options.save(false);
+        assertEquals(PATCH_CONTENTS, readPatchFile());
+    }
+
+    @Test
+    public void atomicSaveShouldReplaceOptionsFile() throws OptionsException, ProviderConfigurationException,
+            IOException, InterruptedException {
+        FileConfig config = fileConfig("patch.properties", true);
+        config.setAtomicSave(true);
+        config.setSyncOnSave(true);
+        PatchTestOptions options = loadPatchTestOptions(config);
+        Path backup = tempDir.resolve("patch.properties.bak");
+
+        options.save(false);
+        assertFalse("Unchanged options file shouldn't be written", Files.exists(backup));
+
+        //Lines are patched in a copy of the file, which replaces it
+        options.setPort(9090);
+        options.save(false);
+        String contents = PATCH_CONTENTS.replace("port=8080", "port=9090");
+        assertEquals(contents, readPatchFile());
+        assertFalse(Files.exists(tempDir.resolve("patch.properties.tmp")));
+        BackupRotator.awaitRotations();
+        assertEquals(PATCH_CONTENTS, new String(Files.readAllBytes(backup), StandardCharsets.UTF_8));
+
+        options.setName("srv");
+        options.save(false);
+        assertEquals(contents.replace("  name = server one  ", "name=srv"), readPatchFile());
+        BackupRotator.awaitRotations();
+        assertEquals(contents, new String(Files.readAllBytes(backup), StandardCharsets.UTF_8));
+
+        PatchTestOptions loaded = loadPatchTestOptions(false);
+        assertEquals("srv", loaded.getName());
+        assertEquals(9090, loaded.getPort());
+    }
+
+    @Test
+    public void backupsShouldBeRotatedAndCompressed() throws OptionsException, ProviderConfigurationException,
+            IOException, InterruptedException {
+        FileConfig config = fileConfig("patch.properties", true);
+        config.setBackupGenerations(3);
+        config.setCompressBackups(true);
+        PatchTestOptions options = loadPatchTestOptions(config);
+
+        List<String> versions = new ArrayList<>();
+        for (int port = 1; port <= 4; ++port) {
+            versions.add(0, readPatchFile());
+            options.setPort(port);
+            options.save(false);
+        }
+        BackupRotator.awaitRotations();
+
+        assertEquals(PATCH_CONTENTS.replace("port=8080", "port=4"), readPatchFile());
+        assertEquals(versions.get(0), new String(Files.readAllBytes(tempDir.resolve("patch.properties.bak")),
+                StandardCharsets.UTF_8));
+        assertEquals(versions.get(1), readGzipFile(tempDir.resolve("patch.properties.bak.2.gz")));
+        assertEquals(versions.get(2), readGzipFile(tempDir.resolve("patch.properties.bak.3.gz")));
+        assertFalse(Files.exists(tempDir.resolve("patch.properties.bak.4.gz")));
+        assertFalse(Files.exists(tempDir.resolve("patch.properties.bak.2")));
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(tempDir, "*.tmp")) {
+            assertFalse(snapshots.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void sharedFileBackupsShouldBeRotatedForAllWriters() throws OptionsException,
+            ProviderConfigurationException, IOException, InterruptedException {
+        FileConfig config = sharedConfig();
+        config.setBackupOnSave(true);
+        config.setBackupGenerations(2);
+        PatchTestOptions first = loadPatchTestOptions(config);
+        PatchTestOptions second = loadPatchTestOptions(config);
+
+        first.setPort(9090);
+        first.save(false);
+        String saved = readPatchFile();
+        second.setName("srv");
+        second.save(false);
+        BackupRotator.awaitRotations();
+
+        //Snapshots taken by both writers became generations of backups
+        assertEquals(saved, new String(Files.readAllBytes(tempDir.resolve("patch.properties.bak")),
+                StandardCharsets.UTF_8));
+        assertEquals(PATCH_CONTENTS, new String(Files.readAllBytes(tempDir.resolve("patch.properties.bak.2")),
+                StandardCharsets.UTF_8));
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(tempDir, "*.tmp")) {
+            assertFalse(snapshots.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void sharedFileShouldMergeChangesOfOtherWriters() throws OptionsException,
+            ProviderConfigurationException, IOException {
+        PatchTestOptions first = loadPatchTestOptions(sharedConfig());
+        PatchTestOptions second = loadPatchTestOptions(sharedConfig());
+
+        first.setPort(9090);
+        first.save(false);
+        String expected = PATCH_CONTENTS.replace("port=8080", "port=9090");
+        assertEquals(expected, readPatchFile());
+
+        //The second writer's changes are applied to the file saved by the first one
+        second.setName("srv");
+        second.getHosts().add("z");
+        second.save(false);
+        expected = expected.replace("  name = server one  ", "name=srv").replace("hosts=x:y", "hosts=x:y:z");
+        assertEquals(expected, readPatchFile());
+
+        //Options changed by others are left as they are
+        first.setTimeout(60);
+        first.save(false);
+        expected = expected + NL + "timeout=60" + NL;
+        assertEquals(expected, readPatchFile());
+        assertEquals("server one", first.getName());
+
+        PatchTestOptions loaded = loadPatchTestOptions(sharedConfig());
+        assertEquals("srv", loaded.getName());
+        assertEquals(9090, loaded.getPort());
+        assertEquals(60, loaded.getTimeout());
+        assertEquals(Arrays.asList("x", "y", "z"), new ArrayList<>(loaded.getHosts()));
+        assertTrue(Files.exists(tempDir.resolve("patch.properties.lock")));
+    }
+
+    @Test
+    public void concurrentSharedFileWritersShouldNotLoseChanges() throws Exception {
+        final PatchTestOptions first = loadPatchTestOptions(sharedConfig());
+        final PatchTestOptions second = loadPatchTestOptions(sharedConfig());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> firstWriter = executor.submit(() -> {
+                for (int i = 1; i <= 300; ++i) {
+                    first.setPort(i);
+                    first.save(false);
+                }
+                return null;
+            });
+            final Future<?> secondWriter = executor.submit(() -> {
+                for (int i = 1; i <= 300; ++i) {
+                    second.setTimeout(i);
+                    second.save(false);
+                }
+                return null;
+            });
+            firstWriter.get(1, TimeUnit.MINUTES);
+            secondWriter.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //Lines neither writer has changed are left as they are
+        assertTrue(readPatchFile().contains("  name = server one  "));
+        PatchTestOptions loaded = loadPatchTestOptions(sharedConfig());
+        assertEquals("server one", loaded.getName());
+        assertEquals(300, loaded.getPort());
+        assertEquals(300, loaded.getTimeout());
+        assertEquals(Arrays.asList("x", "y"), new ArrayList<>(loaded.getHosts()));
+
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(tempDir, "patch.properties*.tmp")) {
+            assertFalse(temps.iterator().hasNext());
+        }
+    }
+
+    private static FileConfig fileConfig(String filename) {
+        FileConfig config = new FileConfig(tempDir.toString(), filename);
+        config.setFileSystem(tempDir.getFileSystem());
+        return config;
+    }
+
+    private static FileConfig fileConfig(String filename, boolean backupOnSave) {
+        FileConfig config = fileConfig(filename);
+        config.setBackupOnSave(backupOnSave);
+        return config;
+    }
+
+    private FileConfig sharedConfig() {
+        FileConfig config = fileConfig("patch.properties");
+        config.setSharedFile(true);
+        return config;
+    }
+
+    @Test
+    public void reloadShouldBeSkippedIfNothingChanged() throws OptionsException, ProviderConfigurationException,
+            IOException {
+        PatchTestOptions options = loadPatchTestOptions(false);
+        Path file = tempDir.resolve("patch.properties");
+        assertFalse(options.reload(false));
+
+        //Options changed since loading are reloaded
+        options.setPort(1);
+        assertTrue(options.reload(false));
+        assertEquals(8080, options.getPort());
+        options.getHosts().add("z");
+        assertTrue(options.reload(false));
+        assertEquals(Arrays.asList("x", "y"), new ArrayList<>(options.getHosts()));
+        assertFalse(options.reload(false));
+
+        //Files touched or rewritten with the same contents are checked by their checksums
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        assertFalse(options.reload(false));
+        Files.write(file, PATCH_CONTENTS.getBytes(StandardCharsets.UTF_8));
+        assertFalse(options.reload(false));
+
+        //Files changed without changing their size and modification time are noticed if modified recently
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.write(file, PATCH_CONTENTS.replace("port=8080", "port=8081").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, modified);
+        assertTrue(options.reload(false));
+        assertEquals(8081, options.getPort());
+
+        //Files saved as a whole are checked by their checksums as well
+        options.setPort(9090);
+        options.save(false);
+        assertFalse(options.reload(false));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        assertFalse(options.reload(false));
+        assertEquals(9090, options.getPort());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backupGenerationsShouldBePositive() {
+        fileConfig("patch.properties", true).setBackupGenerations(0);
+    }
+
+    private String readGzipFile(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) out.write(buffer, 0, read);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private PatchTestOptions loadPatchTestOptions(boolean backupOnSave) throws OptionsException,
+            ProviderConfigurationException, IOException {
+        return loadPatchTestOptions(fileConfig("patch.properties", backupOnSave));
+    }
+
+    private PatchTestOptions loadPatchTestOptions(FileConfig config) throws OptionsException,
+            ProviderConfigurationException, IOException {
+        Path file = tempDir.resolve("patch.properties");
+        if (!Files.exists(file)) Files.write(file, PATCH_CONTENTS.getBytes(StandardCharsets.UTF_8));
+        Files.deleteIfExists(tempDir.resolve("patch.properties.bak"));
+
+        TestUtils.resetOptionsFactory();
+        PatchTestOptions options = OptionsFactory.getOptionsInstance(PatchTestOptions.class);
+        options.configurePersistenceProvider(config);
+        assertTrue(options.load(false));
+        return options;
+    }
+
+    private String readPatchFile() throws IOException {
+        return new String(Files.readAllBytes(tempDir.resolve("patch.properties")), StandardCharsets.UTF_8);
+    }
+
+    private void configureParallelLoad(PersistenceOptions options) throws ProviderConfigurationException {
+        FileConfig config = fileConfig("parallel.properties");
+        config.setParallelLoadThreshold(0);
+        config.setLoadParallelism(2);
+        options.configurePersistenceProvider(config);
+    }
+
+    private void writeLargeOptionsFile(String... parts) throws IOException {
+        //Parts are separated by about a megabyte of other options' lines, so they end up in different chunks
+        StringBuilder filler = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) filler.append("other.option").append(i).append(" = some other value\n");
+
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) sb.append(part).append(filler);
+        Files.write(tempDir.resolve("parallel.properties"), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void loadOptionsFromString(PersistenceOptions options, boolean suppressConversionErrors, String properties)
+            throws OptionsException {
+        options.loadFromStream(new ByteArrayInputStream(properties.getBytes(StandardCharsets.UTF_8)), suppressConversionErrors);
+    }
+
     private void testPathConfig(String path, String filename, String expectedPath) throws ProviderConfigurationException {
         FileConfig fc = new FileConfig(path, filename);
         provider.init(TestOptions.class);
         provider.configure(fc);
-        assertEquals(expectedPath, provider.getOptionsFile().getAbsolutePath());
+        assertEquals(expectedPath, provider.getOptionsFile().toAbsolutePath().toString());
     }
 
     private void saveOptionsAndCompareResult(PersistenceOptions options, boolean nonDefaultOnly, String expectedPropsFileName)
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.plukh.options.OptionsException;
+import org.plukh.options.OptionsFactory;
+import org.plukh.options.ProviderConfigurationException;
+import org.plukh.options.TestUtils;
+import org.plukh.options.impl.OptionsProxyHandler;
+import org.plukh.options.impl.persistence.interfaces.JournaledQueueTestOptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class QueueJournalFileTest {
+    private static Path tempDir;
+    private Path journalFile;
+    private final List<JournaledQueueTestOptions> created = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        tempDir = TestUtils.createTempDirectory("qjftest");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.cleanDirectory(tempDir);
+        journalFile = tempDir.resolve("journaled.properties.retries.journal");
+    }
+
+    @After
+    public void tearDown() throws OptionsException {
+        //Background compactions have to complete before the directory is cleaned up
+        for (JournaledQueueTestOptions options : created) getProvider(options).closeJournals();
+        created.clear();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        TestUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void journaledQueueShouldBeRestoredFromJournal() throws Exception {
+        JournaledQueueTestOptions options = setupOptions();
+        assertFalse(options.load(false));
+        getProvider(options).awaitJournalCompactions();
+
+        options.getRetries().add("c");
+        options.getRetries().poll();
+        options.setInt(5);
+        options.save(false);
+
+        //Queue is stored in its journal only
+        assertEquals(Arrays.asList("=a:b", "+c", "-"), Files.readAllLines(journalFile));
+        assertFalse(readOptionsFile().containsKey("retries"));
+        assertEquals("5", readOptionsFile().getProperty("int"));
+
+        //Modifications made after saving are persisted as well
+        options.getRetries().add("d");
+
+        JournaledQueueTestOptions restored = setupOptions();
+        assertTrue(restored.load(false));
+        assertEquals(Arrays.asList("b", "c", "d"), new ArrayList<>(restored.getRetries()));
+        assertEquals(5, restored.getInt());
+
+        //Journal is compacted after having been replayed
+        getProvider(restored).awaitJournalCompactions();
+        assertEquals(Collections.singletonList("=b:c:d"), Files.readAllLines(journalFile));
+
+        restored.getRetries().clear();
+        assertEquals(Arrays.asList("=b:c:d", "="), Files.readAllLines(journalFile));
+    }
+
+    @Test
+    public void modifiedJournaledQueueShouldNotBeReloaded() throws Exception {
+        JournaledQueueTestOptions options = setupOptions();
+        options.setInt(5);
+        options.save(false);
+        assertTrue(options.load(false));
+        getProvider(options).awaitJournalCompactions();
+
+        //Queues are kept in their journals, so modifying them doesn't make options stale
+        options.getRetries().add("c");
+        assertFalse(options.reload(false));
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(options.getRetries()));
+        assertEquals(Arrays.asList("=a:b", "+c"), Files.readAllLines(journalFile));
+    }
+
+    @Test
+    public void elementsWithLineSeparatorsShouldBeJournaled() throws Exception {
+        JournaledQueueTestOptions options = setupOptions();
+        options.load(false);
+        getProvider(options).awaitJournalCompactions();
+
+        options.getRetries().add("line1\nline2");
+        options.getRetries().add("back\\slash\r");
+        assertEquals(Arrays.asList("=a:b", "+line1\\nline2", "+back\\\\slash\\r"), Files.readAllLines(journalFile));
+
+        //Journal is replayed and compacted into a snapshot...
+        JournaledQueueTestOptions restored = setupOptions();
+        restored.load(false);
+        assertEquals(Arrays.asList("a", "b", "line1\nline2", "back\\slash\r"), new ArrayList<>(restored.getRetries()));
+        getProvider(restored).awaitJournalCompactions();
+        assertEquals(1, Files.readAllLines(journalFile).size());
+
+        //...which is replayed as well
+        restored = setupOptions();
+        restored.load(false);
+        assertEquals(Arrays.asList("a", "b", "line1\nline2", "back\\slash\r"), new ArrayList<>(restored.getRetries()));
+    }
+
+    @Test
+    public void tornJournalRecordShouldBeIgnored() throws Exception {
+        Files.write(journalFile, "=x:y\n+z\n-\n+w".getBytes(StandardCharsets.UTF_8));
+
+        JournaledQueueTestOptions options = setupOptions();
+        options.load(false);
+        assertEquals(Arrays.asList("y", "z"), new ArrayList<>(options.getRetries()));
+    }
+
+    @Test
+    public void savingBeforeLoadingShouldOverwriteJournal() throws Exception {
+        Files.write(journalFile, "=x:y\n".getBytes(StandardCharsets.UTF_8));
+
+        JournaledQueueTestOptions options = setupOptions();
+        options.getRetries().add("c");
+        options.save(false);
+
+        assertEquals(Collections.singletonList("=a:b:c"), Files.readAllLines(journalFile));
+    }
+
+    @Test
+    public void corruptJournalShouldLeaveQueueUnmodified() throws Exception {
+        Files.write(journalFile, "=x:y\n?\n".getBytes(StandardCharsets.UTF_8));
+
+        JournaledQueueTestOptions options = setupOptions();
+        try {
+            options.load(false);
+            fail("Expected exception not thrown for a corrupt journal");
+        } catch (OptionsException e) {
+            //Expected
+        }
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(options.getRetries()));
+    }
+
+    private JournaledQueueTestOptions setupOptions() throws OptionsException, ProviderConfigurationException {
+        //Every call should create a new instance, like a restarted application would
+        TestUtils.resetOptionsFactory();
+        JournaledQueueTestOptions options = OptionsFactory.getOptionsInstance(JournaledQueueTestOptions.class);
+        options.configurePersistenceProvider(getFileConfig());
+        created.add(options);
+        return options;
+    }
+
+    private static FileConfig getFileConfig() {
+        FileConfig config = new FileConfig(tempDir.toString(), "journaled.properties");
+        config.setFileSystem(tempDir.getFileSystem());
+        return config;
+    }
+
+    private PropertiesPersistenceProvider getProvider(JournaledQueueTestOptions options) {
+        OptionsProxyHandler handler = (OptionsProxyHandler) Proxy.getInvocationHandler(options);
+        return (PropertiesPersistenceProvider) handler.getPersistenceProvider();
+    }
+
+    private Properties readOptionsFile() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(tempDir.resolve("journaled.properties"))) {
+            props.load(in);
+        }
+        return props;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.plukh.options.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SyncGroupTest {
+    private static Path tempDir;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        tempDir = TestUtils.createTempDirectory("syncgrouptest");
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        TestUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void filesInSameDirectoryShouldShareGroup() {
+        assertSame(SyncGroup.forDirectory(tempDir),
+                SyncGroup.forDirectory(tempDir.resolve("sub/..")));
+        assertNotSame(SyncGroup.forDirectory(tempDir),
+                SyncGroup.forDirectory(tempDir.getParent()));
+    }
+
+    @Test
+    public void concurrentSyncsShouldBeBatched() throws Exception {
+        final SyncGroup group = SyncGroup.forDirectory(tempDir);
+        final int threads = 8;
+        final int syncs = 20;
+        final long batchesBefore = group.getBatchCount();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final Path file = tempDir.resolve("sync" + t);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < syncs; ++i) {
+                        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                        Files.write(temp, new byte[i + 1]);
+                        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                        group.sync();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final long batches = group.getBatchCount() - batchesBefore;
+        assertTrue(batches > 0);
+        assertTrue("Expected at most " + threads * syncs + " batches, got " + batches, batches <= threads * syncs);
+        for (int t = 0; t < threads; ++t) assertEquals(syncs, Files.size(tempDir.resolve("sync" + t)));
+    }
+
+    @Test
+    public void missingDirectoryShouldNotBeSynced() throws IOException {
+        SyncGroup.forDirectory(tempDir.resolve("missing")).sync();
+    }
+}
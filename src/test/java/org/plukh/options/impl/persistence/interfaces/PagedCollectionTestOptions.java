@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence.interfaces;
+
+import org.plukh.options.CollectionOption;
+import org.plukh.options.Persistence;
+import org.plukh.options.impl.persistence.PersistenceOptions;
+import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
+
+import java.util.List;
+
+@Persistence(PropertiesPersistenceProvider.class)
+public interface PagedCollectionTestOptions extends PersistenceOptions {
+    @CollectionOption(key = "ids", elementClass = Integer.class, defaultValue = "1:2:3", pageSize = 2, residentPages = 1)
+    List<Integer> getIds();
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.impl.persistence.interfaces;
+
+import org.plukh.options.CollectionOption;
+import org.plukh.options.Option;
+import org.plukh.options.Persistence;
+import org.plukh.options.impl.persistence.PersistenceOptions;
+import org.plukh.options.impl.persistence.PropertiesPersistenceProvider;
+
+import java.util.Queue;
+
+@Persistence(PropertiesPersistenceProvider.class)
+public interface PatchTestOptions extends PersistenceOptions {
+    @Option(key = "name", defaultValue = "default")
+    String getName();
+    void setName(String name);
+
+    @Option(key = "port", defaultValue = "8080")
+    int getPort();
+    void setPort(int port);
+
+    @Option(key = "timeout", defaultValue = "30")
+    int getTimeout();
+    void setTimeout(int timeout);
+
+    @CollectionOption(key = "hosts", defaultValue = "a:b")
+    Queue<String> getHosts();
+}
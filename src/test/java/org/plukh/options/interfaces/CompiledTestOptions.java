@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.interfaces;
+
+import org.plukh.options.ClassLoaderPolicy;
+import org.plukh.options.IpRangeSet;
+import org.plukh.options.Option;
+import org.plukh.options.Options;
+import org.plukh.options.PatternSet;
+
+import java.util.regex.Pattern;
+
+public interface CompiledTestOptions extends Options {
+    @Option(defaultValue = "\\d+")
+    Pattern getPattern();
+    void setPattern(Pattern value);
+
+    @Option(defaultValue = "java.util.ArrayList", classLoader = ClassLoaderPolicy.OPTIONS)
+    Class<?> getImplementation();
+    void setImplementation(Class<?> value);
+
+    @Option(defaultValue = "10.0.0.0/8, fc00::/7")
+    IpRangeSet getTrustedProxies();
+    void setTrustedProxies(IpRangeSet value);
+
+    @Option(defaultValue = "/health:/static/**", format = "glob")
+    PatternSet getUntracedRoutes();
+    void setUntracedRoutes(PatternSet value);
+}
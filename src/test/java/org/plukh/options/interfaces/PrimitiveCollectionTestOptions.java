@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2014 by Victor Denisov (vdenisov@plukh.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *            http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.plukh.options.interfaces;
+
+import org.plukh.options.CollectionOption;
+import org.plukh.options.Option;
+import org.plukh.options.Options;
+import org.plukh.options.impl.collections.OptionsLongSet;
+
+import java.util.List;
+import java.util.Set;
+
+public interface PrimitiveCollectionTestOptions extends Options {
+    @CollectionOption(elementClass = Integer.class, defaultValue = "1:2:3")
+    List<Integer> getIntList();
+
+    @CollectionOption(elementClass = Long.class)
+    Set<Long> getLongSet();
+
+    @CollectionOption(elementClass = Long.class, defaultValue = "42")
+    OptionsLongSet getAllowedIds();
+
+    @Option(defaultValue = "4:5:6")
+    long[] getLongArray();
+    void setLongArray(long[] value);
+}